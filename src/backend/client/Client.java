@@ -7,6 +7,8 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /*
 ================================================================================
@@ -58,6 +60,20 @@ public class Client {
 
     private static volatile boolean keepHistory = false;
 
+    // Folgenummern der Sitzung; gesendete Antworten bleiben vermerkt, bis das kumulative ACK des Servers sie abdeckt
+    private static final Object SEND_LOCK = new Object();
+    private static long sendSeq = 0;
+    private static final TreeMap<Long, String> unackedAnswers = new TreeMap<>();
+    // Aufgabenpaket des Testlaufs (SEND_BUNDLE); null = Aufgaben einzeln vom Server
+    private static final TaskBundle bundleParts = new TaskBundle();
+    private static volatile List<Message> bundleTasks = null;
+    private static int bundleShown = 0;
+    // lokal beantwortete Anfragen; nur vom ServerListener-Thread benutzt, der auch die Eingaben abfragt
+    private static final Deque<Message> localInbox = new ArrayDeque<>();
+    // vom SocketReader gelesene Server-Nachrichten; PINGs beantwortet der Reader selbst, auch waehrend eine Eingabe laeuft
+    private static final BlockingQueue<Message> serverInbox = new LinkedBlockingQueue<>();
+    private static final Message CONNECTION_CLOSED = new Message("CLIENT", "CLOSED", "");
+
     /** @title ServerInfo @short Container fÃƒÆ’Ã†â€™Ãƒâ€šÃ‚Â¼r Discovery-Ergebnisse. @args String ip,int tcp,String name,String desc,String test */
     private static class ServerInfo {
         final String ip; final int tcp; final String name; final String desc; final String test;
@@ -104,6 +120,9 @@ public class Client {
             return;
         }
 
+        Thread socketReader = new Thread(Client::socketReaderLoop, "SocketReader");
+        socketReader.setDaemon(true);
+        socketReader.start();
         Thread serverListener = new Thread(Client::serverListenerLoop, "ServerListener");
         serverListener.start();
         //log.writeLog("Client", localIPv4(), "START|THREAD|ServerListener");
@@ -118,7 +137,32 @@ public class Client {
         }, "ForbiddenKeyListener").start();
 
         // AUTH senden (ÃƒÆ’Ã†â€™Ãƒâ€šÃ‚Â¼ber Helper; keine checked Exception hier)
-        sendMsg(new Message(INSTANCE_PRE, "AUTH", myToken));
+        sendMsg(new Message(INSTANCE_PRE, "AUTH", myToken, List.of("bundle", "1", "heartbeat", "1")));
+    }
+
+    /**
+     * @title socketReaderLoop
+     * @short Liest den Socket auf eigenem Thread: PING wird sofort mit PONG beantwortet, alles andere in die Inbox gelegt.
+     * @args keine
+     *
+     * Der ServerListener fragt zwischendurch Eingaben auf der Konsole ab; ohne eigenen Reader bliebe ein PING so lange
+     * liegen, bis der Schueler fertig getippt hat, und der Server wuerde die Verbindung als still trennen.
+     */
+    private static void socketReaderLoop() {
+        try {
+            while (running && !socket.isClosed()) {
+                Message msg = Message.read(in);
+                if (msg == null) break;
+                if ("PING".equals(msg.messageType)) {
+                    acknowledgeThrough(msg.getString("ack"));
+                    sendMsg(new Message(clientId, "PONG", myToken, List.of("t", msg.getString("t"))));
+                    continue;
+                }
+                serverInbox.add(msg);
+            }
+        } finally {
+            serverInbox.add(CONNECTION_CLOSED);
+        }
     }
 
     /**
@@ -129,11 +173,14 @@ public class Client {
     private static void serverListenerLoop() {
         try {
             while (running && !socket.isClosed()) {
-                Message msg = Message.read(in);
-                if (msg == null) break;
+                Message msg = localInbox.isEmpty() ? serverInbox.take() : localInbox.poll();
+                if (msg == CONNECTION_CLOSED) break;
 
+                acknowledgeThrough(msg.getString("ack"));
                 switch (msg.messageType) {
                     case "AUTH_OK" -> {
+                        synchronized (SEND_LOCK) { sendSeq = 0; unackedAnswers.clear(); }
+                        bundleTasks = null;
                         clientId = msg.getString("clientId");
                         Integer count = msg.getInt("countOfTasks");
                         announcedTaskCount = count == null ? 0 : count;
@@ -151,19 +198,79 @@ public class Client {
                     case "SEND_TASK" -> {
                         handleTaskMessage(msg);
                     }
+                    case "SEND_BUNDLE" -> handleBundlePart(msg);
                     case "SEND_OVERVIEW" -> {
                         handleOverviewMessage(msg);
                     }
                     case "END_TEST" -> {
                         clear(); printlnHeader();
                         System.out.println("Test beendet. Anwendung kann geschlossen werden.");
+                        int missing;
+                        synchronized (SEND_LOCK) { missing = unackedAnswers.size(); }
+                        if (missing > 0) System.out.println("Achtung: " + missing + " Antwort(en) wurden vom Server nicht bestaetigt.");
                         running = false; closeSocket(); return;
                     }
                     default -> {}
                 }
             }
-        } 
-         finally { running = false; closeSocket(); }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally { running = false; closeSocket(); }
+    }
+
+    /**
+     * @title handleBundlePart
+     * @short Sammelt SEND_BUNDLE; vollstaendig entpackt zeigt es die erste Aufgabe aus dem Paket an.
+     * @args Message msg
+     */
+    private static void handleBundlePart(Message msg) {
+        try {
+            List<Message> tasks = bundleParts.accept(msg);
+            if (tasks == null) return;
+            bundleTasks = tasks;
+            bundleShown = 0;
+            sendMsg(new Message(clientId, "NEXT_TASK", myToken));
+        } catch (IOException e) {
+            log.writeLog("Client", localIPv4(), "ERROR|BUNDLE|" + e.getMessage());
+            bundleTasks = null;
+            sendMsg(new Message(clientId, "NEXT_TASK", myToken)); // Aufgaben einzeln holen
+        }
+    }
+
+    /**
+     * @title serveFromBundle
+     * @short Beantwortet NEXT_TASK, ASK_TASK_BY_ID und ASK_OVERVIEW aus dem Paket; der Server erhaelt nur PROGRESS.
+     * @args Message m
+     */
+    private static boolean serveFromBundle(Message m) {
+        List<Message> tasks = bundleTasks;
+        if (tasks == null) return false;
+        switch (m.messageType) {
+            case "NEXT_TASK" -> {
+                if (bundleShown < tasks.size()) {
+                    localInbox.add(tasks.get(bundleShown++));
+                    sendMsg(new Message(clientId, "PROGRESS", myToken, List.of("taskNr", String.valueOf(bundleShown))));
+                } else {
+                    localInbox.add(TaskBundle.overview(tasks, myToken));
+                    sendMsg(new Message(clientId, "PROGRESS", myToken, List.of("view", "OVERVIEW")));
+                }
+                return true;
+            }
+            case "ASK_TASK_BY_ID" -> {
+                Message task = TaskBundle.find(tasks, m.getString("taskId"));
+                if (task == null) return false;
+                localInbox.add(TaskBundle.asPreview(task));
+                return true;
+            }
+            case "ASK_OVERVIEW" -> {
+                localInbox.add(TaskBundle.overview(tasks, myToken));
+                sendMsg(new Message(clientId, "PROGRESS", myToken, List.of("view", "OVERVIEW")));
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
     }
 
     /**
@@ -675,22 +782,38 @@ public class Client {
 
     // -------- Utilities --------
     /** @title sendMsg 
-     *  @short Hilfsfunktion zum Senden. 
+     *  @short Hilfsfunktion zum Senden; alles ausser AUTH und PONG bekommt die naechste Folgenummer der Sitzung,
+     *  Aufgabenabrufe werden bei vorhandenem Paket lokal beantwortet. 
      *  @args Message m */
     private static void sendMsg(Message m) {
+        if (serveFromBundle(m)) return;
 
-        try {
-
-            Message.write(out, m);
-
-        } catch (IOException e) {
-
-            log.writeLog("Client", localIPv4(), "ERROR|SEND|" + e.getMessage());
-
+        synchronized (SEND_LOCK) {
+            try {
+                if (!"AUTH".equals(m.messageType) && !"PONG".equals(m.messageType)) {
+                    long seq = ++sendSeq;
+                    m.put("seq", String.valueOf(seq));
+                    if ("SEND_ANSWER".equals(m.messageType)) unackedAnswers.put(seq, m.getString("taskId"));
+                }
+                Message.write(out, m);
+            } catch (IOException e) {
+                log.writeLog("Client", localIPv4(), "ERROR|SEND|" + e.getMessage());
+            }
         }
 
     }
 
+    /** @title acknowledgeThrough 
+     *  @short Kumulatives ACK: alle Antworten bis zur Folgenummer sind gespeichert. 
+     *  @args String ack */
+    private static void acknowledgeThrough(String ack) {
+        if (ack == null || ack.isBlank()) return;
+        try {
+            long seq = Long.parseLong(ack.trim());
+            synchronized (SEND_LOCK) { unackedAnswers.headMap(seq, true).clear(); }
+        } catch (NumberFormatException ignored) {}
+    }
+
     /** @title parseKv 
      *  @short Parsen "key=value;..." aus Broadcast. 
      *  @args String s */
@@ -0,0 +1,160 @@
+package backend.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @title TaskBundle
+ * @short Setzt ein Aufgabenpaket (SEND_BUNDLE) aus seinen Teilen zusammen und entpackt es in SEND_TASK-Nachrichten.
+ *
+ * Der Server schickt im Paketmodus den ganzen Test beim Start als GZIP-Paket, Base64-kodiert und in Teile
+ * ({@code index}/{@code count}) zerlegt, weil ein Nachrichtenwert hoechstens 64 KB lang sein darf. Die entpackten
+ * Aufgaben haben dieselben Felder wie SEND_TASK; die Clients zeigen sie an wie vom Server gesendete Aufgaben und
+ * melden dem Server nur noch ihren Stand (PROGRESS).
+ */
+public final class TaskBundle {
+
+    private static final int VERSION = 1;
+    private static final int MAX_TEXT_BYTES = 16 * 1024 * 1024;
+
+    private final StringBuilder data = new StringBuilder();
+    private int received;
+
+    /**
+     * @title accept
+     * @short Nimmt einen Teil an; liefert die Aufgaben in Testreihenfolge, sobald das Paket vollstaendig ist, sonst null.
+     * @args Message part
+     */
+    public synchronized List<Message> accept(Message part) throws IOException {
+        int index = parse(part.getString("index"));
+        int count = parse(part.getString("count"));
+        if (index == 0) {
+            data.setLength(0);
+            received = 0;
+        }
+        if (count <= 0 || index != received) {
+            data.setLength(0);
+            received = 0;
+            throw new IOException("Aufgabenpaket unvollstaendig (Teil " + index + " von " + count + ")");
+        }
+        data.append(part.getString("data") == null ? "" : part.getString("data"));
+        received++;
+        if (received < count) {
+            return null;
+        }
+        String complete = data.toString();
+        data.setLength(0);
+        received = 0;
+        return decode(complete, part.token);
+    }
+
+    /**
+     * @title decode
+     * @short Entpackt ein vollstaendiges Paket in SEND_TASK-Nachrichten (taskNr 1-basiert, isPreview 0).
+     * @args String base64, String token
+     */
+    public static List<Message> decode(String base64, String token) throws IOException {
+        byte[] packed;
+        try {
+            packed = Base64.getDecoder().decode(base64 == null ? "" : base64);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Aufgabenpaket beschaedigt", e);
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(packed)))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unbekannte Paketversion " + version);
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Aufgabenpaket beschaedigt");
+            }
+            List<Message> tasks = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                String taskId = readText(in);
+                String question = readText(in);
+                String type = readText(in);
+                String answers = readText(in);
+                String blobs = readText(in);
+                Message task = new Message("SERVER", "SEND_TASK", token, List.of(
+                        "taskId", taskId,
+                        "taskNr", String.valueOf(i + 1),
+                        "question", question,
+                        "task", question,
+                        "taskType", type,
+                        "answers", answers,
+                        "isPreview", "0"
+                ));
+                if (!blobs.isEmpty()) {
+                    task.put("blobs", blobs);
+                }
+                tasks.add(task);
+            }
+            return List.copyOf(tasks);
+        }
+    }
+
+    /**
+     * @title asPreview
+     * @short Kopie einer Aufgabe als Vorschau, wie sie ASK_TASK_BY_ID liefern wuerde.
+     * @args Message task
+     */
+    public static Message asPreview(Message task) {
+        Message copy = new Message(task.sender, task.messageType, task.token);
+        copy.args.putAll(task.args);
+        return copy.put("isPreview", "1");
+    }
+
+    /**
+     * @title find
+     * @short Sucht eine Aufgabe des Pakets nach taskId; null, wenn sie nicht enthalten ist.
+     * @args List<Message> tasks, String taskId
+     */
+    public static Message find(List<Message> tasks, String taskId) {
+        for (Message task : tasks) {
+            if (task.getString("taskId") != null && task.getString("taskId").equals(taskId)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @title overview
+     * @short Uebersicht wie SEND_OVERVIEW ("taskId::frage||..."), aus dem Paket statt vom Server.
+     * @args List<Message> tasks, String token
+     */
+    public static Message overview(List<Message> tasks, String token) {
+        String payload = tasks.stream()
+                .map(task -> task.getString("taskId") + "::" + task.getString("question"))
+                .collect(Collectors.joining("||"));
+        return new Message("SERVER", "SEND_OVERVIEW", token, List.of("data", payload));
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_TEXT_BYTES) {
+            throw new IOException("Aufgabenpaket beschaedigt");
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new IOException("Aufgabenpaket unvollstaendig");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int parse(String value) {
+        try {
+            return value == null ? -1 : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @title AnswerFeed
+ * @short Prozessinterner Ereignisbus fuer eingehende Antworten waehrend eines laufenden Tests.
+ *
+ * Die Kommunikations-Threads rufen nur {@link #publish(AnswerEvent)} auf: das legt die Antwort in einen begrenzten
+ * Puffer (je Schueler und Aufgabe hoechstens ein Eintrag, eine neuere Antwort ersetzt die aeltere) und weckt den
+ * Verteiler-Thread. Dieser sammelt kurz und stellt die Antworten gebuendelt allen Abonnenten zu. Laeuft der Puffer
+ * ueber, werden neue Antworten verworfen und die Abonnenten ueber die Anzahl informiert, damit sie aus der Datenbank
+ * nachladen koennen; die Kommunikations-Threads warten nie.
+ */
+public final class AnswerFeed {
+
+    /** Eine gespeicherte Antwort; {@code receivedAt} in Millisekunden seit Epoch. */
+    public record AnswerEvent(int idAntwort, int idSchueler, int idTest, int idAufgabe, String antwort, long receivedAt) {
+    }
+
+    /** Ein Buendel zusammengefasster Antworten; {@code dropped > 0} bedeutet, dass Antworten verloren gingen. */
+    public record Batch(List<AnswerEvent> events, int dropped) {
+    }
+
+    /** Abonnent; wird auf dem Verteiler-Thread aufgerufen und sollte die Arbeit selbst weiterreichen. */
+    public interface Subscriber {
+        void onAnswers(Batch batch);
+    }
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    /** Sammelzeit je Zustellung; begrenzt die Zustellrate auf etwa vier Buendel pro Sekunde. */
+    private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final int capacity;
+    private final Map<Long, AnswerEvent> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicBoolean signalled = new AtomicBoolean();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile Thread dispatcher;
+
+    public AnswerFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AnswerFeed(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @title publish
+     * @short Nimmt eine Antwort entgegen, ohne zu blockieren; ohne Abonnenten ist der Aufruf praktisch kostenlos.
+     */
+    public void publish(AnswerEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long key = ((long) event.idSchueler() << 32) | (event.idAufgabe() & 0xFFFFFFFFL);
+        if (pending.size() >= capacity && !pending.containsKey(key)) {
+            dropped.incrementAndGet();
+        } else {
+            pending.merge(key, event, (older, newer) -> newer.idAntwort() >= older.idAntwort() ? newer : older);
+        }
+        Thread target = dispatcher;
+        if (target != null && signalled.compareAndSet(false, true)) {
+            LockSupport.unpark(target);
+        }
+    }
+
+    /**
+     * @title subscribe
+     * @short Meldet einen Abonnenten an; {@code close()} auf dem Ergebnis meldet ihn wieder ab.
+     */
+    public AutoCloseable subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        startDispatcher();
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+        Thread thread = new Thread(this::dispatchLoop, "Antwort-Verteiler");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            while (!signalled.get()) {
+                LockSupport.park(this);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            LockSupport.parkNanos(this, BATCH_NANOS);
+            signalled.set(false);
+            List<AnswerEvent> events = new ArrayList<>(pending.size());
+            for (Long key : pending.keySet()) {
+                AnswerEvent event = pending.remove(key);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            int lost = dropped.getAndSet(0);
+            if (events.isEmpty() && lost == 0) {
+                continue;
+            }
+            events.sort((a, b) -> Integer.compare(a.idAntwort(), b.idAntwort()));
+            Batch batch = new Batch(List.copyOf(events), lost);
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.onAnswers(batch);
+                } catch (RuntimeException ignored) {
+                    // ein fehlerhafter Abonnent darf die Zustellung an die anderen nicht verhindern
+                }
+            }
+        }
+    }
+}
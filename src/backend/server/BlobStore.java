@@ -0,0 +1,167 @@
+package backend.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @title BlobStore
+ * @short Inhaltsadressierter Dateispeicher fuer Aufgabenanhaenge (Bilder, Diagramme).
+ *
+ * Jede Datei liegt genau einmal unter {@code <root>/<ersteZweiZeichen>/<sha256>}. Aufgaben verweisen im
+ * Markdown mit {@code ![Beschreibung](blob:<sha256>)} darauf; Clients fordern fehlende Blobs per
+ * {@code ASK_BLOB} an und erhalten sie in Stuecken per {@code SEND_BLOB}.
+ */
+final class BlobStore {
+
+    /** Rohdaten je SEND_BLOB-Nachricht; Base64-kodiert bleibt das sicher unter der writeUTF-Grenze von 64 KiB. */
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    private static final Pattern BLOB_REFERENCE = Pattern.compile("blob:([0-9a-f]{64})");
+    private static final Pattern LOCAL_IMAGE = Pattern.compile("!\\[([^\\]]*)\\]\\((?!blob:|https?:)([^)\\s]+)\\)");
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    BlobStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @title put
+     * @short Uebernimmt eine Datei in den Speicher und liefert ihren SHA-256-Hash (hex).
+     */
+    String put(Path source) throws IOException {
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            if (Files.exists(target)) {
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @title resolve
+     * @short Liefert den Pfad eines gespeicherten Blobs oder null, wenn der Hash unbekannt oder ungueltig ist.
+     */
+    Path resolve(String hash) {
+        if (!isValidHash(hash)) {
+            return null;
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * @title streamChunks
+     * @short Liest einen Blob stueckweise und uebergibt jedes Stueck Base64-kodiert an den Empfaenger.
+     */
+    void streamChunks(Path blob, ChunkSink sink) throws IOException {
+        long size = Files.size(blob);
+        int count = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream in = Files.newInputStream(blob)) {
+            for (int index = 0; index < count; index++) {
+                int read = in.readNBytes(buffer, 0, CHUNK_SIZE);
+                byte[] chunk = read == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, read);
+                sink.accept(index, count, size, encoder.encodeToString(chunk));
+            }
+        }
+    }
+
+    /**
+     * @title importLocalImages
+     * @short Ersetzt relative Bildverweise im Markdown durch blob:-Verweise und legt die Dateien im Speicher ab.
+     * @args String markdown, Path baseDir (Verzeichnis der Importdatei)
+     */
+    String importLocalImages(String markdown, Path baseDir) throws IOException {
+        if (markdown == null || markdown.indexOf("![") < 0) {
+            return markdown;
+        }
+        Matcher matcher = LOCAL_IMAGE.matcher(markdown);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            Path image = baseDir.resolve(matcher.group(2)).normalize();
+            if (!Files.isRegularFile(image)) {
+                throw new IOException("Bild nicht gefunden: " + matcher.group(2));
+            }
+            String hash = put(image);
+            matcher.appendReplacement(result, Matcher.quoteReplacement("![" + matcher.group(1) + "](blob:" + hash + ")"));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * @title findReferences
+     * @short Sammelt alle im Markdown referenzierten Blob-Hashes (ohne Duplikate, in Reihenfolge).
+     */
+    static List<String> findReferences(String markdown) {
+        if (markdown == null || markdown.indexOf("blob:") < 0) {
+            return List.of();
+        }
+        Set<String> hashes = new LinkedHashSet<>();
+        Matcher matcher = BLOB_REFERENCE.matcher(markdown);
+        while (matcher.find()) {
+            hashes.add(matcher.group(1));
+        }
+        return new ArrayList<>(hashes);
+    }
+
+    static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private Path pathFor(String hash) {
+        String normalized = hash.toLowerCase(Locale.ROOT);
+        return root.resolve(normalized.substring(0, 2)).resolve(normalized);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfuegbar", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkSink {
+        void accept(int index, int count, long size, String base64Data) throws IOException;
+    }
+}
@@ -15,11 +15,27 @@ import java.util.*;
  * 
  * The database schema includes tables for subjects, teachers, classes, tests, tasks, answers, labels, and their relationships.
  * The LogfileHandler is used to log database operations.
+ *
+ * All methods share one connection and synchronize on this handler, so statements of other threads never run
+ * inside (or get rolled back with) a transaction started by {@link #inTransaction(TransactionWork)}.
  */
 public class DatabaseHandler {
 
     private static final String DB_DRIVER = "org.sqlite.JDBC";
 
+    /** Values of Bewertung.quelle; rows without a value predate the column and count as manual. */
+    public static final String BEWERTUNG_MANUELL = "manuell";
+    public static final String BEWERTUNG_AUTO = "auto";
+
+    /** Increments the row version on every update so concurrent editors can detect lost updates. */
+    private static final String VERSION_BUMP = "version = Bewertung.version + 1, aenderung = excluded.aenderung";
+
+    /** Next global change number; writers are serialized by SQLite, so numbers follow commit order. */
+    private static final String NEXT_CHANGE = "(SELECT COALESCE(MAX(aenderung), 0) + 1 FROM Bewertung)";
+
+    private static final String BEWERTUNG_VERSION_COLUMNS =
+        "b.idAntwort, b.bewertung, b.kommentar, b.punkte, b.bewertetAm, b.version, b.aenderung";
+
     private final String dbUrl;
     private final Connection conn;
     private final LogfileHandler logger = new LogfileHandler();
@@ -172,9 +188,208 @@ public class DatabaseHandler {
                 idLehrer INTEGER
             )
         """);
+            stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS AntwortSignatur (
+                idAntwort INTEGER PRIMARY KEY,
+                textHash INTEGER,
+                signatur BLOB,
+                FOREIGN KEY(idAntwort) REFERENCES Antwort(idAntwort)
+            )
+        """);
+            ensureColumn(stmt, "Aufgabe", "korrekt", "TEXT");
+            ensureColumn(stmt, "Bewertung", "quelle", "TEXT");
+            ensureColumn(stmt, "Bewertung", "version", "INTEGER NOT NULL DEFAULT 0");
+            ensureColumn(stmt, "Bewertung", "aenderung", "INTEGER NOT NULL DEFAULT 0");
+            ensureColumn(stmt, "Antwort", "schluessel", "TEXT");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_Bewertung_aenderung ON Bewertung(aenderung)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_Klasse_name ON Klasse(klassenname)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_Schueler_klasse_name ON Schueler(idKlasse, nachname, vorname)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_Antwort_test_schueler ON Antwort(idTest, idSchueler)");
+            stmt.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS idx_Antwort_schluessel ON Antwort(idSchueler, schluessel) "
+                + "WHERE schluessel IS NOT NULL");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_Note_schueler_test ON Note(idSchueler, idTest)");
+            createNoteRollups(stmt);
+        }
+        rebuildNoteRollupsIfStale();
+    }
+
+    /**
+     * Creates the materialized grade views maintained by {@link #insertNote} and {@link #insertNotes}.
+     * NoteDetail holds one denormalized row per Note (names resolved once at insert time); the rollup tables hold
+     * running counts and sums per class x subject x school year and per student x subject x school year.
+     * @short Schema for grade overview and trend tables.
+     */
+    private void createNoteRollups(Statement stmt) throws SQLException {
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS NoteDetail (
+                idNote INTEGER PRIMARY KEY,
+                idSchueler INTEGER,
+                idTest INTEGER,
+                idKlasse INTEGER NOT NULL,
+                idFach INTEGER NOT NULL,
+                schuljahr TEXT NOT NULL,
+                note TEXT,
+                notenwert REAL,
+                datum TEXT,
+                uhrzeit TEXT,
+                schuelername TEXT,
+                klassenname TEXT,
+                fachname TEXT,
+                testname TEXT,
+                lehrername TEXT
+            )
+        """);
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS NotenRollupKlasse (
+                idKlasse INTEGER NOT NULL,
+                idFach INTEGER NOT NULL,
+                schuljahr TEXT NOT NULL,
+                anzahl INTEGER NOT NULL,
+                anzahlNumerisch INTEGER NOT NULL,
+                summe REAL NOT NULL,
+                PRIMARY KEY(idKlasse, idFach, schuljahr)
+            )
+        """);
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS NotenRollupVerteilung (
+                idKlasse INTEGER NOT NULL,
+                idFach INTEGER NOT NULL,
+                schuljahr TEXT NOT NULL,
+                note TEXT NOT NULL,
+                anzahl INTEGER NOT NULL,
+                PRIMARY KEY(idKlasse, idFach, schuljahr, note)
+            )
+        """);
+        stmt.executeUpdate("""
+            CREATE TABLE IF NOT EXISTS NotenRollupSchueler (
+                idSchueler INTEGER NOT NULL,
+                idFach INTEGER NOT NULL,
+                schuljahr TEXT NOT NULL,
+                anzahl INTEGER NOT NULL,
+                anzahlNumerisch INTEGER NOT NULL,
+                summe REAL NOT NULL,
+                PRIMARY KEY(idSchueler, idFach, schuljahr)
+            )
+        """);
+        // one index per sortable overview column: filter prefix plus the column's sort key, so every page is an
+        // index range scan whichever column header was clicked
+        stmt.executeUpdate("DROP INDEX IF EXISTS idx_NoteDetail_klasse_fach_jahr");
+        stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_NoteDetail_overview "
+                + "ON NoteDetail(idKlasse, idFach, schuljahr, " + NOTE_DETAIL_ROW_COLUMNS[0] + " COLLATE NOCASE, idNote)");
+        for (int column = 1; column < NOTE_DETAIL_ROW_COLUMNS.length; column++) {
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_NoteDetail_sort" + column + " ON NoteDetail(idKlasse, "
+                    + "idFach, schuljahr, " + NOTE_DETAIL_ROW_COLUMNS[column] + " COLLATE NOCASE, idNote)");
         }
     }
 
+    /**
+     * Display columns of the grade overview in order. NULL becomes '' so sort key and shown value agree; the
+     * sort indexes on NoteDetail are built from these exact expressions.
+     */
+    public static final String[] NOTE_DETAIL_ROW_COLUMNS = {
+        "schuelername", "fachname", "testname", "COALESCE(note, '')", "COALESCE(datum, '')",
+        "COALESCE(uhrzeit, '')", "schuljahr", "lehrername"
+    };
+
+    /**
+     * Fills the grade views from scratch when they do not cover every Note row (first start after the upgrade,
+     * or Note rows written by older versions).
+     * @short Backfills NoteDetail and the rollup tables.
+     */
+    private void rebuildNoteRollupsIfStale() throws SQLException {
+        long notes = queryLong("SELECT COUNT(*) FROM Note", List.of());
+        long details = queryLong("SELECT COUNT(*) FROM NoteDetail", List.of());
+        if (notes == details) {
+            return;
+        }
+        inTransaction(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM NoteDetail");
+                stmt.executeUpdate("DELETE FROM NotenRollupKlasse");
+                stmt.executeUpdate("DELETE FROM NotenRollupVerteilung");
+                stmt.executeUpdate("DELETE FROM NotenRollupSchueler");
+            }
+            applyNoteRollups(connection, 0);
+            return null;
+        });
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "REBUILD", "Rollup", notes + " Noten"
+        ));
+    }
+
+    /**
+     * Adds all Note rows with idNote greater than the given value to NoteDetail and the rollup tables.
+     * Must run inside the transaction that inserted those rows.
+     * @short Incremental maintenance of the grade views.
+     */
+    private void applyNoteRollups(Connection connection, long afterIdNote) throws SQLException {
+        String[] statements = {
+            """
+            INSERT INTO NoteDetail (idNote, idSchueler, idTest, idKlasse, idFach, schuljahr, note, notenwert, datum, uhrzeit,
+                                    schuelername, klassenname, fachname, testname, lehrername)
+            SELECT n.idNote, n.idSchueler, n.idTest, COALESCE(k.idKlasse, -1), COALESCE(ct.idFach, -1), COALESCE(n.schuljahr, ''),
+                   n.note,
+                   CASE WHEN trim(n.note) GLOB '[0-9]*' THEN CAST(trim(n.note) AS REAL) END,
+                   n.datum, n.uhrzeit,
+                   trim(COALESCE(s.vorname, '') || ' ' || COALESCE(s.nachname, '')),
+                   trim(COALESCE(k.klassenname, '')),
+                   trim(COALESCE(f.fachname, '')),
+                   trim(COALESCE(t.typ, '')),
+                   trim(COALESCE(l.vorname, '') || ' ' || COALESCE(l.nachname, ''))
+            FROM Note n
+            LEFT JOIN Schueler s ON s.idSchueler = n.idSchueler
+            LEFT JOIN Test t ON t.idTest = n.idTest
+            LEFT JOIN CT_KlasseLehrerFach ct ON ct.idCT = t.idCT_KLF
+            LEFT JOIN Klasse k ON k.idKlasse = COALESCE(s.idKlasse, ct.idKlasse)
+            LEFT JOIN Fach f ON f.idFach = ct.idFach
+            LEFT JOIN Lehrer l ON l.idLehrer = COALESCE(n.idLehrer, ct.idLehrer)
+            WHERE n.idNote > ?
+            """,
+            """
+            INSERT INTO NotenRollupKlasse (idKlasse, idFach, schuljahr, anzahl, anzahlNumerisch, summe)
+            SELECT idKlasse, idFach, schuljahr, COUNT(*), COUNT(notenwert), COALESCE(SUM(notenwert), 0)
+            FROM NoteDetail WHERE idNote > ? GROUP BY idKlasse, idFach, schuljahr
+            ON CONFLICT(idKlasse, idFach, schuljahr) DO UPDATE SET anzahl = anzahl + excluded.anzahl,
+                anzahlNumerisch = anzahlNumerisch + excluded.anzahlNumerisch, summe = summe + excluded.summe
+            """,
+            """
+            INSERT INTO NotenRollupVerteilung (idKlasse, idFach, schuljahr, note, anzahl)
+            SELECT idKlasse, idFach, schuljahr, trim(COALESCE(note, '')), COUNT(*)
+            FROM NoteDetail WHERE idNote > ? GROUP BY idKlasse, idFach, schuljahr, trim(COALESCE(note, ''))
+            ON CONFLICT(idKlasse, idFach, schuljahr, note) DO UPDATE SET anzahl = anzahl + excluded.anzahl
+            """,
+            """
+            INSERT INTO NotenRollupSchueler (idSchueler, idFach, schuljahr, anzahl, anzahlNumerisch, summe)
+            SELECT idSchueler, idFach, schuljahr, COUNT(*), COUNT(notenwert), COALESCE(SUM(notenwert), 0)
+            FROM NoteDetail WHERE idNote > ? GROUP BY idSchueler, idFach, schuljahr
+            ON CONFLICT(idSchueler, idFach, schuljahr) DO UPDATE SET anzahl = anzahl + excluded.anzahl,
+                anzahlNumerisch = anzahlNumerisch + excluded.anzahlNumerisch, summe = summe + excluded.summe
+            """
+        };
+        for (String sql : statements) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setLong(1, afterIdNote);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Adds a column to an existing table if an older database file does not have it yet.
+     * @short Schema migration helper for columns added after the initial release.
+     */
+    private void ensureColumn(Statement stmt, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
     /**
      * Inserts a new entry into the specified table or updates an existing entry.
      * @short Inserts or updates an entry in a specified table.
@@ -198,7 +413,7 @@ public class DatabaseHandler {
         };
     }
 
-    public void setEntry(String table, Map<String, Object> data) throws SQLException {
+    public synchronized void setEntry(String table, Map<String, Object> data) throws SQLException {
         String idColumn = resolveIdColumn(table);
         int newId = 1;
         String getMaxIdSql = "SELECT MAX(" + idColumn + ") FROM " + table;
@@ -226,6 +441,86 @@ public class DatabaseHandler {
         ));
     }
 
+    /**
+     * Stores one answer of a running test and returns its id, so that the answer can be announced to live views.
+     * @short Inserts an Antwort row.
+     * @return The idAntwort of the new row.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public synchronized int insertAntwort(int idSchueler, int idTest, int idAufgabe, String antwort) throws SQLException {
+        String sql = "INSERT INTO Antwort (idSchueler, idTest, idAufgabe, antwort) VALUES (?, ?, ?, ?)";
+        int idAntwort;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, idSchueler);
+            pstmt.setInt(2, idTest);
+            pstmt.setInt(3, idAufgabe);
+            pstmt.setString(4, antwort);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                idAntwort = keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "INSERT", "Antwort", String.format("Schueler=%d, Test=%d, Aufgabe=%d", idSchueler, idTest, idAufgabe)
+        ));
+        return idAntwort;
+    }
+
+    /**
+     * Inserts an answer that carries a client-generated idempotency key. A client replays answers it has not seen
+     * acknowledged after a reconnect; the unique index on (idSchueler, schluessel) turns such a replay into a no-op.
+     * @short Inserts an answer at most once per key.
+     * @param idSchueler The student who answered.
+     * @param idTest The test.
+     * @param idAufgabe The task.
+     * @param antwort The answer text.
+     * @param schluessel The idempotency key chosen by the client.
+     * @return The new idAntwort, or -1 if an answer with this key was already stored.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public synchronized int insertAntwortOnce(int idSchueler, int idTest, int idAufgabe, String antwort, String schluessel) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO Antwort (idSchueler, idTest, idAufgabe, antwort, schluessel) VALUES (?, ?, ?, ?, ?)";
+        int idAntwort;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, idSchueler);
+            pstmt.setInt(2, idTest);
+            pstmt.setInt(3, idAufgabe);
+            pstmt.setString(4, antwort);
+            pstmt.setString(5, schluessel);
+            if (pstmt.executeUpdate() == 0) {
+                return -1;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                idAntwort = keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "INSERT", "Antwort", String.format("Schueler=%d, Test=%d, Aufgabe=%d", idSchueler, idTest, idAufgabe)
+        ));
+        return idAntwort;
+    }
+
+    /**
+     * Returns the most recent answer per task a student saved for a test. Answers are only ever inserted, so the
+     * row with the highest idAntwort of each task is the current one.
+     * @short Latest saved answer per task of one student.
+     * @param idSchueler The student.
+     * @param idTest The test.
+     * @return idAufgabe mapped to the latest answer, in task order.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public Map<Integer, String> getLatestAntworten(int idSchueler, int idTest) throws SQLException {
+        Map<Integer, String> answers = new LinkedHashMap<>();
+        streamQuery("SELECT idAufgabe, antwort FROM Antwort WHERE idAntwort IN (SELECT MAX(idAntwort) FROM Antwort "
+            + "WHERE idSchueler = ? AND idTest = ? GROUP BY idAufgabe) ORDER BY idAufgabe", List.of(idSchueler, idTest), rs -> {
+            answers.put(rs.getInt(1), rs.getString(2));
+            return true;
+        });
+        return answers;
+    }
+
     /**
      * Updates an existing entry in the specified table by ID.
      * @short Updates an entry in a specified table by ID.
@@ -234,7 +529,7 @@ public class DatabaseHandler {
      * @param data A map containing column names and their corresponding values to update.
      * @throws SQLException if there is an error executing SQL statements.
      */
-    public void setEntry(String table, int id, Map<String, Object> data) throws SQLException {
+    public synchronized void setEntry(String table, int id, Map<String, Object> data) throws SQLException {
         String idColumn = resolveIdColumn(table);
         List<String> assignments = data.keySet().stream().map(key -> key + " = ?").toList();
         String sql = "UPDATE " + table + " SET " + String.join(", ", assignments) + " WHERE " + idColumn + " = ?";
@@ -260,7 +555,7 @@ public class DatabaseHandler {
      * @return A map containing the column names and their corresponding values for the entry.
      * @throws SQLException if there is an error executing SQL statements.
      */
-    public Map<String, Object> getEntry(String table, int id) throws SQLException {
+    public synchronized Map<String, Object> getEntry(String table, int id) throws SQLException {
         String idColumn = resolveIdColumn(table);
         String sql = "SELECT * FROM " + table + " WHERE " + idColumn + " = ?";
         Map<String, Object> result = new LinkedHashMap<>();
@@ -291,7 +586,7 @@ public class DatabaseHandler {
      * @return A map of column names to values for the matching entry, or null if none is found.
      * @throws SQLException if there is an error executing SQL statements.
      */
-    public Map<String, Object> getEntryWhere(String table, String column, Object value) throws SQLException {
+    public synchronized Map<String, Object> getEntryWhere(String table, String column, Object value) throws SQLException {
         String sql = "SELECT * FROM " + table + " WHERE " + column + " = ? LIMIT 1";
         Map<String, Object> result = new LinkedHashMap<>();
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -312,6 +607,138 @@ public class DatabaseHandler {
         return result.isEmpty() ? null : result;
     }
 
+    /**
+     * Retrieves all entries matching a column value.
+     * @short Retrieves all entries from a specified table filtered by a column.
+     * @param table The name of the table to query.
+     * @param column The column used for filtering.
+     * @param value The value to match within the specified column.
+     * @return A list of maps, one per matching entry (empty if none is found).
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public synchronized List<Map<String, Object>> getEntriesWhere(String table, String column, Object value) throws SQLException {
+        String sql = "SELECT * FROM " + table + " WHERE " + column + " = ?";
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, value);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        row.put(metaData.getColumnName(i), rs.getObject(i));
+                    }
+                    results.add(row);
+                }
+            }
+        }
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %s=%s | %-40s |",
+            "SELECT", table, column, String.valueOf(value), "Rows: " + results.size()
+        ));
+        return results;
+    }
+
+    /**
+     * Executes a query and hands every row to the handler while the cursor advances,
+     * so arbitrarily large results never have to be held in memory.
+     * @short Streams the rows of a parameterised query to a callback.
+     * @param sql The SELECT statement with '?' placeholders.
+     * @param params The values bound to the placeholders in order.
+     * @param handler Called once per row; returning false stops the iteration.
+     * @return The number of rows handed to the handler.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public synchronized long streamQuery(String sql, List<?> params, RowHandler handler) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindParameters(pstmt, params);
+            pstmt.setFetchSize(256);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    if (!handler.handle(rs)) {
+                        break;
+                    }
+                }
+            }
+        }
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "STREAM", "Query", "Rows: " + rows
+        ));
+        return rows;
+    }
+
+    /**
+     * Executes a query returning a single number (e.g. COUNT or MAX).
+     * @short Returns the first column of the first row as long.
+     * @param sql The SELECT statement with '?' placeholders.
+     * @param params The values bound to the placeholders in order.
+     * @return The value, or 0 if the query returns no row or NULL.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public synchronized long queryLong(String sql, List<?> params) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+    }
+
+    private void bindParameters(PreparedStatement pstmt, List<?> params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        int index = 1;
+        for (Object value : params) {
+            pstmt.setObject(index++, value);
+        }
+    }
+
+    /**
+     * Row callback for {@link #streamQuery(String, List, RowHandler)}.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        boolean handle(ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Runs several statements as one transaction on the shared connection.
+     * Nested calls join the already running transaction. Other threads wait until it is committed or rolled back,
+     * so long imports should commit in batches.
+     * @short Executes the given work atomically (commit on success, rollback on error).
+     * @param work The statements to execute.
+     * @return The value produced by the work.
+     * @throws SQLException if one of the statements fails; the transaction is rolled back.
+     */
+    public synchronized <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            return work.run(conn);
+        }
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Unit of work for {@link #inTransaction(TransactionWork)}.
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
     /**
      * Inserts or updates a Bewertung entry using the Antwort identifier.
      * @short Upserts a Bewertung row keyed by idAntwort.
@@ -323,19 +750,199 @@ public class DatabaseHandler {
      * @throws SQLException if there is an error executing SQL statements.
      */
     public void upsertBewertung(int idAntwort, String bewertung, String kommentar, Double punkte, String bewertetAm) throws SQLException {
-        Map<String, Object> existing = getEntryWhere("Bewertung", "idAntwort", idAntwort);
-        Map<String, Object> data = new LinkedHashMap<>();
-        data.put("idAntwort", idAntwort);
-        data.put("bewertung", bewertung);
-        data.put("kommentar", kommentar);
-        data.put("punkte", punkte);
-        data.put("bewertetAm", bewertetAm);
-        if (existing == null) {
-            setEntry("Bewertung", data);
-        } else {
-            int idBewertung = ((Number) existing.get("idBewertung")).intValue();
-            setEntry("Bewertung", idBewertung, data);
+        upsertBewertungen(List.of(new BewertungEntry(idAntwort, bewertung, kommentar, punkte)), BEWERTUNG_MANUELL, bewertetAm);
+    }
+
+    /**
+     * Writes many Bewertung rows in one transaction with a single prepared statement.
+     * Automatic rows never overwrite a Bewertung that was entered by hand.
+     * @short Batched upsert of Bewertung rows keyed by idAntwort.
+     * @param entries The rows to write.
+     * @param quelle {@link #BEWERTUNG_AUTO} or {@link #BEWERTUNG_MANUELL}.
+     * @param bewertetAm Timestamp string stored for all rows.
+     * @return The number of rows inserted or updated.
+     * @throws SQLException if a statement fails; nothing is written in that case.
+     */
+    public int upsertBewertungen(List<BewertungEntry> entries, String quelle, String bewertetAm) throws SQLException {
+        if (entries.isEmpty()) {
+            return 0;
         }
+        boolean automatic = BEWERTUNG_AUTO.equals(quelle);
+        String sql = "INSERT INTO Bewertung (idAntwort, bewertung, kommentar, punkte, bewertetAm, quelle, version, aenderung) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 1, " + NEXT_CHANGE + ") "
+            + "ON CONFLICT(idAntwort) DO UPDATE SET bewertung = excluded.bewertung, kommentar = excluded.kommentar, "
+            + "punkte = excluded.punkte, bewertetAm = excluded.bewertetAm, quelle = excluded.quelle, " + VERSION_BUMP
+            + (automatic ? " WHERE Bewertung.quelle = '" + BEWERTUNG_AUTO + "'" : "");
+        int written = inTransaction(connection -> {
+            int count = 0;
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (BewertungEntry entry : entries) {
+                    pstmt.setInt(1, entry.idAntwort());
+                    pstmt.setString(2, entry.bewertung());
+                    pstmt.setString(3, entry.kommentar());
+                    pstmt.setObject(4, entry.punkte());
+                    pstmt.setString(5, bewertetAm);
+                    pstmt.setString(6, quelle);
+                    pstmt.addBatch();
+                }
+                for (int result : pstmt.executeBatch()) {
+                    count += result == Statement.SUCCESS_NO_INFO ? 1 : Math.max(result, 0);
+                }
+            }
+            return count;
+        });
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "UPSERT", "Bewertung", written + " Zeilen (" + quelle + ")"
+        ));
+        return written;
+    }
+
+    /**
+     * One row for {@link #upsertBewertungen(List, String, String)}.
+     */
+    public record BewertungEntry(int idAntwort, String bewertung, String kommentar, Double punkte) {
+    }
+
+    /**
+     * Writes manual Bewertung rows only if nobody changed them since they were read (compare-and-set on the
+     * version column). Rows whose expected version no longer matches are left untouched and reported back
+     * with their current content; all other rows are written in the same transaction.
+     * @short Optimistic batch update of Bewertung rows.
+     * @param entries The rows to write.
+     * @param expectedVersions Version per idAntwort as read by the caller; 0 means "no Bewertung yet".
+     * @param bewertetAm Timestamp string stored for all rows.
+     * @return The current state of every row that was not written because of a conflict.
+     * @throws SQLException if a statement fails; nothing is written in that case.
+     */
+    public List<BewertungVersion> compareAndSetBewertungen(List<BewertungEntry> entries, Map<Integer, Long> expectedVersions,
+                                                           String bewertetAm) throws SQLException {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        String sql = "INSERT INTO Bewertung (idAntwort, bewertung, kommentar, punkte, bewertetAm, quelle, version, aenderung) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 1, " + NEXT_CHANGE + ") "
+            + "ON CONFLICT(idAntwort) DO UPDATE SET bewertung = excluded.bewertung, kommentar = excluded.kommentar, "
+            + "punkte = excluded.punkte, bewertetAm = excluded.bewertetAm, quelle = excluded.quelle, " + VERSION_BUMP
+            + " WHERE Bewertung.version = ?";
+        List<Integer> conflicting = new ArrayList<>();
+        inTransaction(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (BewertungEntry entry : entries) {
+                    pstmt.setInt(1, entry.idAntwort());
+                    pstmt.setString(2, entry.bewertung());
+                    pstmt.setString(3, entry.kommentar());
+                    pstmt.setObject(4, entry.punkte());
+                    pstmt.setString(5, bewertetAm);
+                    pstmt.setString(6, BEWERTUNG_MANUELL);
+                    pstmt.setLong(7, expectedVersions.getOrDefault(entry.idAntwort(), 0L));
+                    if (pstmt.executeUpdate() == 0) {
+                        conflicting.add(entry.idAntwort());
+                    }
+                }
+            }
+            return null;
+        });
+        List<BewertungVersion> conflicts = new ArrayList<>(conflicting.size());
+        for (int idAntwort : conflicting) {
+            streamQuery("SELECT " + BEWERTUNG_VERSION_COLUMNS + " FROM Bewertung b WHERE b.idAntwort = ?", List.of(idAntwort), rs -> {
+                conflicts.add(readBewertungVersion(rs));
+                return false;
+            });
+        }
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "CAS", "Bewertung", (entries.size() - conflicts.size()) + " Zeilen, " + conflicts.size() + " Konflikte"
+        ));
+        return conflicts;
+    }
+
+    /**
+     * Returns all Bewertung rows of a test that were written after the given change number, in commit order.
+     * Together with {@link #dataVersion()} this lets a second process follow edits without reloading everything.
+     * @short Incremental read of changed Bewertung rows.
+     * @param idTest The test whose answers are of interest.
+     * @param afterChange The highest change number already seen.
+     * @return The changed rows.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public List<BewertungVersion> getBewertungenChangedSince(int idTest, long afterChange) throws SQLException {
+        List<BewertungVersion> rows = new ArrayList<>();
+        streamQuery("SELECT " + BEWERTUNG_VERSION_COLUMNS + " FROM Bewertung b JOIN Antwort a ON a.idAntwort = b.idAntwort "
+            + "WHERE b.aenderung > ? AND a.idTest = ? ORDER BY b.aenderung", List.of(afterChange, idTest), rs -> {
+            rows.add(readBewertungVersion(rs));
+            return true;
+        });
+        return rows;
+    }
+
+    /**
+     * @short Highest change number in Bewertung.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public long getLatestBewertungChange() throws SQLException {
+        return queryLong("SELECT COALESCE(MAX(aenderung), 0) FROM Bewertung", List.of());
+    }
+
+    /**
+     * Returns SQLite's data_version for this connection. The value changes whenever another connection (also in
+     * another process) commits to the database file, and is cheap enough to poll every few seconds.
+     * @short Change counter of the database file.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public long dataVersion() throws SQLException {
+        return queryLong("PRAGMA data_version", List.of());
+    }
+
+    private static BewertungVersion readBewertungVersion(ResultSet rs) throws SQLException {
+        Object punkte = rs.getObject(4);
+        return new BewertungVersion(rs.getInt(1), rs.getString(2), rs.getString(3),
+            punkte instanceof Number number ? number.doubleValue() : null, rs.getString(5), rs.getLong(6), rs.getLong(7));
+    }
+
+    /**
+     * Current content of a Bewertung row including its version and change number.
+     */
+    public record BewertungVersion(int idAntwort, String bewertung, String kommentar, Double punkte, String bewertetAm,
+                                   long version, long aenderung) {
+    }
+
+    /**
+     * Stores MinHash signatures of answers; an existing row is replaced when the answer text changed.
+     * @short Batch upsert into AntwortSignatur within one transaction.
+     * @param entries The signatures to store.
+     * @return The number of written rows.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
+    public int upsertAntwortSignaturen(List<AntwortSignaturEntry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO AntwortSignatur (idAntwort, textHash, signatur) VALUES (?, ?, ?) "
+            + "ON CONFLICT(idAntwort) DO UPDATE SET textHash = excluded.textHash, signatur = excluded.signatur";
+        int written = inTransaction(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (AntwortSignaturEntry entry : entries) {
+                    pstmt.setInt(1, entry.idAntwort());
+                    pstmt.setLong(2, entry.textHash());
+                    pstmt.setBytes(3, entry.signatur());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            return entries.size();
+        });
+        logger.writeLog("[Database]", "127.0.0.1", String.format(
+            "| %-10s | %-8s | %-40s |",
+            "UPSERT", "Signatur", written + " Zeilen"
+        ));
+        return written;
+    }
+
+    /**
+     * One row for {@link #upsertAntwortSignaturen(List)}.
+     */
+    public record AntwortSignaturEntry(int idAntwort, long textHash, byte[] signatur) {
     }
 
     /**
@@ -345,7 +952,7 @@ public class DatabaseHandler {
      * @param id The ID of the entry to delete.
      * @throws SQLException if there is an error executing SQL statements.
      */
-    public void delEntry(String table, int id) throws SQLException {
+    public synchronized void delEntry(String table, int id) throws SQLException {
         String idColumn = resolveIdColumn(table);
         String sql = "DELETE FROM " + table + " WHERE " + idColumn + " = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -365,7 +972,7 @@ public class DatabaseHandler {
      * @return A list of maps, each containing column names and their corresponding values for each entry.
      * @throws SQLException if there is an error executing SQL statements.
      */
-    public List<Map<String, Object>> getAllEntries(String table) throws SQLException {
+    public synchronized List<Map<String, Object>> getAllEntries(String table) throws SQLException {
         String sql = "SELECT * FROM " + table;
         List<Map<String, Object>> results = new ArrayList<>();
         try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
@@ -390,29 +997,174 @@ public class DatabaseHandler {
      * @short Closes the SQLite database connection.
      * @throws SQLException if there is an error closing the connection.
      */
-    public void close() throws SQLException {
+    public synchronized void close() throws SQLException {
         if (conn != null) {
             conn.close();
         }
     }
 
+    /**
+     * Inserts one Note row and updates NoteDetail and the grade rollups in the same transaction.
+     * @short Inserts a grade.
+     * @throws SQLException if there is an error executing SQL statements.
+     */
     public void insertNote(int idSchueler, int idTest, String note, String datum, String uhrzeit, String schuljahr, int idLehrer) throws SQLException {
-        String sql = "INSERT INTO Note (idSchueler, idTest, note, datum, uhrzeit, schuljahr, idLehrer) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, idSchueler);
-            pstmt.setInt(2, idTest);
-            pstmt.setString(3, note);
-            pstmt.setString(4, datum);
-            pstmt.setString(5, uhrzeit);
-            pstmt.setString(6, schuljahr);
-            pstmt.setInt(7, idLehrer);
-            pstmt.executeUpdate();
-        }
+        insertNotes(List.of(new NoteEntry(idSchueler, idTest, note, datum, uhrzeit, schuljahr, idLehrer)), false, false);
         logger.writeLog("[Database]", "127.0.0.1", String.format(
             "| %-10s | %-8s | %-40s |",
             "INSERT", "Note", String.format("Schueler=%d, Test=%d, Note=%s", idSchueler, idTest, note)
         ));
     }
 
+    /**
+     * Inserts several Note rows (e.g. a whole class) within one transaction.
+     * @short Batch insert into Note.
+     * @param entries The grades to insert.
+     * @return The number of inserted rows.
+     * @throws SQLException if there is an error executing SQL statements; nothing is inserted in that case.
+     */
+    public int insertNotes(List<NoteEntry> entries) throws SQLException {
+        return insertNotes(entries, true, false);
+    }
+
+    /**
+     * Stores the grades like {@link #insertNotes(List)}, but first removes any existing grade of the same student
+     * and test, including its contribution to NoteDetail and the rollups, all in one transaction. Saving the grades
+     * of a test twice therefore leaves one grade per student instead of two.
+     * @short Replaces the grade per (idSchueler, idTest).
+     * @param entries The grades to store.
+     * @return The number of stored rows.
+     * @throws SQLException if there is an error executing SQL statements; nothing changes in that case.
+     */
+    public int replaceNotes(List<NoteEntry> entries) throws SQLException {
+        return insertNotes(entries, true, true);
+    }
+
+    private int insertNotes(List<NoteEntry> entries, boolean logBatch, boolean replace) throws SQLException {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO Note (idSchueler, idTest, note, datum, uhrzeit, schuljahr, idLehrer) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        int written = inTransaction(connection -> {
+            if (replace) {
+                removeNotes(connection, entries);
+            }
+            long lastIdNote;
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(idNote), 0) FROM Note")) {
+                lastIdNote = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (NoteEntry entry : entries) {
+                    pstmt.setInt(1, entry.idSchueler());
+                    pstmt.setInt(2, entry.idTest());
+                    pstmt.setString(3, entry.note());
+                    pstmt.setString(4, entry.datum());
+                    pstmt.setString(5, entry.uhrzeit());
+                    pstmt.setString(6, entry.schuljahr());
+                    pstmt.setObject(7, entry.idLehrer());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            applyNoteRollups(connection, lastIdNote);
+            return entries.size();
+        });
+        if (logBatch) {
+            logger.writeLog("[Database]", "127.0.0.1", String.format(
+                "| %-10s | %-8s | %-40s |",
+                replace ? "REPLACE" : "INSERT", "Note", written + " Zeilen"
+            ));
+        }
+        return written;
+    }
+
+    /**
+     * Deletes the existing grades of each entry's (idSchueler, idTest) and subtracts them from the rollups, which
+     * {@link #applyNoteRollups} only ever adds to. Rollup rows that drop to zero grades are removed.
+     */
+    private void removeNotes(Connection connection, List<NoteEntry> entries) throws SQLException {
+        String select = "SELECT idNote, idSchueler, idKlasse, idFach, schuljahr, trim(COALESCE(note, '')), notenwert "
+                + "FROM NoteDetail WHERE idSchueler = ? AND idTest = ?";
+        String[] updates = {
+            "UPDATE NotenRollupKlasse SET anzahl = anzahl - 1, anzahlNumerisch = anzahlNumerisch - ?, summe = summe - ? "
+                    + "WHERE idKlasse = ? AND idFach = ? AND schuljahr = ?",
+            "UPDATE NotenRollupSchueler SET anzahl = anzahl - 1, anzahlNumerisch = anzahlNumerisch - ?, summe = summe - ? "
+                    + "WHERE idSchueler = ? AND idFach = ? AND schuljahr = ?",
+            "UPDATE NotenRollupVerteilung SET anzahl = anzahl - 1 "
+                    + "WHERE idKlasse = ? AND idFach = ? AND schuljahr = ? AND note = ?",
+            "DELETE FROM NoteDetail WHERE idNote = ?",
+            "DELETE FROM Note WHERE idNote = ?"
+        };
+        Set<Long> seen = new HashSet<>();
+        boolean removed = false;
+        try (PreparedStatement query = connection.prepareStatement(select);
+             PreparedStatement klasse = connection.prepareStatement(updates[0]);
+             PreparedStatement schueler = connection.prepareStatement(updates[1]);
+             PreparedStatement verteilung = connection.prepareStatement(updates[2]);
+             PreparedStatement detail = connection.prepareStatement(updates[3]);
+             PreparedStatement note = connection.prepareStatement(updates[4])) {
+            for (NoteEntry entry : entries) {
+                if (!seen.add(((long) entry.idSchueler() << 32) | (entry.idTest() & 0xFFFFFFFFL))) {
+                    continue;
+                }
+                query.setInt(1, entry.idSchueler());
+                query.setInt(2, entry.idTest());
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        long idNote = rs.getLong(1);
+                        int idKlasse = rs.getInt(3);
+                        int idFach = rs.getInt(4);
+                        String schuljahr = rs.getString(5);
+                        double wert = rs.getDouble(7);
+                        boolean numeric = !rs.wasNull();
+                        klasse.setInt(1, numeric ? 1 : 0);
+                        klasse.setDouble(2, numeric ? wert : 0.0);
+                        klasse.setInt(3, idKlasse);
+                        klasse.setInt(4, idFach);
+                        klasse.setString(5, schuljahr);
+                        klasse.addBatch();
+                        schueler.setInt(1, numeric ? 1 : 0);
+                        schueler.setDouble(2, numeric ? wert : 0.0);
+                        schueler.setInt(3, rs.getInt(2));
+                        schueler.setInt(4, idFach);
+                        schueler.setString(5, schuljahr);
+                        schueler.addBatch();
+                        verteilung.setInt(1, idKlasse);
+                        verteilung.setInt(2, idFach);
+                        verteilung.setString(3, schuljahr);
+                        verteilung.setString(4, rs.getString(6));
+                        verteilung.addBatch();
+                        detail.setLong(1, idNote);
+                        detail.addBatch();
+                        note.setLong(1, idNote);
+                        note.addBatch();
+                        removed = true;
+                    }
+                }
+            }
+            if (!removed) {
+                return;
+            }
+            klasse.executeBatch();
+            schueler.executeBatch();
+            verteilung.executeBatch();
+            detail.executeBatch();
+            note.executeBatch();
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM NotenRollupKlasse WHERE anzahl <= 0");
+            stmt.executeUpdate("DELETE FROM NotenRollupSchueler WHERE anzahl <= 0");
+            stmt.executeUpdate("DELETE FROM NotenRollupVerteilung WHERE anzahl <= 0");
+        }
+    }
+
+    /**
+     * One row for {@link #insertNotes(List)}. A {@code null} idLehrer leaves the column empty so the
+     * views fall back to the teacher of the test's class and subject.
+     */
+    public record NoteEntry(int idSchueler, int idTest, String note, String datum, String uhrzeit, String schuljahr, Integer idLehrer) {
+    }
+
   
 }
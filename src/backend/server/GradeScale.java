@@ -0,0 +1,79 @@
+package backend.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * @title GradeScale
+ * @short Unveraenderlicher Bewertungsmassstab (Prozentschwelle -> Note), kompiliert in sortierte Arrays.
+ *
+ * Die Notensuche ist eine verzweigungsarme binaere Suche ueber ein primitives double-Array; ein Massstab wird
+ * einmal beim Laden aufgebaut und danach nur noch gelesen.
+ */
+public final class GradeScale {
+
+    private final String id;
+    private final String displayName;
+    private final double[] thresholds;
+    private final String[] grades;
+
+    GradeScale(String id, String displayName, NavigableMap<Double, String> thresholds) {
+        if (thresholds.isEmpty()) {
+            throw new IllegalArgumentException("Bewertungsmassstab ohne Schwellen: " + id);
+        }
+        this.id = id;
+        this.displayName = displayName;
+        this.thresholds = new double[thresholds.size()];
+        this.grades = new String[thresholds.size()];
+        int index = 0;
+        for (Map.Entry<Double, String> entry : thresholds.entrySet()) {
+            this.thresholds[index] = entry.getKey();
+            this.grades[index] = entry.getValue();
+            index++;
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+
+    /**
+     * @title gradeFor
+     * @short Liefert die Note der hoechsten Schwelle <= Prozentwert; unterhalb aller Schwellen die niedrigste Note.
+     */
+    public String gradeFor(double percentage) {
+        double value = Math.max(0.0, percentage);
+        int base = 0;
+        int length = thresholds.length;
+        while (length > 1) {
+            int half = length >>> 1;
+            base = thresholds[base + half] <= value ? base + half : base;
+            length -= half;
+        }
+        int index = thresholds[base] <= value ? base : base - 1;
+        return grades[Math.max(index, 0)];
+    }
+
+    /** Alle Noten von der besten (hoechste Schwelle) zur schlechtesten, ohne Duplikate. */
+    public List<String> gradesDescending() {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = grades.length - 1; i >= 0; i--) {
+            result.add(grades[i]);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(result));
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
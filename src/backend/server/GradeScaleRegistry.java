@@ -0,0 +1,217 @@
+package backend.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @title GradeScaleRegistry
+ * @short Prozessweites Verzeichnis der Bewertungsmassstaebe aus data/bewertungsmassstaebe/*.csv.
+ *
+ * Die CSV-Dateien werden einmal geparst und als {@link GradeScale} vorgehalten. Ein WatchService-Thread laedt
+ * den Bestand neu, sobald sich eine Datei aendert; Leser erhalten immer einen vollstaendigen, unveraenderlichen
+ * Stand und muessen nicht synchronisieren.
+ */
+public final class GradeScaleRegistry {
+
+    private static final String[] DIRECTORY_NAMES = {"bewertungsma\u00dfst\u00e4be", "bewertungsmassstaebe"};
+    /** Editoren schreiben Dateien oft in mehreren Schritten; Ereignisse innerhalb dieses Fensters werden zusammengefasst. */
+    private static final long RELOAD_DELAY_MS = 200;
+    private static final GradeScaleRegistry SHARED = new GradeScaleRegistry(Paths.get("data"));
+
+    private final Path dataRoot;
+    private final LogfileHandler log = new LogfileHandler();
+    private volatile List<GradeScale> scales;
+    private Thread watcher;
+
+    GradeScaleRegistry(Path dataRoot) {
+        this.dataRoot = dataRoot;
+        this.scales = loadAll();
+    }
+
+    /** Gemeinsame Instanz fuer Server und Dashboard; der Verzeichniswaechter startet beim ersten Zugriff. */
+    public static GradeScaleRegistry shared() {
+        SHARED.startWatching();
+        return SHARED;
+    }
+
+    /** Aktueller Bestand, sortiert nach Anzeigename. */
+    public List<GradeScale> scales() {
+        return scales;
+    }
+
+    public GradeScale find(String id) {
+        if (id == null) {
+            return null;
+        }
+        for (GradeScale scale : scales) {
+            if (id.equals(scale.id())) {
+                return scale;
+            }
+        }
+        return null;
+    }
+
+    /** Liest alle Dateien sofort neu ein. */
+    public void reload() {
+        scales = loadAll();
+    }
+
+    private synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        WatchService service;
+        Set<Path> watched = new HashSet<>();
+        try {
+            // vor dem Threadstart registrieren, damit keine Aenderung zwischen Laden und Beobachten verloren geht
+            service = FileSystems.getDefault().newWatchService();
+            if (Files.isDirectory(dataRoot)) {
+                dataRoot.register(service, StandardWatchEventKinds.ENTRY_CREATE);
+            }
+            registerDirectories(service, watched);
+        } catch (IOException e) {
+            log.writeLog("Server", "127.0.0.1", "ERROR|GRADE_SCALE_WATCH|" + e.getMessage());
+            return;
+        }
+        watcher = new Thread(() -> watchLoop(service, watched), "Bewertungsmassstab-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop(WatchService service, Set<Path> watched) {
+        try (service) {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                // weitere Ereignisse desselben Speichervorgangs abwarten
+                WatchKey next = key;
+                do {
+                    next.pollEvents();
+                    next.reset();
+                    next = service.poll(RELOAD_DELAY_MS, TimeUnit.MILLISECONDS);
+                } while (next != null);
+                registerDirectories(service, watched);
+                reload();
+                log.writeLog("Server", "127.0.0.1", "| RELOAD | Massstab | " + scales.size() + " Bewertungsmassstaebe |");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.writeLog("Server", "127.0.0.1", "ERROR|GRADE_SCALE_WATCH|" + e.getMessage());
+        }
+    }
+
+    private void registerDirectories(WatchService service, Set<Path> watched) throws IOException {
+        for (Path directory : directories()) {
+            if (watched.add(directory)) {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    private List<Path> directories() {
+        List<Path> result = new ArrayList<>();
+        for (String name : DIRECTORY_NAMES) {
+            try {
+                Path directory = dataRoot.resolve(name);
+                if (Files.isDirectory(directory)) {
+                    result.add(directory);
+                }
+            } catch (InvalidPathException ignored) {
+                // Umlaut-Verzeichnisname ist mit der Dateisystemkodierung (z.B. POSIX-Locale) nicht darstellbar
+            }
+        }
+        return result;
+    }
+
+    private List<GradeScale> loadAll() {
+        List<GradeScale> loaded = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        for (Path directory : directories()) {
+            try (Stream<Path> stream = Files.list(directory)) {
+                List<Path> files = stream.filter(Files::isRegularFile)
+                        .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+                        .sorted(Comparator.comparing(path -> path.getFileName().toString(), String.CASE_INSENSITIVE_ORDER))
+                        .toList();
+                for (Path path : files) {
+                    try {
+                        GradeScale scale = parse(path);
+                        if (scale != null && seenIds.add(scale.id())) {
+                            loaded.add(scale);
+                        }
+                    } catch (IOException e) {
+                        log.writeLog("Server", "127.0.0.1", "ERROR|GRADE_SCALE|" + path.getFileName() + "|" + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                log.writeLog("Server", "127.0.0.1", "ERROR|GRADE_SCALE_DIR|" + e.getMessage());
+            }
+        }
+        loaded.sort(Comparator.comparing(GradeScale::displayName, String.CASE_INSENSITIVE_ORDER));
+        return List.copyOf(loaded);
+    }
+
+    /**
+     * @title parse
+     * @short Liest eine Massstab-Datei: "#Anzeigename" in der ersten Kommentarzeile, danach "Schwelle;Note" je Zeile.
+     */
+    static GradeScale parse(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        NavigableMap<Double, String> thresholds = new TreeMap<>();
+        String displayName = null;
+        for (String rawLine : lines) {
+            String line = rawLine.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                if (displayName == null && line.length() > 1) {
+                    displayName = line.substring(1).trim();
+                }
+                continue;
+            }
+            String[] parts = line.split(";", 2);
+            if (parts.length < 2) {
+                continue;
+            }
+            String thresholdPart = parts[0].trim().replace(',', '.');
+            String gradePart = parts[1].trim();
+            if (gradePart.isEmpty()) {
+                continue;
+            }
+            try {
+                thresholds.put(Double.parseDouble(thresholdPart), gradePart);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        if (thresholds.isEmpty()) {
+            return null;
+        }
+        String filename = path.getFileName().toString();
+        int dotIndex = filename.lastIndexOf('.');
+        String id = dotIndex > 0 ? filename.substring(0, dotIndex) : filename;
+        if (displayName == null || displayName.isBlank()) {
+            displayName = id;
+        }
+        return new GradeScale(id, displayName, thresholds);
+    }
+}
@@ -0,0 +1,331 @@
+package backend.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @title RosterImportService
+ * @short Liest eine Schuelerliste (CSV) zeilenweise ein und legt Klassen und Schueler in Batches an.
+ *
+ * Erwartetes Format: eine Zeile je Schueler mit Klasse, Vorname und Nachname, getrennt durch ';' oder ','.
+ * Eine optionale Kopfzeile (z.B. "Klasse;Vorname;Nachname") legt die Spaltenreihenfolge fest.
+ * Klassen und Schueler werden per Upsert angelegt: vorhandene Klassen (gleicher Name) und Schueler (gleiche Klasse,
+ * gleicher Nach- und Vorname) werden auch dann wiederverwendet, wenn sie seit dem Laden des Bestands von anderer
+ * Seite angelegt wurden, so dass ein erneuter Import keine Duplikate erzeugt. Fehlerhafte Zeilen werden gemeldet,
+ * ohne den Import abzubrechen.
+ */
+final class RosterImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private RosterImportService() {
+    }
+
+    static Server.ImportResult importFromCsv(DatabaseHandler db,
+                                             Path file,
+                                             LogfileHandler log,
+                                             String boundIp) {
+        if (db == null) {
+            return new Server.ImportResult(false, "Interner Fehler: Datenbank nicht initialisiert.");
+        }
+        if (file == null) {
+            return new Server.ImportResult(false, "Keine Datei ausgewählt.");
+        }
+        if (!Files.isRegularFile(file)) {
+            return new Server.ImportResult(false, "Datei nicht gefunden: " + file.toAbsolutePath());
+        }
+
+        String targetIp = boundIp == null || boundIp.isBlank() ? "127.0.0.1" : boundIp;
+        ImportState state = new ImportState();
+        try {
+            loadExisting(db, state);
+        } catch (SQLException e) {
+            return new Server.ImportResult(false, "Datenbankfehler: " + e.getMessage());
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<RosterRow> batch = new ArrayList<>(BATCH_SIZE);
+            int[] columns = {0, 1, 2};
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                List<String> fields = splitCsvLine(line);
+                if (lineNumber == 1 && isHeader(fields)) {
+                    columns = resolveColumns(fields);
+                    continue;
+                }
+                String className = field(fields, columns[0]);
+                String firstName = field(fields, columns[1]);
+                String lastName = field(fields, columns[2]);
+                if (className.isEmpty() || (firstName.isEmpty() && lastName.isEmpty())) {
+                    state.error(lineNumber, "Klasse oder Name fehlt");
+                    continue;
+                }
+                batch.add(new RosterRow(lineNumber, className, firstName, lastName));
+                if (batch.size() >= BATCH_SIZE) {
+                    flushBatch(db, batch, state, log, targetIp);
+                }
+            }
+            flushBatch(db, batch, state, log, targetIp);
+        } catch (IOException e) {
+            return new Server.ImportResult(false, "Datei konnte nicht gelesen werden: " + e.getMessage());
+        }
+
+        log.writeLog("Server", targetIp, "INSERT|Roster|" + state.insertedStudents + " Schueler, "
+                + state.insertedClasses + " Klassen, " + state.duplicates + " Duplikate, " + state.errorCount + " Fehler");
+        StringBuilder message = new StringBuilder()
+                .append("Schuelerliste importiert: ")
+                .append(state.insertedStudents).append(" Schueler neu, ")
+                .append(state.insertedClasses).append(" Klassen neu, ")
+                .append(state.duplicates).append(" bereits vorhanden");
+        if (state.errorCount > 0) {
+            message.append(", ").append(state.errorCount).append(" fehlerhafte Zeilen:");
+            for (String error : state.errors) {
+                message.append('\n').append(error);
+            }
+            if (state.errorCount > state.errors.size()) {
+                message.append("\n... (weitere Fehler im Log)");
+            }
+        }
+        message.append('.');
+        boolean success = state.insertedStudents > 0 || state.duplicates > 0;
+        return new Server.ImportResult(success, message.toString());
+    }
+
+    private static void loadExisting(DatabaseHandler db, ImportState state) throws SQLException {
+        for (Map<String, Object> row : db.getAllEntries("Klasse")) {
+            if (row.get("idKlasse") instanceof Number id && row.get("klassenname") != null) {
+                state.classIds.putIfAbsent(normalizeKey(String.valueOf(row.get("klassenname"))), id.intValue());
+            }
+        }
+        for (Map<String, Object> row : db.getAllEntries("Schueler")) {
+            if (row.get("idKlasse") instanceof Number classId) {
+                state.studentKeys.add(studentKey(classId.intValue(),
+                        String.valueOf(row.getOrDefault("vorname", "")),
+                        String.valueOf(row.getOrDefault("nachname", ""))));
+            }
+        }
+    }
+
+    /**
+     * @title flushBatch
+     * @short Schreibt einen Block Zeilen in einer Transaktion; schlaegt der Block fehl, wird zeilenweise wiederholt.
+     */
+    private static void flushBatch(DatabaseHandler db, List<RosterRow> batch, ImportState state,
+                                   LogfileHandler log, String targetIp) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            BatchOutcome outcome = db.inTransaction(conn -> writeRows(conn, batch, state));
+            state.apply(outcome);
+        } catch (SQLException batchError) {
+            log.writeLog("Server", targetIp, "ERROR|Roster|Batch fehlgeschlagen, Einzelimport: " + batchError.getMessage());
+            for (RosterRow row : batch) {
+                try {
+                    BatchOutcome outcome = db.inTransaction(conn -> writeRows(conn, List.of(row), state));
+                    state.apply(outcome);
+                } catch (SQLException rowError) {
+                    state.error(row.lineNumber(), rowError.getMessage());
+                    log.writeLog("Server", targetIp, "ERROR|Roster|Zeile " + row.lineNumber() + ": " + rowError.getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * @title writeRows
+     * @short Upsert von Klassen und Schuelern per JDBC-Batch. Der Zustand wird erst nach Commit uebernommen.
+     *
+     * Die Bestandsliste aus {@link #loadExisting} spart die meisten Abfragen; massgeblich ist aber die Datenbank:
+     * Klassen werden per Name nachgeschlagen, Schueler nur eingefuegt, wenn (idKlasse, nachname, vorname) noch fehlt
+     * (Index idx_Schueler_klasse_name).
+     */
+    private static BatchOutcome writeRows(Connection conn, List<RosterRow> rows, ImportState state) throws SQLException {
+        Map<String, Integer> newClasses = new HashMap<>();
+        Map<String, Integer> knownClasses = new HashMap<>();
+        Set<String> newStudents = new HashSet<>();
+        List<String> batchKeys = new ArrayList<>();
+        Set<String> pendingKeys = new HashSet<>();
+        int duplicates = 0;
+        try (PreparedStatement findClass = conn.prepareStatement(
+                     "SELECT idKlasse FROM Klasse WHERE klassenname = ? ORDER BY idKlasse LIMIT 1");
+             PreparedStatement insertClass = conn.prepareStatement(
+                     "INSERT INTO Klasse (klassenname) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement upsertStudent = conn.prepareStatement(
+                     "INSERT INTO Schueler (idKlasse, vorname, nachname) SELECT ?, ?, ? WHERE NOT EXISTS "
+                             + "(SELECT 1 FROM Schueler WHERE idKlasse = ? AND nachname = ? AND vorname = ?)")) {
+            for (RosterRow row : rows) {
+                String classKey = normalizeKey(row.className());
+                Integer classId = state.classIds.get(classKey);
+                if (classId == null) {
+                    classId = newClasses.get(classKey);
+                }
+                if (classId == null) {
+                    classId = knownClasses.get(classKey);
+                }
+                if (classId == null) {
+                    findClass.setString(1, row.className());
+                    try (ResultSet rs = findClass.executeQuery()) {
+                        if (rs.next()) {
+                            classId = rs.getInt(1);
+                            knownClasses.put(classKey, classId);
+                        }
+                    }
+                }
+                if (classId == null) {
+                    insertClass.setString(1, row.className());
+                    insertClass.executeUpdate();
+                    try (ResultSet keys = insertClass.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("Klassen-ID fuer " + row.className() + " konnte nicht ermittelt werden.");
+                        }
+                        classId = keys.getInt(1);
+                    }
+                    newClasses.put(classKey, classId);
+                }
+                String key = studentKey(classId, row.firstName(), row.lastName());
+                if (state.studentKeys.contains(key) || !pendingKeys.add(key)) {
+                    duplicates++;
+                    continue;
+                }
+                batchKeys.add(key);
+                upsertStudent.setInt(1, classId);
+                upsertStudent.setString(2, row.firstName());
+                upsertStudent.setString(3, row.lastName());
+                upsertStudent.setInt(4, classId);
+                upsertStudent.setString(5, row.lastName());
+                upsertStudent.setString(6, row.firstName());
+                upsertStudent.addBatch();
+            }
+            int[] results = upsertStudent.executeBatch();
+            for (int i = 0; i < batchKeys.size(); i++) {
+                // 0 = Schueler war schon vorhanden (von anderer Seite seit dem Laden des Bestands angelegt)
+                if (i < results.length && results[i] == 0) {
+                    duplicates++;
+                } else {
+                    newStudents.add(batchKeys.get(i));
+                }
+            }
+        }
+        knownClasses.forEach(state.classIds::putIfAbsent);
+        return new BatchOutcome(newClasses, newStudents, duplicates);
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        char delimiter = line.indexOf(';') >= 0 ? ';' : ',';
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (ch == delimiter && !quoted) {
+                fields.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        fields.add(current.toString().trim());
+        return fields;
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        for (String field : fields) {
+            String lower = field.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("klasse") || lower.equals("vorname") || lower.equals("nachname")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] resolveColumns(List<String> header) {
+        int[] columns = {0, 1, 2};
+        for (int i = 0; i < header.size(); i++) {
+            String lower = header.get(i).toLowerCase(Locale.ROOT);
+            if (lower.startsWith("klasse")) {
+                columns[0] = i;
+            } else if (lower.equals("vorname")) {
+                columns[1] = i;
+            } else if (lower.equals("nachname") || lower.equals("name")) {
+                columns[2] = i;
+            }
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index).replaceAll("\\s+", " ").trim() : "";
+    }
+
+    private static String normalizeKey(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String studentKey(int classId, String firstName, String lastName) {
+        return classId + "|" + normalizeKey(firstName) + "|" + normalizeKey(lastName);
+    }
+
+    private record RosterRow(int lineNumber, String className, String firstName, String lastName) {
+    }
+
+    private record BatchOutcome(Map<String, Integer> newClasses, Set<String> newStudents, int duplicates) {
+    }
+
+    private static final class ImportState {
+        final Map<String, Integer> classIds = new HashMap<>();
+        final Set<String> studentKeys = new HashSet<>();
+        final List<String> errors = new ArrayList<>();
+        int insertedClasses;
+        int insertedStudents;
+        int duplicates;
+        int errorCount;
+
+        void apply(BatchOutcome outcome) {
+            classIds.putAll(outcome.newClasses());
+            studentKeys.addAll(outcome.newStudents());
+            insertedClasses += outcome.newClasses().size();
+            insertedStudents += outcome.newStudents().size();
+            duplicates += outcome.duplicates();
+        }
+
+        void error(int lineNumber, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Zeile " + lineNumber + ": " + message);
+            }
+        }
+    }
+}
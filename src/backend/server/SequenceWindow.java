@@ -0,0 +1,57 @@
+package backend.server;
+
+/**
+ * @title SequenceWindow
+ * @short Dedup-Fenster und kumulative Bestaetigung fuer die Folgenummern ({@code seq}) einer Client-Sitzung.
+ *
+ * Der Client nummeriert seine Nachrichten je Sitzung fortlaufend. Innerhalb einer Verbindung kommen sie in dieser
+ * Reihenfolge an, und ein Fehler beim Speichern beendet die Verbindung, bevor spaetere Nummern verarbeitet werden;
+ * alles bis zur hoechsten verarbeiteten Nummer ist damit erledigt. Eine Wiederholung nach einem Reconnect erkennt
+ * {@link #accept(long)} deshalb ohne Datenbankzugriff. Bestaetigt wird kumulativ: {@link #takeAck()} liefert die
+ * hoechste Nummer nur, wenn seit der letzten Bestaetigung etwas hinzugekommen ist oder eine Wiederholung eine erneute
+ * Bestaetigung verlangt. Das Fenster gehoert zur Sitzung und wird beim Fortsetzen an die neue Verbindung uebergeben.
+ */
+final class SequenceWindow {
+
+    private long highest;
+    private boolean ackDue;
+
+    /**
+     * @title accept
+     * @short {@code false} fuer eine bereits verarbeitete Nummer; die Bestaetigung wird dann erneut faellig.
+     */
+    synchronized boolean accept(long seq) {
+        if (seq <= highest) {
+            ackDue = true;
+            return false;
+        }
+        return true;
+    }
+
+    /** @title commit @short Vermerkt eine verarbeitete (bei Antworten: gespeicherte) Nummer. */
+    synchronized void commit(long seq) {
+        if (seq > highest) {
+            highest = seq;
+        }
+        ackDue = true;
+    }
+
+    /** @title requestAck @short Verlangt eine erneute Bestaetigung, etwa nachdem die Verbindung gewechselt hat. */
+    synchronized void requestAck() {
+        ackDue = highest > 0L;
+    }
+
+    /** @title ackDue @short Ob eine Bestaetigung aussteht. */
+    synchronized boolean ackDue() {
+        return ackDue;
+    }
+
+    /** @title takeAck @short Hoechste verarbeitete Nummer, falls eine Bestaetigung aussteht, sonst {@code -1}. */
+    synchronized long takeAck() {
+        if (!ackDue || highest <= 0L) {
+            return -1L;
+        }
+        ackDue = false;
+        return highest;
+    }
+}
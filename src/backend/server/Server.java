@@ -11,8 +11,10 @@ import java.time.format.DateTimeFormatter;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /*
 ================================================================================
@@ -41,9 +43,26 @@ public class Server {
     private static final String BROADCAST_ADDR = "255.255.255.255";
     private static final String DEFAULT_TOKEN = "1234";
     private static final String TIME_EXPIRED_MESSAGE = "Die Zeit ist abgelaufen. Die Anwendung wird geschlossen.";
+    private static final int WARNING_BUFFER_CAPACITY = 1024;
+    private static final int WARNING_RETENTION = 200;
+    private static final long WARNING_WINDOW_MILLIS = 60_000L;
+    private static final long WARNING_DRAIN_MILLIS = 200L;
+    private static final long CHECKPOINT_MILLIS = 2_000L;
+    private static final long SESSION_GRACE_MILLIS = 300_000L;
+    private static final String DETACHED_STATUS = "Verbindung unterbrochen";
+    private static final long ACK_DELAY_MILLIS = 100L;
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 2_000L;
+    private static final long IDLE_TIMEOUT_MILLIS = 6_000L;
+    private static final long HEARTBEAT_TICK_MILLIS = 250L;
+    private static final int HEARTBEAT_SLOTS = 64;
+    /** Base64-Zeichen je SEND_BUNDLE-Teil; bleibt unter der 64-KB-Grenze von writeUTF. */
+    private static final int BUNDLE_CHUNK_CHARS = 48_000;
     // --------------------------------
 
     private final LogfileHandler log = new LogfileHandler();
+    private final BlobStore blobStore = new BlobStore(Paths.get("data", "blobs"));
+    private final AnswerFeed answerFeed = new AnswerFeed();
+    private final ServerEvents events = new ServerEvents();
     private final boolean keepHistory;
     private final boolean consoleMode;
     private volatile boolean running = true;
@@ -60,7 +79,22 @@ public class Server {
     private Thread broadcastThread;
 
     private final Map<String, ClientHandler> clients = new ConcurrentHashMap<>();
-    private final List<ClientWarning> warnings = new ArrayList<>();
+    private final WarningBuffer warningBuffer = new WarningBuffer(WARNING_BUFFER_CAPACITY, WARNING_RETENTION,
+            WARNING_WINDOW_MILLIS);
+    private final AtomicBoolean warningDrainScheduled = new AtomicBoolean();
+    private final SessionCheckpoint checkpoint = new SessionCheckpoint(Paths.get("data", "session.chk"));
+    /** Fortschritt aus einer wiederhergestellten Sitzung, je Token bis zur erneuten Anmeldung. */
+    private final Map<String, SessionCheckpoint.Progress> restoredProgress = new ConcurrentHashMap<>();
+    /** Fortsetzbare Sitzungen je Sitzungskennung aus AUTH_OK; getrennte bleiben bis zum Ablauf der Frist erhalten. */
+    private final Map<String, ClientHandler> sessions = new ConcurrentHashMap<>();
+    /** Naechste Heartbeat-Pruefung je Verbindung; wird nur auf dem ServerTimer-Thread weitergedreht. */
+    private final TimingWheel<ClientHandler> heartbeats = new TimingWheel<>(HEARTBEAT_SLOTS, HEARTBEAT_TICK_MILLIS);
+    /** Verschickt PINGs und gebuendelte ACKs, damit ein haengender Socket nie den ServerTimer-Thread blockiert. */
+    private final ExecutorService heartbeatSender = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "Heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
     private volatile int clientCounter = 0;
     private final ScheduledExecutorService timerScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "ServerTimer");
@@ -73,9 +107,12 @@ public class Server {
     private volatile boolean timerRunning = false;
     private volatile boolean timerPaused = false;
     private volatile boolean testPaused = false;
+    /** Opt-in: ganzer Test beim Start als ein komprimiertes Paket (SEND_BUNDLE) statt Aufgabe fuer Aufgabe. */
+    private volatile boolean bundleDelivery = false;
     private volatile long lastTimerTickAt = 0L;
 
     private volatile String boundIp = resolveLocalIPv4();
+    private final AtomicReference<SessionSnapshot> snapshot = new AtomicReference<>();
     private volatile boolean clientsTableDirty = false; // nur bei erfolgreicher AUTH ÃƒÂ¢Ã¢â‚¬Â Ã¢â‚¬â„¢ UI-Refresh
 
     // FÃƒÆ’Ã‚Â¼ge ein Feld fÃƒÆ’Ã‚Â¼r den DatabaseHandler hinzu
@@ -108,6 +145,7 @@ public class Server {
     public Server(boolean keepHistory, boolean consoleMode) {
         this.keepHistory = keepHistory;
         this.consoleMode = consoleMode;
+        publishSnapshot();
         try {
             this.db = new DatabaseHandler("data/lues.db");
         } catch (SQLException e) {
@@ -122,6 +160,11 @@ public class Server {
      * @args keine
      */
     public void start() {
+        restoreCheckpoint();
+        timerScheduler.scheduleWithFixedDelay(this::writeCheckpoint, CHECKPOINT_MILLIS, CHECKPOINT_MILLIS,
+                TimeUnit.MILLISECONDS);
+        timerScheduler.scheduleAtFixedRate(this::tickHeartbeats, HEARTBEAT_TICK_MILLIS, HEARTBEAT_TICK_MILLIS,
+                TimeUnit.MILLISECONDS);
         if (consoleMode) {
             dashboardThread = new Thread(this::dashboardLoop, "DashboardListener");
             dashboardThread.start();
@@ -247,7 +290,7 @@ public class Server {
             String line = readLineAndClear(br);
             if ("1".equals(line != null ? line.trim() : "")) {
                 broadcastToAll(new Message("SERVER", "END_TEST", "")); // Token leer ok
-                state = DashboardState.HOSTING;
+                setState(DashboardState.HOSTING);
             }
         }
     }
@@ -275,7 +318,7 @@ public class Server {
                     selectedTestName = names.get(idx);
                     selectedTest = loadTestFromDb(selectedTestName);
                     selectedTestId = getTestIdByName(selectedTestName);
-                    state = DashboardState.TEST_SELECTED;
+                    setState(DashboardState.TEST_SELECTED);
                     log.writeLog("Server", boundIp, "INFO|TEST|Selected="+selectedTestName);
                 } catch (IOException | SQLException | NumberFormatException | IndexOutOfBoundsException ex) {
                     System.out.println("Ungueltige Auswahl oder Datenbankfehler. Enter..."); waitForEnterAndClear();
@@ -321,12 +364,12 @@ public class Server {
                     generateAndSaveTokensForClass(selectedClassId, selectedClassName, true);
 
                     startBroadcast();
-                    state = DashboardState.HOSTING;
+                    setState(DashboardState.HOSTING);
                 } catch (IOException | SQLException | NumberFormatException | IndexOutOfBoundsException ex) {
                     System.out.println("Ungueltige Auswahl oder Datenbankfehler. Enter..."); waitForEnterAndClear();
                 }
             }
-            case "2" -> { selectedTest = null; selectedTestName = null; state = DashboardState.ROOT; }
+            case "2" -> { selectedTest = null; selectedTestName = null; setState(DashboardState.ROOT); }
             default -> {}
         }
     }
@@ -1045,7 +1088,7 @@ public class Server {
     }
 
     private GradeSetup promptGradeSetup(BufferedReader reader, String testName) throws IOException {
-        List<GradeScale> scales = loadGradeScales();
+        List<GradeScale> scales = GradeScaleRegistry.shared().scales();
         if (scales.isEmpty()) {
             return new GradeSetup(null, null);
         }
@@ -1183,73 +1226,6 @@ public class Server {
         }
     }
 
-    private List<GradeScale> loadGradeScales() {
-        Path directory = Paths.get("data", "bewertungsmassstaebe");
-        if (!Files.isDirectory(directory)) {
-            return List.of();
-        }
-        List<GradeScale> scales = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(directory)) {
-            stream.filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
-                    .sorted(Comparator.comparing(path -> path.getFileName().toString(), String.CASE_INSENSITIVE_ORDER))
-                    .forEach(path -> {
-                        try {
-                            GradeScale scale = parseGradeScale(path);
-                            if (scale != null) {
-                                scales.add(scale);
-                            }
-                        } catch (IOException e) {
-                            log.writeLog("Server", boundIp, "ERROR|GRADE_SCALE|" + path.getFileName() + "|" + e.getMessage());
-                        }
-                    });
-        } catch (IOException e) {
-            log.writeLog("Server", boundIp, "ERROR|GRADE_SCALE_DIR|" + e.getMessage());
-        }
-        return scales;
-    }
-
-    private GradeScale parseGradeScale(Path path) throws IOException {
-        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
-        NavigableMap<Double, String> thresholds = new TreeMap<>();
-        String displayName = null;
-        for (String rawLine : lines) {
-            String line = rawLine.trim();
-            if (line.isEmpty()) {
-                continue;
-            }
-            if (line.startsWith("#")) {
-                if (displayName == null && line.length() > 1) {
-                    displayName = line.substring(1).trim();
-                }
-                continue;
-            }
-            String[] parts = line.split(";", 2);
-            if (parts.length < 2) {
-                continue;
-            }
-            String thresholdPart = parts[0].trim().replace(',', '.');
-            String gradePart = parts[1].trim();
-            if (gradePart.isEmpty()) {
-                continue;
-            }
-            try {
-                double threshold = Double.parseDouble(thresholdPart);
-                thresholds.put(threshold, gradePart);
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        if (thresholds.isEmpty()) {
-            return null;
-        }
-        String filename = path.getFileName().toString();
-        int dotIndex = filename.lastIndexOf('.');
-        String id = dotIndex > 0 ? filename.substring(0, dotIndex) : filename;
-        if (displayName == null || displayName.isBlank()) {
-            displayName = id;
-        }
-        return new GradeScale(id, displayName, thresholds);
-    }
-
     private enum EvaluationNavigation {
         CONTINUE,
         BACK
@@ -1284,32 +1260,6 @@ public class Server {
         }
     }
 
-    private static final class GradeScale {
-        private final String id;
-        private final String displayName;
-        private final NavigableMap<Double, String> thresholds;
-
-        GradeScale(String id, String displayName, NavigableMap<Double, String> thresholds) {
-            this.id = id;
-            this.displayName = displayName;
-            this.thresholds = Collections.unmodifiableNavigableMap(new TreeMap<>(thresholds));
-        }
-
-        String displayName() {
-            return displayName;
-        }
-
-        String gradeFor(double percentage) {
-            double normalized = Math.max(0.0, percentage);
-            Map.Entry<Double, String> entry = thresholds.floorEntry(normalized);
-            if (entry != null) {
-                return entry.getValue();
-            }
-            return thresholds.firstEntry().getValue();
-        }
-    }
-
-
     private Map<String, Object> safeDbGet(String table, int id) {
         try {
             return db.getEntry(table, id);
@@ -1364,10 +1314,7 @@ public class Server {
      * @args int classId, String className
      */
     private String generateAndSaveTokensForClass(int classId, String className, boolean interactive) throws IOException, SQLException {
-        List<Map<String, Object>> schueler = db.getAllEntries("Schueler");
-        List<Map<String, Object>> schuelerInKlasse = schueler.stream()
-                .filter(s -> ((int) s.get("idKlasse")) == classId)
-                .toList();
+        List<Map<String, Object>> schuelerInKlasse = db.getEntriesWhere("Schueler", "idKlasse", classId);
 
         tokenToSchuelerId.clear();
         List<String> lines = new ArrayList<>();
@@ -1560,15 +1507,38 @@ public class Server {
         volatile Test test;
         volatile int currentTaskIndex = 0;
         volatile String token = ""; // personalisierter Token des Clients
+        volatile String studentName = "(unbekannt)";
         volatile boolean handRaised = false;
         volatile long handRaisedAt = 0L;
+        volatile String sessionId;
+        volatile boolean atOverview = false;
+        volatile boolean detached = false;
+        volatile boolean superseded = false;
+        volatile boolean closed = false;
+        volatile String statusBeforeDetach;
+        /** Folgenummern der Sitzung; wird beim Fortsetzen vom alten Handler uebernommen. */
+        volatile SequenceWindow window = new SequenceWindow();
+        final AtomicBoolean ackScheduled = new AtomicBoolean();
+        volatile long lastSeenAt = System.currentTimeMillis();
+        /** Geglaettete Umlaufzeit aus PING/PONG in Millisekunden, -1 solange nicht gemessen. */
+        volatile long rttMillis = -1L;
+        /** Client kann SEND_BUNDLE verarbeiten (AUTH mit bundle=1). */
+        volatile boolean acceptsBundle = false;
+        /** Hat das Aufgabenpaket erhalten und meldet seinen Stand per PROGRESS. */
+        volatile boolean bundled = false;
+        /** Client beantwortet PING unabhaengig von Eingaben (AUTH mit heartbeat=1); nur dann gilt die Stille-Frist. */
+        volatile boolean answersHeartbeat = false;
         DataOutputStream output;
         final Thread t;
 
         ClientHandler(String id, Socket s) { this.clientId = id; this.socket = s; this.remoteIp = s.getInetAddress().getHostAddress(); this.t = new Thread(this::run, "CommunicationListener-"+remoteIp); }
 
         /** @title start @short Startet Thread. @args keine */
-        void start(){ t.start(); log.writeLog("Server", remoteIp, "START|THREAD|CommunicationListener"); }
+        void start(){
+            t.start();
+            heartbeats.schedule(this, HEARTBEAT_INTERVAL_MILLIS);
+            log.writeLog("Server", remoteIp, "START|THREAD|CommunicationListener");
+        }
 
         /**
          * @title run
@@ -1582,7 +1552,14 @@ public class Server {
                 while (running && !socket.isClosed()) {
                     Message msg = Message.read(in);
                     if (msg == null) break;
+                    lastSeenAt = System.currentTimeMillis();
 
+                    long seq = parseSeq(msg);
+                    if (seq > 0L && !window.accept(seq)) {
+                        // Wiederholung nach einem Reconnect, schon verarbeitet: nur erneut bestaetigen
+                        scheduleAck();
+                        continue;
+                    }
                     switch (msg.messageType) {
                         case "AUTH" -> {
                             String incomingToken = msg.token;
@@ -1592,30 +1569,56 @@ public class Server {
                                 continue;
                             }
                             this.token = incomingToken;
+                            this.studentName = getSchuelerNameByToken(incomingToken);
                             this.clientId = "Client" + (++clientCounter);
                             this.status = "Verbunden";
                             this.handRaised = false;
                             this.handRaisedAt = 0L;
                             this.test = selectedTest;
                             this.currentTaskIndex = 0;
+                            this.atOverview = false;
+                            this.acceptsBundle = "1".equals(msg.getString("bundle"));
+                            this.answersHeartbeat = "1".equals(msg.getString("heartbeat"));
+                            this.bundled = false;
+                            this.window = new SequenceWindow();
+                            discardDetachedSessions(incomingToken);
+                            this.sessionId = UUID.randomUUID().toString();
+                            sessions.put(this.sessionId, this);
+                            SessionCheckpoint.Progress resumed = restoredProgress.remove(incomingToken);
                             clients.put(this.clientId, this);
-                            clientsTableDirty = true;
+                            markClientsChanged(ServerEvents.Kind.CLIENT_JOINED);
 
                             int taskCount = this.test != null && this.test.tasks != null ? this.test.tasks.size() : 0;
                             String announcedTestName = this.test != null && this.test.name != null ? this.test.name : selectedTestName;
                             // AUTH_OK mit Testname und Aufgabenanzahl
                             send(new Message("SERVER", "AUTH_OK", incomingToken, List.of(
                                     "clientId", this.clientId,
+                                    "sessionId", this.sessionId,
                                     "countOfTasks", String.valueOf(taskCount),
                                     "testName", announcedTestName == null ? "" : announcedTestName
                             )));
+                            if (resumed != null && state == DashboardState.RUNNING) {
+                                resumeProgress(this, resumed);
+                            }
                         }
+                        case "RESUME" -> resumeSession(this, msg.token, msg.getString("sessionId"));
                         case "NEXT_TASK" -> { sendNextTask(this); }
                         case "SEND_ANSWER" -> {
                             String taskId = msg.getString("taskId");
                             String antwort = msg.getString("antwort");
+                            String key = msg.getString("key");
+                            String answerTest = msg.getString("test");
+                            if (answerTest != null && !answerTest.isBlank() && !answerTest.equals(selectedTestName)) {
+                                // aus der Warteschlange eines frueheren Tests: nicht speichern, aber bestaetigen
+                                log.writeLog("Server", remoteIp, "SKIP|FOREIGN_TEST|" + key);
+                                if (seq > 0L) {
+                                    window.commit(seq);
+                                    scheduleAck();
+                                }
+                                continue;
+                            }
                             int schuelerId = tokenToSchuelerId.getOrDefault(this.token, -1);
-                            int testId = getTestIdByName(selectedTestName);
+                            int testId = selectedTestId >= 0 ? selectedTestId : getTestIdByName(selectedTestName);
                             int aufgabeId = -1;
                             // Finde Aufgabe-ID anhand taskId
                             for (Task task : test.tasks) {
@@ -1627,16 +1630,22 @@ public class Server {
                                 }
                             }
                             if (schuelerId != -1 && testId != -1 && aufgabeId != -1) {
-                                // Antwort speichern
+                                // Antwort speichern; mit Schluessel hoechstens einmal (Wiederholung nach Reconnect)
                                 try {
-                                    db.setEntry("Antwort", Map.of(
-                                            "idSchueler", schuelerId,
-                                            "idTest", testId,
-                                            "idAufgabe", aufgabeId,
-                                            "antwort", antwort
-                                    ));
+                                    int antwortId = key == null || key.isBlank()
+                                            ? db.insertAntwort(schuelerId, testId, aufgabeId, antwort)
+                                            : db.insertAntwortOnce(schuelerId, testId, aufgabeId, antwort, key);
+                                    if (antwortId >= 0) {
+                                        answerFeed.publish(new AnswerFeed.AnswerEvent(antwortId, schuelerId, testId, aufgabeId,
+                                                antwort, System.currentTimeMillis()));
+                                    } else {
+                                        log.writeLog("Server", remoteIp, "SKIP|DUPLICATE_ANSWER|" + key);
+                                    }
                                 } catch (SQLException e) {
                                     log.writeLog("Server", remoteIp, "ERROR|DB_ANSWER|" + e.getMessage());
+                                    // ohne Bestaetigung trennen: der Client verbindet neu und schickt ab hier erneut
+                                    socket.close();
+                                    continue;
                                 }
                             }
                         }
@@ -1652,6 +1661,7 @@ public class Server {
                         }
                         case "SEND_DELIVER" -> {
                             this.status = "Abgegeben";
+                            changed(ServerEvents.Kind.PROGRESS_CHANGED);
                             sendOverview(this); // ÃƒÆ’Ã…â€œbersicht nochmal anzeigen
                         }
                         case "WARNING" -> {
@@ -1659,23 +1669,64 @@ public class Server {
                             String timestamp = msg.getString("zeitstempel");
                             registerWarning(this, reason, timestamp);
                         }
+                        case "ASK_BLOB" -> sendBlob(this, msg.getString("hash"));
+                        case "PONG" -> recordRoundTrip(msg.getString("t"));
+                        case "PROGRESS" -> recordProgress(msg.getString("taskNr"), msg.getString("view"));
                         case "RAISE_HAND" -> markHandRaised();
                         case "LOWER_HAND" -> clearHandRaised();
                         default -> {}
                     }
+                    if (seq > 0L) {
+                        window.commit(seq);
+                        scheduleAck();
+                    }
                 }
             } catch (IOException e) {
                 log.writeLog("Server", remoteIp, "ERROR|CLIENT|" + e.getMessage());
             } finally {
                 this.output = null;
-                close();
+                if (!superseded && !detachIfResumable()) {
+                    close();
+                }
             }
         }
 
+        /**
+         * @title detachIfResumable
+         * @short Haelt die Sitzung nach einem Verbindungsabbruch fuer {@link #SESSION_GRACE_MILLIS} fest, statt sie zu entfernen.
+         * @args keine
+         */
+        private boolean detachIfResumable() {
+            synchronized (sessions) {
+                if (closed || superseded || sessionId == null || !running
+                        || (state != DashboardState.RUNNING && state != DashboardState.HOSTING)
+                        || clients.get(clientId) != this) {
+                    return false;
+                }
+                try {
+                    timerScheduler.schedule(() -> expireSession(this), SESSION_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException ex) {
+                    return false;
+                }
+                this.detached = true;
+                this.statusBeforeDetach = this.status;
+                this.status = DETACHED_STATUS;
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Verbindung ist ohnehin verloren
+            }
+            log.writeLog("Server", remoteIp, "DETACH|CLIENT|" + clientId);
+            markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
+            return true;
+        }
+
         /** @title resetForNewRun @short Setzt Status & Testzeiger. @args Test t */
         void resetForNewRun(Test t){
             this.test = t;
             this.currentTaskIndex = 0;
+            this.bundled = false;
             this.status = "Test laeuft";
             clearHandRaised();
         }
@@ -1687,14 +1738,101 @@ public class Server {
                     .collect(Collectors.joining("||"));
         }
 
-        /** @title send @short Sendet Message (optional Preview). @args Message msg, boolean isPreview */
-        void send(Message msg, boolean isPreview){
+        /**
+         * @title scheduleAck
+         * @short Buendelt Bestaetigungen: spaetestens nach {@link #ACK_DELAY_MILLIS} geht ein ACK raus, sofern keine
+         * andere Nachricht die Bestaetigung schon mitgenommen hat. Der ServerTimer stellt nur die Frist; geschrieben
+         * wird auf dem Heartbeat-Pool.
+         * @args keine
+         */
+        void scheduleAck() {
+            if (!ackScheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                timerScheduler.schedule(() -> {
+                    try {
+                        heartbeatSender.execute(this::flushAck);
+                    } catch (RejectedExecutionException ex) {
+                        ackScheduled.set(false);
+                    }
+                }, ACK_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                ackScheduled.set(false);
+            }
+        }
+
+        /**
+         * @title recordRoundTrip
+         * @short Misst die Umlaufzeit eines PONG (Echo des PING-Zeitstempels) und glaettet sie exponentiell.
+         * @args String echoed
+         */
+        private void recordRoundTrip(String echoed) {
+            long sentNanos;
+            try {
+                sentNanos = Long.parseLong(echoed == null ? "" : echoed.trim());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            long sample = Math.max(0L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentNanos));
+            long previous = rttMillis;
+            long smoothed = previous < 0L ? sample : (previous * 7L + sample) / 8L;
+            rttMillis = smoothed;
+            // Anzeige nur bei spuerbarer Aenderung neu aufbauen, nicht bei jedem PONG
+            if (previous < 0L || Math.abs(smoothed - previous) >= Math.max(5L, previous / 4L)) {
+                markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
+            }
+        }
+
+        /**
+         * @title recordProgress
+         * @short Uebernimmt den lokal weitergeschalteten Stand eines Clients mit Aufgabenpaket (taskNr oder view=OVERVIEW).
+         * @args String taskNr, String view
+         */
+        private void recordProgress(String taskNr, String view) {
+            Test t = test;
+            if (!bundled || t == null || t.tasks == null) {
+                return;
+            }
+            if ("OVERVIEW".equals(view)) {
+                atOverview = true;
+            } else {
+                try {
+                    int nr = Integer.parseInt(taskNr == null ? "" : taskNr.trim());
+                    currentTaskIndex = Math.max(0, Math.min(nr, t.tasks.size()));
+                    atOverview = false;
+                } catch (NumberFormatException e) {
+                    return;
+                }
+            }
+            changed(ServerEvents.Kind.PROGRESS_CHANGED);
+        }
+
+        private void flushAck() {
+            ackScheduled.set(false);
+            if (window.ackDue()) {
+                send(new Message("SERVER", "ACK", token));
+            }
+        }
+
+        /** @title send @short Sendet Message (optional Preview), die ausstehende Bestaetigung wird angehaengt. @args Message msg, boolean isPreview */
+        synchronized void send(Message msg, boolean isPreview){
+            if (detached) {
+                return;
+            }
             try {
                 DataOutputStream channel = this.output;
                 if (channel == null) {
                     channel = new DataOutputStream(socket.getOutputStream());
                     this.output = channel;
                 }
+                long ack = window.takeAck();
+                if (ack > 0L) {
+                    // Kopie: dieselbe Message kann an mehrere Clients gehen
+                    Message withAck = new Message(msg.sender, msg.messageType, msg.token);
+                    withAck.args.putAll(msg.args);
+                    msg = withAck.put("ack", String.valueOf(ack));
+                }
                 Message.write(channel, msg);
                 // Bei Preview KEIN Fortschritt
             } catch (IOException e){
@@ -1707,6 +1845,12 @@ public class Server {
 
         /** @title close @short Schliesst Socket & entfernt aus Map. @args keine */
         void close(){
+            synchronized (sessions) {
+                this.closed = true;
+                if (sessionId != null) {
+                    sessions.remove(sessionId, this);
+                }
+            }
             try {
                 DataOutputStream channel = this.output;
                 if (channel != null) {
@@ -1724,13 +1868,13 @@ public class Server {
             }
             clearHandRaised();
             clients.values().removeIf(v -> v == this);
-            clientsTableDirty = true;
+            markClientsChanged(ServerEvents.Kind.CLIENT_LEFT);
         }
 
         private void markHandRaised() {
             this.handRaised = true;
             this.handRaisedAt = System.currentTimeMillis();
-            clientsTableDirty = true;
+            markClientsChanged(ServerEvents.Kind.HAND_RAISED);
         }
 
         private void clearHandRaised() {
@@ -1739,7 +1883,7 @@ public class Server {
             }
             this.handRaised = false;
             this.handRaisedAt = 0L;
-            clientsTableDirty = true;
+            markClientsChanged(ServerEvents.Kind.HAND_RAISED);
         }
     }
 
@@ -1830,25 +1974,26 @@ public class Server {
         switch (s) {
             case "1" -> {
                 // Test starten
-                state = DashboardState.RUNNING;
+                setState(DashboardState.RUNNING);
                 stopBroadcast();
                 // Aufgaben an alle verbundenen SchÃƒÆ’Ã‚Â¼ler schicken
+                List<String> bundle = bundleDelivery ? encodeBundle(selectedTest) : null;
                 for (ClientHandler ch : clients.values()) {
                     ch.resetForNewRun(selectedTest);
-                    sendNextTask(ch);
+                    deliverFirstTask(ch, bundle);
                     ch.status = "Testlauf";
                 }
-                clientsTableDirty = true;
+                markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
             }
             case "2" -> {
                 // Testat abbrechen
-                state = DashboardState.ROOT;
+                setState(DashboardState.ROOT);
                 stopBroadcast();
                 for (ClientHandler ch : clients.values()) {
                     ch.close();
                 }
                 clients.clear();
-                clientsTableDirty = true;
+                markClientsChanged(ServerEvents.Kind.CLIENT_LEFT);
             }
             default -> {}
         }
@@ -1868,6 +2013,76 @@ public class Server {
         Task t = ch.test.tasks.get(ch.currentTaskIndex);
         sendTask(ch, t, false, ch.currentTaskIndex + 1); // taskNr ist 1-basiert
         ch.currentTaskIndex++;
+        ch.atOverview = false;
+        changed(ServerEvents.Kind.PROGRESS_CHANGED);
+    }
+
+    /**
+     * @title deliverFirstTask
+     * @short Startet den Testlauf eines Clients: Aufgabenpaket, falls vorhanden und unterstuetzt, sonst erste Aufgabe.
+     * @args ClientHandler ch, List<String> bundle (Teile aus encodeBundle oder null)
+     */
+    private void deliverFirstTask(ClientHandler ch, List<String> bundle) {
+        if (bundle == null || !ch.acceptsBundle || ch.test == null) {
+            sendNextTask(ch);
+            return;
+        }
+        int taskCount = ch.test.tasks.size();
+        for (int index = 0; index < bundle.size(); index++) {
+            ch.send(new Message("SERVER", "SEND_BUNDLE", ch.token, List.of(
+                    "index", String.valueOf(index),
+                    "count", String.valueOf(bundle.size()),
+                    "tasks", String.valueOf(taskCount),
+                    "data", bundle.get(index)
+            )));
+        }
+        // der Client zeigt die erste Aufgabe selbst an und meldet das per PROGRESS; scheitert das Entpacken,
+        // holt er sie mit NEXT_TASK, was ohne Vorgriff auf currentTaskIndex weiterhin passt
+        ch.bundled = true;
+        ch.atOverview = false;
+    }
+
+    /**
+     * @title encodeBundle
+     * @short Packt alle Aufgaben eines Tests einmal je Testlauf in ein GZIP-Paket, Base64-kodiert und in Teile zerlegt.
+     * @args Test t
+     *
+     * Inhalt: Version, Anzahl, dann je Aufgabe taskId, Frage, Typ, Antwortoptionen (durch "||" getrennt) und
+     * Anhaenge (durch "," getrennt), jeweils als Laenge plus UTF-8-Bytes. Liefert {@code null}, wenn das Paket nicht
+     * gebaut werden konnte; die Clients bekommen die Aufgaben dann einzeln.
+     */
+    private List<String> encodeBundle(Test t) {
+        if (t == null || t.tasks == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(1);
+            out.writeInt(t.tasks.size());
+            for (Task task : t.tasks) {
+                writeBundleText(out, task.id);
+                writeBundleText(out, task.question);
+                writeBundleText(out, task.type);
+                writeBundleText(out, String.join("||", task.answers));
+                writeBundleText(out, String.join(",", BlobStore.findReferences(task.question)));
+            }
+        } catch (IOException e) {
+            log.writeLog("Server", boundIp, "ERROR|BUNDLE|" + e.getMessage());
+            return null;
+        }
+        String encoded = Base64.getEncoder().encodeToString(bytes.toByteArray());
+        List<String> parts = new ArrayList<>();
+        for (int start = 0; start < encoded.length(); start += BUNDLE_CHUNK_CHARS) {
+            parts.add(encoded.substring(start, Math.min(encoded.length(), start + BUNDLE_CHUNK_CHARS)));
+        }
+        log.writeLog("Server", boundIp, "BUNDLE|" + t.tasks.size() + "|" + bytes.size() + "B|" + parts.size());
+        return parts;
+    }
+
+    private static void writeBundleText(DataOutputStream out, String value) throws IOException {
+        byte[] data = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
     }
 
     /**
@@ -1885,9 +2100,47 @@ public class Server {
                 "answers", String.join("||", t.answers),
                 "isPreview", isPreview ? "1" : "0"
         ));
+        List<String> blobs = BlobStore.findReferences(t.question);
+        if (!blobs.isEmpty()) {
+            msg.put("blobs", String.join(",", blobs));
+        }
         ch.send(msg, isPreview);
     }
 
+    /**
+     * @title sendBlob
+     * @short Sendet einen Aufgabenanhang stueckweise (SEND_BLOB: hash, index, count, size, data).
+     * @args ClientHandler ch, String hash
+     */
+    private void sendBlob(ClientHandler ch, String hash) {
+        Path blob = blobStore.resolve(hash);
+        if (blob == null) {
+            ch.send(new Message("SERVER", "SEND_BLOB", ch.token, List.of(
+                    "hash", hash == null ? "" : hash,
+                    "count", "0",
+                    "fehler", "Anhang nicht gefunden"
+            )));
+            return;
+        }
+        try {
+            blobStore.streamChunks(blob, (index, count, size, data) -> ch.send(new Message("SERVER", "SEND_BLOB", ch.token, List.of(
+                    "hash", hash,
+                    "index", String.valueOf(index),
+                    "count", String.valueOf(count),
+                    "size", String.valueOf(size),
+                    "data", data
+            ))));
+            log.writeLog("Server", ch.remoteIp, "SEND|BLOB|" + hash);
+        } catch (IOException e) {
+            log.writeLog("Server", ch.remoteIp, "ERROR|BLOB|" + hash + "|" + e.getMessage());
+            ch.send(new Message("SERVER", "SEND_BLOB", ch.token, List.of(
+                    "hash", hash,
+                    "count", "0",
+                    "fehler", "Anhang konnte nicht gelesen werden"
+            )));
+        }
+    }
+
     // Convenience-Overload fÃƒÆ’Ã‚Â¼r bisherigen Code:
     private void sendTask(ClientHandler ch, Task t, boolean isPreview) {
         sendTask(ch, t, isPreview, ch.currentTaskIndex + 1);
@@ -1898,24 +2151,248 @@ public class Server {
      * @short Sendet die AufgabenÃƒÆ’Ã‚Â¼bersicht an den Client.
      * @args ClientHandler ch
      */
-    private synchronized void registerWarning(ClientHandler ch, String reason, String timestamp) {
+    private void registerWarning(ClientHandler ch, String reason, String timestamp) {
         if (ch == null) {
             return;
         }
-        String studentName = getSchuelerNameByToken(ch.token);
         String message = (reason == null || reason.isBlank()) ? "Unbekannte Eingabe" : reason.trim();
         String recorded = (timestamp == null || timestamp.isBlank()) ? LocalDateTime.now().toString() : timestamp;
-        ClientWarning warning = new ClientWarning(UUID.randomUUID().toString(), ch.clientId, studentName, message, recorded);
-        warnings.add(warning);
-        log.writeLog("Server", ch.remoteIp, "WARN|CLIENT|" + message);
+        warningBuffer.offer(new WarningBuffer.Signal(ch.clientId, ch.studentName, message, recorded,
+                System.currentTimeMillis()));
+        if (warningDrainScheduled.compareAndSet(false, true)) {
+            try {
+                timerScheduler.schedule(this::drainWarnings, WARNING_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                warningDrainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * @title drainWarnings
+     * @short Fasst die gepufferten Warnungen zusammen; laeuft nur auf dem ServerTimer-Thread (einziger Leser).
+     */
+    private void drainWarnings() {
+        warningDrainScheduled.set(false);
+        WarningBuffer.DrainResult result = warningBuffer.drain();
+        for (ClientWarning warning : result.created()) {
+            log.writeLog("Server", boundIp, "WARN|CLIENT|" + warning.getClientId() + "|" + warning.getMessage());
+        }
+        if (result.dropped() > 0) {
+            log.writeLog("Server", boundIp, "WARN|DROPPED|" + result.dropped());
+        }
+        if (result.changed()) {
+            changed(ServerEvents.Kind.WARNING);
+        }
     }
     private void sendOverview(ClientHandler ch) {
         Message msg = new Message("SERVER", "SEND_OVERVIEW", ch.token, List.of(
                 "data", ch.buildOverviewPayload()
         ));
+        ch.atOverview = true;
         ch.send(msg);
     }
 
+    /**
+     * @title resumeSession
+     * @short Haengt eine neue Verbindung an eine bestehende Sitzung an und schickt den Stand in einem RESUME_OK.
+     * @args ClientHandler ch, String token, String sessionId
+     *
+     * Die alte Verbindung kann getrennt sein oder - nach einem WLAN-Abbruch haeufig - noch gar nicht als tot erkannt;
+     * in beiden Faellen uebernimmt der neue Handler Client-ID, Fortschritt und Status, die alte Verbindung wird ohne
+     * Aufraeumen geschlossen. Ist die Sitzung unbekannt oder abgelaufen, folgt RESUME_ERR und der Client meldet sich
+     * mit AUTH neu an.
+     */
+    private void resumeSession(ClientHandler ch, String token, String sessionId) {
+        ClientHandler previous;
+        synchronized (sessions) {
+            previous = sessionId == null ? null : sessions.get(sessionId);
+            if (previous == null || previous == ch || previous.closed || !Objects.equals(previous.token, token)
+                    || !tokenToSchuelerId.containsKey(token)) {
+                previous = null;
+            } else {
+                previous.superseded = true;
+                previous.detached = true;
+                sessions.put(sessionId, ch);
+            }
+        }
+        if (previous == null) {
+            ch.send(new Message("SERVER", "RESUME_ERR", token, List.of(
+                    "fehlernachricht", "Sitzung nicht mehr vorhanden. Bitte erneut anmelden.")));
+            return;
+        }
+        try {
+            previous.socket.close();
+        } catch (IOException ignored) {
+            // alte Verbindung ist ohnehin verloren
+        }
+        ch.token = previous.token;
+        ch.studentName = previous.studentName;
+        ch.clientId = previous.clientId;
+        ch.test = previous.test;
+        ch.currentTaskIndex = previous.currentTaskIndex;
+        ch.atOverview = previous.atOverview;
+        ch.status = DETACHED_STATUS.equals(previous.status) && previous.statusBeforeDetach != null
+                ? previous.statusBeforeDetach : previous.status;
+        ch.handRaised = previous.handRaised;
+        ch.handRaisedAt = previous.handRaisedAt;
+        ch.acceptsBundle = previous.acceptsBundle;
+        ch.bundled = previous.bundled;
+        ch.answersHeartbeat = previous.answersHeartbeat;
+        ch.sessionId = sessionId;
+        ch.window = previous.window;
+        ch.window.requestAck();
+        clients.put(ch.clientId, ch);
+        log.writeLog("Server", ch.remoteIp, "RESUME|CLIENT|" + ch.clientId);
+        ch.send(buildResumeFrame(ch));
+        markClientsChanged(ServerEvents.Kind.CLIENT_JOINED);
+    }
+
+    /**
+     * @title buildResumeFrame
+     * @short RESUME_OK: Sitzungsdaten, aktuelle Ansicht (Aufgabe, Uebersicht oder Warteraum) und gespeicherte Antworten.
+     * @args ClientHandler ch
+     *
+     * Die Aufgabenfelder heissen wie in SEND_TASK, die Uebersicht wie in SEND_OVERVIEW. Gespeicherte Antworten stehen
+     * in {@code saved} als {@code taskId=Base64(antwort)}, durch Kommas getrennt, weil Antworten selbst "||" enthalten.
+     */
+    private Message buildResumeFrame(ClientHandler ch) {
+        Test t = ch.test;
+        int taskCount = t != null && t.tasks != null ? t.tasks.size() : 0;
+        String testName = t != null && t.name != null ? t.name : selectedTestName;
+        Message msg = new Message("SERVER", "RESUME_OK", ch.token, List.of(
+                "clientId", ch.clientId,
+                "sessionId", ch.sessionId,
+                "countOfTasks", String.valueOf(taskCount),
+                "testName", testName == null ? "" : testName,
+                "paused", testPaused ? "1" : "0",
+                "saved", encodeSavedAnswers(ch)
+        ));
+        if (state != DashboardState.RUNNING || taskCount == 0) {
+            msg.put("view", "WAITING");
+        } else if (ch.atOverview || isDeliveredStatus(ch.status)) {
+            msg.put("view", "OVERVIEW");
+            msg.put("data", ch.buildOverviewPayload());
+        } else {
+            // currentTaskIndex zaehlt gesendete Aufgaben; angezeigt wird die zuletzt gesendete
+            int index = Math.min(Math.max(0, ch.currentTaskIndex - 1), taskCount - 1);
+            ch.currentTaskIndex = index + 1;
+            Task task = t.tasks.get(index);
+            msg.put("view", "TASK");
+            msg.put("taskId", task.id);
+            msg.put("taskNr", String.valueOf(index + 1));
+            msg.put("question", task.question);
+            msg.put("task", task.question);
+            msg.put("taskType", task.type == null ? "" : task.type);
+            msg.put("answers", String.join("||", task.answers));
+            msg.put("isPreview", "0");
+            List<String> blobs = BlobStore.findReferences(task.question);
+            if (!blobs.isEmpty()) {
+                msg.put("blobs", String.join(",", blobs));
+            }
+        }
+        return msg;
+    }
+
+    private String encodeSavedAnswers(ClientHandler ch) {
+        Integer schuelerId = tokenToSchuelerId.get(ch.token);
+        int testId = selectedTestId >= 0 ? selectedTestId : getTestIdByName(selectedTestName);
+        if (schuelerId == null || testId < 0 || ch.test == null || ch.test.tasks == null) {
+            return "";
+        }
+        Map<Integer, String> saved;
+        try {
+            saved = db.getLatestAntworten(schuelerId, testId);
+        } catch (SQLException e) {
+            log.writeLog("Server", ch.remoteIp, "ERROR|DB_RESUME|" + e.getMessage());
+            return "";
+        }
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<String> parts = new ArrayList<>();
+        for (Task task : ch.test.tasks) {
+            try {
+                String answer = saved.get(Integer.parseInt(task.id.replace("task", "")));
+                if (answer != null) {
+                    parts.add(task.id + "=" + encoder.encodeToString(answer.getBytes(StandardCharsets.UTF_8)));
+                }
+            } catch (NumberFormatException ignored) {
+                // Aufgabe ohne Datenbank-ID
+            }
+        }
+        return String.join(",", parts);
+    }
+
+    /**
+     * @title tickHeartbeats
+     * @short Dreht das Heartbeat-Rad weiter (ServerTimer-Thread): stille Verbindungen trennen, sonst PING schicken.
+     * @args keine
+     *
+     * Jede Verbindung hat genau eine Frist im Rad. Laeuft sie ab und kam seit {@link #IDLE_TIMEOUT_MILLIS} nichts
+     * mehr von einem Client, der Heartbeats zugesagt hat, wird der Socket geschlossen; der Handler meldet die Sitzung dann als unterbrochen und haelt sie fuer die
+     * Fortsetzung bereit. Sonst geht ein PING mit dem Sendezeitpunkt raus und die naechste Frist wird eingetragen.
+     */
+    private void tickHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (ClientHandler ch : heartbeats.advance(now)) {
+            if (ch.closed || ch.detached || ch.superseded || ch.socket.isClosed()) {
+                continue;
+            }
+            // aeltere Clients ohne Zusage lesen den Socket evtl. erst nach einer Eingabe: PING ja, Trennen nein
+            if (ch.answersHeartbeat && now - ch.lastSeenAt > IDLE_TIMEOUT_MILLIS) {
+                log.writeLog("Server", ch.remoteIp, "IDLE|CLIENT|" + ch.clientId);
+                try {
+                    ch.socket.close();
+                } catch (IOException ignored) {
+                    // Verbindung ist ohnehin tot
+                }
+                continue;
+            }
+            try {
+                heartbeatSender.execute(() -> ch.send(new Message("SERVER", "PING", ch.token, List.of(
+                        "t", String.valueOf(System.nanoTime())))));
+            } catch (RejectedExecutionException ignored) {
+                continue;
+            }
+            heartbeats.schedule(ch, HEARTBEAT_INTERVAL_MILLIS);
+        }
+    }
+
+    private static long parseSeq(Message msg) {
+        String value = msg.getString("seq");
+        if (value == null || value.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * @title expireSession
+     * @short Entfernt eine getrennte Sitzung, wenn sie innerhalb der Frist nicht fortgesetzt wurde (ServerTimer-Thread).
+     * @args ClientHandler ch
+     */
+    private void expireSession(ClientHandler ch) {
+        synchronized (sessions) {
+            if (!ch.detached || ch.superseded || ch.closed) {
+                return;
+            }
+        }
+        log.writeLog("Server", ch.remoteIp, "EXPIRE|SESSION|" + ch.clientId);
+        ch.close();
+    }
+
+    /** @title discardDetachedSessions @short Verwirft getrennte Sitzungen eines Tokens, das sich neu anmeldet. @args String token */
+    private void discardDetachedSessions(String token) {
+        for (ClientHandler ch : sessions.values()) {
+            if (ch.detached && !ch.superseded && Objects.equals(ch.token, token)) {
+                ch.close();
+            }
+        }
+    }
+
     // Hilfsmethode, um die Test-ID anhand des Namens zu bekommen
     private int getTestIdByName(String testName) {
         try {
@@ -1931,36 +2408,93 @@ public class Server {
         return -1;
     }
 
-        public DashboardState getDashboardState() {
-        return state;
+    public DashboardState getDashboardState() {
+        return snapshot.get().state();
     }
 
     public boolean isConsoleMode() {
         return consoleMode;
     }
 
-    public synchronized String getBoundIp() {
-        return boundIp;
+    public String getBoundIp() {
+        return snapshot.get().boundIp();
     }
 
-    public synchronized int getSelectedTestId() {
-        return selectedTestId;
+    public int getSelectedTestId() {
+        return snapshot.get().selectedTestId();
     }
 
-    public synchronized String getSelectedTestName() {
-        return selectedTestName;
+    /** @title getAnswerFeed @short Ereignisbus der eingehenden Antworten (fuer die Live-Korrektur). */
+    public AnswerFeed getAnswerFeed() {
+        return answerFeed;
     }
 
-    public synchronized int getSelectedTaskCount() {
-        return selectedTest == null ? 0 : selectedTest.tasks.size();
+    /** @title getEvents @short Zusammenfassende Zustandsaenderungen fuer das Dashboard (ersetzt das Abfragen im Sekundentakt). */
+    public ServerEvents getEvents() {
+        return events;
     }
 
-    public synchronized int getSelectedClassId() {
-        return selectedClassId;
+    /** @title getSnapshot @short Zuletzt veroeffentlichter Sitzungsstand; liest ohne Sperre. */
+    public SessionSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
-    public synchronized String getSelectedClassName() {
-        return selectedClassName;
+    private void setState(DashboardState next) {
+        state = next;
+        changed(ServerEvents.Kind.STATE_CHANGED);
+    }
+
+    private void markClientsChanged(ServerEvents.Kind kind) {
+        clientsTableDirty = true;
+        changed(kind);
+    }
+
+    /** Veroeffentlicht einen neuen Snapshot und meldet die Aenderung; muss nach jeder Zustandsaenderung folgen. */
+    private void changed(ServerEvents.Kind kind) {
+        publishSnapshot();
+        events.fire(kind);
+    }
+
+    /**
+     * Baut den Snapshot aus den aktuellen Feldern neu. Scheitert das Ersetzen, weil ein anderer Thread zwischenzeitlich
+     * veroeffentlicht hat, wird neu gelesen; so kann ein aelterer Stand einen neueren nie ueberschreiben.
+     */
+    private void publishSnapshot() {
+        snapshot.updateAndGet(previous -> buildSnapshot(previous == null ? 1L : previous.version() + 1L));
+    }
+
+    private SessionSnapshot buildSnapshot(long version) {
+        Test test = selectedTest;
+        return new SessionSnapshot(
+                version,
+                state,
+                boundIp,
+                selectedTestId,
+                selectedTestName,
+                test == null || test.tasks == null ? 0 : test.tasks.size(),
+                selectedClassId,
+                selectedClassName,
+                buildClientSummaries(),
+                warningBuffer.activeWarnings(),
+                new SessionSnapshot.Timer(configuredDurationMillis, remainingDurationMillis, lastTimerTickAt,
+                        timerRunning, testPaused)
+        );
+    }
+
+    public String getSelectedTestName() {
+        return snapshot.get().selectedTestName();
+    }
+
+    public int getSelectedTaskCount() {
+        return snapshot.get().selectedTaskCount();
+    }
+
+    public int getSelectedClassId() {
+        return snapshot.get().selectedClassId();
+    }
+
+    public String getSelectedClassName() {
+        return snapshot.get().selectedClassName();
     }
 
     public synchronized List<TestSummary> listTests() {
@@ -2002,7 +2536,7 @@ public class Server {
             selectedTest = loadTestFromDb(typ);
             selectedTestName = typ;
             selectedTestId = testId;
-            state = DashboardState.TEST_SELECTED;
+            setState(DashboardState.TEST_SELECTED);
             log.writeLog("Server", boundIp, "INFO|TEST|Selected=" + typ);
         } catch (RuntimeException re) {
             throw re;
@@ -2024,7 +2558,7 @@ public class Server {
         lastTimerTickAt = 0L;
         remainingDurationMillis = configuredDurationMillis;
         cancelTimerFutureInternal();
-        state = DashboardState.ROOT;
+        setState(DashboardState.ROOT);
     }
 
     public synchronized List<ClassSummary> listClasses() {
@@ -2044,7 +2578,11 @@ public class Server {
     }
 
     public synchronized ImportResult importTestFromFile(File file) {
-        return TestImportService.importFromJson(db, file == null ? null : file.toPath(), log, boundIp);
+        return TestImportService.importFromJson(db, blobStore, file == null ? null : file.toPath(), log, boundIp);
+    }
+
+    public ImportResult importRosterFromFile(File file) {
+        return RosterImportService.importFromCsv(db, file == null ? null : file.toPath(), log, boundIp);
     }
 
     public synchronized String prepareHostingForClass(int classId, int durationMinutes) {
@@ -2061,7 +2599,7 @@ public class Server {
             cancelTimerFutureInternal();
             String filename = generateAndSaveTokensForClass(classId, selectedClassName, false);
             startBroadcast();
-            state = DashboardState.HOSTING;
+            setState(DashboardState.HOSTING);
             return filename;
         } catch (RuntimeException re) {
             throw re;
@@ -2070,19 +2608,31 @@ public class Server {
         }
     }
 
+    /** @title setBundleDelivery @short Schaltet die Auslieferung als Aufgabenpaket fuer kuenftige Testlaeufe um. */
+    public void setBundleDelivery(boolean enabled) {
+        bundleDelivery = enabled;
+    }
+
+    /** @title isBundleDelivery @short Ob Testlaeufe als Aufgabenpaket ausgeliefert werden. */
+    public boolean isBundleDelivery() {
+        return bundleDelivery;
+    }
+
     public synchronized void startTestRun() {
         if (state != DashboardState.HOSTING || selectedTest == null) {
             return;
         }
-        state = DashboardState.RUNNING;
+        setState(DashboardState.RUNNING);
         stopBroadcast();
+        List<String> bundle = bundleDelivery ? encodeBundle(selectedTest) : null;
         for (ClientHandler ch : clients.values()) {
             ch.resetForNewRun(selectedTest);
-            sendNextTask(ch);
+            deliverFirstTask(ch, bundle);
             ch.status = "Testlauf";
         }
-        clientsTableDirty = true;
+        markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
         startTimerIfConfigured();
+        changed(ServerEvents.Kind.TIMER_TICK);
     }
 
     public synchronized void pauseTestRun() {
@@ -2106,7 +2656,8 @@ public class Server {
                 ch.status = "Pausiert";
             }
         }
-        clientsTableDirty = true;
+        markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
+        changed(ServerEvents.Kind.TIMER_TICK);
         broadcastToAll(new Message("SERVER", "TEST_PAUSED", ""));
         log.writeLog("Server", boundIp, "INFO|RUN|Paused");
     }
@@ -2132,7 +2683,8 @@ public class Server {
                 ch.status = "Testlauf";
             }
         }
-        clientsTableDirty = true;
+        markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
+        changed(ServerEvents.Kind.TIMER_TICK);
         broadcastToAll(new Message("SERVER", "TEST_RESUMED", ""));
         log.writeLog("Server", boundIp, "INFO|RUN|Resumed");
     }
@@ -2169,6 +2721,7 @@ public class Server {
                 }
             }
         }
+        changed(ServerEvents.Kind.TIMER_TICK);
         long addedSeconds = extraMillis <= 0L ? 0L : extraMillis / 1000L;
         log.writeLog("Server", boundIp, "INFO|TIMER|Extend+" + addedSeconds + "s");
     }
@@ -2231,6 +2784,7 @@ public class Server {
                 remainingDurationMillis -= delta;
             }
         }
+        changed(ServerEvents.Kind.TIMER_TICK);
         if (futureToCancel != null) {
             futureToCancel.cancel(false);
         }
@@ -2259,7 +2813,8 @@ public class Server {
             timerPaused = false;
             testPaused = false;
             lastTimerTickAt = 0L;
-            clientsTableDirty = true;
+            markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
+            changed(ServerEvents.Kind.TIMER_TICK);
             log.writeLog("Server", boundIp, "INFO|TIMER|Expired");
         }
         for (ClientHandler ch : toNotify) {
@@ -2285,7 +2840,7 @@ public class Server {
             ch.close();
         }
         clients.clear();
-        clientsTableDirty = true;
+        markClientsChanged(ServerEvents.Kind.CLIENT_LEFT);
         selectedClassId = -1;
         selectedClassName = null;
         timerRunning = false;
@@ -2294,7 +2849,7 @@ public class Server {
         lastTimerTickAt = 0L;
         remainingDurationMillis = configuredDurationMillis;
         cancelTimerFutureInternal();
-        state = DashboardState.ROOT;
+        setState(DashboardState.ROOT);
     }
 
     public synchronized void endRunningTest() {
@@ -2306,7 +2861,7 @@ public class Server {
             ch.close();
         }
         clients.clear();
-        clientsTableDirty = true;
+        markClientsChanged(ServerEvents.Kind.CLIENT_LEFT);
         selectedClassId = -1;
         selectedClassName = null;
         timerRunning = false;
@@ -2315,29 +2870,21 @@ public class Server {
         remainingDurationMillis = configuredDurationMillis;
         lastTimerTickAt = 0L;
         cancelTimerFutureInternal();
-        state = DashboardState.ROOT;
+        setState(DashboardState.ROOT);
     }
 
-    public synchronized TimerStatus getTimerStatus() {
-        long totalSeconds = configuredDurationMillis > 0L ? configuredDurationMillis / 1000L : 0L;
-        long remainingSeconds = 0L;
-        if (configuredDurationMillis > 0L) {
-            long snapshot = remainingDurationMillis;
-            if (timerRunning && lastTimerTickAt > 0L) {
-                long delta = Math.max(0L, System.currentTimeMillis() - lastTimerTickAt);
-                snapshot = Math.max(0L, remainingDurationMillis - delta);
-            }
-            remainingSeconds = Math.max(0L, (snapshot + 999L) / 1000L);
-        }
-        boolean runningNow = state == DashboardState.RUNNING && timerRunning;
-        boolean pausedNow = testPaused;
-        return new TimerStatus(totalSeconds, remainingSeconds, runningNow, pausedNow);
+    public TimerStatus getTimerStatus() {
+        return snapshot.get().timerStatus(System.currentTimeMillis());
     }
 
-    public synchronized List<ClientSummary> getClientSummaries() {
+    public List<ClientSummary> getClientSummaries() {
+        return snapshot.get().clients();
+    }
+
+    private List<ClientSummary> buildClientSummaries() {
         List<ClientSummary> list = new ArrayList<>();
         for (ClientHandler ch : clients.values()) {
-            String name = getSchuelerNameByToken(ch.token);
+            String name = ch.studentName;
             int totalTasks = ch.test == null || ch.test.tasks == null ? 0 : ch.test.tasks.size();
             int currentTask = ch.currentTaskIndex;
             if (totalTasks > 0) {
@@ -2354,7 +2901,8 @@ public class Server {
                     currentTask,
                     totalTasks,
                     ch.handRaised,
-                    ch.handRaisedAt
+                    ch.handRaisedAt,
+                    ch.detached ? -1L : ch.rttMillis
             ));
         }
         list.sort((a, b) -> {
@@ -2374,17 +2922,23 @@ public class Server {
         });
         return list;
     }
-    public synchronized List<ClientWarning> getActiveWarnings() {
-        return new ArrayList<>(warnings);
+    public List<ClientWarning> getActiveWarnings() {
+        return snapshot.get().warnings();
     }
 
-    public synchronized void dismissWarning(String warningId) {
+    public void dismissWarning(String warningId) {
         if (warningId == null || warningId.isBlank()) {
             return;
         }
-        boolean removed = warnings.removeIf(w -> w.id.equals(warningId));
-        if (removed) {
-            log.writeLog("Server", boundIp, "WARN|DISMISS|" + warningId);
+        try {
+            timerScheduler.execute(() -> {
+                if (warningBuffer.dismiss(warningId)) {
+                    changed(ServerEvents.Kind.WARNING);
+                    log.writeLog("Server", boundIp, "WARN|DISMISS|" + warningId);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Server wird beendet
         }
     }
 
@@ -2402,7 +2956,113 @@ public class Server {
             ch.close();
         }
         clients.clear();
+        try {
+            // letzte Sicherung, damit ein Neustart waehrend der Pruefung den aktuellen Stand vorfindet
+            timerScheduler.submit(this::writeCheckpoint).get(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException ignored) {
+            // der periodisch geschriebene Stand bleibt erhalten
+        }
         timerScheduler.shutdownNow();
+        heartbeatSender.shutdownNow();
+    }
+
+    /**
+     * @title writeCheckpoint
+     * @short Sichert den veroeffentlichten Sitzungsstand; laeuft nur auf dem ServerTimer-Thread.
+     */
+    private void writeCheckpoint() {
+        try {
+            checkpoint.checkpoint(snapshot.get(), tokenToSchuelerId, System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            // eine fehlgeschlagene Sicherung darf weder den Timer noch die folgenden Sicherungen stoppen
+            log.writeLog("Server", boundIp, "ERROR|CHECKPOINT|" + e.getMessage());
+        }
+    }
+
+    /**
+     * @title restoreCheckpoint
+     * @short Stellt eine beim letzten Beenden offene Pruefung (Warteraum oder Testlauf) wieder her.
+     */
+    private synchronized void restoreCheckpoint() {
+        SessionCheckpoint.Restored restored;
+        try {
+            restored = checkpoint.load();
+        } catch (IOException e) {
+            log.writeLog("Server", boundIp, "ERROR|RESTORE|" + e.getMessage());
+            return;
+        }
+        if (restored == null) {
+            return;
+        }
+        try {
+            Map<String, Object> test = db.getEntry("Test", restored.testId());
+            Map<String, Object> klasse = db.getEntry("Klasse", restored.classId());
+            if (test == null || test.isEmpty() || klasse == null || klasse.isEmpty()) {
+                log.writeLog("Server", boundIp, "WARN|RESTORE|Test oder Klasse nicht mehr vorhanden");
+                checkpoint.clear();
+                return;
+            }
+            String typ = String.valueOf(test.get("typ"));
+            selectedTest = loadTestFromDb(typ);
+            selectedTestName = typ;
+            selectedTestId = restored.testId();
+            selectedClassId = restored.classId();
+            selectedClassName = String.valueOf(klasse.get("klassenname"));
+            tokenToSchuelerId.clear();
+            tokenToSchuelerId.putAll(restored.tokens());
+            restoredProgress.clear();
+            restoredProgress.putAll(restored.progress());
+            checkpoint.seed(restored.progress());
+            warningBuffer.restore(restored.warnings());
+            configuredDurationMillis = restored.configuredMillis();
+            remainingDurationMillis = restored.remainingMillis();
+            timerRunning = false;
+            timerPaused = false;
+            testPaused = false;
+            lastTimerTickAt = 0L;
+            if (restored.state() == DashboardState.RUNNING) {
+                testPaused = restored.paused();
+                timerPaused = testPaused && remainingDurationMillis > 0L;
+                if (!testPaused && configuredDurationMillis > 0L && remainingDurationMillis > 0L) {
+                    timerRunning = true;
+                    lastTimerTickAt = System.currentTimeMillis();
+                    scheduleTimerLocked();
+                }
+                setState(DashboardState.RUNNING);
+            } else {
+                setState(DashboardState.HOSTING);
+                startBroadcast();
+            }
+            log.writeLog("Server", boundIp, "INFO|RESTORE|" + restored.state() + "|Test=" + typ + "|Klasse="
+                    + selectedClassName + "|Rest=" + remainingDurationMillis / 1000L + "s|Schueler="
+                    + restored.progress().size());
+        } catch (IOException | SQLException | RuntimeException e) {
+            log.writeLog("Server", boundIp, "ERROR|RESTORE|" + e.getMessage());
+        }
+    }
+
+    /**
+     * @title resumeProgress
+     * @short Setzt einen nach dem Neustart wieder angemeldeten Schueler an seiner Aufgabe fort.
+     */
+    private void resumeProgress(ClientHandler ch, SessionCheckpoint.Progress progress) {
+        if (ch.test == null || ch.test.tasks == null) {
+            return;
+        }
+        int total = ch.test.tasks.size();
+        if (isDeliveredStatus(progress.status()) || progress.taskIndex() >= total) {
+            ch.currentTaskIndex = total;
+            ch.status = isDeliveredStatus(progress.status()) ? progress.status() : "Testlauf";
+            sendOverview(ch);
+        } else {
+            // currentTaskIndex zaehlt gesendete Aufgaben; die zuletzt gesendete wird erneut geschickt
+            ch.currentTaskIndex = Math.max(0, progress.taskIndex() - 1);
+            ch.status = "Testlauf";
+            sendNextTask(ch);
+        }
+        markClientsChanged(ServerEvents.Kind.PROGRESS_CHANGED);
     }
 
     public static final class TimerStatus {
@@ -2481,10 +3141,18 @@ public class Server {
         private final int totalTasks;
         private final boolean handRaised;
         private final long handRaisedAt;
+        private final long rttMillis;
 
         public ClientSummary(String clientId, String studentName, String remoteIp, String status, String token,
                              int currentTaskNumber, int totalTasks,
                              boolean handRaised, long handRaisedAt) {
+            this(clientId, studentName, remoteIp, status, token, currentTaskNumber, totalTasks, handRaised,
+                    handRaisedAt, -1L);
+        }
+
+        public ClientSummary(String clientId, String studentName, String remoteIp, String status, String token,
+                             int currentTaskNumber, int totalTasks,
+                             boolean handRaised, long handRaisedAt, long rttMillis) {
             this.clientId = clientId;
             this.studentName = studentName;
             this.remoteIp = remoteIp;
@@ -2494,6 +3162,7 @@ public class Server {
             this.totalTasks = totalTasks;
             this.handRaised = handRaised;
             this.handRaisedAt = handRaisedAt;
+            this.rttMillis = rttMillis;
         }
 
         public String clientId() {
@@ -2531,6 +3200,11 @@ public class Server {
         public long handRaisedAt() {
             return handRaisedAt;
         }
+
+        /** Umlaufzeit aus dem Heartbeat in Millisekunden, -1 wenn (noch) nicht gemessen. */
+        public long rttMillis() {
+            return rttMillis;
+        }
     }
 
     public static final class ImportResult {
@@ -2557,13 +3231,22 @@ public class Server {
         private final String studentName;
         private final String message;
         private final String timestamp;
+        private final int count;
+        private final String firstTimestamp;
 
         public ClientWarning(String id, String clientId, String studentName, String message, String timestamp) {
+            this(id, clientId, studentName, message, timestamp, 1, timestamp);
+        }
+
+        public ClientWarning(String id, String clientId, String studentName, String message, String timestamp,
+                             int count, String firstTimestamp) {
             this.id = id;
             this.clientId = clientId;
             this.studentName = studentName;
             this.message = message;
             this.timestamp = timestamp;
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
         }
 
         public String getId() {
@@ -2585,6 +3268,15 @@ public class Server {
         public String getTimestamp() {
             return timestamp;
         }
+
+        /** Anzahl zusammengefasster gleicher Warnungen. */
+        public int getCount() {
+            return count;
+        }
+
+        public String getFirstTimestamp() {
+            return firstTimestamp;
+        }
     }
 
     private long safeAdd(long base, long delta) {
@@ -0,0 +1,110 @@
+package backend.server;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @title ServerEvents
+ * @short Zusammenfassende Zustellung von Zustandsaenderungen des Servers an die Oberflaeche.
+ *
+ * Der Server meldet jede Aenderung nur als Art ({@link Kind}) ueber {@link #fire(Kind)}; das setzt ein Bit und weckt
+ * den Verteiler-Thread, ohne zu blockieren. Der Verteiler stellt alle seit der letzten Zustellung gesammelten Arten
+ * gemeinsam zu und wartet danach mindestens {@link #MIN_INTERVAL_NANOS}, sodass beliebig viele Aenderungen hoechstens
+ * etwa zehn Zustellungen pro Sekunde ausloesen. Die Abonnenten lesen den eigentlichen Zustand selbst nach.
+ */
+public final class ServerEvents {
+
+    /** Art einer Zustandsaenderung. */
+    public enum Kind { CLIENT_JOINED, CLIENT_LEFT, PROGRESS_CHANGED, HAND_RAISED, WARNING, TIMER_TICK, STATE_CHANGED }
+
+    /** Abonnent; wird auf dem Verteiler-Thread aufgerufen, nie unter der Server-Sperre. */
+    public interface Subscriber {
+        void onEvents(Set<Kind> kinds);
+    }
+
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int ALL_KINDS = (1 << Kind.values().length) - 1;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private volatile Thread dispatcher;
+
+    /**
+     * @title fire
+     * @short Vermerkt eine Aenderung, ohne zu blockieren; ohne Abonnenten ist der Aufruf praktisch kostenlos.
+     */
+    public void fire(Kind kind) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        signal(1 << kind.ordinal());
+    }
+
+    /**
+     * @title subscribe
+     * @short Meldet einen Abonnenten an, der sofort einmal alle Arten erhaelt; {@code close()} meldet ihn wieder ab.
+     */
+    public AutoCloseable subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        startDispatcher();
+        signal(ALL_KINDS);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    private void signal(int bits) {
+        int previous = pending.getAndUpdate(mask -> mask | bits);
+        Thread target = dispatcher;
+        if (previous == 0 && target != null) {
+            LockSupport.unpark(target);
+        }
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+        Thread thread = new Thread(this::dispatchLoop, "Server-Ereignisse");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            while (pending.get() == 0) {
+                LockSupport.park(this);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            int mask = pending.getAndSet(0);
+            Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+            for (Kind kind : Kind.values()) {
+                if ((mask & (1 << kind.ordinal())) != 0) {
+                    kinds.add(kind);
+                }
+            }
+            Set<Kind> delivered = Set.copyOf(kinds);
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.onEvents(delivered);
+                } catch (RuntimeException ignored) {
+                    // ein fehlerhafter Abonnent darf die Zustellung an die anderen nicht verhindern
+                }
+            }
+            long deadline = System.nanoTime() + MIN_INTERVAL_NANOS;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package backend.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * @title SessionCheckpoint
+ * @short Absturzsichere Sicherung einer laufenden Pruefung in einer kleinen Datei, die nur angehaengt wird.
+ *
+ * Jeder Eintrag ist ein Rahmen aus Laenge, CRC32 und Nutzdaten. Ein Vollstand (Auswahl, Tokens, Fortschritt je Token,
+ * Timer, Warnungen) wird zu Beginn und beim Verdichten geschrieben, und zwar in eine temporaere Datei, die atomar an
+ * die Stelle der alten tritt. Danach werden nur Aenderungen (Fortschritt einzelner Tokens, Timer, Warnungsliste)
+ * angehaengt und mit {@code force} auf die Platte gebracht. Beim Einlesen endet die Datei am ersten unvollstaendigen
+ * oder beschaedigten Rahmen; was davor steht, ist gueltig. Alle schreibenden Methoden laufen auf demselben Thread.
+ */
+final class SessionCheckpoint {
+
+    /** Fortschritt eines Schuelers: Anzahl bereits gesendeter Aufgaben und letzter Status. */
+    record Progress(int taskIndex, String status) {
+    }
+
+    /** Wiederhergestellter Sitzungsstand; {@code remainingMillis} gilt zum Zeitpunkt der letzten Sicherung. */
+    record Restored(Server.DashboardState state, int testId, int classId, long configuredMillis, long remainingMillis,
+                    boolean timerRunning, boolean paused, Map<String, Integer> tokens, Map<String, Progress> progress,
+                    List<Server.ClientWarning> warnings) {
+    }
+
+    private static final byte FULL = 1;
+    private static final byte PROGRESS = 2;
+    private static final byte TIMER = 3;
+    private static final byte WARNINGS = 4;
+    private static final int MAX_FRAME = 1 << 22;
+    /** Ab dieser Groesse wird beim naechsten Sichern ein frischer Vollstand geschrieben. */
+    private static final long COMPACT_BYTES = 256 * 1024L;
+
+    private final Path file;
+    private FileChannel channel;
+    private Server.DashboardState writtenState;
+    private int writtenTestId = -1;
+    private int writtenClassId = -1;
+    private final Map<String, Progress> progress = new HashMap<>();
+    private final Map<String, Progress> writtenProgress = new HashMap<>();
+    private long[] writtenTimer;
+    private List<Server.ClientWarning> writtenWarnings;
+
+    SessionCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @title load
+     * @short Liest die Sicherung; {@code null}, wenn keine Pruefung offen war.
+     */
+    Restored load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        byte[] content = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        Restored restored = null;
+        Map<String, Progress> restoredProgress = new HashMap<>();
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > MAX_FRAME || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 check = new CRC32();
+            check.update(payload);
+            if ((int) check.getValue() != crc) {
+                break;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                byte type = in.readByte();
+                if (type == FULL) {
+                    restored = readFull(in);
+                    restoredProgress.clear();
+                    restoredProgress.putAll(restored.progress());
+                } else if (restored == null) {
+                    break;
+                } else if (type == PROGRESS) {
+                    restoredProgress.put(in.readUTF(), new Progress(in.readInt(), in.readUTF()));
+                } else if (type == TIMER) {
+                    restored = new Restored(restored.state(), restored.testId(), restored.classId(), in.readLong(),
+                            in.readLong(), in.readBoolean(), in.readBoolean(), restored.tokens(), restored.progress(),
+                            restored.warnings());
+                } else if (type == WARNINGS) {
+                    restored = new Restored(restored.state(), restored.testId(), restored.classId(),
+                            restored.configuredMillis(), restored.remainingMillis(), restored.timerRunning(),
+                            restored.paused(), restored.tokens(), restored.progress(), readWarnings(in));
+                }
+            } catch (IOException | IllegalArgumentException corrupt) {
+                break;
+            }
+        }
+        if (restored == null) {
+            return null;
+        }
+        return new Restored(restored.state(), restored.testId(), restored.classId(), restored.configuredMillis(),
+                restored.remainingMillis(), restored.timerRunning(), restored.paused(), Map.copyOf(restored.tokens()),
+                Map.copyOf(restoredProgress), restored.warnings());
+    }
+
+    /**
+     * @title checkpoint
+     * @short Haengt die Aenderungen seit der letzten Sicherung an oder schreibt bei Bedarf einen neuen Vollstand.
+     */
+    void checkpoint(SessionSnapshot snapshot, Map<String, Integer> tokens, long now) throws IOException {
+        Server.DashboardState state = snapshot.state();
+        if (state != Server.DashboardState.HOSTING && state != Server.DashboardState.RUNNING) {
+            if (writtenState != null || Files.exists(file)) {
+                clear();
+            }
+            return;
+        }
+        for (Server.ClientSummary client : snapshot.clients()) {
+            if (client.token() == null || client.token().isBlank()) {
+                continue;
+            }
+            progress.put(client.token(), new Progress(client.currentTaskNumber(), Objects.toString(client.status(), "")));
+        }
+        long[] timer = timerValues(snapshot, now);
+        boolean full = channel == null
+                || state != writtenState
+                || snapshot.selectedTestId() != writtenTestId
+                || snapshot.selectedClassId() != writtenClassId
+                || channel.size() > COMPACT_BYTES;
+        if (full) {
+            writeFull(snapshot, tokens, timer);
+            return;
+        }
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (Server.ClientSummary client : snapshot.clients()) {
+            String token = client.token();
+            if (token == null || token.isBlank()) {
+                continue;
+            }
+            Progress current = progress.get(token);
+            Progress written = writtenProgress.get(token);
+            if (!current.equals(written)) {
+                frames.write(frame(out -> {
+                    out.writeByte(PROGRESS);
+                    out.writeUTF(token);
+                    out.writeInt(current.taskIndex());
+                    out.writeUTF(current.status());
+                }));
+                writtenProgress.put(token, current);
+            }
+        }
+        if (!Arrays.equals(timer, writtenTimer)) {
+            frames.write(frame(out -> {
+                out.writeByte(TIMER);
+                writeTimer(out, timer);
+            }));
+            writtenTimer = timer;
+        }
+        if (snapshot.warnings() != writtenWarnings) {
+            List<Server.ClientWarning> warnings = snapshot.warnings();
+            frames.write(frame(out -> {
+                out.writeByte(WARNINGS);
+                writeWarnings(out, warnings);
+            }));
+            writtenWarnings = warnings;
+        }
+        if (frames.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /** @title clear @short Schliesst und loescht die Sicherung (Pruefung beendet oder abgebrochen). */
+    void clear() throws IOException {
+        close();
+        progress.clear();
+        writtenProgress.clear();
+        writtenState = null;
+        writtenTimer = null;
+        writtenWarnings = null;
+        Files.deleteIfExists(file);
+    }
+
+    /** Uebernimmt den wiederhergestellten Fortschritt, damit noch nicht wieder verbundene Schueler erhalten bleiben. */
+    void seed(Map<String, Progress> restored) {
+        progress.putAll(restored);
+    }
+
+    void close() throws IOException {
+        FileChannel open = channel;
+        channel = null;
+        if (open != null) {
+            open.close();
+        }
+    }
+
+    private void writeFull(SessionSnapshot snapshot, Map<String, Integer> tokens, long[] timer) throws IOException {
+        close();
+        Map<String, Integer> tokenCopy = new LinkedHashMap<>(tokens);
+        Map<String, Progress> progressCopy = new LinkedHashMap<>(progress);
+        List<Server.ClientWarning> warnings = snapshot.warnings();
+        byte[] content = frame(out -> {
+            out.writeByte(FULL);
+            out.writeUTF(snapshot.state().name());
+            out.writeInt(snapshot.selectedTestId());
+            out.writeInt(snapshot.selectedClassId());
+            writeTimer(out, timer);
+            out.writeInt(tokenCopy.size());
+            for (Map.Entry<String, Integer> entry : tokenCopy.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeInt(progressCopy.size());
+            for (Map.Entry<String, Progress> entry : progressCopy.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().taskIndex());
+                out.writeUTF(entry.getValue().status());
+            }
+            writeWarnings(out, warnings);
+        });
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                tempChannel.write(buffer);
+            }
+            tempChannel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writtenState = snapshot.state();
+        writtenTestId = snapshot.selectedTestId();
+        writtenClassId = snapshot.selectedClassId();
+        writtenTimer = timer;
+        writtenWarnings = warnings;
+        writtenProgress.clear();
+        writtenProgress.putAll(progressCopy);
+    }
+
+    private static Restored readFull(DataInputStream in) throws IOException {
+        Server.DashboardState state = Server.DashboardState.valueOf(in.readUTF());
+        int testId = in.readInt();
+        int classId = in.readInt();
+        long configured = in.readLong();
+        long remaining = in.readLong();
+        boolean running = in.readBoolean();
+        boolean paused = in.readBoolean();
+        int tokenCount = in.readInt();
+        Map<String, Integer> tokens = new HashMap<>();
+        for (int i = 0; i < tokenCount; i++) {
+            tokens.put(in.readUTF(), in.readInt());
+        }
+        int progressCount = in.readInt();
+        Map<String, Progress> progress = new HashMap<>();
+        for (int i = 0; i < progressCount; i++) {
+            progress.put(in.readUTF(), new Progress(in.readInt(), in.readUTF()));
+        }
+        return new Restored(state, testId, classId, configured, remaining, running, paused, tokens, progress,
+                readWarnings(in));
+    }
+
+    private static long[] timerValues(SessionSnapshot snapshot, long now) {
+        SessionSnapshot.Timer timer = snapshot.timer();
+        long remaining = timer.remainingMillis();
+        if (timer.running() && timer.lastTickAt() > 0L) {
+            remaining = Math.max(0L, remaining - Math.max(0L, now - timer.lastTickAt()));
+        }
+        // auf Sekunden gerundet, damit ein laufender Timer nur einmal je Sekunde eine Aenderung erzeugt
+        return new long[]{timer.configuredMillis(), (remaining + 999L) / 1000L * 1000L, timer.running() ? 1L : 0L,
+                timer.paused() ? 1L : 0L};
+    }
+
+    private static void writeTimer(DataOutputStream out, long[] timer) throws IOException {
+        out.writeLong(timer[0]);
+        out.writeLong(timer[1]);
+        out.writeBoolean(timer[2] != 0L);
+        out.writeBoolean(timer[3] != 0L);
+    }
+
+    private static void writeWarnings(DataOutputStream out, List<Server.ClientWarning> warnings) throws IOException {
+        out.writeInt(warnings.size());
+        for (Server.ClientWarning warning : warnings) {
+            out.writeUTF(Objects.toString(warning.getId(), ""));
+            out.writeUTF(Objects.toString(warning.getClientId(), ""));
+            out.writeUTF(Objects.toString(warning.getStudentName(), ""));
+            out.writeUTF(Objects.toString(warning.getMessage(), ""));
+            out.writeUTF(Objects.toString(warning.getTimestamp(), ""));
+            out.writeInt(warning.getCount());
+            out.writeUTF(Objects.toString(warning.getFirstTimestamp(), ""));
+        }
+    }
+
+    private static List<Server.ClientWarning> readWarnings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Server.ClientWarning> warnings = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        for (int i = 0; i < count; i++) {
+            warnings.add(new Server.ClientWarning(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                    in.readInt(), in.readUTF()));
+        }
+        return List.copyOf(warnings);
+    }
+
+    private interface FrameWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] frame(FrameWriter writer) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            writer.write(out);
+        }
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer framed = ByteBuffer.allocate(8 + bytes.length);
+        framed.putInt(bytes.length);
+        framed.putInt((int) crc.getValue());
+        framed.put(bytes);
+        return framed.array();
+    }
+}
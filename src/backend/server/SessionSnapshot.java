@@ -0,0 +1,54 @@
+package backend.server;
+
+import java.util.List;
+
+/**
+ * @title SessionSnapshot
+ * @short Unveraenderlicher Stand der laufenden Sitzung (Auswahl, Clients, Fortschritt, Timer, Warnungen).
+ *
+ * Der Server baut nach jeder Zustandsaenderung einen neuen Snapshot und veroeffentlicht ihn ueber eine
+ * {@code AtomicReference}; Leser greifen ohne Sperre auf den zuletzt veroeffentlichten Stand zu. {@code version}
+ * steigt mit jeder Veroeffentlichung, sodass Leser unveraenderte Staende ueberspringen koennen.
+ */
+public record SessionSnapshot(
+        long version,
+        Server.DashboardState state,
+        String boundIp,
+        int selectedTestId,
+        String selectedTestName,
+        int selectedTaskCount,
+        int selectedClassId,
+        String selectedClassName,
+        List<Server.ClientSummary> clients,
+        List<Server.ClientWarning> warnings,
+        Timer timer
+) {
+
+    /** Timerstand zum Zeitpunkt des Snapshots; die Restzeit wird beim Lesen fortgeschrieben. */
+    public record Timer(long configuredMillis, long remainingMillis, long lastTickAt, boolean running, boolean paused) {
+    }
+
+    public SessionSnapshot {
+        clients = List.copyOf(clients);
+        warnings = List.copyOf(warnings);
+    }
+
+    /**
+     * @title timerStatus
+     * @short Rechnet die Restzeit auf den Zeitpunkt {@code now} (Millisekunden seit Epoch) fort.
+     */
+    public Server.TimerStatus timerStatus(long now) {
+        long totalSeconds = timer.configuredMillis() > 0L ? timer.configuredMillis() / 1000L : 0L;
+        long remainingSeconds = 0L;
+        if (timer.configuredMillis() > 0L) {
+            long remaining = timer.remainingMillis();
+            if (timer.running() && timer.lastTickAt() > 0L) {
+                long delta = Math.max(0L, now - timer.lastTickAt());
+                remaining = Math.max(0L, remaining - delta);
+            }
+            remainingSeconds = Math.max(0L, (remaining + 999L) / 1000L);
+        }
+        boolean runningNow = state == Server.DashboardState.RUNNING && timer.running();
+        return new Server.TimerStatus(totalSeconds, remainingSeconds, runningNow, timer.paused());
+    }
+}
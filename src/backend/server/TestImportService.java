@@ -17,6 +17,7 @@ final class TestImportService {
     }
 
     static Server.ImportResult importFromJson(DatabaseHandler db,
+                                              BlobStore blobs,
                                               Path file,
                                               LogfileHandler log,
                                               String boundIp) {
@@ -78,12 +79,16 @@ final class TestImportService {
             int createdTasks = 0;
             for (ImportedTask task : imported.tasks()) {
                 String markdown = applyPromptPrefix(task.prompt(), task.type());
+                if (blobs != null) {
+                    markdown = blobs.importLocalImages(markdown, file.toAbsolutePath().getParent());
+                }
                 String solution = resolveSolutionString(task);
 
                 Map<String, Object> taskData = new LinkedHashMap<>();
                 taskData.put("typ", task.type());
                 taskData.put("aufgabeMarkdown", markdown);
                 taskData.put("loesung", solution);
+                taskData.put("korrekt", resolveCorrectChoices(task));
                 db.setEntry("Aufgabe", taskData);
 
                 int aufgabeId = findLatestTaskId(db, task.type(), markdown, solution);
@@ -107,6 +112,8 @@ final class TestImportService {
             return new Server.ImportResult(true, message);
         } catch (SQLException e) {
             return new Server.ImportResult(false, "Datenbankfehler: " + e.getMessage());
+        } catch (IOException e) {
+            return new Server.ImportResult(false, "Anhang konnte nicht importiert werden: " + e.getMessage());
         }
     }
 
@@ -135,7 +142,7 @@ final class TestImportService {
                     "Aufgabe " + index + ": Feld \"type\" fehlt oder ist leer.");
             String prompt = requireNonEmptyString(taskMap.get("prompt"),
                     "Aufgabe " + index + ": Feld \"prompt\" fehlt oder ist leer.");
-            String solution = normalizeString(taskMap.get("solution"));
+            String solution = solutionValue(taskMap.get("solution"));
             List<String> options = toStringList(taskMap.get("options"));
             tasks.add(new ImportedTask(type, prompt, solution, options));
         }
@@ -291,6 +298,33 @@ final class TestImportService {
         return String.join("||", values);
     }
 
+    /**
+     * @title resolveCorrectChoices
+     * @short Liefert bei Auswahlaufgaben die richtigen Optionen ("||"-getrennt) fuer die automatische Bewertung.
+     */
+    private static String resolveCorrectChoices(ImportedTask task) {
+        String type = normalizeString(task.type()).toLowerCase(java.util.Locale.ROOT);
+        if (!"singlechoice".equals(type) && !"multichoice".equals(type)) {
+            return null;
+        }
+        String solution = normalizeString(task.solution());
+        return solution.isEmpty() || task.options().isEmpty() ? null : solution;
+    }
+
+    private static String solutionValue(Object value) {
+        if (value instanceof List<?> list) {
+            List<String> parts = new ArrayList<>();
+            for (Object entry : list) {
+                String part = normalizeString(entry);
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            return String.join("||", parts);
+        }
+        return normalizeString(value);
+    }
+
     private static Map<String, Object> toObjectMap(Map<?, ?> raw) {
         Map<String, Object> result = new LinkedHashMap<>();
         for (Map.Entry<?, ?> entry : raw.entrySet()) {
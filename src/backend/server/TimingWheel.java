@@ -0,0 +1,109 @@
+package backend.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * @title TimingWheel
+ * @short Gehashtes Zeitrad fuer viele gleichartige Fristen, weitergedreht von genau einem Thread.
+ *
+ * Die Fristen liegen in {@code slots} Faechern zu je {@code tickMillis}; eine Frist, die weiter als eine Umdrehung
+ * entfernt ist, zaehlt ihre verbleibenden Runden herunter. Eintragen ({@link #schedule(Object, long)}) und Abbrechen
+ * sind von jedem Thread aus moeglich und kosten konstant viel: neue Fristen warten in einer sperrfreien Warteschlange
+ * und werden erst vom drehenden Thread einsortiert, abgebrochene werden beim naechsten Besuch ihres Fachs verworfen.
+ * {@link #advance(long)} darf nur von einem einzigen Thread aufgerufen werden und bearbeitet pro Tick nur ein Fach.
+ */
+final class TimingWheel<T> {
+
+    /** Eingetragene Frist; {@link #cancel()} verwirft sie, ohne das Rad anzufassen. */
+    static final class Timeout<T> {
+        final T target;
+        final long deadline;
+        int rounds;
+        volatile boolean cancelled;
+
+        private Timeout(T target, long deadline) {
+            this.target = target;
+            this.deadline = deadline;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final List<List<Timeout<T>>> wheel;
+    private final int mask;
+    private final long tickMillis;
+    private final Queue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private long tick;
+    private long startedAt = -1L;
+
+    /**
+     * @param slots      Anzahl der Faecher, wird auf die naechste Zweierpotenz aufgerundet
+     * @param tickMillis Breite eines Fachs; Fristen laufen auf diese Genauigkeit gerundet ab
+     */
+    TimingWheel(int slots, long tickMillis) {
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.tickMillis = Math.max(1L, tickMillis);
+    }
+
+    /**
+     * @title schedule
+     * @short Traegt eine Frist in {@code delayMillis} ein; von jedem Thread aus aufrufbar.
+     */
+    Timeout<T> schedule(T target, long delayMillis) {
+        Timeout<T> timeout = new Timeout<>(target, System.currentTimeMillis() + Math.max(0L, delayMillis));
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @title advance
+     * @short Dreht das Rad bis {@code now} (Millisekunden seit Epoch) weiter und liefert die abgelaufenen Ziele.
+     */
+    List<T> advance(long now) {
+        if (startedAt < 0L) {
+            startedAt = now;
+        }
+        List<T> expired = new ArrayList<>();
+        long target = (now - startedAt) / tickMillis;
+        while (tick <= target) {
+            placeIncoming();
+            Iterator<Timeout<T>> it = wheel.get((int) (tick & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                } else if (timeout.rounds <= 0) {
+                    it.remove();
+                    expired.add(timeout.target);
+                } else {
+                    timeout.rounds--;
+                }
+            }
+            tick++;
+        }
+        return expired;
+    }
+
+    private void placeIncoming() {
+        Timeout<T> timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long due = Math.max(tick, (timeout.deadline - startedAt + tickMillis - 1L) / tickMillis);
+            timeout.rounds = (int) ((due - tick) / wheel.size());
+            wheel.get((int) (due & mask)).add(timeout);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package backend.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @title WarningBuffer
+ * @short Warnungen der Clients: sperrfreier Ringpuffer fuer die Erzeuger, Zusammenfassung auf einem einzigen Leser.
+ *
+ * Beliebig viele Kommunikations-Threads legen Warnungen per {@link #offer(Signal)} in einen Ringpuffer fester Groesse
+ * (Plaetze werden per CAS vergeben, ohne Sperre und ohne Warten); ist er voll, wird gezaehlt und verworfen. Genau ein
+ * Thread ruft {@link #drain()} und {@link #dismiss(String)} auf: gleiche Warnungen eines Clients (gleicher Grund)
+ * innerhalb des Zeitfensters werden dabei zu einem Eintrag mit Anzahl sowie erstem und letztem Zeitpunkt
+ * zusammengefasst. Es werden hoechstens {@code retention} Eintraege gehalten, die aeltesten fallen heraus. Die aktive
+ * Liste wird nach jeder Aenderung unveraenderlich veroeffentlicht; {@link #activeWarnings()} liest nur eine Referenz.
+ */
+final class WarningBuffer {
+
+    /** Eine einzelne gemeldete Warnung; {@code receivedAt} in Millisekunden seit Epoch. */
+    record Signal(String clientId, String studentName, String reason, String timestamp, long receivedAt) {
+    }
+
+    /** Ergebnis eines Leerlaufs: neu angelegte Eintraege (fuer das Log) und im Ringpuffer verlorene Warnungen. */
+    record DrainResult(List<Server.ClientWarning> created, int dropped, boolean changed) {
+    }
+
+    private static final class Entry {
+        final String id;
+        final String clientId;
+        final String studentName;
+        final String reason;
+        final String firstTimestamp;
+        String lastTimestamp;
+        long lastReceivedAt;
+        int count = 1;
+
+        Entry(String id, Signal signal) {
+            this.id = id;
+            this.clientId = signal.clientId();
+            this.studentName = signal.studentName();
+            this.reason = signal.reason();
+            this.firstTimestamp = signal.timestamp();
+            this.lastTimestamp = signal.timestamp();
+            this.lastReceivedAt = signal.receivedAt();
+        }
+
+        Server.ClientWarning toWarning() {
+            return new Server.ClientWarning(id, clientId, studentName, reason, lastTimestamp, count, firstTimestamp);
+        }
+    }
+
+    private final Signal[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private long head;
+
+    private final int retention;
+    private final long windowMillis;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Entry> openByKey = new LinkedHashMap<>();
+    private long nextId;
+    private volatile List<Server.ClientWarning> active = List.of();
+
+    /**
+     * @param capacity     Groesse des Ringpuffers, wird auf die naechste Zweierpotenz aufgerundet
+     * @param retention    hoechstens so viele zusammengefasste Eintraege bleiben sichtbar
+     * @param windowMillis Zeitfenster, in dem gleiche Warnungen zusammengefasst werden
+     */
+    WarningBuffer(int capacity, int retention, long windowMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Signal[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.retention = Math.max(1, retention);
+        this.windowMillis = Math.max(0L, windowMillis);
+    }
+
+    /**
+     * @title offer
+     * @short Legt eine Warnung ab, ohne zu blockieren; {@code false}, wenn der Puffer voll war.
+     */
+    boolean offer(Signal signal) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            long difference = sequence - position;
+            if (difference == 0L) {
+                if (tail.compareAndSet(position, position + 1L)) {
+                    break;
+                }
+            } else if (difference < 0L) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        int index = (int) position & mask;
+        slots[index] = signal;
+        sequences.set(index, position + 1L);
+        return true;
+    }
+
+    /**
+     * @title drain
+     * @short Uebernimmt alle abgelegten Warnungen in die zusammengefassten Eintraege (nur vom Leser-Thread).
+     */
+    DrainResult drain() {
+        List<Server.ClientWarning> created = new ArrayList<>();
+        boolean changed = false;
+        while (true) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1L) {
+                break;
+            }
+            Signal signal = slots[index];
+            slots[index] = null;
+            sequences.set(index, head + slots.length);
+            head++;
+            changed = true;
+            Entry entry = merge(signal);
+            if (entry != null) {
+                created.add(entry.toWarning());
+            }
+        }
+        int lost = dropped.getAndSet(0);
+        if (changed) {
+            publish();
+        }
+        return new DrainResult(List.copyOf(created), lost, changed);
+    }
+
+    /**
+     * @title dismiss
+     * @short Entfernt einen Eintrag (nur vom Leser-Thread); {@code true}, wenn er vorhanden war.
+     */
+    boolean dismiss(String id) {
+        Entry removed = entries.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        openByKey.remove(key(removed.clientId, removed.reason), removed);
+        publish();
+        return true;
+    }
+
+    /**
+     * @title restore
+     * @short Uebernimmt gesicherte Eintraege nach einem Neustart; nur bevor Warnungen eintreffen aufrufen.
+     */
+    void restore(List<Server.ClientWarning> warnings) {
+        for (Server.ClientWarning warning : warnings) {
+            Entry entry = new Entry(warning.getId(), new Signal(warning.getClientId(), warning.getStudentName(),
+                    warning.getMessage(), warning.getFirstTimestamp(), 0L));
+            entry.count = Math.max(1, warning.getCount());
+            entry.lastTimestamp = warning.getTimestamp();
+            entries.put(entry.id, entry);
+            try {
+                nextId = Math.max(nextId, Long.parseLong(entry.id.substring(1)));
+            } catch (NumberFormatException | IndexOutOfBoundsException ignored) {
+                // fremde Kennung, kollidiert nicht mit den eigenen
+            }
+        }
+        publish();
+    }
+
+    /** @title activeWarnings @short Zuletzt veroeffentlichte, unveraenderliche Liste der Eintraege. */
+    List<Server.ClientWarning> activeWarnings() {
+        return active;
+    }
+
+    private Entry merge(Signal signal) {
+        String key = key(signal.clientId(), signal.reason());
+        Entry open = openByKey.get(key);
+        if (open != null && signal.receivedAt() - open.lastReceivedAt <= windowMillis) {
+            open.count++;
+            open.lastTimestamp = signal.timestamp();
+            open.lastReceivedAt = signal.receivedAt();
+            return null;
+        }
+        Entry entry = new Entry("W" + (++nextId), signal);
+        entries.put(entry.id, entry);
+        openByKey.put(key, entry);
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (entries.size() > retention && oldest.hasNext()) {
+            Entry evicted = oldest.next();
+            oldest.remove();
+            openByKey.remove(key(evicted.clientId, evicted.reason), evicted);
+        }
+        return entry;
+    }
+
+    private void publish() {
+        List<Server.ClientWarning> list = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            list.add(entry.toWarning());
+        }
+        active = List.copyOf(list);
+    }
+
+    private static String key(String clientId, String reason) {
+        return Objects.toString(clientId, "") + '\u0000' + Objects.toString(reason, "");
+    }
+}
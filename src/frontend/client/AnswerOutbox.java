@@ -0,0 +1,224 @@
+package frontend.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of answers the server has not acknowledged yet. Every answer is appended to a local log before it
+ * is sent and stays there until the server's cumulative ACK covers it, so answers typed while the connection is down survive
+ * both the outage and a crash of the client. Each entry carries a random idempotency key; the server stores an
+ * answer at most once per key, which makes replaying the whole queue after a reconnect safe.
+ *
+ * The log is plain text, one record per line: {@code A seq key token test taskId answer} (Base64 fields) for an
+ * answer and {@code K key} for an acknowledgement; records written before the test was recorded lack the test field
+ * and load with an empty test. Appends are synced in batches ({@link #FLUSH_DELAY_MS}) instead of once
+ * per answer; an unfinished last line is ignored on load. Once nothing is pending the file is truncated.
+ */
+class AnswerOutbox {
+
+    private static final long FLUSH_DELAY_MS = 100;
+
+    /** One queued answer; {@code seq} orders entries across restarts, {@code test} names the test it was given in. */
+    record Entry(long seq, String key, String token, String test, String taskId, String answer) {
+    }
+
+    private final Path file;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "UI-AnswerOutbox");
+        t.setDaemon(true);
+        return t;
+    });
+    private FileChannel channel;
+    private long nextSeq = 1;
+    private boolean flushScheduled;
+
+    AnswerOutbox(Path file) {
+        this.file = file;
+        try {
+            load();
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            compact();
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // without the file the queue still bridges outages, just not a restart of the client
+            channel = null;
+        }
+    }
+
+    /** Queues an answer and returns its entry; the write reaches the disk with the next batched sync. */
+    synchronized Entry append(String token, String test, String taskId, String answer) {
+        Entry entry = new Entry(nextSeq++, UUID.randomUUID().toString(), Objects.toString(token, ""),
+                Objects.toString(test, ""), taskId, Objects.toString(answer, ""));
+        pending.put(entry.key(), entry);
+        write(record(entry));
+        if (channel != null && !flushScheduled) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        return entry;
+    }
+
+    /** Drops an acknowledged entry. Acks are not synced: a lost ack only causes a replay the server ignores. */
+    synchronized void acknowledge(String key) {
+        if (key == null || pending.remove(key) == null) {
+            return;
+        }
+        if (pending.isEmpty()) {
+            truncate();
+        } else {
+            write("K " + key);
+        }
+    }
+
+    /**
+     * Drops every entry queued under another token. Such entries are never sent (the server only accepts answers
+     * for the signed-in token), so nothing would ever acknowledge them and the log would only grow.
+     */
+    synchronized void retainToken(String token) {
+        List<String> foreign = new ArrayList<>();
+        for (Entry entry : pending.values()) {
+            if (!entry.token().equals(token)) {
+                foreign.add(entry.key());
+            }
+        }
+        for (String key : foreign) {
+            acknowledge(key);
+        }
+    }
+
+    /** Pending entries of the given token with a sequence number above {@code afterSeq}, in queue order. */
+    synchronized List<Entry> pendingAfter(String token, long afterSeq) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : pending.values()) {
+            if (entry.seq() > afterSeq && entry.token().equals(token)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            closeChannel();
+        }
+    }
+
+    private void write(String line) {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            closeChannel();
+        }
+    }
+
+    private void truncate() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.truncate(0);
+            channel.force(false);
+        } catch (IOException e) {
+            closeChannel();
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    /** Starts from a log holding only the pending entries; replaced atomically so a crash keeps the old one. */
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : pending.values()) {
+            content.append(record(entry)).append('\n');
+        }
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+        int end = content.lastIndexOf('\n');
+        // everything after the last newline is a record that was cut off while being written
+        for (String line : content.substring(0, end + 1).split("\n")) {
+            String[] parts = line.split(" ", -1);
+            try {
+                if ((parts.length == 6 || parts.length == 7) && parts[0].equals("A")) {
+                    boolean withTest = parts.length == 7;
+                    Entry entry = new Entry(Long.parseLong(parts[1]), parts[2], decode(parts[3]),
+                            withTest ? decode(parts[4]) : "", decode(parts[parts.length - 2]), decode(parts[parts.length - 1]));
+                    pending.put(entry.key(), entry);
+                    nextSeq = Math.max(nextSeq, entry.seq() + 1);
+                } else if (parts.length == 2 && parts[0].equals("K")) {
+                    pending.remove(parts[1]);
+                }
+            } catch (IllegalArgumentException ignored) {
+                // damaged line; the other entries are still valid
+            }
+        }
+    }
+
+    private static String record(Entry entry) {
+        return "A " + entry.seq() + " " + entry.key() + " " + encode(entry.token()) + " " + encode(entry.test())
+                + " " + encode(entry.taskId()) + " " + encode(entry.answer());
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+package frontend.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Disk cache for task attachments received via {@code SEND_BLOB}. Files are stored under their SHA-256
+ * hash, so every image crosses the network at most once per device and survives restarts.
+ */
+class BlobCache {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+
+    BlobCache(Path root) {
+        this.root = root;
+    }
+
+    /** Returns the cached file for the hash, or {@code null} if it has not been received yet. */
+    Path get(String hash) {
+        if (!isValidHash(hash)) {
+            return null;
+        }
+        Path path = root.resolve(hash);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Appends one chunk to the pending transfer. Chunks must arrive in order (they share one TCP stream).
+     *
+     * @return the cached file once the last chunk has been written and the hash verified, otherwise {@code null}
+     * @throws IOException if the chunk is out of order or the finished file does not match its hash
+     */
+    Path accept(String hash, int index, int count, String base64Data) throws IOException {
+        if (!isValidHash(hash)) {
+            throw new IOException("Ungueltiger Hash: " + hash);
+        }
+        Transfer transfer = transfers.get(hash);
+        if (index == 0) {
+            if (transfer != null) {
+                transfer.abort();
+            }
+            transfer = Transfer.open(root, hash);
+            transfers.put(hash, transfer);
+        }
+        if (transfer == null || transfer.nextIndex != index) {
+            discard(hash);
+            throw new IOException("Unerwartetes Teilstueck " + index + " fuer " + hash);
+        }
+        try {
+            transfer.write(Base64.getDecoder().decode(base64Data == null ? "" : base64Data));
+        } catch (IllegalArgumentException e) {
+            discard(hash);
+            throw new IOException("Ungueltige Daten fuer " + hash, e);
+        }
+        if (index + 1 < count) {
+            return null;
+        }
+        transfers.remove(hash);
+        return transfer.complete(root.resolve(hash));
+    }
+
+    /** Drops a partially received transfer (e.g. after an error message from the server). */
+    void discard(String hash) {
+        Transfer transfer = hash == null ? null : transfers.remove(hash);
+        if (transfer != null) {
+            transfer.abort();
+        }
+    }
+
+    static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private static final class Transfer {
+        private final String hash;
+        private final Path temp;
+        private final OutputStream out;
+        private final MessageDigest digest;
+        private int nextIndex;
+
+        private Transfer(String hash, Path temp, OutputStream out, MessageDigest digest) {
+            this.hash = hash;
+            this.temp = temp;
+            this.out = out;
+            this.digest = digest;
+        }
+
+        static Transfer open(Path root, String hash) throws IOException {
+            Files.createDirectories(root);
+            Path temp = root.resolve(hash + ".part");
+            try {
+                return new Transfer(hash, temp, Files.newOutputStream(temp), MessageDigest.getInstance("SHA-256"));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("SHA-256 nicht verfuegbar", e);
+            }
+        }
+
+        void write(byte[] data) throws IOException {
+            digest.update(data);
+            out.write(data);
+            nextIndex++;
+        }
+
+        Path complete(Path target) throws IOException {
+            out.close();
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!hash.equals(actual)) {
+                Files.deleteIfExists(temp);
+                throw new IOException("Pruefsumme stimmt nicht fuer " + hash);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        }
+
+        void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package frontend.client;
 
 import backend.client.Message;
+import backend.client.TaskBundle;
 import frontend.client.UI.OverviewRow;
 
 import javax.swing.SwingUtilities;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
@@ -14,15 +16,23 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 /**
  * Concrete bridge that talks to the backend client/server by exchanging {@link Message}s.
@@ -34,12 +44,35 @@ public class NetworkClientBridge implements UI.ClientBridge {
     private static final int DISCOVERY_WINDOW_MS = 2500;
     private static final int CONNECT_TIMEOUT_MS = 6000;
     private static final String INSTANCE_PRE = "NEWCLIENT";
+    private static final long RECONNECT_BASE_MS = 500;
+    private static final long RECONNECT_MAX_MS = 30_000;
+    private static final Pattern BLOB_IMAGE = Pattern.compile("!\\[([^\\]]*)\\]\\(blob:[0-9a-f]{64}\\)");
 
     private volatile UiCallbacks ui;
     private volatile IClient.DiscoveredServer selectedServer;
 
     private final Map<String, String> localAnswers = new ConcurrentHashMap<>();
+    private final BlobCache blobCache = new BlobCache(Paths.get("data", "blobcache"));
+    private final Set<String> requestedBlobs = ConcurrentHashMap.newKeySet();
+    private volatile PendingTask pendingTask;
     private final Object sendLock = new Object();
+    private final AnswerOutbox outbox = new AnswerOutbox(Paths.get("data", "outbox", "answers.log"));
+    private final Object outboxLock = new Object();
+    /** Highest outbox entry already written to the current connection; guarded by {@link #outboxLock}. */
+    private long flushedThrough;
+    /** Session sequence number of each answer sent in this session, until the server's cumulative ACK covers it. */
+    private final TreeMap<Long, String> unacked = new TreeMap<>();
+    private final Map<String, Long> seqByKey = new LinkedHashMap<>();
+    /** Last sequence number stamped on a message of this session; guarded by {@link #sendLock}. */
+    private long sessionSeq;
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
+    private final TaskBundle bundleParts = new TaskBundle();
+    private final Object bundleLock = new Object();
+    /** Tasks of the current run if the server sent the whole test up front; null while tasks come one by one. */
+    private volatile List<Message> bundle;
+    /** Furthest task shown from the bundle (1-based), the local counterpart of the server's task index. */
+    private int bundleShown;
+    private boolean bundleAtOverview;
 
     private volatile Socket socket;
     private volatile DataInputStream in;
@@ -49,6 +82,12 @@ public class NetworkClientBridge implements UI.ClientBridge {
 
     private volatile String clientId = INSTANCE_PRE;
     private volatile String token = "";
+    /** Name of the test announced in AUTH_OK/RESUME_OK; recorded with every queued answer. */
+    private volatile String testName = "";
+    /** Session id from AUTH_OK; lets a new connection pick up where the dropped one left off. */
+    private volatile String sessionId;
+    /** Set once the server confirmed the session (AUTH_OK/RESUME_OK) on the current connection. */
+    private volatile boolean sessionReady;
 
     @Override
     public void setUiCallbacks(UiCallbacks ui) {
@@ -68,7 +107,9 @@ public class NetworkClientBridge implements UI.ClientBridge {
     @Override
     public void selectServer(IClient.DiscoveredServer server) {
         this.selectedServer = server;
+        this.sessionId = null;
         localAnswers.clear();
+        clearBundle();
     }
 
     @Override
@@ -82,28 +123,62 @@ public class NetworkClientBridge implements UI.ClientBridge {
 
         this.token = token == null ? "" : token.trim();
         this.clientId = INSTANCE_PRE;
-        this.running = true;
+        this.sessionId = null;
 
         try {
-            Socket s = new Socket();
+            openConnection(server);
+            sendMessage(new Message(clientId, "AUTH", this.token).put("bundle", "1").put("heartbeat", "1"));
+        } catch (IOException e) {
+            handleConnectionLoss("Verbindung fehlgeschlagen: " + shortMessage(e));
+        }
+    }
+
+    private void openConnection(IClient.DiscoveredServer server) throws IOException {
+        Socket s = new Socket();
+        try {
             s.connect(new InetSocketAddress(server.ip(), server.port()), CONNECT_TIMEOUT_MS);
             s.setTcpNoDelay(true);
-            this.socket = s;
             this.in = new DataInputStream(s.getInputStream());
             this.out = new DataOutputStream(s.getOutputStream());
+        } catch (IOException e) {
+            closeSilently(s);
+            throw e;
+        }
+        synchronized (outboxLock) {
+            flushedThrough = 0;
+        }
+        this.sessionReady = false;
+        this.socket = s;
+        this.running = true;
 
-            listenerThread = new Thread(this::listenLoop, "UI-NetworkListener");
-            listenerThread.setDaemon(true);
-            listenerThread.start();
+        listenerThread = new Thread(this::listenLoop, "UI-NetworkListener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
 
-            sendMessage(new Message(clientId, "AUTH", this.token));
+    /**
+     * Reconnects to the selected server and asks it to re-attach the dropped session. The server answers with a
+     * single RESUME_OK carrying the current task and the answers it already saved, or RESUME_ERR once the grace
+     * period is over.
+     */
+    private boolean resumeSession() {
+        IClient.DiscoveredServer server = this.selectedServer;
+        String session = this.sessionId;
+        if (server == null || session == null) {
+            return false;
+        }
+        try {
+            openConnection(server);
         } catch (IOException e) {
-            handleConnectionLoss("Verbindung fehlgeschlagen: " + shortMessage(e));
+            return false;
         }
+        sendMessage(new Message(clientId, "RESUME", token).put("sessionId", session));
+        return true;
     }
 
     @Override
     public void cancelWaiting() {
+        sessionId = null;
         closeConnection();
         SwingUtilities.invokeLater(() -> {
             UiCallbacks callbacks = ui;
@@ -115,7 +190,61 @@ public class NetworkClientBridge implements UI.ClientBridge {
 
     @Override
     public void requestNextTask() {
-        sendMessage(new Message(clientId, "NEXT_TASK", token));
+        if (!showNextFromBundle()) {
+            sendMessage(new Message(clientId, "NEXT_TASK", token));
+        }
+    }
+
+    /**
+     * Serves a forward step from the bundle the way the server answers NEXT_TASK: the following task, or the
+     * overview after the last one. The server only gets a PROGRESS note so its dashboard keeps up.
+     */
+    private boolean showNextFromBundle() {
+        List<Message> tasks;
+        Message next = null;
+        synchronized (bundleLock) {
+            tasks = bundle;
+            if (tasks == null) {
+                return false;
+            }
+            if (bundleShown < tasks.size()) {
+                next = tasks.get(bundleShown++);
+                bundleAtOverview = false;
+            } else {
+                bundleAtOverview = true;
+            }
+        }
+        if (next != null) {
+            handleTask(next);
+        } else {
+            handleOverview(TaskBundle.overview(tasks, token));
+        }
+        reportProgress();
+        return true;
+    }
+
+    /** Tells the server where local navigation stands; lost notes are repeated after a resume. */
+    private void reportProgress() {
+        Message progress = new Message(clientId, "PROGRESS", token);
+        synchronized (bundleLock) {
+            if (bundle == null) {
+                return;
+            }
+            if (bundleAtOverview) {
+                progress.put("view", "OVERVIEW");
+            } else {
+                progress.put("taskNr", String.valueOf(bundleShown));
+            }
+        }
+        sendMessage(progress);
+    }
+
+    private void clearBundle() {
+        synchronized (bundleLock) {
+            bundle = null;
+            bundleShown = 0;
+            bundleAtOverview = false;
+        }
     }
 
     @Override
@@ -126,10 +255,66 @@ public class NetworkClientBridge implements UI.ClientBridge {
         String protocolValue = joinAnswersProtocol(answers);
         String displayValue = joinAnswersDisplay(answers);
         localAnswers.put(taskId, displayValue.isBlank() ? "-" : displayValue);
-        Message msg = new Message(clientId, "SEND_ANSWER", token)
-                .put("taskId", taskId)
-                .put("antwort", protocolValue);
-        sendMessage(msg);
+        outbox.append(token, testName, taskId, protocolValue);
+        flushOutbox();
+    }
+
+    /**
+     * Sends every queued answer the current connection has not carried yet, oldest first. Answers typed while
+     * offline or before the server confirmed the session wait in the outbox; after a reconnect the whole
+     * unacknowledged queue goes out again. A retransmit keeps the sequence number it was first sent with, so the
+     * server recognises it from its dedup window without touching the database; answers from an earlier session
+     * get a new number and are caught by their key instead.
+     */
+    private void flushOutbox() {
+        synchronized (outboxLock) {
+            if (!sessionReady || out == null) {
+                return;
+            }
+            for (AnswerOutbox.Entry entry : outbox.pendingAfter(token, flushedThrough)) {
+                Message msg = new Message(clientId, "SEND_ANSWER", token)
+                        .put("taskId", entry.taskId())
+                        .put("antwort", entry.answer())
+                        .put("key", entry.key())
+                        .put("test", entry.test());
+                Long previous = seqByKey.get(entry.key());
+                if (previous != null) {
+                    msg.put("seq", String.valueOf(previous));
+                }
+                long seq = sendMessage(msg);
+                if (previous == null && seq > 0) {
+                    seqByKey.put(entry.key(), seq);
+                    unacked.put(seq, entry.key());
+                }
+                flushedThrough = entry.seq();
+            }
+        }
+    }
+
+    /**
+     * Opens the confirmed session for sending and retransmits the outbox in one step. Holding both locks keeps every
+     * other session message (a UI-thread answer, ASK_BLOB, PROGRESS) behind the retransmits, so none of them can take
+     * a higher sequence number first and make the server treat a retransmit as an old duplicate.
+     */
+    private void enableSession() {
+        synchronized (outboxLock) {
+            synchronized (sendLock) {
+                sessionReady = true;
+                flushOutbox();
+            }
+        }
+    }
+
+    /** Cumulative ACK: everything up to {@code seq} of this session is stored on the server. */
+    private void acknowledgeThrough(long seq) {
+        synchronized (outboxLock) {
+            Map<Long, String> covered = unacked.headMap(seq, true);
+            for (String key : covered.values()) {
+                outbox.acknowledge(key);
+                seqByKey.remove(key);
+            }
+            covered.clear();
+        }
     }
 
     @Override
@@ -141,7 +326,17 @@ public class NetworkClientBridge implements UI.ClientBridge {
 
     @Override
     public void requestOverview() {
-        sendMessage(new Message(clientId, "ASK_OVERVIEW", token));
+        List<Message> tasks;
+        synchronized (bundleLock) {
+            tasks = bundle;
+            bundleAtOverview = tasks != null;
+        }
+        if (tasks == null) {
+            sendMessage(new Message(clientId, "ASK_OVERVIEW", token));
+            return;
+        }
+        handleOverview(TaskBundle.overview(tasks, token));
+        reportProgress();
     }
 
     @Override
@@ -149,6 +344,12 @@ public class NetworkClientBridge implements UI.ClientBridge {
         if (taskId == null || taskId.isBlank()) {
             return;
         }
+        List<Message> tasks = bundle;
+        Message cached = tasks == null ? null : TaskBundle.find(tasks, taskId);
+        if (cached != null) {
+            handleTask(TaskBundle.asPreview(cached));
+            return;
+        }
         Message msg = new Message(clientId, "ASK_TASK_BY_ID", token)
                 .put("taskId", taskId);
         sendMessage(msg);
@@ -175,32 +376,101 @@ public class NetworkClientBridge implements UI.ClientBridge {
     /* ------------------------- Listening & dispatch ------------------------- */
 
     private void listenLoop() {
+        Socket s = socket;
+        DataInputStream input = in;
+        String lost = null;
         try {
-            while (running && socket != null && !socket.isClosed()) {
-                Message msg = Message.read(in);
+            while (running && s != null && s == socket && !s.isClosed()) {
+                Message msg = Message.read(input);
                 if (msg == null) {
+                    // Message.read reports I/O errors as end of stream; a close we did not ask for is a loss
+                    if (running && s == socket) {
+                        lost = "Verbindung getrennt.";
+                    }
                     break;
                 }
                 handleMessage(msg);
             }
         } catch (Exception e) {
-            handleConnectionLoss("Verbindung getrennt: " + shortMessage(e));
+            // only a connection that is still the current one counts as lost; closeConnection() ends it on purpose
+            if (running && s == socket) {
+                lost = "Verbindung getrennt: " + shortMessage(e);
+            }
         } finally {
-            running = false;
-            closeSilently(in);
-            closeSilently(out);
-            closeSilently(socket);
-            in = null;
-            out = null;
-            socket = null;
+            if (s == socket) {
+                running = false;
+                closeSilently(in);
+                closeSilently(out);
+                closeSilently(socket);
+                in = null;
+                out = null;
+                socket = null;
+            }
+        }
+        if (lost != null) {
+            if (sessionId != null) {
+                scheduleReconnect();
+            } else {
+                handleConnectionLoss(lost);
+            }
+        }
+    }
+
+    /**
+     * Starts the reconnect loop unless one is already running. Attempts are spaced with exponential backoff
+     * (0.5 s doubling up to 30 s) and equal jitter, so a classroom full of laptops coming back from the same
+     * Wi-Fi hiccup does not hit the server in lockstep. The loop ends once a resume is sent or the session is
+     * given up (test ended, user went back to the token screen).
+     */
+    private void scheduleReconnect() {
+        if (!reconnecting.compareAndSet(false, true)) {
+            return;
         }
+        toast("Verbindung unterbrochen. Neuer Versuch laeuft ...");
+        Thread reconnect = new Thread(this::reconnectLoop, "UI-Reconnect");
+        reconnect.setDaemon(true);
+        reconnect.start();
+    }
+
+    private void reconnectLoop() {
+        int attempt = 0;
+        while (sessionId != null) {
+            long cap = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS << Math.min(attempt, 16));
+            long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            // cleared before connecting: if the new connection drops at once, its listener starts a fresh loop
+            reconnecting.set(false);
+            if (sessionId == null || resumeSession()) {
+                return;
+            }
+            if (!reconnecting.compareAndSet(false, true)) {
+                return;
+            }
+            attempt++;
+        }
+        reconnecting.set(false);
     }
 
     private void handleMessage(Message msg) {
+        long ack = parseLong(msg.getString("ack"));
+        if (ack > 0) {
+            // piggybacked on any server message, or alone in an ACK when nothing else was due
+            acknowledgeThrough(ack);
+        }
         switch (msg.messageType) {
             case "AUTH_OK" -> handleAuthOk(msg);
             case "AUTH_ERR" -> handleAuthError(msg);
+            case "RESUME_OK" -> handleResumeOk(msg);
+            case "RESUME_ERR" -> handleResumeError();
+            case "PING" -> sendMessage(new Message(clientId, "PONG", token).put("t", msg.getString("t")));
             case "SEND_TASK" -> handleTask(msg);
+            case "SEND_BUNDLE" -> handleBundle(msg);
+            case "SEND_BLOB" -> handleBlob(msg);
             case "SEND_OVERVIEW" -> handleOverview(msg);
             case "END_TEST" -> handleEnd();
             case "TEST_PAUSED" -> handlePaused();
@@ -215,7 +485,17 @@ public class NetworkClientBridge implements UI.ClientBridge {
 
     private void handleAuthOk(Message msg) {
         clientId = Objects.requireNonNullElse(msg.getString("clientId"), INSTANCE_PRE);
+        if ("AUTH_OK".equals(msg.messageType)) {
+            // a fresh session; RESUME_OK also lands here for the waiting room and keeps its numbering
+            startSequence();
+        }
+        clearBundle();
+        sessionId = msg.getString("sessionId");
         String testName = msg.getString("testName");
+        this.testName = Objects.requireNonNullElse(testName, "");
+        // answers of another token could never be sent or acknowledged
+        outbox.retainToken(token);
+        enableSession();
         Integer total = msg.getInt("countOfTasks");
         int totalTasks = total == null ? 0 : total;
         UiCallbacks callbacks = ui;
@@ -224,7 +504,54 @@ public class NetworkClientBridge implements UI.ClientBridge {
         }
     }
 
+    private void handleResumeOk(Message msg) {
+        clientId = Objects.requireNonNullElse(msg.getString("clientId"), clientId);
+        sessionId = nonBlank(msg.getString("sessionId"), sessionId);
+        testName = nonBlank(msg.getString("testName"), testName);
+        String saved = msg.getString("saved");
+        if (saved != null && !saved.isBlank()) {
+            Base64.Decoder decoder = Base64.getDecoder();
+            for (String entry : saved.split(",")) {
+                int idx = entry.indexOf('=');
+                if (idx <= 0) {
+                    continue;
+                }
+                try {
+                    String answer = new String(decoder.decode(entry.substring(idx + 1)), StandardCharsets.UTF_8);
+                    String display = joinAnswersDisplay(answer.isEmpty() ? List.of() : List.of(answer.split("\\|\\|")));
+                    localAnswers.put(entry.substring(0, idx), display.isBlank() ? "-" : display);
+                } catch (IllegalArgumentException ignored) {
+                    // skip a damaged entry, the others are still usable
+                }
+            }
+        }
+        // retransmit first, then let the view's own requests (ASK_BLOB, PROGRESS) through
+        enableSession();
+        String view = nonBlank(msg.getString("view"), "WAITING");
+        // with a bundle, navigation went on locally while offline: the screen is current, only the server catches up
+        if (bundle == null || "WAITING".equals(view)) {
+            switch (view) {
+                case "TASK" -> handleTask(msg);
+                case "OVERVIEW" -> handleOverview(msg);
+                default -> handleAuthOk(msg);
+            }
+        }
+        if ("1".equals(msg.getString("paused"))) {
+            handlePaused();
+        }
+        reportProgress();
+        toast("Verbindung wiederhergestellt.");
+    }
+
+    /** The session expired on the server; sign in again with the token on the connection that is already open. */
+    private void handleResumeError() {
+        sessionId = null;
+        clientId = INSTANCE_PRE;
+        sendMessage(new Message(clientId, "AUTH", token).put("bundle", "1").put("heartbeat", "1"));
+    }
+
     private void handleAuthError(Message msg) {
+        sessionId = null;
         String reason = msg.getString("fehlernachricht");
         handleConnectionLoss(nonBlank(reason, "Authentifizierung fehlgeschlagen."));
         SwingUtilities.invokeLater(() -> {
@@ -245,15 +572,115 @@ public class NetworkClientBridge implements UI.ClientBridge {
         String taskId = msg.getString("taskId");
         boolean preview = "1".equals(msg.getString("isPreview"));
         String taskType = msg.getString("taskType");
+        List<String> blobs = parseBlobList(msg.getString("blobs"));
+        String displayQuestion = question == null ? null : BLOB_IMAGE.matcher(question).replaceAll("[$1]");
 
-        UI.TaskViewModel view = new UI.TaskViewModel(
+        PendingTask task = new PendingTask(
                 nonBlank(taskId, UUID.randomUUID().toString()),
-                nonBlank(question, "(Keine Fragestellung hinterlegt)"),
+                nonBlank(displayQuestion, "(Keine Fragestellung hinterlegt)"),
                 opts,
                 nr == null ? -1 : nr,
                 preview,
-                nonBlank(taskType, "Unbekannt")
+                nonBlank(taskType, "Unbekannt"),
+                blobs,
+                ConcurrentHashMap.newKeySet()
         );
+        for (String hash : blobs) {
+            if (blobCache.get(hash) == null) {
+                task.missing().add(hash);
+            }
+        }
+        if (task.missing().isEmpty()) {
+            pendingTask = null;
+            showTask(task);
+            return;
+        }
+        // Aufgabe erst anzeigen, wenn alle Anhaenge im Cache liegen; bereits angeforderte nicht doppelt laden.
+        pendingTask = task;
+        for (String hash : task.missing()) {
+            if (requestedBlobs.add(hash) && sendMessage(new Message(clientId, "ASK_BLOB", token).put("hash", hash)) < 0) {
+                // not sent: leave it unrequested so the next attempt asks again
+                requestedBlobs.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * Collects the parts of SEND_BUNDLE. Once complete, the attachments of all tasks are fetched in test order and
+     * the first task is shown straight from the bundle. If the bundle cannot be read the client falls back to asking
+     * for tasks one by one, which the server still answers.
+     */
+    private void handleBundle(Message msg) {
+        List<Message> tasks;
+        try {
+            tasks = bundleParts.accept(msg);
+        } catch (IOException e) {
+            clearBundle();
+            sendMessage(new Message(clientId, "NEXT_TASK", token));
+            return;
+        }
+        if (tasks == null) {
+            return;
+        }
+        synchronized (bundleLock) {
+            bundle = tasks;
+            bundleShown = 0;
+            bundleAtOverview = false;
+        }
+        for (Message task : tasks) {
+            for (String hash : parseBlobList(task.getString("blobs"))) {
+                if (blobCache.get(hash) == null && requestedBlobs.add(hash)
+                        && sendMessage(new Message(clientId, "ASK_BLOB", token).put("hash", hash)) < 0) {
+                    requestedBlobs.remove(hash);
+                }
+            }
+        }
+        showNextFromBundle();
+    }
+
+    private void handleBlob(Message msg) {
+        String hash = msg.getString("hash");
+        Integer count = msg.getInt("count");
+        if (count == null || count <= 0) {
+            blobCache.discard(hash);
+            blobFinished(hash);
+            return;
+        }
+        Integer index = msg.getInt("index");
+        try {
+            Path file = blobCache.accept(hash, index == null ? -1 : index, count, msg.getString("data"));
+            if (file != null) {
+                blobFinished(hash);
+            }
+        } catch (IOException e) {
+            blobFinished(hash);
+        }
+    }
+
+    /** Marks a transfer as finished (successfully or not) and shows the waiting task once nothing is missing. */
+    private void blobFinished(String hash) {
+        requestedBlobs.remove(hash);
+        PendingTask task = pendingTask;
+        if (task == null) {
+            return;
+        }
+        task.missing().remove(hash);
+        if (task.missing().isEmpty()) {
+            pendingTask = null;
+            showTask(task);
+        }
+    }
+
+    private void showTask(PendingTask task) {
+        List<File> attachments = new ArrayList<>();
+        for (String hash : task.blobs()) {
+            Path cached = blobCache.get(hash);
+            if (cached != null) {
+                attachments.add(cached.toFile());
+            }
+        }
+        UI.TaskViewModel view = new UI.TaskViewModel(task.taskId(), task.question(), task.answers(),
+                task.taskNumber(), task.preview(), task.taskType(), attachments);
 
         UiCallbacks callbacks = ui;
         if (callbacks != null) {
@@ -261,6 +688,20 @@ public class NetworkClientBridge implements UI.ClientBridge {
         }
     }
 
+    private List<String> parseBlobList(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        List<String> hashes = new ArrayList<>();
+        for (String part : value.split(",")) {
+            String hash = part.trim().toLowerCase(Locale.ROOT);
+            if (BlobCache.isValidHash(hash)) {
+                hashes.add(hash);
+            }
+        }
+        return hashes;
+    }
+
     private void handleOverview(Message msg) {
         String data = msg.getString("data");
         List<OverviewRow> rows = new ArrayList<>();
@@ -286,6 +727,7 @@ public class NetworkClientBridge implements UI.ClientBridge {
     }
 
     private void handleEnd() {
+        sessionId = null;
         closeConnection();
         UiCallbacks callbacks = ui;
         if (callbacks != null) {
@@ -308,6 +750,7 @@ public class NetworkClientBridge implements UI.ClientBridge {
     }
 
     private void handleTimeExpired(Message msg) {
+        sessionId = null;
         UiCallbacks callbacks = ui;
         if (callbacks != null) {
             String message = msg == null ? null : msg.getString("message");
@@ -364,25 +807,68 @@ public class NetworkClientBridge implements UI.ClientBridge {
         return map;
     }
 
-    private void sendMessage(Message msg) {
+    /** A new session numbers its messages from 1 again; answers of the old one are resent under new numbers. */
+    private void startSequence() {
+        synchronized (outboxLock) {
+            unacked.clear();
+            seqByKey.clear();
+            synchronized (sendLock) {
+                sessionSeq = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes a message to the current connection. Everything except the control messages (AUTH, RESUME and the
+     * heartbeat reply PONG) belongs to the session: it is only sent once the server confirmed the session and
+     * carries the next sequence number (unless it is a retransmit that already has one).
+     *
+     * @return the message's sequence number, or -1 if it was not written
+     */
+    private long sendMessage(Message msg) {
         if (msg == null) {
-            return;
+            return -1;
         }
         DataOutputStream outStream = this.out;
         if (outStream == null) {
-            return;
+            return -1;
+        }
+        boolean control = "AUTH".equals(msg.messageType) || "RESUME".equals(msg.messageType)
+                || "PONG".equals(msg.messageType);
+        if (!control && !sessionReady) {
+            return -1;
         }
         synchronized (sendLock) {
+            long seq = -1;
+            if (!control) {
+                seq = parseLong(msg.getString("seq"));
+                if (seq <= 0) {
+                    seq = ++sessionSeq;
+                    msg.put("seq", String.valueOf(seq));
+                }
+            }
             try {
                 Message.write(outStream, msg);
+                return seq;
             } catch (IOException e) {
-                handleConnectionLoss("Senden fehlgeschlagen: " + shortMessage(e));
+                if (sessionId == null) {
+                    handleConnectionLoss("Senden fehlgeschlagen: " + shortMessage(e));
+                } else {
+                    // the listener notices the closed socket and resumes the session
+                    closeSilently(socket);
+                }
+                return -1;
             }
         }
     }
 
     private void closeConnection() {
         running = false;
+        for (String hash : requestedBlobs) {
+            blobCache.discard(hash);
+        }
+        requestedBlobs.clear();
+        pendingTask = null;
         closeSilently(socket);
         closeSilently(in);
         closeSilently(out);
@@ -433,6 +919,17 @@ public class NetworkClientBridge implements UI.ClientBridge {
         }
     }
 
+    private long parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private String shortMessage(Exception e) {
         if (e == null) {
             return "";
@@ -465,4 +962,8 @@ public class NetworkClientBridge implements UI.ClientBridge {
             }
         }
     }
+
+    private record PendingTask(String taskId, String question, List<String> answers, int taskNumber,
+                               boolean preview, String taskType, List<String> blobs, Set<String> missing) {
+    }
 }
@@ -693,6 +693,7 @@ public class UI extends JFrame {
         SubmitListener onSubmit; Runnable onNext; Runnable onEnd; Runnable onBack;
         private final JLabel heading = h1("Aufgabe 1");
         private final JTextArea question = new JTextArea();
+        private final JPanel attachmentHolder = new JPanel();
         private final JPanel answerHolder = new JPanel();
         private final JButton backButton = pill("Zurueck");
         //private final JButton submitButton = pill("Antwort speichern");
@@ -706,7 +707,11 @@ public class UI extends JFrame {
             JPanel center = new JPanel(); center.setOpaque(false); center.setLayout(new BorderLayout(8,8));
             question.setLineWrap(true); question.setWrapStyleWord(true); question.setEditable(false);
             question.setBackground(PANEL); question.setForeground(TEXT); question.setFont(question.getFont().deriveFont(15f));
-            center.add(question, BorderLayout.NORTH);
+            JPanel questionBlock = new JPanel(new BorderLayout(0, 8)); questionBlock.setOpaque(false);
+            questionBlock.add(question, BorderLayout.NORTH);
+            attachmentHolder.setOpaque(false); attachmentHolder.setLayout(new BoxLayout(attachmentHolder, BoxLayout.Y_AXIS));
+            questionBlock.add(attachmentHolder, BorderLayout.CENTER);
+            center.add(questionBlock, BorderLayout.NORTH);
 
             answerHolder.setOpaque(false); answerHolder.setLayout(new BoxLayout(answerHolder, BoxLayout.Y_AXIS));
             center.add(answerHolder, BorderLayout.CENTER);
@@ -760,6 +765,7 @@ public class UI extends JFrame {
                 heading.setText("Aufgabe");
             }
             question.setText(t.question);
+            showAttachments(t.attachments);
             answerHolder.removeAll();
             if("SingleChoice".equalsIgnoreCase(t.taskType)){
                 ButtonGroup g = new ButtonGroup();
@@ -803,6 +809,25 @@ public class UI extends JFrame {
             answerHolder.revalidate(); answerHolder.repaint();
         }
 
+        private void showAttachments(List<File> attachments) {
+            attachmentHolder.removeAll();
+            for (File file : attachments) {
+                ImageIcon icon = new ImageIcon(file.getAbsolutePath());
+                if (icon.getIconWidth() <= 0) {
+                    continue;
+                }
+                if (icon.getIconWidth() > 640) {
+                    int height = Math.max(1, icon.getIconHeight() * 640 / icon.getIconWidth());
+                    icon = new ImageIcon(icon.getImage().getScaledInstance(640, height, Image.SCALE_SMOOTH));
+                }
+                JLabel image = new JLabel(icon);
+                image.setAlignmentX(Component.LEFT_ALIGNMENT);
+                attachmentHolder.add(image);
+            }
+            attachmentHolder.setVisible(attachmentHolder.getComponentCount() > 0);
+            attachmentHolder.revalidate(); attachmentHolder.repaint();
+        }
+
         private void applySavedAnswers(List<String> savedAnswers) {
             if (savedAnswers == null || savedAnswers.isEmpty()) {
                 return;
@@ -955,8 +980,13 @@ public class UI extends JFrame {
 
     public static class TaskViewModel {
         public final String taskId, question, taskType; public final int taskNumber; public final List<String> answers; public final boolean preview;
+        public final List<File> attachments;
         public TaskViewModel(String taskId, String question, List<String> answers, int taskNumber, boolean preview, String taskType){
+            this(taskId, question, answers, taskNumber, preview, taskType, List.of());
+        }
+        public TaskViewModel(String taskId, String question, List<String> answers, int taskNumber, boolean preview, String taskType, List<File> attachments){
             this.taskId = taskId; this.question = question; this.answers = answers; this.taskNumber = taskNumber; this.preview = preview; this.taskType = taskType;
+            this.attachments = attachments == null ? List.of() : attachments;
         }
     }
     public record OverviewRow(String taskId, String question, String selectedAnswer){}
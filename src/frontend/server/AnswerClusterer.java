@@ -0,0 +1,190 @@
+package frontend.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @title AnswerClusterer
+ * @short Fasst gleiche und nahezu gleiche Freitextantworten zu Gruppen zusammen, die gemeinsam bewertet werden.
+ *
+ * Antworten werden normalisiert (Gross-/Kleinschreibung, Leerraum, Umlaute, Satzzeichen) und zunaechst exakt
+ * gruppiert. Die verbleibenden unterschiedlichen Texte werden ueber Trigramm-Jaccard verglichen; ein
+ * Praefix-Index (seltenste Trigramme zuerst) begrenzt die Vergleiche auf Paare, die die Schwelle erreichen koennen.
+ * Jede Gruppe fuehrt ihre unterschiedlichen Textvarianten mit, damit vor einer gemeinsamen Bewertung alle sichtbar sind.
+ */
+final class AnswerClusterer {
+
+    static final double DEFAULT_THRESHOLD = 0.8;
+
+    /** Ein Wortlaut innerhalb einer Gruppe: Originaltext der ersten Antwort und Anzahl der Antworten mit diesem Wortlaut. */
+    record Variant(String text, int count) {
+    }
+
+    record Cluster(List<CorrectionService.CorrectionAnswer> answers, List<Variant> variants) {
+        CorrectionService.CorrectionAnswer representative() {
+            return answers.get(0);
+        }
+
+        /** Alle Antworten sind nach der Normalisierung gleich; sonst gehoeren Nahe-Duplikate dazu. */
+        boolean exact() {
+            return variants.size() == 1;
+        }
+
+        List<Integer> antwortIds() {
+            List<Integer> ids = new ArrayList<>(answers.size());
+            for (CorrectionService.CorrectionAnswer answer : answers) {
+                ids.add(answer.antwortId());
+            }
+            return ids;
+        }
+    }
+
+    private AnswerClusterer() {
+    }
+
+    /**
+     * @title cluster
+     * @short Gruppiert Antworten; die Reihenfolge folgt der Gruppengroesse, innerhalb einer Gruppe der Eingabe.
+     * @args List answers, double threshold (Jaccard-Schwelle fuer Nahe-Duplikate, 1.0 = nur exakte Gruppen)
+     */
+    static List<Cluster> cluster(List<CorrectionService.CorrectionAnswer> answers, double threshold) {
+        Map<String, List<CorrectionService.CorrectionAnswer>> exactGroups = new LinkedHashMap<>();
+        for (CorrectionService.CorrectionAnswer answer : answers) {
+            exactGroups.computeIfAbsent(normalize(answer.studentAnswer()), key -> new ArrayList<>()).add(answer);
+        }
+        List<String> keys = new ArrayList<>(exactGroups.keySet());
+        int[] parent = new int[keys.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        if (threshold < 1.0) {
+            linkNearDuplicates(keys, threshold, parent);
+        }
+
+        Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            members.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+        }
+        List<Cluster> clusters = new ArrayList<>(members.size());
+        for (List<Integer> group : members.values()) {
+            List<CorrectionService.CorrectionAnswer> grouped = new ArrayList<>();
+            List<Variant> variants = new ArrayList<>(group.size());
+            for (int index : group) {
+                List<CorrectionService.CorrectionAnswer> same = exactGroups.get(keys.get(index));
+                grouped.addAll(same);
+                variants.add(new Variant(same.get(0).studentAnswer(), same.size()));
+            }
+            clusters.add(new Cluster(List.copyOf(grouped), List.copyOf(variants)));
+        }
+        clusters.sort(Comparator.comparingInt((Cluster c) -> c.answers().size()).reversed());
+        return clusters;
+    }
+
+    /**
+     * @title normalize
+     * @short Kleinschreibung, Umlaute ausgeschrieben, Satzzeichen entfernt und Leerraum zusammengefasst.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.GERMAN)
+                .replace("\u00e4", "ae")
+                .replace("\u00f6", "oe")
+                .replace("\u00fc", "ue")
+                .replace("\u00df", "ss");
+        StringBuilder result = new StringBuilder(lower.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && result.length() > 0) {
+                    result.append(' ');
+                }
+                pendingSpace = false;
+                result.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return result.toString();
+    }
+
+    private static void linkNearDuplicates(List<String> keys, double threshold, int[] parent) {
+        List<String[]> trigrams = new ArrayList<>(keys.size());
+        Map<String, Integer> frequency = new HashMap<>();
+        for (String key : keys) {
+            String[] grams = trigrams(key);
+            trigrams.add(grams);
+            for (String gram : grams) {
+                frequency.merge(gram, 1, Integer::sum);
+            }
+        }
+        Comparator<String> rareFirst = Comparator.<String>comparingInt(frequency::get).thenComparing(Comparator.naturalOrder());
+        Map<String, List<Integer>> prefixIndex = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String[] grams = trigrams.get(i);
+            if (grams.length == 0) {
+                continue;
+            }
+            Arrays.sort(grams, rareFirst);
+            int prefixLength = grams.length - (int) Math.ceil(threshold * grams.length) + 1;
+            Set<Integer> candidates = new LinkedHashSet<>();
+            for (int p = 0; p < prefixLength; p++) {
+                List<Integer> posting = prefixIndex.computeIfAbsent(grams[p], gram -> new ArrayList<>());
+                candidates.addAll(posting);
+                posting.add(i);
+            }
+            for (int candidate : candidates) {
+                String[] other = trigrams.get(candidate);
+                int smaller = Math.min(grams.length, other.length);
+                int larger = Math.max(grams.length, other.length);
+                if (smaller < threshold * larger || find(parent, candidate) == find(parent, i)) {
+                    continue;
+                }
+                if (jaccard(grams, other) >= threshold) {
+                    parent[find(parent, i)] = find(parent, candidate);
+                }
+            }
+        }
+    }
+
+    private static String[] trigrams(String text) {
+        if (text.isEmpty()) {
+            return new String[0];
+        }
+        String padded = "  " + text + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams.toArray(new String[0]);
+    }
+
+    private static double jaccard(String[] a, String[] b) {
+        Set<String> left = Set.of(a);
+        int intersection = 0;
+        for (String gram : b) {
+            if (left.contains(gram)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.length + b.length - intersection);
+    }
+
+    private static int find(int[] parent, int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+}
@@ -0,0 +1,193 @@
+package frontend.server;
+
+import backend.server.DatabaseHandler;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @title AutoGrader
+ * @short Bewertet Single- und Multiple-Choice-Antworten eines Tests automatisch anhand von Aufgabe.korrekt.
+ *
+ * Die Antworten werden per Cursor gelesen, parallel auf einem ForkJoinPool ausgewertet und gesammelt in
+ * einer Transaktion geschrieben. Von Hand bewertete Antworten werden weder gelesen noch ueberschrieben.
+ */
+final class AutoGrader {
+
+    /** Teilpunkte-Schema fuer Multiple-Choice-Aufgaben. */
+    enum PartialCredit {
+        ALL_OR_NOTHING("Alles oder nichts"),
+        PER_OPTION("Je Option (richtig markiert/unmarkiert)"),
+        RIGHT_MINUS_WRONG("Richtige minus falsche Kreuze");
+
+        private final String label;
+
+        PartialCredit(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    record Report(int graded, int skippedManual, int skippedWithoutSolution, long elapsedNanos) {
+        double millisPerThousand() {
+            return graded == 0 ? 0.0 : elapsedNanos / 1_000_000.0 * 1000.0 / graded;
+        }
+
+        String summary() {
+            return String.format(Locale.GERMAN,
+                    "%d Antworten automatisch bewertet, %d von Hand bewertete uebersprungen, %d ohne hinterlegte Loesung.%n"
+                            + "Dauer %.1f ms (%.1f ms je 1.000 Antworten).",
+                    graded, skippedManual, skippedWithoutSolution, elapsedNanos / 1_000_000.0, millisPerThousand());
+        }
+    }
+
+    private record PendingAnswer(int antwortId, boolean multi, String antwort, String options, String correct) {
+    }
+
+    private AutoGrader() {
+    }
+
+    static Report grade(DatabaseHandler db, int testId, PartialCredit scheme, double pointsPerTask) throws SQLException {
+        long start = System.nanoTime();
+        List<PendingAnswer> pending = new ArrayList<>();
+        int[] skipped = new int[2];
+        db.streamQuery("SELECT a.idAntwort, au.typ, a.antwort, au.loesung, au.korrekt, b.idAntwort, b.quelle "
+                + "FROM Antwort a "
+                + "JOIN Aufgabe au ON au.idAufgabe = a.idAufgabe "
+                + "LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                + "WHERE a.idTest = ? AND lower(au.typ) IN ('singlechoice', 'multichoice')", List.of(testId), rs -> {
+            boolean graded = rs.getObject(6) != null;
+            if (graded && !DatabaseHandler.BEWERTUNG_AUTO.equals(rs.getString(7))) {
+                skipped[0]++;
+                return true;
+            }
+            String correct = rs.getString(5);
+            if (correct == null || correct.isBlank()) {
+                skipped[1]++;
+                return true;
+            }
+            boolean multi = "multichoice".equalsIgnoreCase(rs.getString(2));
+            pending.add(new PendingAnswer(rs.getInt(1), multi, rs.getString(3), rs.getString(4), correct));
+            return true;
+        });
+
+        List<DatabaseHandler.BewertungEntry> entries;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        try {
+            entries = pool.submit(() -> pending.parallelStream()
+                    .map(answer -> evaluate(answer, scheme, pointsPerTask))
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Automatische Bewertung unterbrochen.", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Automatische Bewertung fehlgeschlagen: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        int written = db.upsertBewertungen(entries, DatabaseHandler.BEWERTUNG_AUTO, now);
+        return new Report(written, skipped[0], skipped[1], System.nanoTime() - start);
+    }
+
+    private static DatabaseHandler.BewertungEntry evaluate(PendingAnswer answer, PartialCredit scheme, double pointsPerTask) {
+        List<String> options = split(answer.options());
+        Set<String> correct = resolveChoices(split(answer.correct()), options);
+        Set<String> selected = resolveChoices(split(answer.antwort()), options);
+        double share;
+        if (!answer.multi()) {
+            share = selected.equals(correct) ? 1.0 : 0.0;
+        } else {
+            share = partialShare(selected, correct, options, scheme);
+        }
+        double points = Math.round(share * pointsPerTask * 100.0) / 100.0;
+        String bewertung = share >= 1.0 ? "richtig" : share <= 0.0 ? "falsch" : "teilweise richtig";
+        return new DatabaseHandler.BewertungEntry(answer.antwortId(), bewertung, null, points);
+    }
+
+    private static double partialShare(Set<String> selected, Set<String> correct, List<String> options, PartialCredit scheme) {
+        return switch (scheme) {
+            case ALL_OR_NOTHING -> selected.equals(correct) ? 1.0 : 0.0;
+            case PER_OPTION -> {
+                Set<String> universe = new LinkedHashSet<>();
+                for (String option : options) {
+                    universe.add(normalize(option));
+                }
+                universe.addAll(correct);
+                universe.addAll(selected);
+                int matching = 0;
+                for (String option : universe) {
+                    if (selected.contains(option) == correct.contains(option)) {
+                        matching++;
+                    }
+                }
+                yield universe.isEmpty() ? 0.0 : (double) matching / universe.size();
+            }
+            case RIGHT_MINUS_WRONG -> {
+                int right = 0;
+                int wrong = 0;
+                for (String option : selected) {
+                    if (correct.contains(option)) {
+                        right++;
+                    } else {
+                        wrong++;
+                    }
+                }
+                yield correct.isEmpty() ? 0.0 : Math.max(0.0, (double) (right - wrong) / correct.size());
+            }
+        };
+    }
+
+    /**
+     * Maps entries to normalized option texts. Solutions may also name options by position ("2") or letter ("B").
+     */
+    private static Set<String> resolveChoices(List<String> values, List<String> options) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            int index = optionIndex(normalized, options.size());
+            boolean isOptionText = options.stream().anyMatch(option -> normalize(option).equals(normalized));
+            result.add(index >= 0 && !isOptionText ? normalize(options.get(index)) : normalized);
+        }
+        return result;
+    }
+
+    private static int optionIndex(String value, int optionCount) {
+        if (value.length() == 1 && value.charAt(0) >= 'a' && value.charAt(0) < 'a' + optionCount) {
+            return value.charAt(0) - 'a';
+        }
+        try {
+            int number = Integer.parseInt(value);
+            return number >= 1 && number <= optionCount ? number - 1 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return List.of(value.split("\\|\\|"));
+    }
+
+    private static String normalize(String value) {
+        return Objects.requireNonNullElse(value, "").trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
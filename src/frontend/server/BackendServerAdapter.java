@@ -1,10 +1,16 @@
 package frontend.server;
 
 import backend.server.Server;
+import backend.server.ServerEvents;
+import backend.server.SessionSnapshot;
 
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import javax.swing.SwingUtilities;
 import java.util.stream.Collectors;
 
 /**
@@ -49,7 +55,10 @@ final class BackendServerAdapter implements IServer {
 
     @Override
     public DashboardState getDashboardState() {
-        Server.DashboardState state = delegate.getDashboardState();
+        return toDashboardState(delegate.getDashboardState());
+    }
+
+    private static DashboardState toDashboardState(Server.DashboardState state) {
         return state == null ? DashboardState.ROOT : DashboardState.valueOf(state.name());
     }
 
@@ -76,6 +85,15 @@ final class BackendServerAdapter implements IServer {
         return new ImportResult(result.isSuccess(), result.getMessage());
     }
 
+    @Override
+    public ImportResult importRosterFromFile(File file) {
+        Server.ImportResult result = delegate.importRosterFromFile(file);
+        if (result == null) {
+            return new ImportResult(false, "Kein Ergebnis vom Server erhalten.");
+        }
+        return new ImportResult(result.isSuccess(), result.getMessage());
+    }
+
     @Override
     public void selectTestById(int id) {
         delegate.selectTestById(id);
@@ -106,6 +124,16 @@ final class BackendServerAdapter implements IServer {
         delegate.startTestRun();
     }
 
+    @Override
+    public void setBundleDelivery(boolean enabled) {
+        delegate.setBundleDelivery(enabled);
+    }
+
+    @Override
+    public boolean isBundleDelivery() {
+        return delegate.isBundleDelivery();
+    }
+
     @Override
     public void pauseTestRun() {
         delegate.pauseTestRun();
@@ -123,7 +151,10 @@ final class BackendServerAdapter implements IServer {
 
     @Override
     public TimerStatus getTimerStatus() {
-        Server.TimerStatus status = delegate.getTimerStatus();
+        return toTimerStatus(delegate.getTimerStatus());
+    }
+
+    private static TimerStatus toTimerStatus(Server.TimerStatus status) {
         if (status == null) {
             return new TimerStatus(0, 0, false, false);
         }
@@ -137,7 +168,11 @@ final class BackendServerAdapter implements IServer {
 
     @Override
     public List<ClientSummary> getClientSummaries() {
-        return delegate.getClientSummaries().stream()
+        return toClientSummaries(delegate.getClientSummaries());
+    }
+
+    private static List<ClientSummary> toClientSummaries(List<Server.ClientSummary> clients) {
+        return clients.stream()
                 .map(cs -> new ClientSummary(
                         cs.clientId(),
                         cs.studentName(),
@@ -146,20 +181,27 @@ final class BackendServerAdapter implements IServer {
                         cs.token(),
                         cs.currentTaskNumber(),
                         cs.totalTasks(),
-                        cs.handRaised()
+                        cs.handRaised(),
+                        cs.rttMillis()
                 ))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Warning> getActiveWarnings() {
-        return delegate.getActiveWarnings().stream()
+        return toWarnings(delegate.getActiveWarnings());
+    }
+
+    private static List<Warning> toWarnings(List<Server.ClientWarning> warnings) {
+        return warnings.stream()
                 .map(w -> new Warning(
                         w.getId(),
                         w.getClientId(),
                         w.getStudentName(),
                         w.getMessage(),
-                        w.getTimestamp()
+                        w.getTimestamp(),
+                        w.getCount(),
+                        w.getFirstTimestamp()
                 ))
                 .collect(Collectors.toList());
     }
@@ -178,4 +220,60 @@ final class BackendServerAdapter implements IServer {
     public void endRunningTest() {
         delegate.endRunningTest();
     }
+
+    @Override
+    public int getSelectedTestId() {
+        return delegate.getSelectedTestId();
+    }
+
+    @Override
+    public AutoCloseable subscribeAnswers(AnswerListener listener) {
+        return delegate.getAnswerFeed().subscribe(batch -> listener.onAnswers(
+                batch.events().stream()
+                        .map(e -> new AnswerEvent(e.idAntwort(), e.idSchueler(), e.idTest(), e.idAufgabe(),
+                                e.antwort(), e.receivedAt()))
+                        .collect(Collectors.toList()),
+                batch.dropped()));
+    }
+
+    @Override
+    public AutoCloseable addListener(Listener listener) {
+        return delegate.getEvents().subscribe(kinds -> deliver(listener, kinds));
+    }
+
+    /**
+     * Maps only the parts affected by the coalesced events from one published session snapshot, so all parts of an
+     * update are mutually consistent and nothing waits for the server lock, and hands them to the EDT. Waiting for the EDT keeps at most one update in flight; changes made
+     * meanwhile are merged into the next one.
+     */
+    private void deliver(Listener listener, Set<ServerEvents.Kind> kinds) {
+        Set<Event> events = EnumSet.noneOf(Event.class);
+        for (ServerEvents.Kind kind : kinds) {
+            events.add(Event.valueOf(kind.name()));
+        }
+        boolean stateChanged = events.contains(Event.STATE_CHANGED);
+        boolean clientsChanged = stateChanged || events.contains(Event.CLIENT_JOINED) || events.contains(Event.CLIENT_LEFT)
+                || events.contains(Event.PROGRESS_CHANGED) || events.contains(Event.HAND_RAISED);
+        SessionSnapshot snapshot = delegate.getSnapshot();
+        StateInfo state = stateChanged
+                ? new StateInfo(toDashboardState(snapshot.state()), snapshot.boundIp(), snapshot.selectedTestName(),
+                        snapshot.selectedClassName(), snapshot.selectedTaskCount())
+                : null;
+        TimerStatus timer = stateChanged || events.contains(Event.TIMER_TICK)
+                ? toTimerStatus(snapshot.timerStatus(System.currentTimeMillis()))
+                : null;
+        List<ClientSummary> clients = clientsChanged ? toClientSummaries(snapshot.clients()) : null;
+        List<Warning> warnings = stateChanged || events.contains(Event.WARNING) ? toWarnings(snapshot.warnings()) : null;
+        Update update = new Update(Set.copyOf(events), state, timer, clients, warnings);
+        try {
+            SwingUtilities.invokeAndWait(() -> listener.onUpdate(update));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 }
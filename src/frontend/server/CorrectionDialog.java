@@ -1,19 +1,34 @@
 package frontend.server;
 
+import backend.server.DatabaseHandler;
+import backend.server.GradeScale;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.AbstractTableModel;
 
-/** Dialog zum Durchklicken des Korrekturmodus. */
+/**
+ * Dialog zum Durchklicken des Korrekturmodus. Alle Datenbankzugriffe laufen auf einem eigenen Worker-Thread;
+ * veraltete Auswahl-Ladevorgaenge werden verworfen und die Antworten des naechsten Eintrags vorab geladen.
+ */
 class CorrectionDialog extends JDialog implements AutoCloseable {
 
     private enum CorrectionMode {
@@ -21,6 +36,9 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         TASK
     }
 
+    /** Takt, in dem auf Bewertungen anderer Lehrkraefte (auch aus anderen Prozessen) geprueft wird. */
+    private static final int REMOTE_POLL_MILLIS = 2000;
+
     private final CorrectionService service;
 
     private final JComboBox<CorrectionService.CorrectionTest> testCombo = new JComboBox<>();
@@ -31,7 +49,10 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
     private final JList<CorrectionService.CorrectionTask> taskList = new JList<>(taskModel);
     private final CardLayout listCardLayout = new CardLayout();
     private final JPanel listCardPanel = new JPanel(listCardLayout);
-    private final CorrectionAnswerTableModel answerModel = new CorrectionAnswerTableModel();
+    private final Map<Integer, List<Integer>> clusterMembers = new ConcurrentHashMap<>();
+    /** Unterschiedliche Wortlaute je Gruppenvertreter; nur fuer Gruppen mit Nahe-Duplikaten eingetragen. */
+    private final Map<Integer, List<AnswerClusterer.Variant>> clusterVariants = new ConcurrentHashMap<>();
+    private final CorrectionAnswerTableModel answerModel = new CorrectionAnswerTableModel(clusterMembers);
     private final JTable answerTable = new JTable(answerModel);
 
     private final JTextArea questionArea = buildReadOnlyArea();
@@ -44,14 +65,30 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
 
     private final JRadioButton studentModeButton = new JRadioButton("Schuelermodus");
     private final JRadioButton taskModeButton = new JRadioButton("Aufgabenmodus");
+    private final JCheckBox groupAnswersBox = new JCheckBox("Gleiche Antworten gruppieren");
 
-    private final JComboBox<CorrectionService.CorrectionGradeScale> gradeScaleCombo = new JComboBox<>();
+    private final JComboBox<GradeScale> gradeScaleCombo = new JComboBox<>();
     private final JTextField maxPointsField = new JTextField(6);
     private final AccentButton gradeButton = new AccentButton("Note berechnen");
+    private final AccentButton classGradeButton = new AccentButton("Noten fuer Klasse");
+    private final AccentButton autoGradeButton = new AccentButton("Automatisch bewerten");
+    private final AccentButton similarityButton = new AccentButton("Aehnlichkeiten pruefen");
     private final JLabel gradeStatusLabel = new JLabel(" ");
 
     private final Map<Integer, GradeConfig> gradeConfigs = new HashMap<>();
 
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Korrektur-Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, List<CorrectionService.CorrectionAnswer>> prefetchedAnswers = new ConcurrentHashMap<>();
+    private Future<?> pendingSelection;
+    private Future<?> remotePoll;
+    private final Timer remotePollTimer = new Timer(REMOTE_POLL_MILLIS, ignored -> pollRemoteChanges());
+    private int selectionGeneration;
+    private int gradeGeneration;
+
     private CorrectionMode mode = CorrectionMode.STUDENT;
 
     CorrectionDialog(JFrame owner) throws Exception {
@@ -60,6 +97,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         buildUi();
         loadGradeScales();
         loadTests();
+        remotePollTimer.start();
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
@@ -122,6 +160,15 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         modeGroup.add(taskModeButton);
         modeButtons.add(studentModeButton);
         modeButtons.add(taskModeButton);
+        groupAnswersBox.setOpaque(false);
+        groupAnswersBox.setFont(ServerTheme.FONT_BODY);
+        groupAnswersBox.setToolTipText("Im Aufgabenmodus werden gleiche und nahezu gleiche Antworten gemeinsam bewertet.");
+        groupAnswersBox.addActionListener(ignored -> {
+            prefetchedAnswers.clear();
+            answerModel.setGrouped(groupAnswersBox.isSelected());
+            onTaskSelected();
+        });
+        modeButtons.add(groupAnswersBox);
         modePanel.add(modeButtons);
 
         combos.add(testPanel);
@@ -192,6 +239,20 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         panel.add(scaleLabel, gbc);
 
         gradeScaleCombo.setRenderer(new ComboRenderer());
+        gradeScaleCombo.addPopupMenuListener(new javax.swing.event.PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(javax.swing.event.PopupMenuEvent e) {
+                refreshGradeScales();
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(javax.swing.event.PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(javax.swing.event.PopupMenuEvent e) {
+            }
+        });
         gradeScaleCombo.addActionListener(ignored -> {
             updateGradeButtonState();
             updateGradeStatusLabel(null);
@@ -220,11 +281,26 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         gbc.weightx = 0;
         panel.add(gradeButton, gbc);
 
+        classGradeButton.addActionListener(ignored -> calculateGradesForClass());
+        gbc.gridx = 5;
+        gbc.gridy = 0;
+        panel.add(classGradeButton, gbc);
+
+        autoGradeButton.addActionListener(ignored -> autoGradeSelectedTest());
+        gbc.gridx = 6;
+        gbc.gridy = 0;
+        panel.add(autoGradeButton, gbc);
+
+        similarityButton.addActionListener(ignored -> showSimilarAnswers());
+        gbc.gridx = 7;
+        gbc.gridy = 0;
+        panel.add(similarityButton, gbc);
+
         gradeStatusLabel.setForeground(ServerTheme.TEXT_SECONDARY);
         gradeStatusLabel.setFont(ServerTheme.FONT_BODY);
         gbc.gridx = 0;
         gbc.gridy = 1;
-        gbc.gridwidth = 5;
+        gbc.gridwidth = 8;
         gbc.insets = new Insets(6, 0, 0, 0);
         gbc.fill = GridBagConstraints.HORIZONTAL;
         panel.add(gradeStatusLabel, gbc);
@@ -341,8 +417,8 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
     }
 
     private void loadGradeScales() {
-        DefaultComboBoxModel<CorrectionService.CorrectionGradeScale> model = new DefaultComboBoxModel<>();
-        for (CorrectionService.CorrectionGradeScale scale : service.loadGradeScales()) {
+        DefaultComboBoxModel<GradeScale> model = new DefaultComboBoxModel<>();
+        for (GradeScale scale : service.loadGradeScales()) {
             model.addElement(scale);
         }
         gradeScaleCombo.setModel(model);
@@ -350,32 +426,56 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         updateGradeButtonState();
     }
 
-    private void loadTests() {
-        DefaultComboBoxModel<CorrectionService.CorrectionTest> model = new DefaultComboBoxModel<>();
-        for (CorrectionService.CorrectionTest test : service.loadTests()) {
-            model.addElement(test);
+    /** Uebernimmt zwischenzeitlich geaenderte Massstab-Dateien, ohne die aktuelle Auswahl zu verlieren. */
+    private void refreshGradeScales() {
+        List<GradeScale> current = service.loadGradeScales();
+        ComboBoxModel<GradeScale> model = gradeScaleCombo.getModel();
+        boolean unchanged = model.getSize() == current.size();
+        for (int i = 0; unchanged && i < current.size(); i++) {
+            unchanged = model.getElementAt(i) == current.get(i);
         }
-        testCombo.setModel(model);
-        if (model.getSize() > 0) {
-            testCombo.setSelectedIndex(0);
+        if (unchanged) {
+            return;
         }
-        onTestSelected();
+        GradeScale selected = (GradeScale) gradeScaleCombo.getSelectedItem();
+        DefaultComboBoxModel<GradeScale> refreshed = new DefaultComboBoxModel<>();
+        current.forEach(refreshed::addElement);
+        gradeScaleCombo.setModel(refreshed);
+        gradeScaleCombo.setSelectedItem(selected == null ? null : findScaleById(selected.id()));
+        updateGradeButtonState();
+    }
+
+    private void loadTests() {
+        submit(service::loadTests, tests -> {
+            DefaultComboBoxModel<CorrectionService.CorrectionTest> model = new DefaultComboBoxModel<>();
+            for (CorrectionService.CorrectionTest test : tests) {
+                model.addElement(test);
+            }
+            testCombo.setModel(model);
+            if (model.getSize() > 0) {
+                testCombo.setSelectedIndex(0);
+            }
+            onTestSelected();
+        });
     }
 
     private void onTestSelected() {
         CorrectionService.CorrectionTest selectedTest = (CorrectionService.CorrectionTest) testCombo.getSelectedItem();
-        DefaultComboBoxModel<CorrectionService.CorrectionClass> classModel = new DefaultComboBoxModel<>();
-        if (selectedTest != null) {
-            for (CorrectionService.CorrectionClass c : service.loadClasses(selectedTest.id())) {
+        prefetchedAnswers.clear();
+        answerModel.setAnswers(List.of());
+        clearDetails();
+        loadSelection(() -> selectedTest == null ? List.<CorrectionService.CorrectionClass>of() : service.loadClasses(selectedTest.id()), classes -> {
+            DefaultComboBoxModel<CorrectionService.CorrectionClass> classModel = new DefaultComboBoxModel<>();
+            for (CorrectionService.CorrectionClass c : classes) {
                 classModel.addElement(c);
             }
-        }
-        classCombo.setModel(classModel);
-        if (classModel.getSize() > 0) {
-            classCombo.setSelectedIndex(0);
-        }
-        applyGradeConfigForTest();
-        reloadPrimaryList();
+            classCombo.setModel(classModel);
+            if (classModel.getSize() > 0) {
+                classCombo.setSelectedIndex(0);
+            }
+            applyGradeConfigForTest();
+            reloadPrimaryList();
+        });
     }
 
     private void onClassSelected() {
@@ -393,25 +493,30 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             maybeRefreshGradeStatus();
             return;
         }
+        listCardLayout.show(listCardPanel, mode.name());
         if (mode == CorrectionMode.STUDENT) {
-            studentModel.clear();
-            for (CorrectionService.CorrectionStudent student : service.loadStudents(test.id(), klasse.id())) {
-                studentModel.addElement(student);
-            }
-            if (!studentModel.isEmpty()) {
-                studentList.setSelectedIndex(0);
-            }
+            loadSelection(() -> service.loadStudents(test.id(), klasse.id()), students -> {
+                studentModel.clear();
+                for (CorrectionService.CorrectionStudent student : students) {
+                    studentModel.addElement(student);
+                }
+                if (!studentModel.isEmpty()) {
+                    studentList.setSelectedIndex(0);
+                }
+                maybeRefreshGradeStatus();
+            });
         } else {
-            taskModel.clear();
-            for (CorrectionService.CorrectionTask task : service.loadTasks(test.id(), klasse.id())) {
-                taskModel.addElement(task);
-            }
-            if (!taskModel.isEmpty()) {
-                taskList.setSelectedIndex(0);
-            }
+            loadSelection(() -> service.loadTasks(test.id(), klasse.id()), tasks -> {
+                taskModel.clear();
+                for (CorrectionService.CorrectionTask task : tasks) {
+                    taskModel.addElement(task);
+                }
+                if (!taskModel.isEmpty()) {
+                    taskList.setSelectedIndex(0);
+                }
+                maybeRefreshGradeStatus();
+            });
         }
-        listCardLayout.show(listCardPanel, mode.name());
-        maybeRefreshGradeStatus();
     }
 
     private void onStudentSelected() {
@@ -426,15 +531,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             return;
         }
         answerModel.setMode(CorrectionMode.STUDENT);
-        List<CorrectionService.CorrectionAnswer> answers = service.loadAnswers(test.id(), student.id());
-        answerModel.setAnswers(answers);
-        if (!answers.isEmpty()) {
-            answerTable.setRowSelectionInterval(0, 0);
-            showAnswerDetails(0);
-        } else {
-            clearDetails();
-        }
-        maybeRefreshGradeStatus();
+        showAnswersFor(studentKey(test.id(), student.id()), () -> service.loadAnswers(test.id(), student.id()));
     }
 
     private void onTaskSelected() {
@@ -450,7 +547,33 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             return;
         }
         answerModel.setMode(CorrectionMode.TASK);
-        List<CorrectionService.CorrectionAnswer> answers = service.loadTaskAnswers(test.id(), klasse.id(), task.id());
+        showAnswersFor(taskKey(test.id(), klasse.id(), task.id()), taskAnswersLoader(test.id(), klasse.id(), task.id()));
+    }
+
+    /**
+     * @title showAnswersFor
+     * @short Zeigt vorab geladene Antworten sofort an oder laedt sie im Hintergrund; danach wird der naechste Eintrag vorgeladen.
+     */
+    private void showAnswersFor(String key, Callable<List<CorrectionService.CorrectionAnswer>> loader) {
+        List<CorrectionService.CorrectionAnswer> prefetched = prefetchedAnswers.remove(key);
+        if (prefetched != null) {
+            if (pendingSelection != null) {
+                pendingSelection.cancel(false);
+            }
+            selectionGeneration++;
+            applyAnswers(prefetched);
+            prefetchNext();
+            return;
+        }
+        answerModel.setAnswers(List.of());
+        clearDetails();
+        loadSelection(loader, answers -> {
+            applyAnswers(answers);
+            prefetchNext();
+        });
+    }
+
+    private void applyAnswers(List<CorrectionService.CorrectionAnswer> answers) {
         answerModel.setAnswers(answers);
         if (!answers.isEmpty()) {
             answerTable.setRowSelectionInterval(0, 0);
@@ -461,6 +584,87 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         maybeRefreshGradeStatus();
     }
 
+    /** Laedt die Antworten des folgenden Schuelers bzw. der folgenden Aufgabe, waehrend der aktuelle Eintrag bearbeitet wird. */
+    private void prefetchNext() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        if (test == null) {
+            return;
+        }
+        String key;
+        Callable<List<CorrectionService.CorrectionAnswer>> loader;
+        if (mode == CorrectionMode.STUDENT) {
+            int next = studentList.getSelectedIndex() + 1;
+            if (next <= 0 || next >= studentModel.size()) {
+                return;
+            }
+            CorrectionService.CorrectionStudent student = studentModel.get(next);
+            key = studentKey(test.id(), student.id());
+            loader = () -> service.loadAnswers(test.id(), student.id());
+        } else {
+            CorrectionService.CorrectionClass klasse = getSelectedClass();
+            int next = taskList.getSelectedIndex() + 1;
+            if (klasse == null || next <= 0 || next >= taskModel.size()) {
+                return;
+            }
+            CorrectionService.CorrectionTask task = taskModel.get(next);
+            key = taskKey(test.id(), klasse.id(), task.id());
+            loader = taskAnswersLoader(test.id(), klasse.id(), task.id());
+        }
+        if (prefetchedAnswers.containsKey(key)) {
+            return;
+        }
+        worker.submit(() -> {
+            try {
+                prefetchedAnswers.put(key, loader.call());
+            } catch (Exception ignored) {
+                // Vorabladen ist optional; bei Auswahl wird regulaer geladen
+            }
+        });
+    }
+
+    private static String studentKey(int testId, int studentId) {
+        return "S:" + testId + ":" + studentId;
+    }
+
+    private String taskKey(int testId, int classId, int taskId) {
+        return (groupAnswersBox.isSelected() ? "G:" : "T:") + testId + ":" + classId + ":" + taskId;
+    }
+
+    /**
+     * @title taskAnswersLoader
+     * @short Laedt die Antworten einer Aufgabe; bei aktiver Gruppierung nur einen Vertreter je Antwortgruppe.
+     */
+    private Callable<List<CorrectionService.CorrectionAnswer>> taskAnswersLoader(int testId, int classId, int taskId) {
+        if (!groupAnswersBox.isSelected()) {
+            return () -> service.loadTaskAnswers(testId, classId, taskId);
+        }
+        return () -> {
+            List<AnswerClusterer.Cluster> clusters = service.loadTaskAnswerClusters(testId, classId, taskId);
+            List<CorrectionService.CorrectionAnswer> representatives = new ArrayList<>(clusters.size());
+            for (AnswerClusterer.Cluster cluster : clusters) {
+                representatives.add(cluster.representative());
+                clusterMembers.put(cluster.representative().antwortId(), cluster.antwortIds());
+                if (cluster.exact()) {
+                    clusterVariants.remove(cluster.representative().antwortId());
+                } else {
+                    clusterVariants.put(cluster.representative().antwortId(), cluster.variants());
+                }
+            }
+            return representatives;
+        };
+    }
+
+    /** Antworten, die beim Speichern der gewaehlten Zeile gemeinsam bewertet werden (bei Gruppierung mehrere). */
+    private List<Integer> membersOf(CorrectionService.CorrectionAnswer answer) {
+        if (mode == CorrectionMode.TASK && groupAnswersBox.isSelected()) {
+            List<Integer> members = clusterMembers.get(answer.antwortId());
+            if (members != null) {
+                return members;
+            }
+        }
+        return List.of(answer.antwortId());
+    }
+
     private void showAnswerDetails(int row) {
         CorrectionService.CorrectionAnswer answer = answerModel.getAnswer(row);
         if (answer == null) {
@@ -469,11 +673,36 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         }
         questionArea.setText(Optional.ofNullable(answer.question()).orElse(""));
         solutionArea.setText(Optional.ofNullable(answer.solution()).orElse(""));
-        studentAnswerArea.setText(Optional.ofNullable(answer.studentAnswer()).orElse(""));
+        studentAnswerArea.setText(describeAnswerGroup(answer));
+        studentAnswerArea.setCaretPosition(0);
         bewertungField.setText(Optional.ofNullable(answer.bewertung()).orElse(""));
         kommentarArea.setText(Optional.ofNullable(answer.kommentar()).orElse(""));
         punkteField.setText(answer.punkte() == null ? "" : Double.toString(answer.punkte()));
-        studentField.setText(Optional.ofNullable(answer.studentName()).orElse(""));
+        int others = membersOf(answer).size() - 1;
+        String studentName = Optional.ofNullable(answer.studentName()).orElse("");
+        studentField.setText(others > 0 ? studentName + " und " + others + " weitere" : studentName);
+    }
+
+    /** Antworttext; bei einer Gruppe mit Nahe-Duplikaten alle Wortlaute, die mitbewertet werden. */
+    private String describeAnswerGroup(CorrectionService.CorrectionAnswer answer) {
+        String text = Optional.ofNullable(answer.studentAnswer()).orElse("");
+        List<AnswerClusterer.Variant> variants = variantsOf(answer);
+        if (variants.size() <= 1) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(variants.size()).append(" Varianten in dieser Gruppe:");
+        for (AnswerClusterer.Variant variant : variants) {
+            result.append("\n\n[").append(variant.count()).append("x] ").append(Optional.ofNullable(variant.text()).orElse(""));
+        }
+        return result.toString();
+    }
+
+    private List<AnswerClusterer.Variant> variantsOf(CorrectionService.CorrectionAnswer answer) {
+        if (mode == CorrectionMode.TASK && groupAnswersBox.isSelected()) {
+            return clusterVariants.getOrDefault(answer.antwortId(), List.of());
+        }
+        return List.of();
     }
 
     private void clearDetails() {
@@ -493,31 +722,351 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             return;
         }
         Double punkte = parsePoints();
-        service.saveEvaluation(answer.antwortId(), bewertungField.getText(), kommentarArea.getText(), punkte);
-        refreshAnswersAfterSave(answer);
-        maybeRefreshGradeStatus();
+        String bewertung = bewertungField.getText();
+        String kommentar = kommentarArea.getText();
+        List<Integer> members = membersOf(answer);
+        List<AnswerClusterer.Variant> variants = variantsOf(answer);
+        if (members.size() > 1 && variants.size() > 1) {
+            // Nahe-Duplikate koennen sich spuerbar unterscheiden: erst nach Bestaetigung fuer alle speichern
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "Diese Bewertung wird fuer " + members.size() + " Antworten in " + variants.size()
+                            + " verschiedenen Varianten gespeichert.\nAlle Varianten stehen im Antwortfeld. Fortfahren?",
+                    "Gruppe bewerten", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+            if (choice != JOptionPane.OK_OPTION) {
+                return;
+            }
+        }
+        writeEvaluation(answer, () -> members.size() > 1
+                ? service.saveClusterEvaluation(members, bewertung, kommentar, punkte)
+                : service.saveEvaluation(answer.antwortId(), answer.version(), bewertung, kommentar, punkte),
+                bewertung, kommentar, punkte);
     }
 
-    private void refreshAnswersAfterSave(CorrectionService.CorrectionAnswer savedAnswer) {
-        if (mode == CorrectionMode.STUDENT) {
-            int rowBefore = answerModel.indexOfAnswer(savedAnswer.antwortId());
-            onStudentSelected();
-            int row = answerModel.indexOfAnswer(savedAnswer.antwortId());
-            if (row >= 0) {
-                answerTable.setRowSelectionInterval(row, row);
-            } else if (rowBefore >= 0 && rowBefore < answerTable.getRowCount()) {
-                answerTable.setRowSelectionInterval(rowBefore, rowBefore);
+    /**
+     * @title writeEvaluation
+     * @short Fuehrt einen versionierten Speichervorgang aus, laedt die Tabelle neu und meldet Konflikte mit anderen Lehrkraeften.
+     */
+    private void writeEvaluation(CorrectionService.CorrectionAnswer answer,
+                                 Callable<List<DatabaseHandler.BewertungVersion>> write,
+                                 String bewertung, String kommentar, Double punkte) {
+        String key = currentAnswersKey();
+        Callable<List<CorrectionService.CorrectionAnswer>> reload = currentAnswersLoader();
+        // Speichern wird nie verworfen; nur das Neuladen der Tabelle entfaellt, wenn inzwischen weiternavigiert wurde.
+        submit(() -> {
+            List<DatabaseHandler.BewertungVersion> conflicts = write.call();
+            return new SaveOutcome(conflicts, reload == null ? List.of() : reload.call());
+        }, outcome -> {
+            prefetchedAnswers.clear();
+            if (key != null && key.equals(currentAnswersKey())) {
+                refreshAnswersAfterSave(answer, outcome.answers());
             }
-        } else {
-            int rowBefore = answerModel.indexOfAnswer(savedAnswer.antwortId());
-            onTaskSelected();
-            int row = answerModel.indexOfAnswer(savedAnswer.antwortId());
-            if (row >= 0) {
-                answerTable.setRowSelectionInterval(row, row);
-            } else if (rowBefore >= 0 && rowBefore < answerTable.getRowCount()) {
-                answerTable.setRowSelectionInterval(rowBefore, rowBefore);
+            maybeRefreshGradeStatus();
+            if (!outcome.conflicts().isEmpty()) {
+                resolveConflicts(answer, outcome.conflicts(), bewertung, kommentar, punkte);
+            }
+        });
+    }
+
+    /**
+     * @title resolveConflicts
+     * @short Zeigt jeden inzwischen gespeicherten Stand neben der eigenen Eingabe und ueberschreibt sie nur auf Wunsch.
+     */
+    private void resolveConflicts(CorrectionService.CorrectionAnswer answer, List<DatabaseHandler.BewertungVersion> conflicts,
+                                  String bewertung, String kommentar, Double punkte) {
+        StringBuilder stored = new StringBuilder();
+        for (DatabaseHandler.BewertungVersion conflict : conflicts) {
+            if (stored.length() > 0) {
+                stored.append("\n\n");
             }
+            stored.append(describeConflictAnswer(conflict.idAntwort()))
+                    .append(conflict.bewertetAm() == null ? "" : " (" + conflict.bewertetAm() + ")").append(":\n")
+                    .append(describeEvaluation(conflict.bewertung(), conflict.kommentar(), conflict.punkte()));
+        }
+        JTextArea storedArea = new JTextArea(stored.toString(), Math.min(conflicts.size() * 3, 12), 50);
+        storedArea.setEditable(false);
+        storedArea.setLineWrap(true);
+        storedArea.setWrapStyleWord(true);
+        storedArea.setCaretPosition(0);
+        JPanel message = new JPanel(new BorderLayout(0, 8));
+        message.add(new JLabel(conflicts.size() == 1
+                ? "Diese Bewertung wurde inzwischen von einer anderen Lehrkraft geaendert. Gespeichert:"
+                : conflicts.size() + " Bewertungen wurden inzwischen von einer anderen Lehrkraft geaendert. Gespeichert:"),
+                BorderLayout.NORTH);
+        message.add(new JScrollPane(storedArea), BorderLayout.CENTER);
+        message.add(new JLabel("<html>Ihre Eingabe: " + escapeHtml(describeEvaluation(bewertung, kommentar, punkte))
+                + "<br>Ihre Eingabe trotzdem " + (conflicts.size() == 1 ? "speichern?" : "fuer alle speichern?") + "</html>"),
+                BorderLayout.SOUTH);
+        Object[] options = {"Eigene Eingabe speichern", "Gespeicherte uebernehmen"};
+        int choice = JOptionPane.showOptionDialog(this, message, "Bearbeitungskonflikt",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[1]);
+        if (choice != JOptionPane.YES_OPTION) {
+            updateGradeStatusLabel("Gespeicherte Bewertung der anderen Lehrkraft uebernommen.");
+            return;
         }
+        writeEvaluation(answer, () -> {
+            List<DatabaseHandler.BewertungVersion> remaining = new ArrayList<>();
+            for (DatabaseHandler.BewertungVersion conflict : conflicts) {
+                remaining.addAll(service.saveEvaluation(conflict.idAntwort(), conflict.version(), bewertung, kommentar, punkte));
+            }
+            return remaining;
+        }, bewertung, kommentar, punkte);
+    }
+
+    private String describeConflictAnswer(int antwortId) {
+        CorrectionService.CorrectionAnswer conflictAnswer = answerModel.getAnswer(answerModel.indexOfAnswer(antwortId));
+        return conflictAnswer == null ? "Antwort " + antwortId : conflictAnswer.studentName();
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static String describeEvaluation(String bewertung, String kommentar, Double punkte) {
+        return "Bewertung: " + (bewertung == null || bewertung.isBlank() ? "-" : bewertung)
+                + ", Punkte: " + (punkte == null ? "-" : punkte)
+                + (kommentar == null || kommentar.isBlank() ? "" : ", Kommentar: " + kommentar);
+    }
+
+    /**
+     * @title pollRemoteChanges
+     * @short Fragt im Hintergrund ab, ob eine andere Verbindung Bewertungen geschrieben hat, und aktualisiert betroffene Zeilen.
+     */
+    private void pollRemoteChanges() {
+        if (remotePoll != null && !remotePoll.isDone()) {
+            return;
+        }
+        remotePoll = worker.submit(() -> {
+            try {
+                List<Integer> changed = service.pollChanges();
+                if (!changed.isEmpty()) {
+                    SwingUtilities.invokeLater(() -> applyRemoteChanges(changed));
+                }
+            } catch (Exception ignored) {
+                // naechster Takt versucht es erneut
+            }
+        });
+    }
+
+    private void applyRemoteChanges(List<Integer> changed) {
+        prefetchedAnswers.clear();
+        boolean visible = false;
+        for (int i = 0; i < answerModel.getRowCount() && !visible; i++) {
+            for (int member : membersOf(answerModel.getAnswer(i))) {
+                if (changed.contains(member)) {
+                    visible = true;
+                    break;
+                }
+            }
+        }
+        if (!visible) {
+            return;
+        }
+        String key = currentAnswersKey();
+        Callable<List<CorrectionService.CorrectionAnswer>> reload = currentAnswersLoader();
+        if (reload == null) {
+            return;
+        }
+        submit(reload, answers -> {
+            if (key == null || !key.equals(currentAnswersKey())) {
+                return;
+            }
+            CorrectionService.CorrectionAnswer selected = answerModel.getAnswer(answerTable.getSelectedRow());
+            boolean editing = selected != null && isEdited(selected);
+            String typedBewertung = bewertungField.getText();
+            String typedPunkte = punkteField.getText();
+            String typedKommentar = kommentarArea.getText();
+            if (selected == null) {
+                answerModel.setAnswers(answers);
+            } else {
+                refreshAnswersAfterSave(selected, answers);
+            }
+            if (editing) {
+                bewertungField.setText(typedBewertung);
+                punkteField.setText(typedPunkte);
+                kommentarArea.setText(typedKommentar);
+            }
+            boolean selectedChanged = selected != null && changed.contains(selected.antwortId());
+            updateGradeStatusLabel(selectedChanged && editing
+                    ? "Achtung: Die gewaehlte Bewertung wurde soeben von einer anderen Lehrkraft geaendert."
+                    : changed.size() + " Bewertung(en) von einer anderen Lehrkraft aktualisiert.");
+        });
+    }
+
+    /** True, wenn die Eingabefelder von der gespeicherten Bewertung der Antwort abweichen. */
+    private boolean isEdited(CorrectionService.CorrectionAnswer answer) {
+        String punkte = answer.punkte() == null ? "" : Double.toString(answer.punkte());
+        return !bewertungField.getText().equals(Optional.ofNullable(answer.bewertung()).orElse(""))
+                || !kommentarArea.getText().equals(Optional.ofNullable(answer.kommentar()).orElse(""))
+                || !punkteField.getText().equals(punkte);
+    }
+
+    /**
+     * @title autoGradeSelectedTest
+     * @short Fragt Teilpunkte-Schema und Punkte je Aufgabe ab und bewertet alle Auswahlaufgaben des Tests automatisch.
+     */
+    private void autoGradeSelectedTest() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        if (test == null) {
+            return;
+        }
+        JComboBox<AutoGrader.PartialCredit> schemeCombo = new JComboBox<>(AutoGrader.PartialCredit.values());
+        JTextField pointsField = new JTextField("1", 6);
+        JPanel options = new JPanel(new GridLayout(2, 2, 8, 8));
+        options.add(new JLabel("Teilpunkte (Mehrfachauswahl)"));
+        options.add(schemeCombo);
+        options.add(new JLabel("Punkte je Aufgabe"));
+        options.add(pointsField);
+        int choice = JOptionPane.showConfirmDialog(this, options, "Automatisch bewerten",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        double points;
+        try {
+            points = Double.parseDouble(pointsField.getText().trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Punkte konnten nicht interpretiert werden.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        AutoGrader.PartialCredit scheme = (AutoGrader.PartialCredit) schemeCombo.getSelectedItem();
+        autoGradeButton.setEnabled(false);
+        submit(() -> service.autoGrade(test.id(), scheme, points), report -> {
+            autoGradeButton.setEnabled(true);
+            JOptionPane.showMessageDialog(this, report.summary(), "Automatische Bewertung", JOptionPane.INFORMATION_MESSAGE);
+            onTestSelected();
+        });
+    }
+
+    private void showSimilarAnswers() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        if (test == null) {
+            return;
+        }
+        List<CorrectionService.CorrectionTest> tests = chooseParallelTests(test);
+        if (tests.isEmpty()) {
+            return;
+        }
+        List<Integer> testIds = new ArrayList<>(tests.size());
+        List<String> names = new ArrayList<>(tests.size());
+        for (CorrectionService.CorrectionTest chosen : tests) {
+            testIds.add(chosen.id());
+            names.add(chosen.name());
+        }
+        similarityButton.setEnabled(false);
+        submit(() -> service.findSimilarAnswers(testIds), report -> {
+            similarityButton.setEnabled(true);
+            new SimilarityReportDialog(this, String.join(", ", names), report).setVisible(true);
+        });
+    }
+
+    /**
+     * @title chooseParallelTests
+     * @short Laesst die Tests waehlen, die gemeinsam verglichen werden; vorausgewaehlt sind der aktuelle und seine
+     * Parallelversionen (gleicher Name bis auf den Klassenbuchstaben, z.B. "MBI Test 5a" und "MBI Test 5b").
+     */
+    private List<CorrectionService.CorrectionTest> chooseParallelTests(CorrectionService.CorrectionTest current) {
+        DefaultListModel<CorrectionService.CorrectionTest> model = new DefaultListModel<>();
+        List<Integer> preselected = new ArrayList<>();
+        String base = parallelBase(current.name());
+        for (int i = 0; i < testCombo.getItemCount(); i++) {
+            CorrectionService.CorrectionTest candidate = testCombo.getItemAt(i);
+            if (candidate.id() == current.id() || parallelBase(candidate.name()).equalsIgnoreCase(base)) {
+                preselected.add(model.size());
+            }
+            model.addElement(candidate);
+        }
+        JList<CorrectionService.CorrectionTest> list = new JList<>(model);
+        list.setCellRenderer(new ComboRenderer());
+        list.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        list.setSelectedIndices(preselected.stream().mapToInt(Integer::intValue).toArray());
+        list.setVisibleRowCount(Math.min(model.size(), 10));
+        JPanel message = new JPanel(new BorderLayout(0, 8));
+        message.add(new JLabel("Antworten dieser Tests miteinander vergleichen (Strg-Klick fuer Mehrfachauswahl):"),
+                BorderLayout.NORTH);
+        message.add(new JScrollPane(list), BorderLayout.CENTER);
+        int choice = JOptionPane.showConfirmDialog(this, message, "Aehnlichkeiten pruefen",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        return choice == JOptionPane.OK_OPTION ? list.getSelectedValuesList() : List.of();
+    }
+
+    private static String parallelBase(String testName) {
+        return testName == null ? "" : testName.trim().replaceFirst("(\\d)\\s*[A-Za-z]$", "$1");
+    }
+
+    private void refreshAnswersAfterSave(CorrectionService.CorrectionAnswer savedAnswer,
+                                         List<CorrectionService.CorrectionAnswer> answers) {
+        int rowBefore = answerModel.indexOfAnswer(savedAnswer.antwortId());
+        answerModel.setAnswers(answers);
+        int row = answerModel.indexOfAnswer(savedAnswer.antwortId());
+        if (row >= 0) {
+            answerTable.setRowSelectionInterval(row, row);
+        } else if (rowBefore >= 0 && rowBefore < answerTable.getRowCount()) {
+            answerTable.setRowSelectionInterval(rowBefore, rowBefore);
+        }
+    }
+
+    private String currentAnswersKey() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        if (test == null) {
+            return null;
+        }
+        if (mode == CorrectionMode.STUDENT) {
+            CorrectionService.CorrectionStudent student = studentList.getSelectedValue();
+            return student == null ? null : studentKey(test.id(), student.id());
+        }
+        CorrectionService.CorrectionClass klasse = getSelectedClass();
+        CorrectionService.CorrectionTask task = taskList.getSelectedValue();
+        return klasse == null || task == null ? null : taskKey(test.id(), klasse.id(), task.id());
+    }
+
+    private Callable<List<CorrectionService.CorrectionAnswer>> currentAnswersLoader() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        if (test == null) {
+            return null;
+        }
+        if (mode == CorrectionMode.STUDENT) {
+            CorrectionService.CorrectionStudent student = studentList.getSelectedValue();
+            return student == null ? null : () -> service.loadAnswers(test.id(), student.id());
+        }
+        CorrectionService.CorrectionClass klasse = getSelectedClass();
+        CorrectionService.CorrectionTask task = taskList.getSelectedValue();
+        return klasse == null || task == null ? null : taskAnswersLoader(test.id(), klasse.id(), task.id());
+    }
+
+    /**
+     * @title loadSelection
+     * @short Fuehrt einen Ladevorgang fuer die aktuelle Auswahl aus; ein noch ausstehender Vorgaenger wird abgebrochen,
+     * Ergebnisse veralteter Vorgaenge werden verworfen.
+     */
+    private <T> void loadSelection(Callable<T> work, Consumer<T> onSuccess) {
+        if (pendingSelection != null) {
+            pendingSelection.cancel(false);
+        }
+        int generation = ++selectionGeneration;
+        pendingSelection = submit(work, result -> {
+            if (generation == selectionGeneration) {
+                onSuccess.accept(result);
+            }
+        });
+    }
+
+    private <T> Future<?> submit(Callable<T> work, Consumer<T> onSuccess) {
+        return worker.submit(() -> {
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> showError(e));
+            }
+        });
+    }
+
+    private void showError(Exception e) {
+        Throwable cause = e.getCause() != null && e instanceof RuntimeException ? e.getCause() : e;
+        autoGradeButton.setEnabled(true);
+        similarityButton.setEnabled(true);
+        updateGradeButtonState();
+        JOptionPane.showMessageDialog(this, "Fehler im Korrekturmodus: " + cause.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE);
     }
 
     private Double parsePoints() {
@@ -581,6 +1130,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
 
     private void updateGradeButtonState() {
         gradeButton.setEnabled(gradeScaleCombo.getItemCount() > 0);
+        classGradeButton.setEnabled(gradeScaleCombo.getItemCount() > 0);
     }
 
     private void calculateGradeForSelection() {
@@ -588,7 +1138,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         if (test == null) {
             return;
         }
-        CorrectionService.CorrectionGradeScale scale = (CorrectionService.CorrectionGradeScale) gradeScaleCombo.getSelectedItem();
+        GradeScale scale = (GradeScale) gradeScaleCombo.getSelectedItem();
         if (scale == null) {
             JOptionPane.showMessageDialog(this, "Bitte einen Bewertungsmassstab waehlen.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
             return;
@@ -603,31 +1153,127 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             JOptionPane.showMessageDialog(this, "Bitte zuerst einen Schueler auswaehlen.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        Optional<CorrectionService.GradeResult> result = service.calculateGrade(test.id(), studentId, scale, maxPoints);
-        if (result.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Fuer diesen Schueler sind noch nicht alle Antworten mit Punkten bewertet.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+        gradeButton.setEnabled(false);
+        submit(() -> {
+            Optional<CorrectionService.GradeResult> result = service.calculateGrade(test.id(), studentId, scale, maxPoints);
+            result.ifPresent(grade -> {
+                String datum = java.time.LocalDate.now().toString();
+                String uhrzeit = java.time.LocalTime.now().withNano(0).toString();
+                service.saveNote(studentId, test.id(), grade.grade(), datum, uhrzeit);
+            });
+            return result;
+        }, result -> {
+            updateGradeButtonState();
+            if (result.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Fuer diesen Schueler sind noch nicht alle Antworten mit Punkten bewertet.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            rememberGradeConfig(test.id(), scale, maxPoints);
+            updateGradeStatusLabel(formatGrade(studentName, result.get()));
+        });
+    }
+
+    /**
+     * @title calculateGradesForClass
+     * @short Berechnet die Noten der gewaehlten Klasse in einem Durchgang, zeigt die Verteilung und speichert nach Bestaetigung.
+     */
+    private void calculateGradesForClass() {
+        CorrectionService.CorrectionTest test = getSelectedTest();
+        CorrectionService.CorrectionClass klasse = getSelectedClass();
+        if (test == null || klasse == null) {
+            JOptionPane.showMessageDialog(this, "Bitte zuerst Test und Klasse auswaehlen.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        GradeScale scale = (GradeScale) gradeScaleCombo.getSelectedItem();
+        if (scale == null) {
+            JOptionPane.showMessageDialog(this, "Bitte einen Bewertungsmassstab waehlen.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Double maxPoints = parseMaxPoints();
+        if (maxPoints == null) {
             return;
         }
-        rememberGradeConfig(test.id(), scale, maxPoints);
-        CorrectionService.GradeResult grade = result.get();
-        updateGradeStatusLabel(String.format(Locale.GERMAN,
+        classGradeButton.setEnabled(false);
+        submit(() -> service.calculateClassGrades(test.id(), klasse.id(), scale, maxPoints), rows -> {
+            updateGradeButtonState();
+            rememberGradeConfig(test.id(), scale, maxPoints);
+            long complete = rows.stream().filter(row -> row.result() != null).count();
+            if (complete == 0) {
+                JOptionPane.showMessageDialog(this, "In dieser Klasse ist noch kein Schueler vollstaendig mit Punkten bewertet.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            int choice = JOptionPane.showConfirmDialog(this, buildClassGradePreview(scale, rows),
+                    "Noten fuer " + klasse.name() + " speichern (" + complete + " von " + rows.size() + ")",
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (choice != JOptionPane.OK_OPTION) {
+                return;
+            }
+            String datum = java.time.LocalDate.now().toString();
+            String uhrzeit = java.time.LocalTime.now().withNano(0).toString();
+            submit(() -> service.saveClassNotes(test.id(), rows, datum, uhrzeit),
+                    saved -> updateGradeStatusLabel(klasse.name() + ": " + saved + " Noten gespeichert"));
+        });
+    }
+
+    private JPanel buildClassGradePreview(GradeScale scale,
+                                          List<CorrectionService.ClassGradeRow> rows) {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (String grade : scale.gradesDescending()) {
+            distribution.putIfAbsent(grade, 0);
+        }
+        String[] columns = {"Schueler", "Punkte", "Prozent", "Note", "Bisher"};
+        Object[][] data = new Object[rows.size()][];
+        int replaced = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            CorrectionService.ClassGradeRow row = rows.get(i);
+            CorrectionService.GradeResult result = row.result();
+            String existing = row.existingNote() == null ? "" : row.existingNote();
+            if (result == null) {
+                data[i] = new Object[]{row.studentName(), row.scored() + "/" + row.answers() + " bewertet", "", "-", existing};
+                continue;
+            }
+            if (row.existingNote() != null) {
+                replaced++;
+            }
+            distribution.merge(result.grade(), 1, Integer::sum);
+            data[i] = new Object[]{row.studentName(),
+                    String.format(Locale.GERMAN, "%.2f", result.points()),
+                    String.format(Locale.GERMAN, "%.1f %%", result.percentage()),
+                    result.grade(), existing};
+        }
+        StringBuilder summary = new StringBuilder("Verteilung: ");
+        distribution.forEach((grade, count) -> summary.append(grade).append(" = ").append(count).append("   "));
+
+        JTable table = new JTable(new javax.swing.table.DefaultTableModel(data, columns) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        });
+        table.setRowHeight(24);
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.setPreferredSize(new Dimension(520, 320));
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.add(new JLabel(summary.toString().trim()), BorderLayout.NORTH);
+        panel.add(scroll, BorderLayout.CENTER);
+        if (replaced > 0) {
+            panel.add(new JLabel(replaced + " Schueler haben bereits eine Note fuer diesen Test; sie wird ersetzt."),
+                    BorderLayout.SOUTH);
+        }
+        return panel;
+    }
+
+    private String formatGrade(String studentName, CorrectionService.GradeResult grade) {
+        return String.format(Locale.GERMAN,
                 "%s: %.2f / %.2f Punkte (%.1f%%) -> Note %s",
                 studentName,
                 grade.points(),
                 grade.maxPoints(),
                 grade.percentage(),
-                grade.grade()));
-
-        // --- NEU: Note abspeichern ---
-        String datum = java.time.LocalDate.now().toString();
-        String uhrzeit = java.time.LocalTime.now().withNano(0).toString();
-        String schuljahr = "2025/26"; // Optional: Hole das echte Schuljahr aus Auswahl
-        int lehrerId = 1; // Optional: Hole den echten Lehrer aus Kontext
-        service.saveNote(studentId, test.id(), grade.grade(), datum, uhrzeit, schuljahr, lehrerId);
-        System.out.println("Note gespeichert für Schüler " + studentId + " Test " + test.id() + " Note " + grade.grade());
+                grade.grade());
     }
 
-    private void rememberGradeConfig(int testId, CorrectionService.CorrectionGradeScale scale, double maxPoints) {
+    private void rememberGradeConfig(int testId, GradeScale scale, double maxPoints) {
         gradeConfigs.put(testId, new GradeConfig(scale.id(), maxPoints));
     }
 
@@ -644,7 +1290,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             gradeScaleCombo.setSelectedIndex(-1);
             maxPointsField.setText("");
         } else {
-            CorrectionService.CorrectionGradeScale scale = findScaleById(config.scaleId());
+            GradeScale scale = findScaleById(config.scaleId());
             gradeScaleCombo.setSelectedItem(scale);
             maxPointsField.setText(Double.toString(config.maxPoints()));
         }
@@ -652,6 +1298,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
     }
 
     private void maybeRefreshGradeStatus() {
+        int generation = ++gradeGeneration;
         CorrectionService.CorrectionTest test = getSelectedTest();
         if (test == null) {
             updateGradeStatusLabel(null);
@@ -662,7 +1309,7 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             updateGradeStatusLabel(null);
             return;
         }
-        CorrectionService.CorrectionGradeScale scale = findScaleById(config.scaleId());
+        GradeScale scale = findScaleById(config.scaleId());
         if (scale == null) {
             updateGradeStatusLabel(null);
             return;
@@ -673,19 +1320,12 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
             updateGradeStatusLabel(null);
             return;
         }
-        Optional<CorrectionService.GradeResult> result = service.calculateGrade(test.id(), studentId, scale, config.maxPoints());
-        if (result.isPresent()) {
-            CorrectionService.GradeResult grade = result.get();
-            updateGradeStatusLabel(String.format(Locale.GERMAN,
-                    "%s: %.2f / %.2f Punkte (%.1f%%) -> Note %s",
-                    studentName,
-                    grade.points(),
-                    grade.maxPoints(),
-                    grade.percentage(),
-                    grade.grade()));
-        } else {
-            updateGradeStatusLabel(null);
-        }
+        submit(() -> service.calculateGrade(test.id(), studentId, scale, config.maxPoints()), result -> {
+            if (generation != gradeGeneration || !Objects.equals(studentId, getFocusedStudentId())) {
+                return;
+            }
+            updateGradeStatusLabel(result.map(grade -> formatGrade(studentName, grade)).orElse(null));
+        });
     }
 
     private void updateGradeStatusLabel(String text) {
@@ -710,13 +1350,13 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
         return answer == null ? null : answer.studentName();
     }
 
-    private CorrectionService.CorrectionGradeScale findScaleById(String id) {
+    private GradeScale findScaleById(String id) {
         if (id == null) {
             return null;
         }
-        ComboBoxModel<CorrectionService.CorrectionGradeScale> model = gradeScaleCombo.getModel();
+        ComboBoxModel<GradeScale> model = gradeScaleCombo.getModel();
         for (int i = 0; i < model.getSize(); i++) {
-            CorrectionService.CorrectionGradeScale scale = model.getElementAt(i);
+            GradeScale scale = model.getElementAt(i);
             if (scale != null && id.equals(scale.id())) {
                 return scale;
             }
@@ -734,6 +1374,9 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
+        remotePollTimer.stop();
+        worker.shutdownNow();
+        worker.awaitTermination(2, TimeUnit.SECONDS);
         service.close();
     }
 
@@ -750,8 +1393,19 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
     }
 
     private static class CorrectionAnswerTableModel extends AbstractTableModel {
+        private final Map<Integer, List<Integer>> groups;
         private CorrectionMode mode = CorrectionMode.STUDENT;
         private List<CorrectionService.CorrectionAnswer> answers = List.of();
+        private boolean grouped;
+
+        CorrectionAnswerTableModel(Map<Integer, List<Integer>> groups) {
+            this.groups = groups;
+        }
+
+        void setGrouped(boolean grouped) {
+            this.grouped = grouped;
+            fireTableDataChanged();
+        }
 
         void setMode(CorrectionMode mode) {
             if (this.mode != mode) {
@@ -820,15 +1474,25 @@ class CorrectionDialog extends JDialog implements AutoCloseable {
                     default -> "";
                 };
                 case TASK -> switch (columnIndex) {
-                    case 0 -> Optional.ofNullable(answer.studentName()).orElse("");
+                    case 0 -> studentLabel(answer);
                     case 1 -> Optional.ofNullable(answer.bewertung()).orElse("");
                     case 2 -> answer.punkte() == null ? "" : answer.punkte();
                     default -> "";
                 };
             };
         }
+
+        private String studentLabel(CorrectionService.CorrectionAnswer answer) {
+            String name = Optional.ofNullable(answer.studentName()).orElse("");
+            List<Integer> members = grouped ? groups.get(answer.antwortId()) : null;
+            return members == null || members.size() <= 1 ? name : name + " (+" + (members.size() - 1) + ")";
+        }
     }
 
     private record GradeConfig(String scaleId, double maxPoints) {
     }
+
+    private record SaveOutcome(List<DatabaseHandler.BewertungVersion> conflicts,
+                               List<CorrectionService.CorrectionAnswer> answers) {
+    }
 }
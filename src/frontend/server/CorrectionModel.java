@@ -0,0 +1,222 @@
+package frontend.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory view of all answers of one test, indexed as test -> class -> student/task -> answers.
+ * Built once per selected test by {@link CorrectionService}; evaluations are applied in place so that
+ * progress counters stay current without rescanning the database.
+ */
+final class CorrectionModel {
+
+    private final int testId;
+    private final Map<Integer, AnswerNode> answersById = new HashMap<>();
+    private final Map<Integer, ClassNode> classes = new LinkedHashMap<>();
+    private final Map<Integer, TaskInfo> tasks = new HashMap<>();
+    private int evaluatedAnswers;
+
+    CorrectionModel(int testId) {
+        this.testId = testId;
+    }
+
+    int testId() {
+        return testId;
+    }
+
+    void addTask(TaskInfo task) {
+        tasks.put(task.id(), task);
+    }
+
+    void addAnswer(int classId, String className, int studentId, String studentName, AnswerNode answer) {
+        ClassNode classNode = classes.computeIfAbsent(classId, id -> new ClassNode(id, className));
+        StudentNode student = classNode.students.computeIfAbsent(studentId, id -> new StudentNode(id, studentName));
+        TaskNode task = classNode.tasks.computeIfAbsent(answer.taskId, TaskNode::new);
+        boolean wasComplete = student.isComplete();
+        student.answers.add(answer);
+        task.answers.add(answer);
+        answersById.put(answer.antwortId, answer);
+        if (answer.evaluated) {
+            student.evaluated++;
+            task.evaluated++;
+            evaluatedAnswers++;
+        }
+        classNode.updateCompletion(wasComplete, student.isComplete());
+    }
+
+    /** Sorts the per-node answer lists once after loading. */
+    void seal() {
+        for (ClassNode classNode : classes.values()) {
+            for (StudentNode student : classNode.students.values()) {
+                student.answers.sort(Comparator.comparingInt(a -> a.taskId));
+            }
+            for (TaskNode task : classNode.tasks.values()) {
+                task.answers.sort(Comparator.comparing(a -> a.studentName, String.CASE_INSENSITIVE_ORDER));
+            }
+        }
+    }
+
+    int answerCount() {
+        return answersById.size();
+    }
+
+    int evaluatedCount() {
+        return evaluatedAnswers;
+    }
+
+    Collection<ClassNode> classes() {
+        return classes.values();
+    }
+
+    ClassNode classNode(int classId) {
+        return classes.get(classId);
+    }
+
+    TaskInfo task(int taskId) {
+        return tasks.get(taskId);
+    }
+
+    /** Answers of one student across all classes (a student belongs to exactly one class). */
+    List<AnswerNode> answersOfStudent(int studentId) {
+        for (ClassNode classNode : classes.values()) {
+            StudentNode student = classNode.students.get(studentId);
+            if (student != null) {
+                return student.answers;
+            }
+        }
+        return List.of();
+    }
+
+    /** Version of the answer's Bewertung as last seen by this model; -1 for answers of other tests. */
+    long version(int antwortId) {
+        AnswerNode answer = answersById.get(antwortId);
+        return answer == null ? -1 : answer.version;
+    }
+
+    /**
+     * @title applyEvaluation
+     * @short Uebernimmt eine gespeicherte Bewertung und passt die Zaehler von Schueler, Aufgabe und Klasse an.
+     */
+    void applyEvaluation(int antwortId, String bewertung, String kommentar, Double punkte, long version) {
+        AnswerNode answer = answersById.get(antwortId);
+        if (answer == null) {
+            return;
+        }
+        answer.version = version;
+        answer.bewertung = bewertung == null ? "" : bewertung;
+        answer.kommentar = kommentar == null ? "" : kommentar;
+        answer.punkte = punkte;
+        if (answer.evaluated) {
+            return;
+        }
+        answer.evaluated = true;
+        evaluatedAnswers++;
+        for (ClassNode classNode : classes.values()) {
+            StudentNode student = classNode.students.get(answer.studentId);
+            if (student == null) {
+                continue;
+            }
+            boolean wasComplete = student.isComplete();
+            student.evaluated++;
+            TaskNode task = classNode.tasks.get(answer.taskId);
+            if (task != null) {
+                task.evaluated++;
+            }
+            classNode.updateCompletion(wasComplete, student.isComplete());
+            return;
+        }
+    }
+
+    record TaskInfo(int id, String displayName, String question, String solution) {
+    }
+
+    static final class AnswerNode {
+        final int antwortId;
+        final int taskId;
+        final int studentId;
+        final String studentName;
+        final String studentAnswer;
+        String bewertung;
+        String kommentar;
+        Double punkte;
+        boolean evaluated;
+        /** Bewertung.version of the stored row, 0 while there is none. */
+        long version;
+
+        AnswerNode(int antwortId, int taskId, int studentId, String studentName, String studentAnswer,
+                   String bewertung, String kommentar, Double punkte, boolean evaluated, long version) {
+            this.antwortId = antwortId;
+            this.taskId = taskId;
+            this.studentId = studentId;
+            this.studentName = studentName;
+            this.studentAnswer = studentAnswer;
+            this.bewertung = bewertung;
+            this.kommentar = kommentar;
+            this.punkte = punkte;
+            this.evaluated = evaluated;
+            this.version = version;
+        }
+    }
+
+    static final class ClassNode {
+        final int id;
+        final String name;
+        final Map<Integer, StudentNode> students = new HashMap<>();
+        final Map<Integer, TaskNode> tasks = new HashMap<>();
+        int completedStudents;
+
+        ClassNode(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        private void updateCompletion(boolean wasComplete, boolean isComplete) {
+            if (wasComplete != isComplete) {
+                completedStudents += isComplete ? 1 : -1;
+            }
+        }
+
+        List<StudentNode> sortedStudents() {
+            List<StudentNode> result = new ArrayList<>(students.values());
+            result.sort(Comparator.comparing(s -> s.name, String.CASE_INSENSITIVE_ORDER));
+            return result;
+        }
+
+        List<TaskNode> sortedTasks() {
+            List<TaskNode> result = new ArrayList<>(tasks.values());
+            result.sort(Comparator.comparingInt(t -> t.id));
+            return result;
+        }
+    }
+
+    static final class StudentNode {
+        final int id;
+        final String name;
+        final List<AnswerNode> answers = new ArrayList<>();
+        int evaluated;
+
+        StudentNode(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        boolean isComplete() {
+            return !answers.isEmpty() && evaluated == answers.size();
+        }
+    }
+
+    static final class TaskNode {
+        final int id;
+        final List<AnswerNode> answers = new ArrayList<>();
+        int evaluated;
+
+        TaskNode(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -1,34 +1,32 @@
 package frontend.server;
 
 import backend.server.DatabaseHandler;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import backend.server.GradeScale;
+import backend.server.GradeScaleRegistry;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /** Data access helper for the correction modus GUI. */
 class CorrectionService implements AutoCloseable {
-    private static final String[] GRADE_DIR_NAMES = {"bewertungsmaßstäbe", "bewertungsmassstaebe"};
 
     private final DatabaseHandler db;
+    private CorrectionModel model;
+    /** Highest Bewertung change number and data_version already reflected in {@link #model}. */
+    private long lastChange;
+    private long lastDataVersion;
+    private final Map<Integer, String> liveStudentNames = new HashMap<>();
+    private final Map<Integer, String> liveTaskNames = new HashMap<>();
 
     CorrectionService() throws SQLException {
         this.db = new DatabaseHandler("data/lues.db");
@@ -36,23 +34,14 @@ class CorrectionService implements AutoCloseable {
 
     List<CorrectionTest> loadTests() {
         try {
-            List<Map<String, Object>> tests = db.getAllEntries("Test");
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort");
-            Map<Integer, List<Map<String, Object>>> answersByTest = answers.stream()
-                    .collect(Collectors.groupingBy(a -> toInt(a.get("idTest"))));
-            Map<Integer, Map<String, Object>> bewertungen = db.getAllEntries("Bewertung").stream()
-                    .collect(Collectors.toMap(b -> toInt(b.get("idAntwort")), b -> b));
             List<CorrectionTest> result = new ArrayList<>();
-            for (Map<String, Object> test : tests) {
-                int id = toInt(test.get("idTest"));
-                String typ = asString(test.get("typ"));
-                List<Map<String, Object>> answerList = answersByTest.getOrDefault(id, List.of());
-                long evaluated = answerList.stream()
-                        .map(a -> toInt(a.get("idAntwort")))
-                        .filter(bewertungen::containsKey)
-                        .count();
-                result.add(new CorrectionTest(id, typ, answerList.size(), (int) evaluated));
-            }
+            db.streamQuery("SELECT t.idTest, t.typ, COUNT(a.idAntwort), COUNT(b.idAntwort) FROM Test t "
+                    + "LEFT JOIN Antwort a ON a.idTest = t.idTest "
+                    + "LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                    + "GROUP BY t.idTest, t.typ", List.of(), rs -> {
+                result.add(new CorrectionTest(rs.getInt(1), asString(rs.getString(2)), rs.getInt(3), rs.getInt(4)));
+                return true;
+            });
             result.sort(Comparator.comparing(CorrectionTest::name, String.CASE_INSENSITIVE_ORDER));
             return result;
         } catch (Exception e) {
@@ -60,223 +49,384 @@ class CorrectionService implements AutoCloseable {
         }
     }
 
-    List<CorrectionClass> loadClasses(int testId) {
+    /**
+     * @title loadClasses
+     * @short Laedt das Korrekturmodell des Tests (einmalig je Testauswahl) und liefert dessen Klassen.
+     */
+    synchronized List<CorrectionClass> loadClasses(int testId) {
+        CorrectionModel loaded = reloadModel(testId);
+        List<CorrectionClass> result = new ArrayList<>();
+        for (CorrectionModel.ClassNode node : loaded.classes()) {
+            result.add(new CorrectionClass(node.id, node.name, node.students.size(), node.completedStudents));
+        }
+        result.sort(Comparator.comparing(CorrectionClass::name, String.CASE_INSENSITIVE_ORDER));
+        return result;
+    }
+
+    synchronized List<CorrectionStudent> loadStudents(int testId, int classId) {
+        CorrectionModel.ClassNode node = model(testId).classNode(classId);
+        if (node == null) {
+            return List.of();
+        }
+        List<CorrectionStudent> result = new ArrayList<>();
+        for (CorrectionModel.StudentNode student : node.sortedStudents()) {
+            result.add(new CorrectionStudent(student.id, student.name, student.answers.size(), student.evaluated));
+        }
+        return result;
+    }
+
+    synchronized List<CorrectionTask> loadTasks(int testId, int classId) {
+        CorrectionModel current = model(testId);
+        CorrectionModel.ClassNode node = current.classNode(classId);
+        if (node == null) {
+            return List.of();
+        }
+        List<CorrectionTask> result = new ArrayList<>();
+        for (CorrectionModel.TaskNode task : node.sortedTasks()) {
+            CorrectionModel.TaskInfo info = current.task(task.id);
+            String name = info == null ? "Aufgabe " + task.id : info.displayName();
+            result.add(new CorrectionTask(task.id, name, task.answers.size(), task.evaluated));
+        }
+        return result;
+    }
+
+    synchronized List<CorrectionAnswer> loadAnswers(int testId, int studentId) {
+        CorrectionModel current = model(testId);
+        List<CorrectionAnswer> result = new ArrayList<>();
+        for (CorrectionModel.AnswerNode answer : current.answersOfStudent(studentId)) {
+            result.add(toAnswer(current, answer));
+        }
+        return result;
+    }
+
+    synchronized List<CorrectionAnswer> loadTaskAnswers(int testId, int classId, int taskId) {
+        CorrectionModel current = model(testId);
+        CorrectionModel.ClassNode node = current.classNode(classId);
+        CorrectionModel.TaskNode task = node == null ? null : node.tasks.get(taskId);
+        if (task == null) {
+            return List.of();
+        }
+        List<CorrectionAnswer> result = new ArrayList<>(task.answers.size());
+        for (CorrectionModel.AnswerNode answer : task.answers) {
+            result.add(toAnswer(current, answer));
+        }
+        return result;
+    }
+
+    /**
+     * @title saveEvaluation
+     * @short Speichert eine Bewertung nur, wenn sie seit dem Laden (Version {@code expectedVersion}) niemand geaendert hat.
+     * @return Leer bei Erfolg, sonst der aktuelle Stand der Bewertung; das Modell uebernimmt diesen Stand.
+     */
+    synchronized List<DatabaseHandler.BewertungVersion> saveEvaluation(int antwortId, long expectedVersion,
+                                                                      String bewertung, String kommentar, Double punkte) {
+        return saveVersioned(List.of(antwortId), Map.of(antwortId, expectedVersion), bewertung, kommentar, punkte);
+    }
+
+    /**
+     * @title loadTaskAnswerClusters
+     * @short Liefert die Antworten einer Aufgabe als Gruppen gleicher bzw. nahezu gleicher Texte.
+     */
+    synchronized List<AnswerClusterer.Cluster> loadTaskAnswerClusters(int testId, int classId, int taskId) {
+        return AnswerClusterer.cluster(loadTaskAnswers(testId, classId, taskId), AnswerClusterer.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @title saveClusterEvaluation
+     * @short Speichert eine Bewertung fuer alle Antworten einer Gruppe in einer Transaktion.
+     */
+    synchronized List<DatabaseHandler.BewertungVersion> saveClusterEvaluation(List<Integer> antwortIds, String bewertung,
+                                                                             String kommentar, Double punkte) {
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int antwortId : antwortIds) {
+            expected.put(antwortId, model == null ? 0L : Math.max(0L, model.version(antwortId)));
+        }
+        return saveVersioned(antwortIds, expected, bewertung, kommentar, punkte);
+    }
+
+    private List<DatabaseHandler.BewertungVersion> saveVersioned(List<Integer> antwortIds, Map<Integer, Long> expected,
+                                                                 String bewertung, String kommentar, Double punkte) {
+        String normalizedBewertung = bewertung == null || bewertung.isBlank() ? null : bewertung;
+        String normalizedKommentar = kommentar == null || kommentar.isBlank() ? null : kommentar;
+        List<DatabaseHandler.BewertungEntry> entries = new ArrayList<>(antwortIds.size());
+        for (int antwortId : antwortIds) {
+            entries.add(new DatabaseHandler.BewertungEntry(antwortId, normalizedBewertung, normalizedKommentar, punkte));
+        }
+        List<DatabaseHandler.BewertungVersion> conflicts;
         try {
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort");
-            List<Map<String, Object>> students = db.getAllEntries("Schueler");
-            Map<Integer, Map<String, Object>> studentById = indexBy(students, "idSchueler");
-            List<Map<String, Object>> answersForTest = answers.stream()
-                    .filter(a -> toInt(a.get("idTest")) == testId)
-                    .collect(Collectors.toList());
-            Map<Integer, List<Map<String, Object>>> answersByStudent = answersForTest.stream()
-                    .collect(Collectors.groupingBy(a -> toInt(a.get("idSchueler")), LinkedHashMap::new, Collectors.toList()));
-            Map<Integer, List<Integer>> classToStudents = new LinkedHashMap<>();
-            for (Map.Entry<Integer, List<Map<String, Object>>> entry : answersByStudent.entrySet()) {
-                int studentId = entry.getKey();
-                Map<String, Object> student = studentById.get(studentId);
-                if (student == null) {
-                    continue;
+            conflicts = db.compareAndSetBewertungen(entries, expected,
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        if (model != null) {
+            Map<Integer, DatabaseHandler.BewertungVersion> conflictById = new HashMap<>();
+            for (DatabaseHandler.BewertungVersion conflict : conflicts) {
+                conflictById.put(conflict.idAntwort(), conflict);
+                model.applyEvaluation(conflict.idAntwort(), conflict.bewertung(), conflict.kommentar(),
+                        conflict.punkte(), conflict.version());
+            }
+            for (int antwortId : antwortIds) {
+                if (!conflictById.containsKey(antwortId)) {
+                    model.applyEvaluation(antwortId, normalizedBewertung, normalizedKommentar, punkte,
+                            expected.get(antwortId) + 1);
                 }
-                int classId = toInt(student.get("idKlasse"));
-                classToStudents.computeIfAbsent(classId, ignored -> new ArrayList<>()).add(studentId);
             }
-            if (classToStudents.isEmpty()) {
+        }
+        return conflicts;
+    }
+
+    /**
+     * @title pollChanges
+     * @short Uebernimmt Bewertungen, die andere Verbindungen (z. B. eine zweite Lehrkraft) inzwischen gespeichert haben.
+     * Solange sich PRAGMA data_version nicht aendert, kostet der Aufruf nur diese eine Abfrage.
+     * @return Die Antworten, deren Bewertung sich im Modell geaendert hat.
+     */
+    synchronized List<Integer> pollChanges() {
+        if (model == null) {
+            return List.of();
+        }
+        try {
+            long dataVersion = db.dataVersion();
+            if (dataVersion == lastDataVersion) {
                 return List.of();
             }
-            Map<Integer, Map<String, Object>> classes = indexBy(db.getAllEntries("Klasse"), "idKlasse");
-            Map<Integer, Map<String, Object>> bewertungen = indexBy(db.getAllEntries("Bewertung"), "idAntwort");
-            List<CorrectionClass> result = new ArrayList<>();
-            for (Map.Entry<Integer, List<Integer>> entry : classToStudents.entrySet()) {
-                int classId = entry.getKey();
-                String className = Optional.ofNullable(classes.get(classId))
-                        .map(c -> asString(c.get("klassenname")))
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .orElse("Klasse " + classId);
-                List<Integer> studentIds = entry.getValue().stream().distinct().collect(Collectors.toList());
-                long evaluatedStudents = studentIds.stream()
-                        .filter(id -> isStudentFullyEvaluated(answersByStudent.getOrDefault(id, List.of()), bewertungen))
-                        .count();
-                result.add(new CorrectionClass(classId, className, studentIds.size(), (int) evaluatedStudents));
+            lastDataVersion = dataVersion;
+            List<Integer> changed = new ArrayList<>();
+            for (DatabaseHandler.BewertungVersion row : db.getBewertungenChangedSince(model.testId(), lastChange)) {
+                lastChange = Math.max(lastChange, row.aenderung());
+                if (row.version() > model.version(row.idAntwort()) && model.version(row.idAntwort()) >= 0) {
+                    model.applyEvaluation(row.idAntwort(), row.bewertung(), row.kommentar(), row.punkte(), row.version());
+                    changed.add(row.idAntwort());
+                }
             }
-            result.sort(Comparator.comparing(CorrectionClass::name, String.CASE_INSENSITIVE_ORDER));
-            return result;
-        } catch (Exception e) {
+            return changed;
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    List<CorrectionStudent> loadStudents(int testId, int classId) {
+    /**
+     * @title loadLatestAnswers
+     * @short Letzter Stand jeder Antwort eines Tests (je Schueler und Aufgabe) samt Bewertung; Ausgangspunkt der Live-Korrektur.
+     */
+    synchronized List<LiveAnswer> loadLatestAnswers(int testId) {
         try {
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort");
-            List<Map<String, Object>> students = db.getAllEntries("Schueler");
-            Map<Integer, Map<String, Object>> studentById = indexBy(students, "idSchueler");
-            List<Map<String, Object>> answersForTest = answers.stream()
-                    .filter(a -> toInt(a.get("idTest")) == testId)
-                    .filter(a -> {
-                        Map<String, Object> student = studentById.get(toInt(a.get("idSchueler")));
-                        return student != null && toInt(student.get("idKlasse")) == classId;
-                    })
-                    .collect(Collectors.toList());
-            Map<Integer, List<Map<String, Object>>> answersByStudent = answersForTest.stream()
-                    .collect(Collectors.groupingBy(a -> toInt(a.get("idSchueler")), LinkedHashMap::new, Collectors.toList()));
-            Map<Integer, Map<String, Object>> bewertungen = indexBy(db.getAllEntries("Bewertung"), "idAntwort");
-            List<CorrectionStudent> result = new ArrayList<>();
-            for (Map.Entry<Integer, List<Map<String, Object>>> entry : answersByStudent.entrySet()) {
-                int studentId = entry.getKey();
-                Map<String, Object> student = studentById.get(studentId);
-                if (student == null) {
-                    continue;
-                }
-                String name = buildStudentName(student);
-                List<Map<String, Object>> answerList = entry.getValue();
-                long evaluated = answerList.stream()
-                        .map(a -> toInt(a.get("idAntwort")))
-                        .filter(bewertungen::containsKey)
-                        .count();
-                result.add(new CorrectionStudent(studentId, name, answerList.size(), (int) evaluated));
-            }
-            result.sort(Comparator.comparing(CorrectionStudent::name, String.CASE_INSENSITIVE_ORDER));
-            return result;
-        } catch (Exception e) {
+            List<int[]> keys = new ArrayList<>();
+            List<LiveAnswer> rows = new ArrayList<>();
+            db.streamQuery("SELECT a.idAntwort, a.idSchueler, a.idAufgabe, a.antwort, b.bewertung, b.kommentar, b.punkte, b.version "
+                    + "FROM Antwort a "
+                    + "JOIN (SELECT MAX(idAntwort) AS id FROM Antwort WHERE idTest = ? GROUP BY idSchueler, idAufgabe) l "
+                    + "ON l.id = a.idAntwort "
+                    + "LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                    + "ORDER BY a.idAntwort", List.of(testId), rs -> {
+                keys.add(new int[]{rs.getInt(2), rs.getInt(3)});
+                rows.add(new LiveAnswer(rs.getInt(1), rs.getInt(2), "", rs.getInt(3), "", asString(rs.getString(4)), 0L,
+                        asString(rs.getString(5)), asString(rs.getString(6)), toDouble(rs.getObject(7)), rs.getLong(8)));
+                return true;
+            });
+            return withNames(rows);
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    List<CorrectionTask> loadTasks(int testId, int classId) {
+    /**
+     * @title describeLiveAnswers
+     * @short Ergaenzt frisch eingegangene Antworten um Schueler- und Aufgabennamen (mit Zwischenspeicher je Sitzung).
+     */
+    synchronized List<LiveAnswer> describeLiveAnswers(List<IServer.AnswerEvent> events) {
+        List<LiveAnswer> rows = new ArrayList<>(events.size());
+        for (IServer.AnswerEvent event : events) {
+            rows.add(new LiveAnswer(event.answerId(), event.studentId(), "", event.taskId(), "", asString(event.answer()),
+                    event.receivedAt(), "", "", null, 0L));
+        }
         try {
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort");
-            List<Map<String, Object>> tasks = db.getAllEntries("Aufgabe");
-            List<Map<String, Object>> students = db.getAllEntries("Schueler");
-            Map<Integer, Map<String, Object>> taskById = indexBy(tasks, "idAufgabe");
-            Map<Integer, Map<String, Object>> studentById = indexBy(students, "idSchueler");
-            List<Map<String, Object>> answersForTest = answers.stream()
-                    .filter(a -> toInt(a.get("idTest")) == testId)
-                    .collect(Collectors.toList());
-            Map<Integer, List<Map<String, Object>>> answersByTask = new LinkedHashMap<>();
-            for (Map<String, Object> answer : answersForTest) {
-                int studentId = toInt(answer.get("idSchueler"));
-                Map<String, Object> student = studentById.get(studentId);
-                if (student == null || toInt(student.get("idKlasse")) != classId) {
-                    continue;
-                }
-                int taskId = toInt(answer.get("idAufgabe"));
-                answersByTask.computeIfAbsent(taskId, ignored -> new ArrayList<>()).add(answer);
+            return withNames(rows);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<LiveAnswer> withNames(List<LiveAnswer> rows) throws SQLException {
+        List<Integer> missingStudents = new ArrayList<>();
+        List<Integer> missingTasks = new ArrayList<>();
+        for (LiveAnswer row : rows) {
+            if (!liveStudentNames.containsKey(row.studentId()) && !missingStudents.contains(row.studentId())) {
+                missingStudents.add(row.studentId());
             }
-            Map<Integer, Map<String, Object>> bewertungen = indexBy(db.getAllEntries("Bewertung"), "idAntwort");
-            List<CorrectionTask> result = new ArrayList<>();
-            for (Map.Entry<Integer, List<Map<String, Object>>> entry : answersByTask.entrySet()) {
-                int taskId = entry.getKey();
-                List<Map<String, Object>> answerList = entry.getValue();
-                long evaluated = answerList.stream()
-                        .map(a -> toInt(a.get("idAntwort")))
-                        .filter(bewertungen::containsKey)
-                        .count();
-                String name = buildTaskDisplayName(taskById.get(taskId), taskId);
-                result.add(new CorrectionTask(taskId, name, answerList.size(), (int) evaluated));
+            if (!liveTaskNames.containsKey(row.taskId()) && !missingTasks.contains(row.taskId())) {
+                missingTasks.add(row.taskId());
             }
-            result.sort(Comparator.comparingInt(CorrectionTask::id));
-            return result;
-        } catch (Exception e) {
+        }
+        if (!missingStudents.isEmpty()) {
+            db.streamQuery("SELECT idSchueler, vorname, nachname FROM Schueler WHERE idSchueler IN ("
+                    + String.join(", ", Collections.nCopies(missingStudents.size(), "?")) + ")", missingStudents, rs -> {
+                liveStudentNames.put(rs.getInt(1), buildStudentName(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                return true;
+            });
+        }
+        if (!missingTasks.isEmpty()) {
+            db.streamQuery("SELECT idAufgabe, typ, aufgabeMarkdown FROM Aufgabe WHERE idAufgabe IN ("
+                    + String.join(", ", Collections.nCopies(missingTasks.size(), "?")) + ")", missingTasks, rs -> {
+                liveTaskNames.put(rs.getInt(1), buildTaskDisplayName(rs.getInt(1), asString(rs.getString(2)), asString(rs.getString(3))));
+                return true;
+            });
+        }
+        List<LiveAnswer> named = new ArrayList<>(rows.size());
+        for (LiveAnswer row : rows) {
+            named.add(new LiveAnswer(row.antwortId(), row.studentId(),
+                    liveStudentNames.getOrDefault(row.studentId(), buildStudentName(row.studentId(), null, null)),
+                    row.taskId(), liveTaskNames.getOrDefault(row.taskId(), "Aufgabe " + row.taskId()),
+                    row.answer(), row.receivedAt(), row.bewertung(), row.kommentar(), row.punkte(), row.version()));
+        }
+        return named;
+    }
+
+    /**
+     * @title analyzeItems
+     * @short Aufgabenanalyse des Tests; wiederholte Aufrufe lesen nur neue Antworten und Bewertungen nach.
+     */
+    ItemAnalysis.Result analyzeItems(int testId) {
+        try {
+            return ItemAnalysis.analyze(db, testId);
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    List<CorrectionAnswer> loadAnswers(int testId, int studentId) {
+    /**
+     * @title findSimilarAnswers
+     * @short Sucht auffaellig aehnliche Freitextantworten ueber die gewaehlten (parallelen) Tests hinweg.
+     */
+    synchronized SimilarityDetector.Report findSimilarAnswers(List<Integer> testIds) {
         try {
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort").stream()
-                    .filter(a -> toInt(a.get("idTest")) == testId)
-                    .filter(a -> toInt(a.get("idSchueler")) == studentId)
-                    .sorted(Comparator.comparingInt(a -> toInt(a.get("idAufgabe"))))
-                    .collect(Collectors.toList());
-            Map<Integer, Map<String, Object>> taskById = indexBy(db.getAllEntries("Aufgabe"), "idAufgabe");
-            Map<Integer, Map<String, Object>> studentById = indexBy(db.getAllEntries("Schueler"), "idSchueler");
-            Map<Integer, Map<String, Object>> bewertungen = indexBy(db.getAllEntries("Bewertung"), "idAntwort");
-            List<CorrectionAnswer> result = new ArrayList<>();
-            for (Map<String, Object> answer : answers) {
-                result.add(mapAnswer(answer, taskById, studentById, bewertungen));
-            }
-            return result;
-        } catch (Exception e) {
+            return SimilarityDetector.detect(db, testIds, SimilarityDetector.DEFAULT_THRESHOLD);
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    List<CorrectionAnswer> loadTaskAnswers(int testId, int classId, int taskId) {
+    /**
+     * @title autoGrade
+     * @short Bewertet alle Auswahlaufgaben eines Tests automatisch; das Modell wird danach neu geladen.
+     */
+    synchronized AutoGrader.Report autoGrade(int testId, AutoGrader.PartialCredit scheme, double pointsPerTask) {
         try {
-            List<Map<String, Object>> answers = db.getAllEntries("Antwort");
-            Map<Integer, Map<String, Object>> taskById = indexBy(db.getAllEntries("Aufgabe"), "idAufgabe");
-            Map<Integer, Map<String, Object>> studentById = indexBy(db.getAllEntries("Schueler"), "idSchueler");
-            Map<Integer, Map<String, Object>> bewertungen = indexBy(db.getAllEntries("Bewertung"), "idAntwort");
-            List<CorrectionAnswer> result = new ArrayList<>();
-            for (Map<String, Object> answer : answers) {
-                if (toInt(answer.get("idTest")) != testId || toInt(answer.get("idAufgabe")) != taskId) {
-                    continue;
-                }
-                int studentId = toInt(answer.get("idSchueler"));
-                Map<String, Object> student = studentById.get(studentId);
-                if (student == null || toInt(student.get("idKlasse")) != classId) {
-                    continue;
-                }
-                result.add(mapAnswer(answer, taskById, studentById, bewertungen));
-            }
-            result.sort(Comparator.comparing(CorrectionAnswer::studentName, String.CASE_INSENSITIVE_ORDER));
-            return result;
-        } catch (Exception e) {
+            return AutoGrader.grade(db, testId, scheme, pointsPerTask);
+        } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            model = null;
         }
     }
 
-    void saveEvaluation(int antwortId, String bewertung, String kommentar, Double punkte) {
+    private CorrectionModel model(int testId) {
+        return model != null && model.testId() == testId ? model : reloadModel(testId);
+    }
+
+    /**
+     * @title reloadModel
+     * @short Baut das Korrekturmodell eines Tests mit zwei gefilterten Abfragen neu auf.
+     */
+    private CorrectionModel reloadModel(int testId) {
+        CorrectionModel loaded = new CorrectionModel(testId);
         try {
-            db.upsertBewertung(antwortId,
-                    bewertung == null || bewertung.isBlank() ? null : bewertung,
-                    kommentar == null || kommentar.isBlank() ? null : kommentar,
-                    punkte,
-                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        } catch (Exception e) {
+            // read before the rows so that a concurrent commit is picked up again by pollChanges instead of being lost
+            lastDataVersion = db.dataVersion();
+            lastChange = db.getLatestBewertungChange();
+            db.streamQuery("SELECT idAufgabe, typ, aufgabeMarkdown, COALESCE(NULLIF(korrekt, ''), loesung) FROM Aufgabe "
+                    + "WHERE idAufgabe IN (SELECT DISTINCT idAufgabe FROM Antwort WHERE idTest = ?)", List.of(testId), rs -> {
+                int id = rs.getInt(1);
+                String typ = asString(rs.getString(2));
+                String markdown = asString(rs.getString(3));
+                loaded.addTask(new CorrectionModel.TaskInfo(id, buildTaskDisplayName(id, typ, markdown),
+                        markdown, asString(rs.getString(4))));
+                return true;
+            });
+            db.streamQuery("SELECT a.idAntwort, a.idAufgabe, a.idSchueler, a.antwort, s.vorname, s.nachname, "
+                    + "s.idKlasse, k.klassenname, b.idAntwort, b.bewertung, b.kommentar, b.punkte, b.version "
+                    + "FROM Antwort a "
+                    + "JOIN Schueler s ON s.idSchueler = a.idSchueler "
+                    + "LEFT JOIN Klasse k ON k.idKlasse = s.idKlasse "
+                    + "LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                    + "WHERE a.idTest = ?", List.of(testId), rs -> {
+                int studentId = rs.getInt(3);
+                String studentName = buildStudentName(studentId, rs.getString(5), rs.getString(6));
+                int classId = rs.getInt(7);
+                String className = asString(rs.getString(8)).trim();
+                if (className.isEmpty()) {
+                    className = "Klasse " + classId;
+                }
+                boolean evaluated = rs.getObject(9) != null;
+                CorrectionModel.AnswerNode answer = new CorrectionModel.AnswerNode(
+                        rs.getInt(1), rs.getInt(2), studentId, studentName, asString(rs.getString(4)),
+                        asString(rs.getString(10)), asString(rs.getString(11)), toDouble(rs.getObject(12)), evaluated,
+                        rs.getLong(13));
+                loaded.addAnswer(classId, className, studentId, studentName, answer);
+                return true;
+            });
+        } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        loaded.seal();
+        model = loaded;
+        return loaded;
     }
 
-    void saveNote(int schuelerId, int testId, String note, String datum, String uhrzeit, String schuljahr, int lehrerId) {
-        System.out.println("Speichere Note: " + schuelerId + ", " + testId + ", " + note + ", " + datum + ", " + uhrzeit + ", " + schuljahr + ", " + lehrerId);
+    private CorrectionAnswer toAnswer(CorrectionModel current, CorrectionModel.AnswerNode answer) {
+        CorrectionModel.TaskInfo task = current.task(answer.taskId);
+        return new CorrectionAnswer(
+                answer.antwortId,
+                answer.taskId,
+                answer.studentId,
+                answer.studentName,
+                task == null ? "" : task.question(),
+                task == null ? "" : task.solution(),
+                answer.studentAnswer,
+                answer.bewertung,
+                answer.kommentar,
+                answer.punkte,
+                answer.version
+        );
+    }
+
+    void saveNote(int schuelerId, int testId, String note, String datum, String uhrzeit) {
         try {
-            db.insertNote(schuelerId, testId, note, datum, uhrzeit, schuljahr, lehrerId);
+            NoteContext context = loadNoteContext(testId, LocalDate.parse(datum));
+            db.replaceNotes(List.of(new DatabaseHandler.NoteEntry(schuelerId, testId, note, datum, uhrzeit,
+                    context.schuljahr(), context.lehrerId())));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    List<CorrectionGradeScale> loadGradeScales() {
-        Set<Path> directories = resolveGradeDirectories();
-        if (directories.isEmpty()) {
-            return List.of();
-        }
-        List<CorrectionGradeScale> scales = new ArrayList<>();
-        Set<String> seenIds = new HashSet<>();
-        for (Path directory : directories) {
-            try (Stream<Path> stream = Files.list(directory)) {
-                stream.filter(Files::isRegularFile)
-                        .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
-                        .sorted(Comparator.comparing(path -> path.getFileName().toString(), String.CASE_INSENSITIVE_ORDER))
-                        .forEach(path -> {
-                            try {
-                                CorrectionGradeScale scale = parseGradeScale(path);
-                                if (scale != null && seenIds.add(scale.id())) {
-                                    scales.add(scale);
-                                }
-                            } catch (Exception ignored) {
-                            }
-                        });
-            } catch (Exception ignored) {
-            }
-        }
-        scales.sort(Comparator.comparing(CorrectionGradeScale::displayName, String.CASE_INSENSITIVE_ORDER));
-        return scales;
+    /**
+     * @title loadNoteContext
+     * @short Ermittelt Schuljahr und Halbjahr aus dem Notendatum und den Lehrer aus der Klasse-Lehrer-Fach-Zuordnung des Tests.
+     */
+    synchronized NoteContext loadNoteContext(int testId, LocalDate datum) throws SQLException {
+        long lehrerId = db.queryLong("SELECT ct.idLehrer FROM Test t "
+                + "JOIN CT_KlasseLehrerFach ct ON ct.idCT = t.idCT_KLF WHERE t.idTest = ?", List.of(testId));
+        return new NoteContext(schuljahrFor(datum), lehrerId > 0 ? (int) lehrerId : null);
+    }
+
+    /**
+     * @title schuljahrFor
+     * @short Liefert das Schuljahr im Format der Notentabelle, z.B. "2025/2026 HJ1"; das Schuljahr beginnt am 1. August, das zweite Halbjahr am 1. Februar.
+     */
+    static String schuljahrFor(LocalDate datum) {
+        int month = datum.getMonthValue();
+        int startYear = month >= 8 ? datum.getYear() : datum.getYear() - 1;
+        String halbjahr = (month >= 8 || month == 1) ? "HJ1" : "HJ2";
+        return startYear + "/" + (startYear + 1) + " " + halbjahr;
+    }
+
+    List<GradeScale> loadGradeScales() {
+        return GradeScaleRegistry.shared().scales();
     }
 
-    Optional<GradeResult> calculateGrade(int testId, int studentId, CorrectionGradeScale scale, double maxPoints) {
+    Optional<GradeResult> calculateGrade(int testId, int studentId, GradeScale scale, double maxPoints) {
         if (scale == null || maxPoints <= 0) {
             return Optional.empty();
         }
@@ -296,162 +446,85 @@ class CorrectionService implements AutoCloseable {
         return Optional.of(new GradeResult(totalPoints, maxPoints, percentage, grade));
     }
 
-    private Set<Path> resolveGradeDirectories() {
-        Set<Path> result = new LinkedHashSet<>();
-        Path dataRoot = Paths.get("data");
-        for (String name : GRADE_DIR_NAMES) {
-            Path directory = dataRoot.resolve(name);
-            if (Files.isDirectory(directory)) {
-                result.add(directory);
-            }
+    /**
+     * @title calculateClassGrades
+     * @short Summiert die Punkte aller Schueler einer Klasse in einer GROUP-BY-Abfrage und wendet den Massstab an.
+     */
+    synchronized List<ClassGradeRow> calculateClassGrades(int testId, int classId, GradeScale scale, double maxPoints) {
+        List<ClassGradeRow> rows = new ArrayList<>();
+        if (scale == null || maxPoints <= 0) {
+            return rows;
         }
-        return result;
-    }
-
-    private CorrectionGradeScale parseGradeScale(Path path) {
         try {
-            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
-            NavigableMap<Double, String> thresholds = new TreeMap<>();
-            String displayName = null;
-            for (String rawLine : lines) {
-                String line = rawLine.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
-                if (line.startsWith("#")) {
-                    if (displayName == null && line.length() > 1) {
-                        displayName = line.substring(1).trim();
-                    }
-                    continue;
+            db.streamQuery("SELECT s.idSchueler, s.vorname, s.nachname, COUNT(a.idAntwort), COUNT(b.punkte), "
+                    + "COALESCE(SUM(b.punkte), 0), "
+                    + "(SELECT n.note FROM Note n WHERE n.idSchueler = s.idSchueler AND n.idTest = ? ORDER BY n.idNote DESC LIMIT 1) "
+                    + "FROM Schueler s "
+                    + "JOIN Antwort a ON a.idSchueler = s.idSchueler AND a.idTest = ? "
+                    + "LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                    + "WHERE s.idKlasse = ? "
+                    + "GROUP BY s.idSchueler, s.vorname, s.nachname "
+                    + "ORDER BY s.nachname COLLATE NOCASE, s.vorname COLLATE NOCASE", List.of(testId, testId, classId), rs -> {
+                int studentId = rs.getInt(1);
+                int answers = rs.getInt(4);
+                int scored = rs.getInt(5);
+                double points = rs.getDouble(6);
+                GradeResult result = null;
+                if (answers > 0 && scored == answers) {
+                    double percentage = Math.max(0.0, Math.min((points / maxPoints) * 100.0, 100.0));
+                    result = new GradeResult(points, maxPoints, percentage, scale.gradeFor(percentage));
                 }
-                String[] parts = line.split(";", 2);
-                if (parts.length < 2) {
-                    continue;
-                }
-                String thresholdPart = parts[0].trim().replace(',', '.');
-                String gradePart = parts[1].trim();
-                if (gradePart.isEmpty()) {
-                    continue;
-                }
-                try {
-                    double threshold = Double.parseDouble(thresholdPart);
-                    thresholds.put(threshold, gradePart);
-                } catch (NumberFormatException ignored) {
-                }
-            }
-            if (thresholds.isEmpty()) {
-                return null;
-            }
-            String filename = path.getFileName().toString();
-            int dot = filename.lastIndexOf('.');
-            String id = dot > 0 ? filename.substring(0, dot) : filename;
-            if (displayName == null || displayName.isBlank()) {
-                displayName = id;
-            }
-            return new CorrectionGradeScale(id, displayName, thresholds);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private CorrectionAnswer mapAnswer(Map<String, Object> answer,
-                                       Map<Integer, Map<String, Object>> taskById,
-                                       Map<Integer, Map<String, Object>> studentById,
-                                       Map<Integer, Map<String, Object>> bewertungen) {
-        int antwortId = toInt(answer.get("idAntwort"));
-        int taskId = toInt(answer.get("idAufgabe"));
-        int studentId = toInt(answer.get("idSchueler"));
-        Map<String, Object> task = taskById.get(taskId);
-        Map<String, Object> student = studentById.get(studentId);
-        Map<String, Object> bewertung = bewertungen.get(antwortId);
-        String bewertungText = bewertung == null ? "" : asString(bewertung.get("bewertung"));
-        String kommentar = bewertung == null ? "" : asString(bewertung.get("kommentar"));
-        Double punkte = bewertung == null ? null : toDouble(bewertung.get("punkte"));
-        return new CorrectionAnswer(
-                antwortId,
-                taskId,
-                studentId,
-                buildStudentName(student),
-                task == null ? "" : asString(task.get("aufgabeMarkdown")),
-                task == null ? "" : asString(task.get("loesung")),
-                asString(answer.get("antwort")),
-                bewertungText,
-                kommentar,
-                punkte
-        );
+                rows.add(new ClassGradeRow(studentId, buildStudentName(studentId, rs.getString(2), rs.getString(3)),
+                        answers, scored, result, rs.getString(7)));
+                return true;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
     }
 
-    private Map<Integer, Map<String, Object>> indexBy(List<Map<String, Object>> rows, String idColumn) {
-        Map<Integer, Map<String, Object>> result = new HashMap<>();
-        for (Map<String, Object> row : rows) {
-            int key = toInt(row.get(idColumn));
-            if (key >= 0) {
-                result.put(key, row);
+    /**
+     * @title saveClassNotes
+     * @short Speichert die Noten aller vollstaendig bewerteten Schueler in einer Transaktion; eine vorhandene Note
+     * desselben Tests wird dabei ersetzt, nicht ergaenzt.
+     */
+    synchronized int saveClassNotes(int testId, List<ClassGradeRow> rows, String datum, String uhrzeit) {
+        try {
+            NoteContext context = loadNoteContext(testId, LocalDate.parse(datum));
+            List<DatabaseHandler.NoteEntry> entries = new ArrayList<>();
+            for (ClassGradeRow row : rows) {
+                if (row.result() != null) {
+                    entries.add(new DatabaseHandler.NoteEntry(row.studentId(), testId, row.result().grade(),
+                            datum, uhrzeit, context.schuljahr(), context.lehrerId()));
+                }
             }
+            return db.replaceNotes(entries);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
-        return result;
     }
 
-    private String buildStudentName(Map<String, Object> student) {
-        if (student == null || student.isEmpty()) {
-            return "(unbekannter Schueler)";
-        }
-        String vorname = asString(student.get("vorname")).trim();
-        String nachname = asString(student.get("nachname")).trim();
-        String combined = (vorname + " " + nachname).trim();
+    private String buildStudentName(int studentId, String vorname, String nachname) {
+        String combined = (asString(vorname).trim() + " " + asString(nachname).trim()).trim();
         if (!combined.isEmpty()) {
             return combined;
         }
-        int id = toInt(student.get("idSchueler"));
-        return id >= 0 ? "Schueler " + id : "(unbekannter Schueler)";
+        return studentId >= 0 ? "Schueler " + studentId : "(unbekannter Schueler)";
     }
 
-    private String buildTaskDisplayName(Map<String, Object> task, int taskId) {
-        if (task == null || task.isEmpty()) {
-            return "Aufgabe " + taskId;
-        }
-        String markdown = asString(task.get("aufgabeMarkdown")).replaceAll("\\s+", " ").trim();
-        String typ = asString(task.get("typ")).trim();
+    private String buildTaskDisplayName(int taskId, String typ, String markdown) {
+        String normalized = markdown.replaceAll("\\s+", " ").trim();
         String base = "Aufgabe " + taskId;
-        if (!markdown.isEmpty()) {
-            String snippet = markdown.length() > 60 ? markdown.substring(0, 57) + "..." : markdown;
-            base = snippet;
+        if (!normalized.isEmpty()) {
+            base = normalized.length() > 60 ? normalized.substring(0, 57) + "..." : normalized;
         }
-        if (!typ.isEmpty()) {
-            base = base + " (" + typ + ")";
+        if (!typ.trim().isEmpty()) {
+            base = base + " (" + typ.trim() + ")";
         }
         return base;
     }
 
-    private boolean isStudentFullyEvaluated(List<Map<String, Object>> answers, Map<Integer, Map<String, Object>> bewertungen) {
-        if (answers == null || answers.isEmpty()) {
-            return false;
-        }
-        for (Map<String, Object> answer : answers) {
-            int antwortId = toInt(answer.get("idAntwort"));
-            if (!bewertungen.containsKey(antwortId)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private static int toInt(Object value) {
-        if (value instanceof Number number) {
-            return number.intValue();
-        }
-        if (value instanceof CharSequence sequence) {
-            String text = sequence.toString().trim();
-            if (!text.isEmpty()) {
-                try {
-                    return Integer.parseInt(text);
-                } catch (NumberFormatException ignored) {
-                }
-            }
-        }
-        return -1;
-    }
-
     private static Double toDouble(Object value) {
         if (value instanceof Number number) {
             return number.doubleValue();
@@ -495,90 +568,189 @@ class CorrectionService implements AutoCloseable {
     }
 
     public List<Map<String, Object>> getNotesForKlasseFachJahr(String klasse, String fach, String schuljahr) {
-        // Implementiere die DB-Abfrage nach Klasse, Fach und Schuljahr
-        // Rückgabe: List<Map<String, Object>> mit allen Noten der Klasse im Fach und Schuljahr
-        // Dummy:
-        return getAllNotes().stream()
-                .filter(n -> schuljahr.equals(n.get("schuljahr")) && klasse.equals(n.get("klassenname")) && fach.equals(n.get("fachname")))
-                .toList();
+        try {
+            return queryNoteDetails("SELECT " + NOTE_DETAIL_COLUMNS + " FROM NoteDetail "
+                    + "WHERE klassenname = ? AND fachname = ? AND schuljahr = ? ORDER BY schuelername, datum",
+                    List.of(klasse, fach, schuljahr));
+        } catch (Exception e) {
+            return List.of();
+        }
     }
 
+    /** Alle Noten mit aufgeloesten Namen; liest die beim Einfuegen gepflegte NoteDetail-Tabelle. */
     public List<Map<String, Object>> getAllNotesWithNames() {
         try {
-            List<Map<String, Object>> notes = db.getAllEntries("Note");
-            Map<Integer, Map<String, Object>> schuelerById = indexBy(db.getAllEntries("Schueler"), "idSchueler");
-            Map<Integer, Map<String, Object>> klasseById = indexBy(db.getAllEntries("Klasse"), "idKlasse");
-            Map<Integer, Map<String, Object>> testById = indexBy(db.getAllEntries("Test"), "idTest");
-            Map<Integer, Map<String, Object>> lehrerById = indexBy(db.getAllEntries("Lehrer"), "idLehrer");
-            Map<Integer, Map<String, Object>> fachById = indexBy(db.getAllEntries("Fach"), "idFach");
-            Map<Integer, Map<String, Object>> ctById = indexBy(db.getAllEntries("CT_KlasseLehrerFach"), "idCT");
-
-            for (Map<String, Object> n : notes) {
-                int schuelerId = toInt(n.get("idSchueler"));
-                Map<String, Object> s = schuelerById.get(schuelerId);
-
-                String schuelername = "";
-                int klasseId = -1;
-                if (s != null) {
-                    schuelername = (asString(s.get("vorname")) + " " + asString(s.get("nachname"))).trim();
-                    klasseId = toInt(s.get("idKlasse"));
-                }
-                Map<String, Object> k = klasseById.get(klasseId);
-                if (k == null) {
-                    // no direct class info on the student, fall back to the class referenced by the note's test
-                    int testIdFallback = toInt(n.get("idTest"));
-                    Map<String, Object> tFallback = testById.get(testIdFallback);
-                    Map<String, Object> ctFallback = tFallback == null ? null : ctById.get(toInt(tFallback.get("idCT_KLF")));
-                    klasseId = ctFallback == null ? -1 : toInt(ctFallback.get("idKlasse"));
-                    k = klasseById.get(klasseId);
+            return queryNoteDetails("SELECT " + NOTE_DETAIL_COLUMNS + " FROM NoteDetail ORDER BY idNote", List.of());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return java.util.List.of();
+        }
+    }
+
+    /** Anzahl der Noten, die den Filter erfuellen; laeuft ueber den Index von NoteDetail. */
+    int countClassNotes(NoteFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String where = filter.whereClause(params);
+        try {
+            return (int) db.queryLong("SELECT COUNT(*) FROM NoteDetail WHERE " + where, params);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Eine Seite der gefilterten Noten, sortiert nach der gewuenschten Spalte (Tiebreaker idNote). Mit {@code after}
+     * wird per Keyset direkt hinter der zuletzt gelesenen Zeile fortgesetzt, ohne vorherige Zeilen zu ueberspringen.
+     */
+    List<NoteRow> loadNotePage(NoteFilter filter, int sortColumn, boolean ascending, NoteRow after, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT idNote, " + String.join(", ", NOTE_ROW_COLUMNS)
+                + " FROM NoteDetail WHERE ").append(filter.whereClause(params));
+        String key = NOTE_ROW_COLUMNS[sortColumn] + " COLLATE NOCASE";
+        String direction = ascending ? "ASC" : "DESC";
+        if (after != null) {
+            String cmp = ascending ? ">" : "<";
+            sql.append(" AND (").append(key).append(' ').append(cmp).append(" ? OR (")
+                    .append(key).append(" = ? AND idNote ").append(cmp).append(" ?))");
+            String value = after.values()[sortColumn];
+            params.add(value);
+            params.add(value);
+            params.add(after.idNote());
+        }
+        sql.append(" ORDER BY ").append(key).append(' ').append(direction)
+                .append(", idNote ").append(direction).append(" LIMIT ?");
+        params.add(limit);
+        return queryNoteRows(sql.toString(), params);
+    }
+
+    /**
+     * Zeile an einer festen Position; dient nur als Einstiegspunkt, wenn weit in die Tabelle gesprungen wird und die
+     * vorherige Seitengrenze noch unbekannt ist. Von dort aus wird wieder per Keyset gelesen.
+     */
+    NoteRow seekNote(NoteFilter filter, int sortColumn, boolean ascending, int offset) {
+        List<Object> params = new ArrayList<>();
+        String key = NOTE_ROW_COLUMNS[sortColumn] + " COLLATE NOCASE";
+        String direction = ascending ? "ASC" : "DESC";
+        String sql = "SELECT idNote, " + String.join(", ", NOTE_ROW_COLUMNS) + " FROM NoteDetail WHERE "
+                + filter.whereClause(params) + " ORDER BY " + key + ' ' + direction + ", idNote " + direction
+                + " LIMIT 1 OFFSET ?";
+        params.add(offset);
+        List<NoteRow> rows = queryNoteRows(sql, params);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private List<NoteRow> queryNoteRows(String sql, List<?> params) {
+        try {
+            List<NoteRow> rows = new ArrayList<>();
+            db.streamQuery(sql, params, rs -> {
+                String[] values = new String[NOTE_ROW_COLUMNS.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getString(i + 2);
                 }
-                String klassenname = k == null ? "" : asString(k.get("klassenname")).trim();
+                rows.add(new NoteRow(rs.getInt(1), values));
+                return true;
+            });
+            return rows;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                int testId = toInt(n.get("idTest"));
-                Map<String, Object> t = testById.get(testId);
-                String testname = t == null ? "" : asString(t.get("typ")).trim();
+    /** Schuljahre mit Noten (fuer eine Klasse oder, bei classId < 0, insgesamt) aus der Klassen-Rollup-Tabelle. */
+    List<String> loadNoteYears(int classId) {
+        try {
+            List<String> years = new ArrayList<>();
+            db.streamQuery("SELECT DISTINCT schuljahr FROM NotenRollupKlasse WHERE schuljahr <> '' AND (? < 0 OR idKlasse = ?) "
+                    + "ORDER BY schuljahr COLLATE NOCASE", List.of(classId, classId), rs -> {
+                years.add(rs.getString(1).trim());
+                return true;
+            });
+            return years;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                Map<String, Object> ct = t == null ? null : ctById.get(toInt(t.get("idCT_KLF")));
-                int fachId = ct == null ? -1 : toInt(ct.get("idFach"));
-                Map<String, Object> f = fachById.get(fachId);
-                String fachname = f == null ? "" : asString(f.get("fachname")).trim();
+    /** Faecher, in denen die Klasse Noten hat; Fallback, wenn der Klasse kein Fach zugeordnet ist. */
+    List<SubjectInfo> loadNoteSubjects(int classId) {
+        try {
+            List<SubjectInfo> subjects = new ArrayList<>();
+            db.streamQuery("SELECT DISTINCT r.idFach, f.fachname FROM NotenRollupKlasse r JOIN Fach f ON f.idFach = r.idFach "
+                    + "WHERE r.idKlasse = ? AND trim(COALESCE(f.fachname, '')) <> '' ORDER BY f.fachname COLLATE NOCASE",
+                    List.of(classId), rs -> {
+                subjects.add(new SubjectInfo(rs.getInt(1), rs.getString(2).trim()));
+                return true;
+            });
+            return subjects;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                int lehrerId = toInt(n.get("idLehrer"));
-                if (lehrerId < 0 && ct != null) {
-                    lehrerId = toInt(ct.get("idLehrer"));
+    /**
+     * Notenentwicklung einer Klasse in einem Fach je Schuljahr: Anzahl, Durchschnitt und Verteilung kommen direkt aus
+     * den Rollup-Tabellen und kosten unabhaengig von der Zahl der Noten nur wenige Zeilen.
+     */
+    List<GradeTrendPoint> loadGradeTrend(int classId, int subjectId) {
+        try {
+            Map<String, GradeTrendPoint> points = new LinkedHashMap<>();
+            db.streamQuery("SELECT schuljahr, anzahl, anzahlNumerisch, summe FROM NotenRollupKlasse "
+                    + "WHERE idKlasse = ? AND idFach = ? ORDER BY schuljahr COLLATE NOCASE",
+                    List.of(classId, subjectId), rs -> {
+                String year = rs.getString(1);
+                points.put(year, new GradeTrendPoint(year, rs.getInt(2), rs.getInt(3), rs.getDouble(4), new TreeMap<>()));
+                return true;
+            });
+            db.streamQuery("SELECT schuljahr, note, anzahl FROM NotenRollupVerteilung WHERE idKlasse = ? AND idFach = ?",
+                    List.of(classId, subjectId), rs -> {
+                GradeTrendPoint point = points.get(rs.getString(1));
+                if (point != null) {
+                    point.distribution().put(rs.getString(2), rs.getInt(3));
                 }
-                Map<String, Object> l = lehrerById.get(lehrerId);
-                String lehrername = l == null ? "" : (asString(l.get("vorname")) + " " + asString(l.get("nachname"))).trim();
-
-                n.put("schuelername", schuelername);
-                n.put("klassenname", klassenname);
-                n.put("testname", testname);
-                n.put("fachname", fachname);
-                n.put("lehrername", lehrername);
-            }
-            return notes;
+                return true;
+            });
+            return new ArrayList<>(points.values());
         } catch (Exception e) {
-            e.printStackTrace();
-            return java.util.List.of();
+            throw new RuntimeException(e);
         }
     }
 
+    /** Spalten der Notenuebersicht in Anzeigereihenfolge; dieselben Ausdruecke tragen die Sortierindizes. */
+    static final String[] NOTE_ROW_COLUMNS = DatabaseHandler.NOTE_DETAIL_ROW_COLUMNS;
+
+    private static final String NOTE_DETAIL_COLUMNS = "idNote, idSchueler, idTest, note, datum, uhrzeit, schuljahr, "
+            + "schuelername, klassenname, fachname, testname, lehrername";
+
+    private List<Map<String, Object>> queryNoteDetails(String sql, List<?> params) throws SQLException {
+        List<Map<String, Object>> notes = new ArrayList<>();
+        db.streamQuery(sql, params, rs -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("idNote", rs.getInt(1));
+            row.put("idSchueler", rs.getInt(2));
+            row.put("idTest", rs.getInt(3));
+            row.put("note", rs.getString(4));
+            row.put("datum", rs.getString(5));
+            row.put("uhrzeit", rs.getString(6));
+            row.put("schuljahr", rs.getString(7));
+            row.put("schuelername", rs.getString(8));
+            row.put("klassenname", rs.getString(9));
+            row.put("fachname", rs.getString(10));
+            row.put("testname", rs.getString(11));
+            row.put("lehrername", rs.getString(12));
+            notes.add(row);
+            return true;
+        });
+        return notes;
+    }
+
     List<SimpleClassInfo> loadAllClasses() {
         try {
-            List<Map<String, Object>> rows = db.getAllEntries("Klasse");
             List<SimpleClassInfo> classes = new ArrayList<>();
-            for (Map<String, Object> row : rows) {
-                int id = toInt(row.get("idKlasse"));
-                if (id < 0) {
-                    continue;
-                }
-                String name = asString(row.get("klassenname")).trim();
-                if (name.isEmpty()) {
-                    name = "Klasse " + id;
-                }
-                classes.add(new SimpleClassInfo(id, name));
-            }
-            classes.sort(Comparator.comparing(SimpleClassInfo::name, String.CASE_INSENSITIVE_ORDER));
+            db.streamQuery("SELECT idKlasse, COALESCE(NULLIF(trim(klassenname), ''), 'Klasse ' || idKlasse) AS name "
+                    + "FROM Klasse ORDER BY name COLLATE NOCASE", List.of(), rs -> {
+                classes.add(new SimpleClassInfo(rs.getInt(1), rs.getString(2)));
+                return true;
+            });
             return classes;
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -590,27 +762,14 @@ class CorrectionService implements AutoCloseable {
             return List.of();
         }
         try {
-            Map<Integer, Map<String, Object>> subjectById = indexBy(db.getAllEntries("Fach"), "idFach");
-            List<Map<String, Object>> relations = db.getAllEntries("CT_KlasseLehrerFach");
-            Map<Integer, SubjectInfo> subjects = new LinkedHashMap<>();
-            for (Map<String, Object> relation : relations) {
-                if (toInt(relation.get("idKlasse")) != classId) {
-                    continue;
-                }
-                int subjectId = toInt(relation.get("idFach"));
-                if (subjectId < 0) {
-                    continue;
-                }
-                Map<String, Object> subjectRow = subjectById.get(subjectId);
-                String name = subjectRow == null ? "" : asString(subjectRow.get("fachname")).trim();
-                if (name.isEmpty()) {
-                    name = "Fach " + subjectId;
-                }
-                subjects.putIfAbsent(subjectId, new SubjectInfo(subjectId, name));
-            }
-            List<SubjectInfo> result = new ArrayList<>(subjects.values());
-            result.sort(Comparator.comparing(SubjectInfo::name, String.CASE_INSENSITIVE_ORDER));
-            return result;
+            List<SubjectInfo> subjects = new ArrayList<>();
+            db.streamQuery("SELECT DISTINCT ct.idFach, COALESCE(NULLIF(trim(f.fachname), ''), 'Fach ' || ct.idFach) AS name "
+                    + "FROM CT_KlasseLehrerFach ct LEFT JOIN Fach f ON f.idFach = ct.idFach "
+                    + "WHERE ct.idKlasse = ? AND ct.idFach IS NOT NULL ORDER BY name COLLATE NOCASE", List.of(classId), rs -> {
+                subjects.add(new SubjectInfo(rs.getInt(1), rs.getString(2)));
+                return true;
+            });
+            return subjects;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -665,25 +824,52 @@ class CorrectionService implements AutoCloseable {
 
     record CorrectionAnswer(int antwortId, int taskId, int studentId, String studentName,
                             String question, String solution, String studentAnswer,
-                            String bewertung, String kommentar, Double punkte) {
+                            String bewertung, String kommentar, Double punkte, long version) {
     }
 
-    record CorrectionGradeScale(String id, String displayName, NavigableMap<Double, String> thresholds) {
-        @Override
-        public String toString() {
-            return displayName;
-        }
+    record LiveAnswer(int antwortId, int studentId, String studentName, int taskId, String taskName, String answer,
+                      long receivedAt, String bewertung, String kommentar, Double punkte, long version) {
+    }
 
-        String gradeFor(double percentage) {
-            double normalized = Math.max(0.0, percentage);
-            Map.Entry<Double, String> entry = thresholds.floorEntry(normalized);
-            if (entry != null) {
-                return entry.getValue();
+    record NoteContext(String schuljahr, Integer lehrerId) {
+    }
+
+    record GradeResult(double points, double maxPoints, double percentage, String grade) {
+    }
+
+    /** Filter der Notenuebersicht; subjectId < 0 filtert ueber den Fachnamen, leere years bedeutet alle Schuljahre. */
+    record NoteFilter(int classId, int subjectId, String subjectName, List<String> years) {
+        String whereClause(List<Object> params) {
+            StringBuilder where = new StringBuilder("idKlasse = ?");
+            params.add(classId);
+            if (subjectId >= 0) {
+                where.append(" AND idFach = ?");
+                params.add(subjectId);
+            } else if (subjectName != null) {
+                where.append(" AND fachname = ?");
+                params.add(subjectName);
+            }
+            if (!years.isEmpty()) {
+                where.append(" AND schuljahr IN (").append(String.join(", ", Collections.nCopies(years.size(), "?"))).append(')');
+                params.addAll(years);
             }
-            return thresholds.firstEntry().getValue();
+            return where.toString();
         }
     }
 
-    record GradeResult(double points, double maxPoints, double percentage, String grade) {
+    record NoteRow(int idNote, String[] values) {
+    }
+
+    record GradeTrendPoint(String schuljahr, int count, int numericCount, double sum, Map<String, Integer> distribution) {
+        double average() {
+            return numericCount == 0 ? Double.NaN : sum / numericCount;
+        }
+    }
+
+    /**
+     * Ergebnis je Schueler fuer die Klassenbenotung; result ist null, solange nicht alle Antworten Punkte haben,
+     * existingNote ist die bereits gespeicherte Note zu diesem Test (oder null).
+     */
+    record ClassGradeRow(int studentId, String studentName, int answers, int scored, GradeResult result, String existingNote) {
     }
 }
@@ -2,6 +2,7 @@ package frontend.server;
 
 import java.io.File;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Abstraction used by the server UI so Swing components do not depend on the backend implementation details.
@@ -33,6 +34,8 @@ public interface IServer {
 
     ImportResult importTestFromFile(File file);
 
+    ImportResult importRosterFromFile(File file);
+
     void selectTestById(int id);
 
     String prepareHostingForClass(int classId, int durationMinutes);
@@ -45,6 +48,10 @@ public interface IServer {
 
     void startTestRun();
 
+    void setBundleDelivery(boolean enabled);
+
+    boolean isBundleDelivery();
+
     void pauseTestRun();
 
     void resumeTestRun();
@@ -63,6 +70,53 @@ public interface IServer {
 
     void endRunningTest();
 
+    int getSelectedTestId();
+
+    /**
+     * Registers a listener for answers submitted during a running test. Answers arrive bundled on a background
+     * thread; closing the returned handle unsubscribes.
+     */
+    AutoCloseable subscribeAnswers(AnswerListener listener);
+
+    interface AnswerListener {
+        /** @param dropped number of answers lost because the feed buffer was full; reload from the database if > 0 */
+        void onAnswers(List<AnswerEvent> answers, int dropped);
+    }
+
+    record AnswerEvent(int answerId, int studentId, int testId, int taskId, String answer, long receivedAt) {}
+
+    /**
+     * Registers a listener for server state changes, replacing periodic polling. Changes are coalesced and delivered
+     * on the EDT at most about ten times per second; the first update after registering carries the complete state.
+     * Closing the returned handle unsubscribes.
+     */
+    AutoCloseable addListener(Listener listener);
+
+    enum Event {
+        CLIENT_JOINED,
+        CLIENT_LEFT,
+        PROGRESS_CHANGED,
+        HAND_RAISED,
+        WARNING,
+        TIMER_TICK,
+        STATE_CHANGED
+    }
+
+    interface Listener {
+        /** Called on the EDT; parts of the update that did not change are {@code null}. */
+        void onUpdate(Update update);
+    }
+
+    record Update(
+            Set<Event> events,
+            StateInfo state,
+            TimerStatus timer,
+            List<ClientSummary> clients,
+            List<Warning> warnings
+    ) {}
+
+    record StateInfo(DashboardState state, String boundIp, String testName, String className, int taskCount) {}
+
     record TimerStatus(long totalSeconds, long remainingSeconds, boolean running, boolean paused) {}
 
     record TestSummary(int id, String name) {}
@@ -77,7 +131,8 @@ public interface IServer {
             String token,
             int currentTaskNumber,
             int totalTasks,
-            boolean handRaised
+            boolean handRaised,
+            long rttMillis
     ) {}
 
     record Warning(
@@ -85,7 +140,9 @@ public interface IServer {
             String clientId,
             String studentName,
             String message,
-            String timestamp
+            String timestamp,
+            int count,
+            String firstTimestamp
     ) {}
 
     record ImportResult(boolean success, String message) {}
@@ -0,0 +1,342 @@
+package frontend.server;
+
+import backend.server.DatabaseHandler;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * @title ItemAnalysis
+ * @short Aufgabenanalyse je Test: Schwierigkeit, Trennschaerfe, Antwortverteilung und mittlere Punkte je Aufgabe.
+ *
+ * Antworten und Bewertungen werden in einem Durchgang in primitive Arrays je Aufgabe gelesen; je Schueler und Aufgabe
+ * zaehlt nur die neueste Antwort, eine spaeter eingehende ersetzt den Platz der frueheren. Die Akkumulatoren
+ * bleiben prozessweit je Test erhalten; ein erneuter Aufruf liest nur neue Antworten und seit dem letzten Lauf
+ * geaenderte Bewertungen nach. Die Kennzahlen werden danach parallel je Aufgabe berechnet.
+ */
+final class ItemAnalysis {
+
+    /** Mehr Auswahloptionen passen nicht in die Bitmaske; weitere zaehlen als "Sonstige". */
+    private static final int MAX_OPTIONS = 63;
+    private static final long OTHER_BIT = 1L << MAX_OPTIONS;
+
+    private static final Map<Integer, TestAccumulator> CACHE = new ConcurrentHashMap<>();
+
+    record OptionCount(String option, int count, boolean correct) {
+    }
+
+    record ItemStats(int taskId, String label, int answers, int evaluated, double averagePoints,
+                     double difficulty, double discrimination, List<OptionCount> options) {
+    }
+
+    record Result(List<ItemStats> items, int students, int answersRead, boolean incremental, long elapsedNanos) {
+        String summary() {
+            return String.format(Locale.GERMAN, "%d Aufgaben, %d Schueler, %d Zeilen %sgelesen (%.0f ms)",
+                    items.size(), students, answersRead, incremental ? "nach" : "ein", elapsedNanos / 1_000_000.0);
+        }
+    }
+
+    private ItemAnalysis() {
+    }
+
+    /**
+     * @title analyze
+     * @short Liefert die Kennzahlen aller Aufgaben eines Tests; beim ersten Aufruf vollstaendig, danach inkrementell.
+     */
+    static Result analyze(DatabaseHandler db, int testId) throws SQLException {
+        long start = System.nanoTime();
+        TestAccumulator accumulator = CACHE.computeIfAbsent(testId, TestAccumulator::new);
+        synchronized (accumulator) {
+            boolean incremental = accumulator.loaded;
+            int read = accumulator.refresh(db);
+            List<TaskAccumulator> tasks = new ArrayList<>(accumulator.tasks.values());
+            List<double[]> scores = tasks.parallelStream().map(TaskAccumulator::normalizedScores).toList();
+            double[] totals = new double[accumulator.studentIndex.size()];
+            for (int t = 0; t < tasks.size(); t++) {
+                tasks.get(t).addTo(totals, scores.get(t));
+            }
+            List<ItemStats> items = IntStream.range(0, tasks.size()).parallel()
+                    .mapToObj(t -> tasks.get(t).stats(scores.get(t), totals))
+                    .sorted(Comparator.comparingInt(ItemStats::taskId))
+                    .toList();
+            return new Result(items, accumulator.studentIndex.size(), read, incremental, System.nanoTime() - start);
+        }
+    }
+
+    private static final class TestAccumulator {
+        final int testId;
+        final Map<Integer, TaskAccumulator> tasks = new LinkedHashMap<>();
+        final Map<Integer, Integer> studentIndex = new HashMap<>();
+        /** idAntwort -> (Aufgabe, Platz) fuer das Nachziehen geaenderter Bewertungen. */
+        final Map<Integer, long[]> slots = new HashMap<>();
+        boolean loaded;
+        int lastAntwortId;
+        String lastBewertetAm = "";
+
+        TestAccumulator(int testId) {
+            this.testId = testId;
+        }
+
+        int refresh(DatabaseHandler db) throws SQLException {
+            int[] read = new int[1];
+            db.streamQuery("SELECT au.idAufgabe, au.typ, au.loesung, au.korrekt FROM Aufgabe au "
+                    + "WHERE au.idAufgabe IN (SELECT DISTINCT idAufgabe FROM Antwort WHERE idTest = ? AND idAntwort > ?)",
+                    List.of(testId, lastAntwortId), rs -> {
+                int taskId = rs.getInt(1);
+                if (!tasks.containsKey(taskId)) {
+                    tasks.put(taskId, new TaskAccumulator(taskId, rs.getString(2), rs.getString(3), rs.getString(4)));
+                }
+                return true;
+            });
+            String previousStamp = lastBewertetAm;
+            db.streamQuery("SELECT a.idAntwort, a.idAufgabe, a.idSchueler, a.antwort, b.punkte, b.bewertung, b.bewertetAm "
+                    + "FROM Antwort a LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort "
+                    + "WHERE a.idTest = ? AND a.idAntwort > ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM Antwort a2 WHERE a2.idSchueler = a.idSchueler "
+                    + "AND a2.idTest = a.idTest AND a2.idAufgabe = a.idAufgabe AND a2.idAntwort > a.idAntwort)",
+                    List.of(testId, lastAntwortId), rs -> {
+                int antwortId = rs.getInt(1);
+                TaskAccumulator task = tasks.get(rs.getInt(2));
+                if (task == null) {
+                    return true;
+                }
+                int student = studentIndex.computeIfAbsent(rs.getInt(3), id -> studentIndex.size());
+                int previous = task.answerOf(student);
+                if (previous >= antwortId) {
+                    return true;
+                }
+                if (previous > 0) {
+                    // ueberholte Antwort: Platz wird ersetzt, ihre Bewertung nicht mehr nachgezogen
+                    slots.remove(previous);
+                }
+                int slot = task.place(student, antwortId, task.selection(rs.getString(4)));
+                slots.put(antwortId, new long[]{task.taskId, slot});
+                task.evaluate(slot, toDouble(rs.getObject(5)), rs.getString(6));
+                lastAntwortId = Math.max(lastAntwortId, antwortId);
+                noteStamp(rs.getString(7));
+                read[0]++;
+                return true;
+            });
+            if (loaded) {
+                // bereits bekannte Antworten, deren Bewertung seit dem letzten Lauf gespeichert wurde
+                db.streamQuery("SELECT b.idAntwort, b.punkte, b.bewertung, b.bewertetAm FROM Bewertung b "
+                        + "JOIN Antwort a ON a.idAntwort = b.idAntwort "
+                        + "WHERE a.idTest = ? AND b.bewertetAm >= ?", List.of(testId, previousStamp), rs -> {
+                    long[] location = slots.get(rs.getInt(1));
+                    if (location != null) {
+                        tasks.get((int) location[0]).evaluate((int) location[1], toDouble(rs.getObject(2)), rs.getString(3));
+                        noteStamp(rs.getString(4));
+                        read[0]++;
+                    }
+                    return true;
+                });
+            }
+            loaded = true;
+            return read[0];
+        }
+
+        private void noteStamp(String bewertetAm) {
+            if (bewertetAm != null && bewertetAm.compareTo(lastBewertetAm) > 0) {
+                lastBewertetAm = bewertetAm;
+            }
+        }
+    }
+
+    private static final class TaskAccumulator {
+        final int taskId;
+        final String label;
+        final String[] options;
+        final long correctMask;
+        int size;
+        /** Schuelerindex -> Platz der neuesten Antwort. */
+        final Map<Integer, Integer> slotByStudent = new HashMap<>();
+        int[] answerIds = new int[32];
+        int[] students = new int[32];
+        long[] selections = new long[32];
+        double[] points = new double[32];
+        double[] verdicts = new double[32];
+
+        TaskAccumulator(int taskId, String typ, String loesung, String korrekt) {
+            this.taskId = taskId;
+            this.label = "Aufgabe " + taskId + (typ == null || typ.isBlank() ? "" : " (" + typ + ")");
+            boolean choice = typ != null && typ.toLowerCase(Locale.ROOT).endsWith("choice");
+            this.options = choice && loesung != null && !loesung.isBlank() ? loesung.split("\\|\\|") : new String[0];
+            this.correctMask = korrekt == null ? 0L : maskOf(korrekt);
+        }
+
+        int answerOf(int student) {
+            Integer slot = slotByStudent.get(student);
+            return slot == null ? 0 : answerIds[slot];
+        }
+
+        int place(int student, int antwortId, long selection) {
+            Integer existing = slotByStudent.get(student);
+            int slot = existing != null ? existing : add(student);
+            answerIds[slot] = antwortId;
+            selections[slot] = selection;
+            points[slot] = Double.NaN;
+            verdicts[slot] = Double.NaN;
+            return slot;
+        }
+
+        private int add(int student) {
+            if (size == students.length) {
+                int capacity = size * 2;
+                answerIds = Arrays.copyOf(answerIds, capacity);
+                students = Arrays.copyOf(students, capacity);
+                selections = Arrays.copyOf(selections, capacity);
+                points = Arrays.copyOf(points, capacity);
+                verdicts = Arrays.copyOf(verdicts, capacity);
+            }
+            students[size] = student;
+            slotByStudent.put(student, size);
+            return size++;
+        }
+
+        void evaluate(int slot, Double punkte, String bewertung) {
+            points[slot] = punkte == null ? Double.NaN : punkte;
+            verdicts[slot] = verdictScore(bewertung);
+        }
+
+        long selection(String answer) {
+            return options.length == 0 || answer == null ? 0L : maskOf(answer);
+        }
+
+        private long maskOf(String value) {
+            long mask = 0L;
+            for (String part : value.split("\\|\\|")) {
+                String normalized = part.trim();
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                int index = -1;
+                for (int i = 0; i < options.length && i < MAX_OPTIONS; i++) {
+                    if (options[i].trim().equalsIgnoreCase(normalized)) {
+                        index = i;
+                        break;
+                    }
+                }
+                mask |= index >= 0 ? 1L << index : OTHER_BIT;
+            }
+            return mask;
+        }
+
+        /**
+         * Normierte Punktzahl 0..1 je Platz: Punkte relativ zum hoechsten beobachteten Wert der Aufgabe,
+         * ersatzweise die Bewertung (richtig/teilweise/falsch); NaN fuer unbewertete Antworten.
+         */
+        double[] normalizedScores() {
+            double max = 0.0;
+            for (int i = 0; i < size; i++) {
+                if (!Double.isNaN(points[i])) {
+                    max = Math.max(max, points[i]);
+                }
+            }
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                if (!Double.isNaN(points[i]) && max > 0) {
+                    scores[i] = points[i] / max;
+                } else {
+                    scores[i] = verdicts[i];
+                }
+            }
+            return scores;
+        }
+
+        void addTo(double[] totals, double[] scores) {
+            for (int i = 0; i < size; i++) {
+                if (!Double.isNaN(scores[i])) {
+                    totals[students[i]] += scores[i];
+                }
+            }
+        }
+
+        ItemStats stats(double[] scores, double[] totals) {
+            int evaluated = 0;
+            int withPoints = 0;
+            double pointSum = 0.0;
+            double scoreSum = 0.0;
+            double sumX = 0.0;
+            double sumY = 0.0;
+            double sumXX = 0.0;
+            double sumYY = 0.0;
+            double sumXY = 0.0;
+            for (int i = 0; i < size; i++) {
+                if (!Double.isNaN(points[i])) {
+                    withPoints++;
+                    pointSum += points[i];
+                }
+                double x = scores[i];
+                if (Double.isNaN(x)) {
+                    continue;
+                }
+                evaluated++;
+                scoreSum += x;
+                // Trennschaerfe als korrigierte Item-Total-Korrelation (Gesamtwert ohne diese Aufgabe)
+                double y = totals[students[i]] - x;
+                sumX += x;
+                sumY += y;
+                sumXX += x * x;
+                sumYY += y * y;
+                sumXY += x * y;
+            }
+            double covariance = evaluated * sumXY - sumX * sumY;
+            double variance = (evaluated * sumXX - sumX * sumX) * (evaluated * sumYY - sumY * sumY);
+            double discrimination = evaluated > 2 && variance > 0 ? covariance / Math.sqrt(variance) : Double.NaN;
+            return new ItemStats(taskId, label, size, evaluated,
+                    withPoints == 0 ? Double.NaN : pointSum / withPoints,
+                    evaluated == 0 ? Double.NaN : scoreSum / evaluated,
+                    discrimination,
+                    optionCounts());
+        }
+
+        private List<OptionCount> optionCounts() {
+            if (options.length == 0) {
+                return List.of();
+            }
+            int limit = Math.min(options.length, MAX_OPTIONS);
+            int[] counts = new int[limit + 1];
+            for (int i = 0; i < size; i++) {
+                long selection = selections[i];
+                for (int option = 0; option < limit; option++) {
+                    counts[option] += (int) ((selection >>> option) & 1L);
+                }
+                counts[limit] += (selection & OTHER_BIT) != 0 ? 1 : 0;
+            }
+            List<OptionCount> result = new ArrayList<>(limit + 1);
+            for (int option = 0; option < limit; option++) {
+                result.add(new OptionCount(options[option].trim(), counts[option], (correctMask & (1L << option)) != 0));
+            }
+            if (counts[limit] > 0) {
+                result.add(new OptionCount("Sonstige", counts[limit], false));
+            }
+            return result;
+        }
+
+        private static double verdictScore(String bewertung) {
+            if (bewertung == null || bewertung.isBlank()) {
+                return Double.NaN;
+            }
+            String normalized = bewertung.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("teilweise")) {
+                return 0.5;
+            }
+            if (normalized.equals("richtig") || normalized.equals("korrekt")) {
+                return 1.0;
+            }
+            return normalized.equals("falsch") ? 0.0 : Double.NaN;
+        }
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
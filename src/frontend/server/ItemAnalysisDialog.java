@@ -0,0 +1,206 @@
+package frontend.server;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+/** Aufgabenanalyse eines Tests ueber alle Klassen; Berechnung und Aktualisierung laufen im Hintergrund. */
+class ItemAnalysisDialog extends JDialog implements AutoCloseable {
+
+    private final CorrectionService service;
+    private final JComboBox<CorrectionService.CorrectionTest> testCombo = new JComboBox<>();
+    private final ItemTableModel model = new ItemTableModel();
+    private final JTable table = new JTable(model);
+    private final JTextArea distributionArea = new JTextArea(8, 40);
+    private final JLabel statusLabel = new JLabel(" ");
+    private final AccentButton refreshButton = new AccentButton("Aktualisieren");
+
+    private SwingWorker<ItemAnalysis.Result, Void> worker;
+
+    ItemAnalysisDialog(JFrame owner) throws Exception {
+        super(owner, "Aufgabenanalyse", true);
+        this.service = new CorrectionService();
+        buildUi();
+        for (CorrectionService.CorrectionTest test : service.loadTests()) {
+            testCombo.addItem(test);
+        }
+        testCombo.addActionListener(ignored -> analyzeSelectedTest());
+        if (testCombo.getItemCount() > 0) {
+            analyzeSelectedTest();
+        }
+    }
+
+    private void buildUi() {
+        setSize(980, 640);
+        setLocationRelativeTo(getOwner());
+        JPanel root = new JPanel(new BorderLayout(12, 12));
+        root.setBackground(ServerTheme.WINDOW_BACKGROUND);
+        root.setBorder(new EmptyBorder(16, 16, 16, 16));
+        setContentPane(root);
+
+        JLabel title = new JLabel("Aufgabenanalyse");
+        title.setForeground(ServerTheme.TEXT_PRIMARY);
+        title.setFont(ServerTheme.FONT_HEADING);
+        testCombo.setFont(ServerTheme.FONT_BODY);
+        refreshButton.addActionListener(ignored -> analyzeSelectedTest());
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        controls.setOpaque(false);
+        controls.add(testCombo);
+        controls.add(refreshButton);
+        JPanel header = new JPanel(new BorderLayout(0, 8));
+        header.setOpaque(false);
+        header.add(title, BorderLayout.NORTH);
+        header.add(controls, BorderLayout.CENTER);
+        root.add(header, BorderLayout.NORTH);
+
+        table.setRowHeight(28);
+        table.setFont(ServerTheme.FONT_BODY);
+        table.setFillsViewportHeight(true);
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                int row = table.getSelectedRow();
+                showDistribution(row < 0 ? null : model.getItem(table.convertRowIndexToModel(row)));
+            }
+        });
+        distributionArea.setEditable(false);
+        distributionArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), new JScrollPane(distributionArea));
+        split.setResizeWeight(0.65);
+        split.setBorder(null);
+        root.add(split, BorderLayout.CENTER);
+
+        statusLabel.setFont(ServerTheme.FONT_BODY);
+        statusLabel.setForeground(ServerTheme.TEXT_SECONDARY);
+        root.add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    private void analyzeSelectedTest() {
+        CorrectionService.CorrectionTest test = (CorrectionService.CorrectionTest) testCombo.getSelectedItem();
+        if (test == null || (worker != null && !worker.isDone())) {
+            return;
+        }
+        refreshButton.setEnabled(false);
+        statusLabel.setText("Analyse läuft ...");
+        worker = new SwingWorker<>() {
+            @Override
+            protected ItemAnalysis.Result doInBackground() {
+                return service.analyzeItems(test.id());
+            }
+
+            @Override
+            protected void done() {
+                refreshButton.setEnabled(true);
+                try {
+                    ItemAnalysis.Result result = get();
+                    model.setItems(result.items());
+                    statusLabel.setText(result.summary());
+                    if (model.getRowCount() > 0) {
+                        table.setRowSelectionInterval(0, 0);
+                    } else {
+                        showDistribution(null);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                    statusLabel.setText("Analyse fehlgeschlagen.");
+                    JOptionPane.showMessageDialog(ItemAnalysisDialog.this,
+                        "Analyse fehlgeschlagen: " + cause.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showDistribution(ItemAnalysis.ItemStats item) {
+        if (item == null) {
+            distributionArea.setText("");
+            return;
+        }
+        if (item.options().isEmpty()) {
+            distributionArea.setText(item.label() + "\n\nKeine Auswahlaufgabe - keine Antwortverteilung.");
+            return;
+        }
+        int max = item.options().stream().mapToInt(ItemAnalysis.OptionCount::count).max().orElse(0);
+        StringBuilder text = new StringBuilder(item.label()).append("\n\n");
+        for (ItemAnalysis.OptionCount option : item.options()) {
+            int bar = max == 0 ? 0 : Math.round(option.count() * 30f / max);
+            text.append(String.format(Locale.GERMAN, "%s %-30s %4d  %s%n",
+                option.correct() ? "*" : " ", abbreviate(option.option()), option.count(), "#".repeat(bar)));
+        }
+        text.append("\n* = richtige Option");
+        distributionArea.setText(text.toString());
+        distributionArea.setCaretPosition(0);
+    }
+
+    private static String abbreviate(String value) {
+        return value.length() <= 30 ? value : value.substring(0, 27) + "...";
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (worker != null) {
+            worker.cancel(false);
+        }
+        service.close();
+    }
+
+    private static class ItemTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Aufgabe", "Antworten", "Bewertet", "Ø Punkte", "Schwierigkeit", "Trennschärfe"};
+        private List<ItemAnalysis.ItemStats> items = List.of();
+
+        void setItems(List<ItemAnalysis.ItemStats> items) {
+            this.items = items;
+            fireTableDataChanged();
+        }
+
+        ItemAnalysis.ItemStats getItem(int row) {
+            return row < 0 || row >= items.size() ? null : items.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return columnIndex == 1 || columnIndex == 2 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            ItemAnalysis.ItemStats item = items.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> item.label();
+                case 1 -> item.answers();
+                case 2 -> item.evaluated();
+                case 3 -> format(item.averagePoints());
+                case 4 -> format(item.difficulty());
+                case 5 -> format(item.discrimination());
+                default -> "";
+            };
+        }
+
+        private static String format(double value) {
+            return Double.isNaN(value) ? "-" : String.format(Locale.GERMAN, "%.2f", value);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package frontend.server;
+
+import backend.server.DatabaseHandler;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Live-Korrektur waehrend eines laufenden Tests: eingehende Antworten werden vom Server gebuendelt zugestellt und
+ * erscheinen sofort in der Tabelle (je Schueler und Aufgabe eine Zeile mit dem neuesten Stand) und koennen direkt
+ * bewertet werden. Datenbankzugriffe laufen auf einem eigenen Worker-Thread.
+ */
+class LiveCorrectionDialog extends JDialog implements AutoCloseable {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final IServer server;
+    private final CorrectionService service;
+    private final LiveAnswerTableModel model = new LiveAnswerTableModel();
+    private final JTable table = new JTable(model);
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JTextArea answerArea = new JTextArea(6, 40);
+    private final JTextField bewertungField = new JTextField(12);
+    private final JTextField punkteField = new JTextField(6);
+    private final JTextField kommentarField = new JTextField(24);
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Live-Korrektur");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AutoCloseable subscription;
+
+    private int testId;
+    private int received;
+    private boolean closed;
+
+    LiveCorrectionDialog(JFrame owner, IServer server) throws Exception {
+        super(owner, "Live-Korrektur", false);
+        this.server = server;
+        this.service = new CorrectionService();
+        buildUi();
+        // erst abonnieren, dann laden: Antworten dazwischen werden nach dem Stand auf demselben Worker eingespielt
+        this.subscription = server.subscribeAnswers((answers, dropped) ->
+                SwingUtilities.invokeLater(() -> onAnswers(answers, dropped)));
+        reloadSnapshot(server.getSelectedTestId());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                try {
+                    close();
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+    }
+
+    private void buildUi() {
+        setSize(980, 640);
+        setLocationRelativeTo(getOwner());
+        JPanel root = new JPanel(new BorderLayout(12, 12));
+        root.setBackground(ServerTheme.WINDOW_BACKGROUND);
+        root.setBorder(new EmptyBorder(16, 16, 16, 16));
+        setContentPane(root);
+
+        JLabel title = new JLabel("Live-Korrektur");
+        title.setForeground(ServerTheme.TEXT_PRIMARY);
+        title.setFont(ServerTheme.FONT_HEADING);
+        statusLabel.setFont(ServerTheme.FONT_BODY);
+        statusLabel.setForeground(ServerTheme.TEXT_SECONDARY);
+        JPanel header = new JPanel(new BorderLayout(0, 6));
+        header.setOpaque(false);
+        header.add(title, BorderLayout.NORTH);
+        header.add(statusLabel, BorderLayout.CENTER);
+        root.add(header, BorderLayout.NORTH);
+
+        table.setRowHeight(28);
+        table.setFont(ServerTheme.FONT_BODY);
+        table.setFillsViewportHeight(true);
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showDetails(selectedAnswer());
+            }
+        });
+
+        answerArea.setEditable(false);
+        answerArea.setLineWrap(true);
+        answerArea.setWrapStyleWord(true);
+        answerArea.setFont(ServerTheme.FONT_BODY);
+
+        JPanel form = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        form.setOpaque(false);
+        form.add(label("Bewertung"));
+        form.add(bewertungField);
+        form.add(label("Punkte"));
+        form.add(punkteField);
+        form.add(label("Kommentar"));
+        form.add(kommentarField);
+        AccentButton saveButton = new AccentButton("Speichern");
+        saveButton.addActionListener(ignored -> saveSelected());
+        form.add(saveButton);
+
+        JPanel detail = new JPanel(new BorderLayout(0, 8));
+        detail.setOpaque(false);
+        detail.add(new JScrollPane(answerArea), BorderLayout.CENTER);
+        detail.add(form, BorderLayout.SOUTH);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), detail);
+        split.setResizeWeight(0.65);
+        split.setBorder(null);
+        root.add(split, BorderLayout.CENTER);
+    }
+
+    private JLabel label(String text) {
+        JLabel label = new JLabel(text);
+        label.setForeground(ServerTheme.TEXT_SECONDARY);
+        label.setFont(ServerTheme.FONT_BODY);
+        return label;
+    }
+
+    /** Laedt den aktuellen Stand aus der Datenbank, z. B. beim Oeffnen, bei Testwechsel oder nach Pufferueberlauf. */
+    private void reloadSnapshot(int newTestId) {
+        testId = newTestId;
+        if (newTestId < 0) {
+            model.setRows(List.of());
+            statusLabel.setText("Kein Test ausgewaehlt - Antworten erscheinen, sobald ein Testlauf beginnt.");
+            return;
+        }
+        submit(() -> service.loadLatestAnswers(newTestId), rows -> {
+            if (newTestId != testId) {
+                return;
+            }
+            model.setRows(rows);
+            received = 0;
+            updateStatus();
+        });
+    }
+
+    private void onAnswers(List<IServer.AnswerEvent> answers, int dropped) {
+        int currentTest = answers.isEmpty() ? testId : answers.get(answers.size() - 1).testId();
+        if (currentTest != testId || dropped > 0) {
+            reloadSnapshot(currentTest);
+            return;
+        }
+        List<IServer.AnswerEvent> relevant = answers.stream().filter(a -> a.testId() == testId).toList();
+        if (relevant.isEmpty()) {
+            return;
+        }
+        submit(() -> service.describeLiveAnswers(relevant), rows -> {
+            if (currentTest != testId) {
+                return;
+            }
+            CorrectionService.LiveAnswer selected = selectedAnswer();
+            boolean selectedReplaced = false;
+            for (CorrectionService.LiveAnswer row : rows) {
+                model.upsert(row);
+                selectedReplaced |= selected != null && selected.studentId() == row.studentId()
+                        && selected.taskId() == row.taskId() && selected.antwortId() != row.antwortId();
+            }
+            received += rows.size();
+            updateStatus();
+            if (selectedReplaced) {
+                CorrectionService.LiveAnswer current = selectedAnswer();
+                answerArea.setText(current == null ? "" : current.answer());
+                statusLabel.setText("Die gewaehlte Antwort wurde soeben vom Schueler geaendert.");
+            }
+        });
+    }
+
+    private void updateStatus() {
+        long open = model.rows.stream().filter(row -> row.bewertung().isBlank() && row.punkte() == null).count();
+        statusLabel.setText(model.getRowCount() + " Antworten, davon " + open + " unbewertet"
+                + (received > 0 ? " - " + received + " seit dem Oeffnen eingegangen" : ""));
+    }
+
+    private CorrectionService.LiveAnswer selectedAnswer() {
+        int row = table.getSelectedRow();
+        return row < 0 ? null : model.getRow(table.convertRowIndexToModel(row));
+    }
+
+    private void showDetails(CorrectionService.LiveAnswer answer) {
+        if (answer == null) {
+            answerArea.setText("");
+            bewertungField.setText("");
+            punkteField.setText("");
+            kommentarField.setText("");
+            return;
+        }
+        answerArea.setText(answer.studentName() + " - " + answer.taskName() + "\n\n" + answer.answer());
+        answerArea.setCaretPosition(0);
+        bewertungField.setText(answer.bewertung());
+        punkteField.setText(answer.punkte() == null ? "" : Double.toString(answer.punkte()));
+        kommentarField.setText(answer.kommentar());
+    }
+
+    private void saveSelected() {
+        CorrectionService.LiveAnswer answer = selectedAnswer();
+        if (answer == null) {
+            return;
+        }
+        Double punkte;
+        try {
+            String text = punkteField.getText().trim();
+            punkte = text.isEmpty() ? null : Double.parseDouble(text.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Punkte konnten nicht interpretiert werden.", "Hinweis", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String bewertung = bewertungField.getText();
+        String kommentar = kommentarField.getText();
+        submit(() -> service.saveEvaluation(answer.antwortId(), answer.version(), bewertung, kommentar, punkte), conflicts -> {
+            if (conflicts.isEmpty()) {
+                model.upsert(new CorrectionService.LiveAnswer(answer.antwortId(), answer.studentId(), answer.studentName(),
+                        answer.taskId(), answer.taskName(), answer.answer(), answer.receivedAt(),
+                        bewertung.trim(), kommentar.trim(), punkte, answer.version() + 1));
+                updateStatus();
+                return;
+            }
+            StringBuilder message = new StringBuilder(conflicts.size() == 1
+                    ? "Diese Antwort wurde inzwischen von einer anderen Lehrkraft bewertet:"
+                    : conflicts.size() + " Antworten wurden inzwischen von einer anderen Lehrkraft bewertet:");
+            for (DatabaseHandler.BewertungVersion current : conflicts) {
+                CorrectionService.LiveAnswer row = current.idAntwort() == answer.antwortId()
+                        ? answer : model.findByAnswerId(current.idAntwort());
+                if (row != null) {
+                    model.upsert(new CorrectionService.LiveAnswer(row.antwortId(), row.studentId(), row.studentName(),
+                            row.taskId(), row.taskName(), row.answer(), row.receivedAt(),
+                            Optional.ofNullable(current.bewertung()).orElse(""), Optional.ofNullable(current.kommentar()).orElse(""),
+                            current.punkte(), current.version()));
+                }
+                message.append("\n- ").append(row == null ? "Antwort " + current.idAntwort() : row.studentName() + ", " + row.taskName())
+                        .append(" (").append(current.bewertetAm()).append("): ")
+                        .append(Optional.ofNullable(current.bewertung()).filter(b -> !b.isBlank()).orElse("-"))
+                        .append(", Punkte: ").append(current.punkte() == null ? "-" : current.punkte());
+            }
+            message.append("\n\nDie gespeicherte Bewertung wird angezeigt; bitte bei Bedarf erneut speichern.");
+            JOptionPane.showMessageDialog(this, message.toString(), "Bearbeitungskonflikt", JOptionPane.WARNING_MESSAGE);
+        });
+    }
+
+    private <T> void submit(Callable<T> work, Consumer<T> onSuccess) {
+        worker.submit(() -> {
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> showError(e));
+            }
+        });
+    }
+
+    private void showError(Exception e) {
+        Throwable cause = e.getCause() != null && e instanceof RuntimeException ? e.getCause() : e;
+        JOptionPane.showMessageDialog(this, "Fehler in der Live-Korrektur: " + cause.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        subscription.close();
+        worker.shutdownNow();
+        // die Verbindung erst schliessen, wenn kein Speicher- oder Ladevorgang mehr darauf laeuft
+        worker.awaitTermination(2, TimeUnit.SECONDS);
+        service.close();
+    }
+
+    private static class LiveAnswerTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Eingang", "Schueler", "Aufgabe", "Antwort", "Bewertung", "Punkte"};
+        private final List<CorrectionService.LiveAnswer> rows = new ArrayList<>();
+        private final Map<Long, Integer> indexByKey = new HashMap<>();
+
+        void setRows(List<CorrectionService.LiveAnswer> answers) {
+            rows.clear();
+            indexByKey.clear();
+            for (CorrectionService.LiveAnswer answer : answers) {
+                indexByKey.put(key(answer), rows.size());
+                rows.add(answer);
+            }
+            fireTableDataChanged();
+        }
+
+        /** Ersetzt die Zeile desselben Schuelers und derselben Aufgabe oder haengt eine neue an. */
+        void upsert(CorrectionService.LiveAnswer answer) {
+            Integer index = indexByKey.get(key(answer));
+            if (index == null) {
+                indexByKey.put(key(answer), rows.size());
+                rows.add(answer);
+                fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+            } else if (rows.get(index).antwortId() <= answer.antwortId()) {
+                rows.set(index, answer);
+                fireTableRowsUpdated(index, index);
+            }
+        }
+
+        CorrectionService.LiveAnswer findByAnswerId(int antwortId) {
+            for (CorrectionService.LiveAnswer row : rows) {
+                if (row.antwortId() == antwortId) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        CorrectionService.LiveAnswer getRow(int index) {
+            return index < 0 || index >= rows.size() ? null : rows.get(index);
+        }
+
+        private static long key(CorrectionService.LiveAnswer answer) {
+            return ((long) answer.studentId() << 32) | (answer.taskId() & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            CorrectionService.LiveAnswer row = rows.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> row.receivedAt() <= 0 ? "-"
+                        : LocalTime.ofInstant(Instant.ofEpochMilli(row.receivedAt()), ZoneId.systemDefault()).format(TIME);
+                case 1 -> row.studentName();
+                case 2 -> row.taskName();
+                case 3 -> abbreviate(row.answer());
+                case 4 -> row.bewertung();
+                case 5 -> row.punkte() == null ? "" : row.punkte();
+                default -> "";
+            };
+        }
+
+        private static String abbreviate(String text) {
+            String flat = text.replaceAll("\\s+", " ").trim();
+            return flat.length() <= 80 ? flat : flat.substring(0, 77) + "...";
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package frontend.server;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * @title NotePageTableModel
+ * @short Virtualisiertes Tabellenmodell der Notenuebersicht, das nur die gerade sichtbaren Seiten aus der Datenbank liest.
+ *
+ * Zeilenzahl, Filter und Sortierung werden in SQL ausgewertet. Seiten werden per Keyset (letzter Sortierschluessel plus
+ * idNote) nachgeladen und in einem kleinen LRU-Cache gehalten; springt die Ansicht weit nach vorn, wird die Seitengrenze
+ * einmal per Offset gesucht und von dort aus wieder per Keyset gelesen. Zeilenzahl und Seiten werden im Hintergrund
+ * gelesen; bis eine Seite da ist, zeigt die Tabelle leere Zellen und wird danach fuer den Seitenbereich neu gezeichnet.
+ */
+class NotePageTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Sch\u00fcler", "Fach", "Test", "Note", "Datum", "Uhrzeit", "Schuljahr", "Lehrer"};
+    private static final int PAGE_SIZE = 200;
+    private static final int CACHED_PAGES = 8;
+
+    private final CorrectionService service;
+    private final Map<Integer, List<CorrectionService.NoteRow>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<CorrectionService.NoteRow>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    /** Letzte Zeile jeder bereits gelesenen Seite; bleibt bei Cache-Verdraengung erhalten. */
+    private final TreeMap<Integer, CorrectionService.NoteRow> pageEnds = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    /** Wird bei jedem Filter- oder Sortierwechsel erhoeht; Ergebnisse aelterer Ladevorgaenge werden verworfen. */
+    private int generation;
+    private CorrectionService.NoteFilter filter;
+    private int rowCount;
+    private int sortColumn;
+    private boolean ascending = true;
+
+    NotePageTableModel(CorrectionService service) {
+        this.service = service;
+    }
+
+    /** Setzt einen neuen Filter ({@code null} = leere Tabelle) und liest die Zeilenzahl im Hintergrund neu. */
+    void setFilter(CorrectionService.NoteFilter filter) {
+        this.filter = filter;
+        int current = invalidate();
+        if (filter == null) {
+            rowCount = 0;
+            fireTableDataChanged();
+            return;
+        }
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return service.countClassNotes(filter);
+            }
+
+            @Override
+            protected void done() {
+                if (current != generation) {
+                    return;
+                }
+                try {
+                    rowCount = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    rowCount = 0;
+                }
+                fireTableDataChanged();
+            }
+        }.execute();
+    }
+
+    /**
+     * Sortiert nach der Spalte; ein erneuter Klick auf dieselbe Spalte kehrt die Richtung um. Die Spalten bleiben
+     * gleich, daher genuegt ein Datenwechsel; der Aufrufer zeichnet den Tabellenkopf fuer den Pfeil neu.
+     */
+    void sortBy(int column) {
+        if (column < 0 || column >= COLUMNS.length) {
+            return;
+        }
+        ascending = column != sortColumn || !ascending;
+        sortColumn = column;
+        invalidate();
+        fireTableDataChanged();
+    }
+
+    private int invalidate() {
+        pages.clear();
+        pageEnds.clear();
+        loading.clear();
+        return ++generation;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) {
+            return COLUMNS[column];
+        }
+        return COLUMNS[column] + (ascending ? " \u25b2" : " \u25bc");
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int index = rowIndex / PAGE_SIZE;
+        List<CorrectionService.NoteRow> page = pages.get(index);
+        if (page == null) {
+            requestPage(index);
+            return "";
+        }
+        int offset = rowIndex % PAGE_SIZE;
+        if (offset >= page.size()) {
+            return "";
+        }
+        String value = page.get(offset).values()[columnIndex];
+        return value == null ? "" : value.trim();
+    }
+
+    /** Liest eine Seite im Hintergrund; Filter, Sortierung und Keyset-Einstieg werden auf dem EDT festgehalten. */
+    private void requestPage(int index) {
+        if (filter == null || !loading.add(index)) {
+            return;
+        }
+        int current = generation;
+        CorrectionService.NoteFilter pageFilter = filter;
+        int column = sortColumn;
+        boolean asc = ascending;
+        CorrectionService.NoteRow knownEnd = index > 0 ? pageEnds.get(index - 1) : null;
+        new SwingWorker<List<CorrectionService.NoteRow>, Void>() {
+            @Override
+            protected List<CorrectionService.NoteRow> doInBackground() {
+                CorrectionService.NoteRow after = knownEnd;
+                if (index > 0 && after == null) {
+                    after = service.seekNote(pageFilter, column, asc, index * PAGE_SIZE - 1);
+                    if (after == null) {
+                        return List.of();
+                    }
+                }
+                return service.loadNotePage(pageFilter, column, asc, after, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (current != generation) {
+                    return;
+                }
+                loading.remove(index);
+                List<CorrectionService.NoteRow> rows;
+                try {
+                    rows = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    rows = List.of();
+                }
+                pages.put(index, rows);
+                if (!rows.isEmpty()) {
+                    pageEnds.put(index, rows.get(rows.size() - 1));
+                }
+                int first = index * PAGE_SIZE;
+                int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            }
+        }.execute();
+    }
+}
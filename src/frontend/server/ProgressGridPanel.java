@@ -0,0 +1,272 @@
+package frontend.server;
+
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.ToolTipManager;
+
+/**
+ * @title ProgressGridPanel
+ * @short Kachelansicht des Testlaufs: eine selbst gezeichnete Kachel je Schueler, eingefaerbt nach Fortschritt.
+ *
+ * Die Kacheln stehen alphabetisch und behalten ihren Platz, solange niemand hinzukommt oder geht. Bei einer
+ * Aktualisierung werden nur die Rechtecke der geaenderten Kacheln neu gezeichnet; erst wenn sich die Reihenfolge
+ * verschiebt, wird ab der ersten verschobenen Kachel neu gezeichnet. So bleibt die Ansicht auch bei einigen hundert
+ * Schuelern fluessig.
+ */
+class ProgressGridPanel extends JComponent implements Scrollable {
+
+    private static final int TILE_WIDTH = 132;
+    private static final int TILE_HEIGHT = 54;
+    private static final int GAP = 8;
+    private static final int ARC = 12;
+    private static final Color EMPTY = new Color(52, 63, 74);
+    private static final Color DONE = new Color(46, 160, 67);
+    private static final Color HAND = new Color(241, 196, 15);
+    private static final Color PAUSED = new Color(231, 76, 60);
+    private static final Comparator<IServer.ClientSummary> ORDER = Comparator
+            .comparing((IServer.ClientSummary c) -> Objects.toString(c.studentName(), ""), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(c -> Objects.toString(c.clientId(), ""));
+
+    private final List<IServer.ClientSummary> tiles = new ArrayList<>();
+    private final Font nameFont = ServerTheme.FONT_BODY.deriveFont(Font.BOLD, 13f);
+    private final Font detailFont = ServerTheme.FONT_BODY.deriveFont(12f);
+
+    ProgressGridPanel() {
+        setOpaque(true);
+        setBackground(ServerTheme.CANVAS_BACKGROUND);
+        ToolTipManager.sharedInstance().registerComponent(this);
+        addComponentListener(new ComponentAdapter() {
+            private int columns = -1;
+
+            @Override
+            public void componentResized(ComponentEvent e) {
+                int current = columns();
+                if (current != columns) {
+                    columns = current;
+                    revalidate();
+                    repaint();
+                }
+            }
+        });
+    }
+
+    /** Uebernimmt den neuen Stand und zeichnet nur die betroffenen Kacheln neu. */
+    void setClients(List<IServer.ClientSummary> clients) {
+        List<IServer.ClientSummary> next = new ArrayList<>(clients == null ? List.of() : clients);
+        next.sort(ORDER);
+        Map<String, IServer.ClientSummary> previous = new HashMap<>();
+        for (IServer.ClientSummary tile : tiles) {
+            previous.put(tile.clientId(), tile);
+        }
+        int firstShifted = -1;
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < next.size(); i++) {
+            IServer.ClientSummary tile = next.get(i);
+            boolean samePlace = i < tiles.size() && Objects.equals(tiles.get(i).clientId(), tile.clientId());
+            if (!samePlace) {
+                if (firstShifted < 0) {
+                    firstShifted = i;
+                }
+            } else if (!tile.equals(previous.get(tile.clientId()))) {
+                changed.add(i);
+            }
+        }
+        if (firstShifted < 0 && next.size() < tiles.size()) {
+            firstShifted = next.size();
+        }
+        int oldCount = tiles.size();
+        tiles.clear();
+        tiles.addAll(next);
+        if (oldCount != next.size()) {
+            revalidate();
+        }
+        for (int index : changed) {
+            if (firstShifted < 0 || index < firstShifted) {
+                repaint(tileBounds(index));
+            }
+        }
+        if (firstShifted >= 0) {
+            Rectangle from = tileBounds(firstShifted);
+            repaint(0, from.y, getWidth(), Math.max(0, getHeight() - from.y));
+        }
+    }
+
+    private int columns() {
+        int width = getWidth() > 0 ? getWidth() : getParent() == null ? TILE_WIDTH : getParent().getWidth();
+        return Math.max(1, (width - GAP) / (TILE_WIDTH + GAP));
+    }
+
+    private Rectangle tileBounds(int index) {
+        int cols = columns();
+        int x = GAP + (index % cols) * (TILE_WIDTH + GAP);
+        int y = GAP + (index / cols) * (TILE_HEIGHT + GAP);
+        return new Rectangle(x, y, TILE_WIDTH, TILE_HEIGHT);
+    }
+
+    private int tileAt(Point point) {
+        int cols = columns();
+        int col = (point.x - GAP) / (TILE_WIDTH + GAP);
+        int row = (point.y - GAP) / (TILE_HEIGHT + GAP);
+        if (point.x < GAP || point.y < GAP || col >= cols) {
+            return -1;
+        }
+        int index = row * cols + col;
+        return index < tiles.size() && tileBounds(index).contains(point) ? index : -1;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int cols = columns();
+        int rows = (tiles.size() + cols - 1) / cols;
+        return new Dimension(cols * (TILE_WIDTH + GAP) + GAP, Math.max(1, rows) * (TILE_HEIGHT + GAP) + GAP);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g2.setColor(getBackground());
+            g2.fill(clip);
+            int cols = columns();
+            int firstRow = Math.max(0, (clip.y - GAP) / (TILE_HEIGHT + GAP));
+            int lastRow = (clip.y + clip.height) / (TILE_HEIGHT + GAP);
+            int end = Math.min(tiles.size(), (lastRow + 1) * cols);
+            for (int i = firstRow * cols; i < end; i++) {
+                Rectangle bounds = tileBounds(i);
+                if (bounds.intersects(clip)) {
+                    paintTile(g2, tiles.get(i), bounds);
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintTile(Graphics2D g2, IServer.ClientSummary client, Rectangle r) {
+        double progress = progress(client);
+        g2.setColor(EMPTY);
+        g2.fillRoundRect(r.x, r.y, r.width, r.height, ARC, ARC);
+        Color fill = isDelivered(client) ? DONE : ServerTheme.ACCENT_DARK;
+        int filled = (int) Math.round(r.width * progress);
+        if (filled > 0) {
+            Shape previousClip = g2.getClip();
+            g2.clipRect(r.x, r.y, filled, r.height);
+            g2.setColor(fill);
+            g2.fillRoundRect(r.x, r.y, r.width, r.height, ARC, ARC);
+            g2.setClip(previousClip);
+        }
+        if (client.handRaised()) {
+            g2.setColor(HAND);
+            g2.setStroke(new BasicStroke(3f));
+            g2.drawRoundRect(r.x + 1, r.y + 1, r.width - 3, r.height - 3, ARC, ARC);
+        } else if (isPaused(client)) {
+            g2.setColor(PAUSED);
+            g2.setStroke(new BasicStroke(2f));
+            g2.drawRoundRect(r.x + 1, r.y + 1, r.width - 3, r.height - 3, ARC, ARC);
+        }
+        g2.setColor(ServerTheme.TEXT_PRIMARY);
+        g2.setFont(nameFont);
+        FontMetrics nameMetrics = g2.getFontMetrics();
+        g2.drawString(fit(displayName(client), nameMetrics, r.width - 16), r.x + 8, r.y + 8 + nameMetrics.getAscent());
+        g2.setFont(detailFont);
+        FontMetrics detailMetrics = g2.getFontMetrics();
+        String detail = client.totalTasks() > 0
+                ? client.currentTaskNumber() + " / " + client.totalTasks()
+                : Objects.toString(client.status(), "-");
+        g2.setColor(ServerTheme.TEXT_SECONDARY);
+        g2.drawString(fit(detail, detailMetrics, r.width - 16), r.x + 8, r.y + r.height - 8 - detailMetrics.getDescent());
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int index = tileAt(event.getPoint());
+        if (index < 0) {
+            return null;
+        }
+        IServer.ClientSummary client = tiles.get(index);
+        String progress = client.totalTasks() > 0
+                ? "Frage " + client.currentTaskNumber() + " / " + client.totalTasks()
+                : "keine Aufgaben";
+        return "<html><b>" + displayName(client) + "</b><br/>" + Objects.toString(client.status(), "-")
+                + "<br/>" + progress + (client.rttMillis() >= 0 ? "<br/>Latenz " + client.rttMillis() + " ms" : "")
+                + (client.handRaised() ? "<br/>Meldet sich" : "") + "</html>";
+    }
+
+    private static double progress(IServer.ClientSummary client) {
+        if (isDelivered(client)) {
+            return 1.0;
+        }
+        if (client.totalTasks() <= 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, Math.min(1.0, client.currentTaskNumber() / (double) client.totalTasks()));
+    }
+
+    private static boolean isDelivered(IServer.ClientSummary client) {
+        return client.status() != null && client.status().trim().toLowerCase(Locale.ROOT).startsWith("abgegeben");
+    }
+
+    private static boolean isPaused(IServer.ClientSummary client) {
+        return client.status() != null && client.status().trim().toLowerCase(Locale.ROOT).startsWith("pausiert");
+    }
+
+    private static String displayName(IServer.ClientSummary client) {
+        String name = client.studentName();
+        return name == null || name.isBlank() ? Objects.toString(client.clientId(), "-") : name.trim();
+    }
+
+    private static String fit(String text, FontMetrics metrics, int width) {
+        if (metrics.stringWidth(text) <= width) {
+            return text;
+        }
+        String ellipsis = "\u2026";
+        int end = text.length();
+        while (end > 0 && metrics.stringWidth(text.substring(0, end) + ellipsis) > width) {
+            end--;
+        }
+        return text.substring(0, end) + ellipsis;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? TILE_HEIGHT + GAP : TILE_WIDTH + GAP;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package frontend.server;
+
+import java.awt.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/** Dialog fuer den Ergebnisexport; der Export laeuft in einem SwingWorker mit Fortschrittsanzeige. */
+class ResultsExportDialog extends JDialog implements AutoCloseable {
+
+    private static final ResultsExportService.ExportOption ALL_TESTS = new ResultsExportService.ExportOption(-1, "Alle Tests");
+    private static final ResultsExportService.ExportOption ALL_CLASSES = new ResultsExportService.ExportOption(-1, "Alle Klassen");
+    private static final String ALL_YEARS = "Alle Schuljahre";
+
+    private final ResultsExportService service;
+
+    private final JComboBox<ResultsExportService.ExportOption> testCombo = new JComboBox<>();
+    private final JComboBox<ResultsExportService.ExportOption> classCombo = new JComboBox<>();
+    private final JComboBox<String> yearCombo = new JComboBox<>();
+    private final JComboBox<ResultsExportService.Format> formatCombo = new JComboBox<>(ResultsExportService.Format.values());
+    private final JCheckBox gzipBox = new JCheckBox("gzip-komprimiert (.gz)");
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final AccentButton exportButton = new AccentButton("Exportieren");
+    private final AccentButton cancelButton = new AccentButton("Abbrechen");
+
+    private SwingWorker<Long, long[]> worker;
+    // Die Verbindung wird erst geschlossen, wenn kein Export mehr aus ihr liest
+    private final Object serviceLock = new Object();
+    private boolean exporting;
+    private boolean closeRequested;
+
+    ResultsExportDialog(JFrame owner) throws Exception {
+        super(owner, "Ergebnisse exportieren", true);
+        this.service = new ResultsExportService();
+        buildUi();
+        loadFilters();
+    }
+
+    private void buildUi() {
+        setSize(560, 420);
+        setLocationRelativeTo(getOwner());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                if (worker != null && !worker.isDone()) {
+                    worker.cancel(false);
+                    return;
+                }
+                dispose();
+            }
+        });
+
+        JPanel root = new JPanel(new BorderLayout(16, 16));
+        root.setBackground(ServerTheme.WINDOW_BACKGROUND);
+        root.setBorder(new EmptyBorder(20, 20, 20, 20));
+        setContentPane(root);
+
+        JLabel title = new JLabel("Ergebnisse exportieren");
+        title.setForeground(ServerTheme.TEXT_PRIMARY);
+        title.setFont(ServerTheme.FONT_HEADING);
+        root.add(title, BorderLayout.NORTH);
+
+        JPanel form = new JPanel(new GridBagLayout());
+        form.setOpaque(false);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(0, 0, 10, 12);
+        gbc.anchor = GridBagConstraints.WEST;
+        addRow(form, gbc, 0, "Test", testCombo);
+        addRow(form, gbc, 1, "Klasse", classCombo);
+        addRow(form, gbc, 2, "Schuljahr", yearCombo);
+        addRow(form, gbc, 3, "Format", formatCombo);
+        gbc.gridx = 1;
+        gbc.gridy = 4;
+        gzipBox.setOpaque(false);
+        gzipBox.setFont(ServerTheme.FONT_BODY);
+        gzipBox.setForeground(ServerTheme.TEXT_PRIMARY);
+        form.add(gzipBox, gbc);
+        root.add(form, BorderLayout.CENTER);
+
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        statusLabel.setFont(ServerTheme.FONT_BODY);
+        statusLabel.setForeground(ServerTheme.TEXT_SECONDARY);
+        cancelButton.setEnabled(false);
+        exportButton.addActionListener(ignored -> startExport());
+        cancelButton.addActionListener(ignored -> {
+            if (worker != null) {
+                worker.cancel(false);
+            }
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        buttons.setOpaque(false);
+        buttons.add(cancelButton);
+        buttons.add(exportButton);
+
+        JPanel footer = new JPanel(new BorderLayout(0, 8));
+        footer.setOpaque(false);
+        footer.add(progressBar, BorderLayout.NORTH);
+        footer.add(statusLabel, BorderLayout.CENTER);
+        footer.add(buttons, BorderLayout.SOUTH);
+        root.add(footer, BorderLayout.SOUTH);
+    }
+
+    private void addRow(JPanel form, GridBagConstraints gbc, int row, String label, JComboBox<?> combo) {
+        JLabel lbl = new JLabel(label);
+        lbl.setFont(ServerTheme.FONT_BODY);
+        lbl.setForeground(ServerTheme.TEXT_SECONDARY);
+        gbc.gridx = 0;
+        gbc.gridy = row;
+        gbc.weightx = 0;
+        gbc.fill = GridBagConstraints.NONE;
+        form.add(lbl, gbc);
+        combo.setFont(ServerTheme.FONT_BODY);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        form.add(combo, gbc);
+    }
+
+    private void loadFilters() throws Exception {
+        testCombo.addItem(ALL_TESTS);
+        service.loadTests().forEach(testCombo::addItem);
+        classCombo.addItem(ALL_CLASSES);
+        service.loadClasses().forEach(classCombo::addItem);
+        yearCombo.addItem(ALL_YEARS);
+        service.loadSchoolYears().forEach(yearCombo::addItem);
+    }
+
+    private void startExport() {
+        ResultsExportService.Format format = (ResultsExportService.Format) formatCombo.getSelectedItem();
+        if (format == null) {
+            return;
+        }
+        boolean gzip = gzipBox.isSelected();
+        String extension = format.extension() + (gzip ? ".gz" : "");
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export speichern");
+        chooser.setFileFilter(new FileNameExtensionFilter(format + "-Dateien (*." + extension + ")", gzip ? "gz" : format.extension()));
+        chooser.setSelectedFile(new File("ergebnisse." + extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION || chooser.getSelectedFile() == null) {
+            return;
+        }
+        File selected = chooser.getSelectedFile();
+        if (!selected.getName().toLowerCase(java.util.Locale.ROOT).endsWith("." + extension)) {
+            selected = new File(selected.getParentFile(), selected.getName() + "." + extension);
+        }
+        Path target = selected.toPath();
+        ResultsExportService.ExportFilter filter = currentFilter();
+
+        setInputsEnabled(false);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("");
+        statusLabel.setText("Export läuft ...");
+        synchronized (serviceLock) {
+            exporting = true;
+        }
+        worker = new SwingWorker<>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                try {
+                    return service.export(filter, format, gzip, target,
+                        (written, total) -> publish(new long[]{written, total}),
+                        this::isCancelled);
+                } finally {
+                    exportFinished();
+                }
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                updateProgress(latest[0], latest[1]);
+            }
+
+            @Override
+            protected void done() {
+                progressBar.setIndeterminate(false);
+                setInputsEnabled(true);
+                try {
+                    long rows = get();
+                    progressBar.setValue(progressBar.getMaximum());
+                    statusLabel.setText(rows + " Zeilen exportiert nach " + target.getFileName());
+                } catch (CancellationException ex) {
+                    progressBar.setValue(0);
+                    progressBar.setString("");
+                    statusLabel.setText("Export abgebrochen.");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                    statusLabel.setText("Export fehlgeschlagen.");
+                    JOptionPane.showMessageDialog(ResultsExportDialog.this,
+                        "Export fehlgeschlagen: " + cause.getMessage(), "Fehler", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void updateProgress(long written, long total) {
+        if (total <= 0) {
+            return;
+        }
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(1000);
+        progressBar.setValue((int) Math.min(1000, written * 1000 / total));
+        progressBar.setString(written + " / " + total);
+    }
+
+    private ResultsExportService.ExportFilter currentFilter() {
+        ResultsExportService.ExportOption test = (ResultsExportService.ExportOption) testCombo.getSelectedItem();
+        ResultsExportService.ExportOption klasse = (ResultsExportService.ExportOption) classCombo.getSelectedItem();
+        String year = (String) yearCombo.getSelectedItem();
+        return new ResultsExportService.ExportFilter(
+            test == null || test == ALL_TESTS ? null : test.id(),
+            klasse == null || klasse == ALL_CLASSES ? null : klasse.id(),
+            year == null || ALL_YEARS.equals(year) ? null : year);
+    }
+
+    private void setInputsEnabled(boolean enabled) {
+        testCombo.setEnabled(enabled);
+        classCombo.setEnabled(enabled);
+        yearCombo.setEnabled(enabled);
+        formatCombo.setEnabled(enabled);
+        gzipBox.setEnabled(enabled);
+        exportButton.setEnabled(enabled);
+        cancelButton.setEnabled(!enabled);
+    }
+
+    private void exportFinished() {
+        synchronized (serviceLock) {
+            exporting = false;
+            if (!closeRequested) {
+                return;
+            }
+        }
+        try {
+            service.close();
+        } catch (Exception ignored) {
+            // Dialog ist bereits geschlossen, niemand wartet mehr auf die Verbindung
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (worker != null) {
+            worker.cancel(false);
+        }
+        synchronized (serviceLock) {
+            closeRequested = true;
+            if (exporting) {
+                // der Export bemerkt den Abbruch bei der naechsten Zeile und schliesst dann selbst
+                return;
+            }
+        }
+        service.close();
+    }
+}
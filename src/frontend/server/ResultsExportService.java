@@ -0,0 +1,332 @@
+package frontend.server;
+
+import backend.server.DatabaseHandler;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @title ResultsExportService
+ * @short Exportiert Antworten mit Bewertung und Note als CSV oder JSON, ohne die Ergebnisse im Speicher zu sammeln.
+ *
+ * Die Filter (Test, Klasse, Schuljahr) werden in SQL ausgewertet; die Zeilen werden direkt vom
+ * Datenbank-Cursor in einen gepufferten (optional gzip-komprimierten) Writer geschrieben.
+ */
+class ResultsExportService implements AutoCloseable {
+
+    enum Format {
+        CSV("csv"),
+        JSON("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        String extension() {
+            return extension;
+        }
+    }
+
+    private static final int PROGRESS_INTERVAL = 256;
+
+    private static final String[] COLUMNS = {
+        "idSchueler", "vorname", "nachname", "klasse", "idTest", "test", "idAufgabe", "aufgabentyp",
+        "idAntwort", "antwort", "bewertung", "kommentar", "punkte", "note", "schuljahr"
+    };
+
+    private final DatabaseHandler db;
+
+    ResultsExportService() throws SQLException {
+        this.db = new DatabaseHandler("data/lues.db");
+    }
+
+    List<ExportOption> loadTests() throws SQLException {
+        List<ExportOption> tests = new ArrayList<>();
+        db.streamQuery("SELECT idTest, typ FROM Test ORDER BY typ COLLATE NOCASE", List.of(), rs -> {
+            tests.add(new ExportOption(rs.getInt(1), rs.getString(2)));
+            return true;
+        });
+        return tests;
+    }
+
+    List<ExportOption> loadClasses() throws SQLException {
+        List<ExportOption> classes = new ArrayList<>();
+        db.streamQuery("SELECT idKlasse, klassenname FROM Klasse ORDER BY klassenname COLLATE NOCASE", List.of(), rs -> {
+            classes.add(new ExportOption(rs.getInt(1), rs.getString(2)));
+            return true;
+        });
+        return classes;
+    }
+
+    List<String> loadSchoolYears() throws SQLException {
+        List<String> years = new ArrayList<>();
+        db.streamQuery("SELECT DISTINCT schuljahr FROM Note WHERE schuljahr IS NOT NULL AND schuljahr <> '' ORDER BY schuljahr DESC",
+            List.of(), rs -> {
+                years.add(rs.getString(1));
+                return true;
+            });
+        return years;
+    }
+
+    /**
+     * @title countRows
+     * @short Zaehlt die Zeilen, die ein Export mit diesem Filter schreiben wuerde (fuer die Fortschrittsanzeige).
+     */
+    long countRows(ExportFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM Antwort a JOIN Schueler s ON s.idSchueler = a.idSchueler"
+            + whereClause(filter, params);
+        return db.queryLong(sql, params);
+    }
+
+    /**
+     * @title export
+     * @short Schreibt alle Zeilen des Filters in die Zieldatei.
+     * @param progress erhaelt (geschrieben, gesamt) in regelmaessigen Abstaenden.
+     * @param cancelled wird pro Zeile abgefragt; liefert er true, wird der Export abgebrochen und die Datei entfernt.
+     * @return Anzahl geschriebener Zeilen.
+     */
+    long export(ExportFilter filter, Format format, boolean gzip, Path target,
+                ProgressListener progress, BooleanSupplier cancelled) throws IOException, SQLException {
+        long total = countRows(filter);
+        long[] written = {0};
+        boolean completed = false;
+        try (OutputStream out = openStream(target, gzip);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024)) {
+            RowWriter rowWriter = format == Format.JSON ? new JsonRowWriter(writer) : new CsvRowWriter(writer);
+            rowWriter.begin();
+            List<Object> params = new ArrayList<>();
+            String sql = selectSql(filter, params);
+            try {
+                db.streamQuery(sql, params, rs -> {
+                    if (cancelled.getAsBoolean()) {
+                        return false;
+                    }
+                    try {
+                        rowWriter.write(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[0]++;
+                    if (written[0] % PROGRESS_INTERVAL == 0) {
+                        progress.onProgress(written[0], total);
+                    }
+                    return true;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            rowWriter.end();
+            completed = !cancelled.getAsBoolean();
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+        progress.onProgress(written[0], total);
+        return written[0];
+    }
+
+    private static OutputStream openStream(Path target, boolean gzip) throws IOException {
+        OutputStream out = Files.newOutputStream(target);
+        return gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+    }
+
+    private static String selectSql(ExportFilter filter, List<Object> params) {
+        StringBuilder sql = new StringBuilder()
+            .append("SELECT s.idSchueler, s.vorname, s.nachname, k.klassenname, t.idTest, t.typ, ")
+            .append("a.idAufgabe, au.typ, a.idAntwort, a.antwort, b.bewertung, b.kommentar, b.punkte, ")
+            .append("n.note, n.schuljahr ")
+            .append("FROM Antwort a ")
+            .append("JOIN Schueler s ON s.idSchueler = a.idSchueler ")
+            .append("LEFT JOIN Klasse k ON k.idKlasse = s.idKlasse ")
+            .append("LEFT JOIN Test t ON t.idTest = a.idTest ")
+            .append("LEFT JOIN Aufgabe au ON au.idAufgabe = a.idAufgabe ")
+            .append("LEFT JOIN Bewertung b ON b.idAntwort = a.idAntwort ")
+            .append("LEFT JOIN Note n ON n.idNote = (SELECT MAX(n2.idNote) FROM Note n2 ")
+            .append("WHERE n2.idSchueler = a.idSchueler AND n2.idTest = a.idTest");
+        if (filter.schoolYear() != null) {
+            sql.append(" AND n2.schuljahr = ?");
+            params.add(filter.schoolYear());
+        }
+        sql.append(')');
+        sql.append(whereClause(filter, params));
+        sql.append(" ORDER BY k.klassenname, s.nachname, s.vorname, a.idTest, a.idAufgabe");
+        return sql.toString();
+    }
+
+    private static String whereClause(ExportFilter filter, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.testId() != null) {
+            conditions.add("a.idTest = ?");
+            params.add(filter.testId());
+        }
+        if (filter.classId() != null) {
+            conditions.add("s.idKlasse = ?");
+            params.add(filter.classId());
+        }
+        // Antworten werden nur angefuegt; je Schueler und Aufgabe gilt die zuletzt gespeicherte
+        conditions.add("NOT EXISTS (SELECT 1 FROM Antwort a2 WHERE a2.idSchueler = a.idSchueler "
+            + "AND a2.idTest = a.idTest AND a2.idAufgabe = a.idAufgabe AND a2.idAntwort > a.idAntwort)");
+        if (filter.schoolYear() != null) {
+            conditions.add("EXISTS (SELECT 1 FROM Note n3 WHERE n3.idSchueler = a.idSchueler "
+                + "AND n3.idTest = a.idTest AND n3.schuljahr = ?)");
+            params.add(filter.schoolYear());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    @Override
+    public void close() throws Exception {
+        db.close();
+    }
+
+    /** Optionale Filter; {@code null} bedeutet "alle". */
+    record ExportFilter(Integer testId, Integer classId, String schoolYear) {
+    }
+
+    record ExportOption(int id, String name) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @FunctionalInterface
+    interface ProgressListener {
+        void onProgress(long written, long total);
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void end() throws IOException;
+    }
+
+    /** Semikolon-getrennt mit BOM, damit Excel die Umlaute korrekt erkennt. */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write('\uFEFF');
+            writer.write(String.join(";", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) {
+                    writer.write(';');
+                }
+                Object value = rs.getObject(i);
+                if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = value.indexOf(';') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    /** JSON-Array mit einem Objekt je Zeile. */
+    private static final class JsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private boolean first = true;
+
+        JsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write('[');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(first ? "\n  {" : ",\n  {");
+            first = false;
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) {
+                    writer.write(", ");
+                }
+                writer.write('"');
+                writer.write(COLUMNS[i - 1]);
+                writer.write("\": ");
+                Object value = rs.getObject(i);
+                if (value == null) {
+                    writer.write("null");
+                } else if (value instanceof Number number) {
+                    writer.write(number.toString());
+                } else {
+                    writeString(value.toString());
+                }
+            }
+            writer.write('}');
+        }
+
+        private void writeString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        if (ch < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) ch));
+                        } else {
+                            writer.write(ch);
+                        }
+                    }
+                }
+            }
+            writer.write('"');
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.write(first ? "]\n" : "\n]\n");
+        }
+    }
+}
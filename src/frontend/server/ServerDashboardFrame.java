@@ -12,6 +12,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -20,8 +21,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -61,8 +62,12 @@ public class ServerDashboardFrame extends JFrame {
     private final JLabel testValueLabel = createInfoValue();
     private final JLabel classValueLabel = createInfoValue();
 
-    private javax.swing.Timer refreshTimer;
+    private AutoCloseable serverEvents;
+    private IServer.DashboardState currentState = IServer.DashboardState.ROOT;
+    private IServer.TimerStatus currentTimer = new IServer.TimerStatus(0, 0, false, false);
+    private LiveCorrectionDialog liveCorrectionDialog;
     private String lastTokenFile;
+    private boolean rosterImportRunning;
     private CountdownFrame countdownFrame;
     private boolean countdownPinned = false;
     private boolean countdownMoveProgrammatic;
@@ -81,16 +86,13 @@ public class ServerDashboardFrame extends JFrame {
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                if (refreshTimer != null) {
-                    refreshTimer.stop();
-                }
+                closeServerEvents();
+                closeLiveCorrectionDialog();
                 disposeCountdownFrame();
                 ServerDashboardFrame.this.server.shutdown();
             }
         });
-        refreshTimer = new javax.swing.Timer(1000, ignored -> refreshState());
-        refreshTimer.start();
-        refreshState();
+        serverEvents = this.server.addListener(this::applyUpdate);
         refreshFonts(getContentPane());
         Toolkit.getDefaultToolkit().addAWTEventListener(zoomListener, AWTEvent.MOUSE_WHEEL_EVENT_MASK);
         zoomListenerInstalled = true;
@@ -168,38 +170,70 @@ public class ServerDashboardFrame extends JFrame {
         return label;
     }
 
-    private void refreshState() {
-        ipValueLabel.setText(server.getBoundIp());
-        testValueLabel.setText(Optional.ofNullable(server.getSelectedTestName()).orElse("-").trim());
-        classValueLabel.setText(Optional.ofNullable(server.getSelectedClassName()).orElse("-").trim());
+    /** Applies a coalesced server update on the EDT; only the parts contained in the update are repainted. */
+    private void applyUpdate(IServer.Update update) {
+        if (update.state() != null) {
+            applyState(update.state());
+        }
+        if (update.clients() != null) {
+            if (currentState == IServer.DashboardState.HOSTING) {
+                hostingPanel.setClients(update.clients());
+            } else if (currentState == IServer.DashboardState.RUNNING) {
+                runningPanel.setClients(update.clients());
+            }
+        }
+        if (update.warnings() != null) {
+            handleWarningNotifications(update.warnings());
+            runningPanel.setWarnings(update.warnings());
+        }
+        if (update.timer() != null) {
+            currentTimer = update.timer();
+            hostingPanel.setTimerStatus(currentTimer);
+            runningPanel.setTimerStatus(currentTimer);
+            updateCountdownFrame(currentState, currentTimer);
+        }
+    }
 
-        IServer.DashboardState state = server.getDashboardState();
-        IServer.TimerStatus timerStatus = server.getTimerStatus();
-        List<IServer.Warning> warnings = server.getActiveWarnings();
-        handleWarningNotifications(warnings);
+    private void applyState(IServer.StateInfo info) {
+        currentState = info.state() == null ? IServer.DashboardState.ROOT : info.state();
+        ipValueLabel.setText(info.boundIp());
+        testValueLabel.setText(Optional.ofNullable(info.testName()).orElse("-").trim());
+        classValueLabel.setText(Optional.ofNullable(info.className()).orElse("-").trim());
 
-        switch (state) {
+        switch (currentState) {
             case ROOT -> {
                 stateValueLabel.setText("Root");
                 cardLayout.show(cardPanel, "ROOT");
             }
             case TEST_SELECTED -> {
                 stateValueLabel.setText("Test gewaehlt");
-                selectedTestPanel.refresh();
+                selectedTestPanel.refresh(info);
                 cardLayout.show(cardPanel, "TEST");
             }
             case HOSTING -> {
                 stateValueLabel.setText("Hosting");
-                hostingPanel.refresh(timerStatus);
+                hostingPanel.refreshTokenFile();
+                hostingPanel.refreshBundleDelivery();
                 cardLayout.show(cardPanel, "HOSTING");
             }
             case RUNNING -> {
                 stateValueLabel.setText("Testlauf");
-                runningPanel.refresh(timerStatus, warnings);
                 cardLayout.show(cardPanel, "RUNNING");
             }
         }
-        updateCountdownFrame(state, timerStatus);
+    }
+
+    private void closeServerEvents() {
+        AutoCloseable subscription = serverEvents;
+        serverEvents = null;
+        if (subscription == null) {
+            return;
+        }
+        try {
+            subscription.close();
+        } catch (Exception ignored) {
+            // Abmelden kann nicht sinnvoll fehlschlagen
+        }
     }
 
     private void handleWarningNotifications(List<IServer.Warning> warnings) {
@@ -237,7 +271,6 @@ public class ServerDashboardFrame extends JFrame {
         if (selected != null) {
             try {
                 server.selectTestById(selected.id());
-                refreshState();
             } catch (RuntimeException ex) {
                 showError("Fehler beim Laden des Tests: " + ex.getMessage());
             }
@@ -255,7 +288,6 @@ public class ServerDashboardFrame extends JFrame {
                         "Tokenliste erstellt: " + lastTokenFile,
                         "Tokenliste",
                         JOptionPane.INFORMATION_MESSAGE);
-                refreshState();
             } catch (RuntimeException ex) {
                 showError("Fehler beim Starten des Hostings: " + ex.getMessage());
             }
@@ -287,7 +319,6 @@ public class ServerDashboardFrame extends JFrame {
                     message = "Test erfolgreich importiert.";
                 }
                 JOptionPane.showMessageDialog(this, message, "Import erfolgreich", JOptionPane.INFORMATION_MESSAGE);
-                refreshState();
             } else {
                 String message = result.message();
                 if (message == null || message.isBlank()) {
@@ -300,6 +331,64 @@ public class ServerDashboardFrame extends JFrame {
         }
     }
 
+    private void showRosterImportDialog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Schuelerliste importieren");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV-Dateien (*.csv)", "csv"));
+        int choice = chooser.showOpenDialog(this);
+        if (choice != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File selectedFile = chooser.getSelectedFile();
+        if (selectedFile == null) {
+            showError("Keine Datei ausgewählt.");
+            return;
+        }
+        if (rosterImportRunning) {
+            showError("Es laeuft bereits ein Import.");
+            return;
+        }
+        // tausende Zeilen in Batches: nicht auf dem EDT, das Dashboard bleibt bedienbar
+        rosterImportRunning = true;
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<IServer.ImportResult, Void>() {
+            @Override
+            protected IServer.ImportResult doInBackground() {
+                return server.importRosterFromFile(selectedFile);
+            }
+
+            @Override
+            protected void done() {
+                rosterImportRunning = false;
+                setCursor(Cursor.getDefaultCursor());
+                IServer.ImportResult result;
+                try {
+                    result = get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    showError("Import fehlgeschlagen: " + ex.getCause().getMessage());
+                    return;
+                }
+                if (result == null) {
+                    showError("Import fehlgeschlagen: Kein Ergebnis vom Server.");
+                    return;
+                }
+                if (result.success()) {
+                    JOptionPane.showMessageDialog(ServerDashboardFrame.this, result.message(), "Import erfolgreich",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    String message = result.message();
+                    if (message == null || message.isBlank()) {
+                        message = "Import fehlgeschlagen.";
+                    }
+                    showError(message);
+                }
+            }
+        }.execute();
+    }
+
     private void showCorrectionDialog() {
         try (CorrectionDialog dialog = new CorrectionDialog(this)) {
             dialog.setVisible(true);
@@ -308,6 +397,49 @@ public class ServerDashboardFrame extends JFrame {
         }
     }
 
+    /** Nicht-modal, damit der Testlauf daneben weiter beobachtet werden kann; es gibt hoechstens ein Fenster. */
+    private void showLiveCorrectionDialog() {
+        if (liveCorrectionDialog != null && liveCorrectionDialog.isDisplayable()) {
+            liveCorrectionDialog.toFront();
+            return;
+        }
+        try {
+            liveCorrectionDialog = new LiveCorrectionDialog(this, server);
+            liveCorrectionDialog.setVisible(true);
+        } catch (Exception ex) {
+            showError("Fehler in der Live-Korrektur: " + ex.getMessage());
+        }
+    }
+
+    /** Gibt Datenbankverbindung und Antwort-Abonnement der Live-Korrektur frei, bevor der Server endet. */
+    private void closeLiveCorrectionDialog() {
+        if (liveCorrectionDialog == null) {
+            return;
+        }
+        try {
+            liveCorrectionDialog.close();
+        } catch (Exception ignored) {
+        }
+        liveCorrectionDialog.dispose();
+        liveCorrectionDialog = null;
+    }
+
+    private void showItemAnalysisDialog() {
+        try (ItemAnalysisDialog dialog = new ItemAnalysisDialog(this)) {
+            dialog.setVisible(true);
+        } catch (Exception ex) {
+            showError("Fehler in der Aufgabenanalyse: " + ex.getMessage());
+        }
+    }
+
+    private void showResultsExportDialog() {
+        try (ResultsExportDialog dialog = new ResultsExportDialog(this)) {
+            dialog.setVisible(true);
+        } catch (Exception ex) {
+            showError("Fehler beim Export: " + ex.getMessage());
+        }
+    }
+
     private void showGradeOverviewDialog() {
         try (GradeOverviewDialog dialog = new GradeOverviewDialog(this)) {
             dialog.setVisible(true);
@@ -539,12 +671,19 @@ public class ServerDashboardFrame extends JFrame {
             gbc.gridy++;
             add(createActionButton("Test importieren", ignored -> showTestImportDialog()), gbc);
             gbc.gridy++;
+            add(createActionButton("Schuelerliste importieren", ignored -> showRosterImportDialog()), gbc);
+            gbc.gridy++;
             add(createActionButton("Korrekturmodus", ignored -> showCorrectionDialog()), gbc);
             gbc.gridy++;
+            add(createActionButton("Aufgabenanalyse", ignored -> showItemAnalysisDialog()), gbc);
+            gbc.gridy++;
             add(createActionButton("Notenübersicht", ignored -> showGradeOverviewDialog()), gbc);
             gbc.gridy++;
+            add(createActionButton("Ergebnisse exportieren", ignored -> showResultsExportDialog()), gbc);
+            gbc.gridy++;
             add(createActionButton("Server beenden", ignored -> {
-                refreshTimer.stop();
+                closeServerEvents();
+                closeLiveCorrectionDialog();
                 server.shutdown();
                 dispose();
             }), gbc);
@@ -622,7 +761,6 @@ public class ServerDashboardFrame extends JFrame {
             AccentButton cancelButton = new AccentButton("Zurueck");
             cancelButton.addActionListener(ignored -> {
                 server.resetToRoot();
-                refreshState();
             });
             buttons.add(cancelButton);
             buttons.add(hostButton);
@@ -634,9 +772,9 @@ public class ServerDashboardFrame extends JFrame {
             taskLabel.setFont(ServerTheme.FONT_BODY);
         }
 
-        void refresh() {
-            nameLabel.setText(Optional.ofNullable(server.getSelectedTestName()).orElse("-"));
-            taskLabel.setText(Integer.toString(server.getSelectedTaskCount()));
+        void refresh(IServer.StateInfo info) {
+            nameLabel.setText(Optional.ofNullable(info.testName()).orElse("-"));
+            taskLabel.setText(Integer.toString(info.taskCount()));
         }
 
         int getDurationMinutes() {
@@ -648,6 +786,7 @@ public class ServerDashboardFrame extends JFrame {
         private final ClientTableModel model = new ClientTableModel();
         private final JLabel tokenLabel = new JLabel();
         private final JLabel durationLabel = new JLabel();
+        private final JCheckBox bundleBox = new JCheckBox("Ganzen Test vorab senden");
 
         HostingPanel() {
             setPanelBackground(ServerTheme.CARD_BACKGROUND);
@@ -684,15 +823,19 @@ public class ServerDashboardFrame extends JFrame {
 
             JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 12, 0));
             buttons.setOpaque(false);
+            bundleBox.setOpaque(false);
+            bundleBox.setForeground(ServerTheme.TEXT_PRIMARY);
+            bundleBox.setFont(ServerTheme.FONT_BODY);
+            bundleBox.setToolTipText("Clients blaettern lokal; der Fortschritt wird weiter gemeldet.");
+            bundleBox.addActionListener(ignored -> server.setBundleDelivery(bundleBox.isSelected()));
+            buttons.add(bundleBox);
             AccentButton abortButton = new AccentButton("Testat abbrechen");
             abortButton.addActionListener(ignored -> {
                 server.abortHosting();
-                refreshState();
             });
             AccentButton startButton = new AccentButton("Testat beginnen");
             startButton.addActionListener(ignored -> {
                 server.startTestRun();
-                refreshState();
             });
             buttons.add(abortButton);
             buttons.add(startButton);
@@ -700,16 +843,31 @@ public class ServerDashboardFrame extends JFrame {
             add(bottom, BorderLayout.SOUTH);
         }
 
-        void refresh(IServer.TimerStatus status) {
-            List<IServer.ClientSummary> clients = server.getClientSummaries();
+        void setClients(List<IServer.ClientSummary> clients) {
             model.setClients(clients);
+        }
+
+        void refreshTokenFile() {
             tokenLabel.setText(lastTokenFile == null ? "Tokenliste: -" : "Tokenliste: " + lastTokenFile);
+        }
+
+        /** Zeigt die aktuelle Auslieferungsart; der Server steht beim Aufbau des Panels noch nicht fest. */
+        void refreshBundleDelivery() {
+            bundleBox.setSelected(server.isBundleDelivery());
+        }
+
+        void setTimerStatus(IServer.TimerStatus status) {
             durationLabel.setText("Geplante Dauer: " + formatDurationMinutes(status));
         }
     }
 
     private class RunningPanel extends RoundedPanel {
         private final ClientTableModel model = new ClientTableModel();
+        private final ProgressGridPanel progressGrid = new ProgressGridPanel();
+        private final CardLayout clientViews = new CardLayout();
+        private final JPanel clientViewPanel = new JPanel(clientViews);
+        private final AccentButton viewToggleButton = new AccentButton("Kachelansicht");
+        private boolean gridVisible;
         private final WarningPanel warningPanel = new WarningPanel();
         private final AccentButton timerPinButton = new AccentButton("");
         private final AccentButton addTimeButton = new AccentButton("Extra-Zeit");
@@ -745,10 +903,16 @@ public class ServerDashboardFrame extends JFrame {
             configureHandRaiseColumn(table);
             JScrollPane scrollPane = new JScrollPane(table);
             scrollPane.getViewport().setBackground(ServerTheme.CANVAS_BACKGROUND);
+            JScrollPane gridScrollPane = new JScrollPane(progressGrid,
+                    ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+            gridScrollPane.getViewport().setBackground(ServerTheme.CANVAS_BACKGROUND);
+            clientViewPanel.setOpaque(false);
+            clientViewPanel.add(scrollPane, "TABLE");
+            clientViewPanel.add(gridScrollPane, "GRID");
 
             JPanel center = new JPanel(new BorderLayout(18, 0));
             center.setOpaque(false);
-            center.add(scrollPane, BorderLayout.CENTER);
+            center.add(clientViewPanel, BorderLayout.CENTER);
             center.add(warningPanel, BorderLayout.EAST);
             add(center, BorderLayout.CENTER);
 
@@ -756,6 +920,11 @@ public class ServerDashboardFrame extends JFrame {
                 setCountdownPinned(!countdownPinned);
             });
             addTimeButton.addActionListener(ignored -> promptExtraTime());
+            viewToggleButton.addActionListener(ignored -> {
+                gridVisible = !gridVisible;
+                clientViews.show(clientViewPanel, gridVisible ? "GRID" : "TABLE");
+                viewToggleButton.setText(gridVisible ? "Tabellenansicht" : "Kachelansicht");
+            });
 
             pauseIndicator.setForeground(new Color(231, 76, 60));
             pauseIndicator.setFont(ServerTheme.FONT_BODY);
@@ -767,16 +936,19 @@ public class ServerDashboardFrame extends JFrame {
                 } else {
                     server.pauseTestRun();
                 }
-                refreshState();
             });
 
+            AccentButton liveButton = new AccentButton("Live-Korrektur");
+            liveButton.addActionListener(ignored -> showLiveCorrectionDialog());
+
             AccentButton endButton = new AccentButton("Test beenden");
             endButton.addActionListener(ignored -> {
                 server.endRunningTest();
-                refreshState();
             });
             JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 12, 0));
             buttons.setOpaque(false);
+            buttons.add(viewToggleButton);
+            buttons.add(liveButton);
             buttons.add(timerPinButton);
             buttons.add(addTimeButton);
             buttons.add(pauseButton);
@@ -824,18 +996,24 @@ public class ServerDashboardFrame extends JFrame {
                 int minutes = value == null ? 0 : value.intValue();
                 if (minutes > 0) {
                     server.addExtraTimeMinutes(minutes);
-                    ServerDashboardFrame.this.refreshState();
                 }
             }
         }
 
-        void refresh(IServer.TimerStatus status, List<IServer.Warning> warnings) {
-            model.setClients(server.getClientSummaries());
+        void setClients(List<IServer.ClientSummary> clients) {
+            model.setClients(clients);
+            progressGrid.setClients(clients);
+        }
+
+        void setWarnings(List<IServer.Warning> warnings) {
             List<IServer.Warning> safe = warnings == null ? List.of() : warnings;
             warningPanel.setWarnings(safe);
             if (safe.isEmpty()) {
                 hideWarningBanner();
             }
+        }
+
+        void setTimerStatus(IServer.TimerStatus status) {
             boolean isPaused = status != null && status.paused();
             this.paused = isPaused;
             pauseButton.setText(isPaused ? "Test fortsetzen" : "Test pausieren");
@@ -1003,8 +1181,11 @@ public class ServerDashboardFrame extends JFrame {
                     String headline = warning.studentName() == null || warning.studentName().isBlank()
                             ? warning.clientId()
                             : warning.studentName();
+                    String when = warning.count() > 1
+                            ? warning.count() + "x, " + warning.firstTimestamp() + " bis " + warning.timestamp()
+                            : warning.timestamp();
                     JLabel info = new JLabel("<html><b>" + headline + "</b><br/>" + warning.message()
-                            + "<br/><small>" + warning.timestamp() + "</small></html>");
+                            + "<br/><small>" + when + "</small></html>");
                     info.setForeground(ServerTheme.TEXT_PRIMARY);
                     info.setFont(ServerTheme.FONT_BODY);
                     row.add(info, BorderLayout.CENTER);
@@ -1012,7 +1193,6 @@ public class ServerDashboardFrame extends JFrame {
                     AccentButton dismiss = new AccentButton("Ok");
                     dismiss.addActionListener(ignored -> {
                         server.dismissWarning(warning.id());
-                        refreshState();
                     });
                     JPanel btnWrapper = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
                     btnWrapper.setOpaque(false);
@@ -1054,12 +1234,67 @@ public class ServerDashboardFrame extends JFrame {
 
     private static class ClientTableModel extends AbstractTableModel {
         private static final String HAND_ICON = "\uD83D\uDC4B";
-        private final String[] columns = {"", "Client", "Schueler", "IP", "Status"};
-        private List<IServer.ClientSummary> clients = List.of();
+        private final String[] columns = {"", "Client", "Schueler", "IP", "Status", "Latenz"};
+        private final List<IServer.ClientSummary> clients = new ArrayList<>();
+
+        /**
+         * Gleicht die Zeilen per clientId mit der neuen Liste ab und meldet nur Einfuegungen, Entfernungen und
+         * geaenderte Zeilen, damit Auswahl und Scrollposition der Tabelle erhalten bleiben. Eine verschobene Zeile
+         * (z. B. nach Handmeldung) wird als Entfernen und Einfuegen gemeldet.
+         */
+        void setClients(List<IServer.ClientSummary> next) {
+            List<IServer.ClientSummary> target = next == null ? List.of() : next;
+            Set<String> targetIds = target.stream()
+                    .map(IServer.ClientSummary::clientId)
+                    .collect(Collectors.toSet());
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                if (!targetIds.contains(clients.get(i).clientId())) {
+                    clients.remove(i);
+                    fireTableRowsDeleted(i, i);
+                }
+            }
+            int updatedFrom = -1;
+            for (int row = 0; row < target.size(); row++) {
+                IServer.ClientSummary wanted = target.get(row);
+                int current = indexOf(wanted.clientId(), row);
+                if (current == row) {
+                    if (!clients.get(row).equals(wanted)) {
+                        clients.set(row, wanted);
+                        if (updatedFrom < 0) {
+                            updatedFrom = row;
+                        }
+                        continue;
+                    }
+                } else {
+                    if (updatedFrom >= 0) {
+                        fireTableRowsUpdated(updatedFrom, row - 1);
+                    }
+                    if (current > row) {
+                        clients.remove(current);
+                        fireTableRowsDeleted(current, current);
+                    }
+                    clients.add(row, wanted);
+                    fireTableRowsInserted(row, row);
+                    updatedFrom = -1;
+                    continue;
+                }
+                if (updatedFrom >= 0) {
+                    fireTableRowsUpdated(updatedFrom, row - 1);
+                    updatedFrom = -1;
+                }
+            }
+            if (updatedFrom >= 0) {
+                fireTableRowsUpdated(updatedFrom, target.size() - 1);
+            }
+        }
 
-        void setClients(List<IServer.ClientSummary> clients) {
-            this.clients = clients;
-            fireTableDataChanged();
+        private int indexOf(String clientId, int from) {
+            for (int i = from; i < clients.size(); i++) {
+                if (Objects.equals(clients.get(i).clientId(), clientId)) {
+                    return i;
+                }
+            }
+            return -1;
         }
 
         @Override
@@ -1086,6 +1321,7 @@ public class ServerDashboardFrame extends JFrame {
                 case 2 -> client.studentName();
                 case 3 -> client.remoteIp();
                 case 4 -> formatStatus(client);
+                case 5 -> client.rttMillis() < 0 ? "-" : client.rttMillis() + " ms";
                 default -> "";
             };
         }
@@ -1248,23 +1484,23 @@ public class ServerDashboardFrame extends JFrame {
 
     // Dialog für Notenübersicht
     private static class GradeOverviewDialog extends JDialog implements AutoCloseable {
-        private static final int BASE_SCHOOL_YEAR_START = 2025;
-        private static final String HALF_YEAR_SUFFIX = "HJ1";
 
         private final CorrectionService service;
-        private final JTable table = new JTable();
+        private final NotePageTableModel noteModel;
+        private final JTable table;
         private final javax.swing.DefaultComboBoxModel<ClassOption> classModel = new javax.swing.DefaultComboBoxModel<>();
         private final javax.swing.DefaultComboBoxModel<SubjectOption> subjectModel = new javax.swing.DefaultComboBoxModel<>();
         private final javax.swing.DefaultComboBoxModel<String> yearModel = new javax.swing.DefaultComboBoxModel<>();
         private final JComboBox<ClassOption> classBox = new JComboBox<>(classModel);
         private final JComboBox<SubjectOption> subjectBox = new JComboBox<>(subjectModel);
         private final JComboBox<String> yearBox = new JComboBox<>(yearModel);
-        private List<Map<String, Object>> allNotes = List.of();
+        private final JLabel trendLabel = new JLabel(" ");
 
         GradeOverviewDialog(JFrame owner) throws Exception {
             super(owner, "Noten\u00fcbersicht", true);
             this.service = new CorrectionService();
-            this.allNotes = service.getAllNotesWithNames();
+            this.noteModel = new NotePageTableModel(service);
+            this.table = new JTable(noteModel);
             buildUi();
             loadClasses();
             if (classModel.getSize() > 0) {
@@ -1300,8 +1536,20 @@ public class ServerDashboardFrame extends JFrame {
             table.setBackground(ServerTheme.CANVAS_BACKGROUND);
             table.setGridColor(ServerTheme.CARD_BORDER);
             table.setFillsViewportHeight(true);
-            table.setAutoCreateRowSorter(true);
             javax.swing.table.JTableHeader tableHeader = table.getTableHeader();
+            tableHeader.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseClicked(java.awt.event.MouseEvent e) {
+                    noteModel.sortBy(table.convertColumnIndexToModel(tableHeader.columnAtPoint(e.getPoint())));
+                    // Spalten bleiben erhalten, nur die Kopfzeilen bekommen den neuen Sortierpfeil
+                    javax.swing.table.TableColumnModel columns = table.getColumnModel();
+                    for (int i = 0; i < columns.getColumnCount(); i++) {
+                        javax.swing.table.TableColumn column = columns.getColumn(i);
+                        column.setHeaderValue(noteModel.getColumnName(column.getModelIndex()));
+                    }
+                    tableHeader.repaint();
+                }
+            });
             tableHeader.setFont(ServerTheme.FONT_LABEL.deriveFont(Font.PLAIN, 14f));
             tableHeader.setForeground(ServerTheme.TEXT_SECONDARY);
             tableHeader.setBackground(ServerTheme.CANVAS_BACKGROUND);
@@ -1311,6 +1559,10 @@ public class ServerDashboardFrame extends JFrame {
             scroll.getViewport().setBackground(ServerTheme.CANVAS_BACKGROUND);
             root.add(scroll, BorderLayout.CENTER);
 
+            trendLabel.setFont(ServerTheme.FONT_BODY);
+            trendLabel.setForeground(ServerTheme.TEXT_SECONDARY);
+            root.add(trendLabel, BorderLayout.SOUTH);
+
             classBox.setRenderer(new ComboRenderer());
             subjectBox.setRenderer(new ComboRenderer());
             yearBox.setRenderer(new ComboRenderer());
@@ -1404,13 +1656,8 @@ public class ServerDashboardFrame extends JFrame {
                     .sorted(Comparator.comparing(CorrectionService.SubjectInfo::name, String.CASE_INSENSITIVE_ORDER))
                     .forEach(info -> subjectModel.addElement(new SubjectOption(info.id(), info.name())));
             } else {
-                Set<String> fallbackSubjects = allNotes.stream()
-                    .filter(n -> classOption.name().equals(sanitize(n.get("klassenname"))))
-                    .map(n -> sanitize(n.get("fachname")))
-                    .filter(s -> !s.isEmpty())
-                    .collect(Collectors.toCollection(() -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)));
-                for (String name : fallbackSubjects) {
-                    subjectModel.addElement(new SubjectOption(-1, name));
+                for (CorrectionService.SubjectInfo info : service.loadNoteSubjects(classOption.id())) {
+                    subjectModel.addElement(new SubjectOption(info.id(), info.name()));
                 }
             }
             subjectBox.setEnabled(subjectModel.getSize() > 0);
@@ -1421,18 +1668,10 @@ public class ServerDashboardFrame extends JFrame {
 
         private void updateYears(ClassOption classOption) {
             yearModel.removeAllElements();
-            List<String> years = allowedYearsForClass(classOption == null ? null : classOption.name());
-            LinkedHashSet<String> unique = new LinkedHashSet<>();
+            List<String> years = new ArrayList<>(service.loadNoteYears(classOption == null ? -1 : classOption.id()));
+            Collections.reverse(years);
             for (String year : years) {
-                String sanitized = year == null ? "" : year.trim();
-                if (!sanitized.isEmpty() && unique.add(sanitized)) {
-                    yearModel.addElement(sanitized);
-                }
-            }
-            if (yearModel.getSize() == 0) {
-                for (String fallback : collectAllKnownYears()) {
-                    yearModel.addElement(fallback);
-                }
+                yearModel.addElement(year);
             }
             yearBox.setEnabled(yearModel.getSize() > 0);
             if (yearModel.getSize() > 0) {
@@ -1444,85 +1683,46 @@ public class ServerDashboardFrame extends JFrame {
             ClassOption classOption = (ClassOption) classBox.getSelectedItem();
             SubjectOption subjectOption = (SubjectOption) subjectBox.getSelectedItem();
             String year = (String) yearBox.getSelectedItem();
-            Set<String> allowedYears = classOption == null ? Set.of()
-                : new LinkedHashSet<>(allowedYearsForClass(classOption.name()));
-
-            List<Map<String, Object>> filtered = allNotes.stream()
-                .filter(n -> classOption == null || classOption.name().equals(sanitize(n.get("klassenname"))))
-                .filter(n -> subjectOption == null || subjectOption.name().equals(sanitize(n.get("fachname"))))
-                .filter(n -> allowedYears.isEmpty() || allowedYears.contains(sanitize(n.get("schuljahr"))))
-                .filter(n -> year == null || year.isBlank() || year.equals(sanitize(n.get("schuljahr"))))
-                .sorted(Comparator.comparing((Map<String, Object> n) -> sanitize(n.get("schuelername")), String.CASE_INSENSITIVE_ORDER)
-                    .thenComparing(n -> sanitize(n.get("fachname")), String.CASE_INSENSITIVE_ORDER)
-                    .thenComparing(n -> sanitize(n.get("datum")), String.CASE_INSENSITIVE_ORDER))
-                .toList();
-
-            String[] columns = {"Sch\u00fcler", "Fach", "Test", "Note", "Datum", "Uhrzeit", "Schuljahr", "Lehrer"};
-            Object[][] data = new Object[filtered.size()][columns.length];
-            for (int i = 0; i < filtered.size(); i++) {
-                Map<String, Object> row = filtered.get(i);
-                data[i][0] = sanitize(row.get("schuelername"));
-                data[i][1] = sanitize(row.get("fachname"));
-                data[i][2] = sanitize(row.get("testname"));
-                data[i][3] = sanitize(row.get("note"));
-                data[i][4] = sanitize(row.get("datum"));
-                data[i][5] = sanitize(row.get("uhrzeit"));
-                data[i][6] = sanitize(row.get("schuljahr"));
-                data[i][7] = sanitize(row.get("lehrername"));
-            }
-            table.setModel(new javax.swing.table.DefaultTableModel(data, columns) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
-            });
+            List<String> years = year == null || year.isBlank() ? List.of() : List.of(year);
+            noteModel.setFilter(classOption == null ? null : new CorrectionService.NoteFilter(classOption.id(),
+                subjectOption == null ? -1 : subjectOption.id(),
+                subjectOption == null ? null : subjectOption.name(),
+                years));
+            updateTrend(classOption, subjectOption);
         }
 
         private String sanitize(Object value) {
             return value == null ? "" : value.toString().trim();
         }
 
-        private List<String> allowedYearsForClass(String className) {
-            if (className == null || className.isBlank()) {
-                return collectAllKnownYears();
-            }
-            int grade = extractLeadingNumber(className);
-            if (grade < 5 || grade > 12) {
-                return collectAllKnownYears();
+        private void updateTrend(ClassOption classOption, SubjectOption subjectOption) {
+            if (classOption == null || subjectOption == null || subjectOption.id() < 0) {
+                trendLabel.setText(" ");
+                return;
             }
-            int count = Math.max(1, grade - 4);
-            List<String> years = new ArrayList<>(count);
-            for (int offset = 0; offset < count; offset++) {
-                years.add(formatSchoolYear(BASE_SCHOOL_YEAR_START - offset));
+            List<CorrectionService.GradeTrendPoint> trend = service.loadGradeTrend(classOption.id(), subjectOption.id());
+            if (trend.isEmpty()) {
+                trendLabel.setText("Noch keine Noten in diesem Fach.");
+                return;
             }
-            return years;
-        }
-
-        private List<String> collectAllKnownYears() {
-            return new ArrayList<>(allNotes.stream()
-                .map(n -> sanitize(n.get("schuljahr")))
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.toCollection(() -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER))));
-        }
-
-        private int extractLeadingNumber(String className) {
-            int value = 0;
-            boolean found = false;
-            for (int i = 0; i < className.length(); i++) {
-                char ch = className.charAt(i);
-                if (Character.isDigit(ch)) {
-                    value = value * 10 + Character.digit(ch, 10);
-                    found = true;
-                } else if (found) {
-                    break;
+            StringBuilder text = new StringBuilder("Entwicklung: ");
+            for (int i = 0; i < trend.size(); i++) {
+                CorrectionService.GradeTrendPoint point = trend.get(i);
+                if (i > 0) {
+                    text.append("  |  ");
                 }
+                text.append(point.schuljahr().isEmpty() ? "ohne Schuljahr" : point.schuljahr())
+                    .append(": ").append(point.count()).append(" Noten");
+                if (!Double.isNaN(point.average())) {
+                    text.append(String.format(Locale.GERMAN, ", \u00d8 %.2f", point.average()));
+                }
+                text.append(" (");
+                text.append(point.distribution().entrySet().stream()
+                    .map(entry -> (entry.getKey().isEmpty() ? "-" : entry.getKey()) + "\u00d7" + entry.getValue())
+                    .collect(Collectors.joining(" ")));
+                text.append(")");
             }
-            return found ? value : -1;
-        }
-
-        private String formatSchoolYear(int startYear) {
-            int endYear = startYear + 1;
-            return startYear + "/" + endYear + " " + HALF_YEAR_SUFFIX;
+            trendLabel.setText(text.toString());
         }
 
         @Override
@@ -0,0 +1,283 @@
+package frontend.server;
+
+import backend.server.DatabaseHandler;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * @title SimilarityDetector
+ * @short Findet auffaellig aehnliche Freitextantworten ueber parallele Tests mehrerer Klassen hinweg (MinHash mit LSH-Banding).
+ *
+ * Jede Antwort erhaelt eine MinHash-Signatur ueber Zeichen-5-Gramme ihres normalisierten Textes; Signaturen werden in
+ * AntwortSignatur zwischengespeichert und nur fuer neue oder geaenderte Antworten berechnet. Gezaehlt wird nur die
+ * neueste Antwort je Schueler und Aufgabe. Parallele Tests (z.B. 5a und 5b) haben eigene Aufgabenzeilen; Aufgaben
+ * gelten daher als gleich, wenn ihr normalisierter Aufgabentext gleich ist. Antworten derselben Aufgabe, die in
+ * mindestens einem Band uebereinstimmen, werden anschliessend exakt per Jaccard geprueft.
+ */
+final class SimilarityDetector {
+
+    static final double DEFAULT_THRESHOLD = 0.6;
+
+    /** Kurze Antworten ("Photosynthese") sind zwangslaeufig gleich und werden nicht gemeldet. */
+    private static final int MIN_LENGTH = 30;
+    private static final int SHINGLE = 5;
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    private static final long[] SEEDS_A = new long[HASHES];
+    private static final long[] SEEDS_B = new long[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4C55455333L);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS_A[i] = random.nextLong() | 1L;
+            SEEDS_B[i] = random.nextLong();
+        }
+    }
+
+    record SimilarPair(String task, String studentA, String classA, String answerA,
+                       String studentB, String classB, String answerB, double similarity) {
+    }
+
+    record Report(List<SimilarPair> pairs, int answers, int computedSignatures, int candidates, long elapsedNanos) {
+        String summary() {
+            return String.format(Locale.GERMAN,
+                    "%d Paare gefunden (%d Antworten, %d Kandidaten geprueft, %d Signaturen neu berechnet, %.0f ms)",
+                    pairs.size(), answers, candidates, computedSignatures, elapsedNanos / 1_000_000.0);
+        }
+    }
+
+    private static final class Entry {
+        final String taskKey;
+        final String taskTitle;
+        final int studentId;
+        final String student;
+        final String className;
+        final String answer;
+        final String normalized;
+        int[] signature;
+        int[] shingles;
+
+        Entry(String taskKey, String taskTitle, int studentId, String student, String className, String answer,
+              String normalized) {
+            this.taskKey = taskKey;
+            this.taskTitle = taskTitle;
+            this.studentId = studentId;
+            this.student = student;
+            this.className = className;
+            this.answer = answer;
+            this.normalized = normalized;
+        }
+    }
+
+    private SimilarityDetector() {
+    }
+
+    /**
+     * @title detect
+     * @short Liefert alle Antwortpaare der gewaehlten Tests mit Jaccard-Aehnlichkeit ab der Schwelle, absteigend sortiert.
+     */
+    static Report detect(DatabaseHandler db, List<Integer> testIds, double threshold) throws SQLException {
+        long start = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        List<DatabaseHandler.AntwortSignaturEntry> computed = new ArrayList<>();
+        if (testIds.isEmpty()) {
+            return new Report(List.of(), 0, 0, 0, System.nanoTime() - start);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(testIds.size(), "?"));
+        db.streamQuery("SELECT a.idAntwort, a.idAufgabe, a.idSchueler, a.antwort, s.vorname, s.nachname, "
+                + "k.klassenname, sig.textHash, sig.signatur, au.aufgabeMarkdown "
+                + "FROM Antwort a "
+                + "JOIN Aufgabe au ON au.idAufgabe = a.idAufgabe "
+                + "JOIN Schueler s ON s.idSchueler = a.idSchueler "
+                + "LEFT JOIN Klasse k ON k.idKlasse = s.idKlasse "
+                + "LEFT JOIN AntwortSignatur sig ON sig.idAntwort = a.idAntwort "
+                + "WHERE a.idTest IN (" + placeholders + ") AND lower(au.typ) NOT IN ('singlechoice', 'multichoice') "
+                + "AND NOT EXISTS (SELECT 1 FROM Antwort a2 WHERE a2.idSchueler = a.idSchueler "
+                + "AND a2.idTest = a.idTest AND a2.idAufgabe = a.idAufgabe AND a2.idAntwort > a.idAntwort)", testIds, rs -> {
+            String answer = rs.getString(4);
+            String normalized = AnswerClusterer.normalize(answer);
+            if (normalized.length() < MIN_LENGTH) {
+                return true;
+            }
+            String student = (nullToEmpty(rs.getString(5)) + " " + nullToEmpty(rs.getString(6))).trim();
+            String markdown = rs.getString(10);
+            String taskText = AnswerClusterer.normalize(markdown);
+            Entry entry = new Entry(taskText.isEmpty() ? "#" + rs.getInt(2) : taskText, taskTitle(markdown, rs.getInt(2)),
+                    rs.getInt(3), student, nullToEmpty(rs.getString(7)), answer, normalized);
+            long textHash = fnv64(normalized);
+            byte[] stored = rs.getBytes(9);
+            if (stored != null && stored.length == HASHES * Integer.BYTES && rs.getLong(8) == textHash) {
+                entry.signature = decode(stored);
+            } else {
+                entry.shingles = shingles(normalized);
+                entry.signature = minHash(entry.shingles);
+                computed.add(new DatabaseHandler.AntwortSignaturEntry(rs.getInt(1), textHash, encode(entry.signature)));
+            }
+            entries.add(entry);
+            return true;
+        });
+        db.upsertAntwortSignaturen(computed);
+
+        Set<Long> candidates = candidatePairs(entries);
+        List<SimilarPair> pairs = new ArrayList<>();
+        for (long pair : candidates) {
+            Entry a = entries.get((int) (pair >>> 32));
+            Entry b = entries.get((int) pair);
+            double similarity = jaccard(shinglesOf(a), shinglesOf(b));
+            if (similarity >= threshold) {
+                pairs.add(new SimilarPair(a.taskTitle, a.student, a.className, a.answer,
+                        b.student, b.className, b.answer, similarity));
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(SimilarPair::similarity).reversed());
+        return new Report(pairs, entries.size(), computed.size(), candidates.size(), System.nanoTime() - start);
+    }
+
+    private static Set<Long> candidatePairs(List<Entry> entries) {
+        Map<BandKey, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            for (int band = 0; band < BANDS; band++) {
+                int[] rows = Arrays.copyOfRange(entry.signature, band * ROWS, (band + 1) * ROWS);
+                buckets.computeIfAbsent(new BandKey(entry.taskKey, band, Arrays.hashCode(rows), rows), key -> new ArrayList<>()).add(i);
+            }
+        }
+        Set<Long> candidates = new HashSet<>();
+        for (List<Integer> bucket : buckets.values()) {
+            for (int x = 0; x < bucket.size(); x++) {
+                for (int y = x + 1; y < bucket.size(); y++) {
+                    int i = bucket.get(x);
+                    int j = bucket.get(y);
+                    if (entries.get(i).studentId != entries.get(j).studentId) {
+                        candidates.add(((long) i << 32) | j);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private record BandKey(String taskKey, int band, int hash, int[] rows) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BandKey key && key.taskKey.equals(taskKey) && key.band == band
+                    && key.hash == hash && Arrays.equals(key.rows, rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return (taskKey.hashCode() * 31 + band) * 31 + hash;
+        }
+    }
+
+    /** Erste nicht leere Zeile des Aufgabentextes ohne Markdown-Ueberschriftszeichen, gekuerzt auf 60 Zeichen. */
+    private static String taskTitle(String markdown, int taskId) {
+        if (markdown != null) {
+            for (String line : markdown.split("\\R")) {
+                String title = line.replaceFirst("^\\s*#+\\s*", "").trim();
+                if (!title.isEmpty()) {
+                    return title.length() > 60 ? title.substring(0, 57) + "..." : title;
+                }
+            }
+        }
+        return "Aufgabe " + taskId;
+    }
+
+    private static int[] shinglesOf(Entry entry) {
+        if (entry.shingles == null) {
+            entry.shingles = shingles(entry.normalized);
+        }
+        return entry.shingles;
+    }
+
+    /** Sortierte, duplikatfreie Hashes der Zeichen-5-Gramme. */
+    private static int[] shingles(String text) {
+        int count = Math.max(1, text.length() - SHINGLE + 1);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = text.substring(i, Math.min(text.length(), i + SHINGLE)).hashCode();
+        }
+        Arrays.sort(result);
+        return Arrays.stream(result).distinct().toArray();
+    }
+
+    private static int[] minHash(int[] shingles) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                int hash = (int) (mix(shingle * SEEDS_A[i] + SEEDS_B[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double jaccard(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) intersection / (a.length + b.length - intersection);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static long fnv64(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static byte[] encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        for (int value : signature) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static int[] decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int[] signature = new int[data.length / Integer.BYTES];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = buffer.getInt();
+        }
+        return signature;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
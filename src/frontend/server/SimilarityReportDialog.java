@@ -0,0 +1,128 @@
+package frontend.server;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+
+/** Rangliste auffaellig aehnlicher Freitextantworten; die gewaehlte Paarung wird im Wortlaut gegenuebergestellt. */
+class SimilarityReportDialog extends JDialog {
+
+    private final SimilarityTableModel model;
+    private final JTable table;
+    private final JTextArea leftArea = buildArea();
+    private final JTextArea rightArea = buildArea();
+
+    SimilarityReportDialog(Window owner, String testName, SimilarityDetector.Report report) {
+        super(owner, "Aehnliche Antworten", ModalityType.APPLICATION_MODAL);
+        this.model = new SimilarityTableModel(report.pairs());
+        this.table = new JTable(model);
+        buildUi(testName, report);
+    }
+
+    private void buildUi(String testName, SimilarityDetector.Report report) {
+        setSize(960, 640);
+        setLocationRelativeTo(getOwner());
+        JPanel root = new JPanel(new BorderLayout(12, 12));
+        root.setBackground(ServerTheme.WINDOW_BACKGROUND);
+        root.setBorder(new EmptyBorder(16, 16, 16, 16));
+        setContentPane(root);
+
+        JLabel title = new JLabel("Aehnliche Antworten: " + testName);
+        title.setForeground(ServerTheme.TEXT_PRIMARY);
+        title.setFont(ServerTheme.FONT_HEADING);
+        JLabel summary = new JLabel(report.summary());
+        summary.setForeground(ServerTheme.TEXT_SECONDARY);
+        summary.setFont(ServerTheme.FONT_BODY);
+        JPanel header = new JPanel(new BorderLayout(0, 6));
+        header.setOpaque(false);
+        header.add(title, BorderLayout.NORTH);
+        header.add(summary, BorderLayout.CENTER);
+        root.add(header, BorderLayout.NORTH);
+
+        table.setRowHeight(28);
+        table.setFont(ServerTheme.FONT_BODY);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showPair(table.getSelectedRow());
+            }
+        });
+
+        JPanel comparison = new JPanel(new GridLayout(1, 2, 12, 0));
+        comparison.setOpaque(false);
+        comparison.add(new JScrollPane(leftArea));
+        comparison.add(new JScrollPane(rightArea));
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), comparison);
+        split.setResizeWeight(0.6);
+        split.setBorder(null);
+        root.add(split, BorderLayout.CENTER);
+
+        if (model.getRowCount() > 0) {
+            table.setRowSelectionInterval(0, 0);
+        }
+    }
+
+    private void showPair(int row) {
+        SimilarityDetector.SimilarPair pair = model.getPair(row);
+        leftArea.setText(pair == null ? "" : pair.studentA() + " (" + pair.classA() + ")\n\n" + pair.answerA());
+        rightArea.setText(pair == null ? "" : pair.studentB() + " (" + pair.classB() + ")\n\n" + pair.answerB());
+        leftArea.setCaretPosition(0);
+        rightArea.setCaretPosition(0);
+    }
+
+    private static JTextArea buildArea() {
+        JTextArea area = new JTextArea(6, 20);
+        area.setEditable(false);
+        area.setLineWrap(true);
+        area.setWrapStyleWord(true);
+        area.setFont(ServerTheme.FONT_BODY);
+        return area;
+    }
+
+    private static class SimilarityTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Aehnlichkeit", "Aufgabe", "Schueler A", "Klasse A", "Schueler B", "Klasse B"};
+        private final List<SimilarityDetector.SimilarPair> pairs;
+
+        SimilarityTableModel(List<SimilarityDetector.SimilarPair> pairs) {
+            this.pairs = pairs;
+        }
+
+        SimilarityDetector.SimilarPair getPair(int row) {
+            return row < 0 || row >= pairs.size() ? null : pairs.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return pairs.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            SimilarityDetector.SimilarPair pair = pairs.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> String.format(Locale.GERMAN, "%.0f %%", pair.similarity() * 100);
+                case 1 -> pair.task();
+                case 2 -> pair.studentA();
+                case 3 -> pair.classA();
+                case 4 -> pair.studentB();
+                case 5 -> pair.classB();
+                default -> "";
+            };
+        }
+    }
+}